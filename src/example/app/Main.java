@@ -12,20 +12,12 @@ import example.app.ui.FacultyPageUI;
 
 import java.io.IOException;
 import java.util.Scanner;
-import java.util.UUID;
 
 public class Main {
     public static FacultyUser findUser(String username)
             throws CannotCreateFileException, FileDatabaseConfigFileException,
             IOException, ClassNotFoundException, FileDatabaseInternalException {
-        for(UUID key : new UserList().getIds()) {
-            FacultyUser facultyUser = (FacultyUser) new UserList().get(key);
-
-            if(username.equals(facultyUser.getUsername()))
-                return facultyUser;
-        }
-
-        return null;
+        return (FacultyUser) new UserList().findByUsername(username);
     }
 
     public static void main(String[] args) throws Exception {
@@ -0,0 +1,167 @@
+package example.app.entities;
+
+import example.app.entities.exceptions.EmptyArgumentException;
+import example.app.entities.exceptions.InvalidDateException;
+import example.app.entities.exceptions.NullArgumentException;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * <h1>Interface EntityFormat</h1>
+ * This interface represents a hand written conversion between one type of entity and a row of text values, which is
+ * used to import and export the entities as CSV or JSON lines. A row holds the whole state of the entity, including
+ * its id and its creation date, so an exported entity is imported again as the same entity. The values are checked
+ * by the setters of the entity while a row is read, like when an entity is entered by a user.
+ * <br>
+ * An embedded entity is written as its own columns, prefixed by the name of the field, and a map of assignments is
+ * written in one column as "date@id" pairs separated by ";".
+ * @param <T> type of the entities converted by the format
+ */
+public interface EntityFormat<T> {
+    /**
+     * This method returns the names of the columns of a row. The names never change, since they are the header of
+     * the exported files.
+     * @return the names of the columns
+     */
+    List<String> columns();
+
+    /**
+     * This method writes an entity as a row.
+     * @param entity the entity to be written
+     * @return the values of the row, in the order of the columns
+     */
+    List<String> write(T entity);
+
+    /**
+     * This method reads an entity from a row.
+     * @param values the values of the row, in the order of the columns
+     * @return the entity
+     * @throws NullArgumentException if a required value is missing
+     * @throws EmptyArgumentException if a required value is empty
+     * @throws InvalidDateException if a date is not valid
+     * @throws IllegalArgumentException if an id or a date could not be parsed
+     */
+    T read(List<String> values) throws NullArgumentException, EmptyArgumentException, InvalidDateException;
+
+    /**
+     * This method prefixes the names of the columns of an embedded entity with the name of its field.
+     * @param prefix the name of the field
+     * @param columns the names of the columns of the embedded entity
+     * @return the prefixed names
+     */
+    static List<String> prefixed(String prefix, List<String> columns) {
+        ArrayList<String> prefixedColumns = new ArrayList<>();
+
+        for(String column : columns)
+            prefixedColumns.add(prefix + "_" + column);
+
+        return prefixedColumns;
+    }
+
+    /**
+     * This method writes a date and time of a row. The nanoseconds are kept, so the date is read back exactly.
+     * @param dateTime the date and time
+     * @return the date and time in ISO-8601 format
+     */
+    static String writeDateTime(LocalDateTime dateTime) {
+        return dateTime.toString();
+    }
+
+    /**
+     * This method reads a date and time written by writeDateTime().
+     * @param value the value of the column
+     * @param column the name of the column, for the exceptions
+     * @return the date and time
+     * @throws NullArgumentException if the value is missing
+     * @throws InvalidDateException if the value is not a date and time in ISO-8601 format
+     */
+    static LocalDateTime readDateTime(String value, String column) throws NullArgumentException, InvalidDateException {
+        if(value == null)
+            throw new NullArgumentException("Missing value of the column \"" + column + "\"");
+
+        return parseDateTime(value, column);
+    }
+
+    /**
+     * This method reads an id of a row.
+     * @param value the value of the column
+     * @param column the name of the column, for the exceptions
+     * @return the id
+     * @throws NullArgumentException if the value is missing
+     * @throws IllegalArgumentException if the value is not a UUID
+     */
+    static UUID readId(String value, String column) throws NullArgumentException {
+        if(value == null)
+            throw new NullArgumentException("Missing value of the column \"" + column + "\"");
+
+        return UUID.fromString(value);
+    }
+
+    /**
+     * This method writes a map of assignments in one column.
+     * @param assignments the ids of the assigned entities by the creation date of the entities
+     * @return the "date@id" pairs separated by ";"
+     */
+    static String writeAssignments(Map<LocalDateTime, UUID> assignments) {
+        StringBuilder value = new StringBuilder();
+
+        for(Map.Entry<LocalDateTime, UUID> assignment : assignments.entrySet()) {
+            if(!value.isEmpty())
+                value.append(';');
+
+            value.append(writeDateTime(assignment.getKey())).append('@').append(assignment.getValue());
+        }
+
+        return value.toString();
+    }
+
+    /**
+     * This method reads a map of assignments written by writeAssignments(). A missing value is read as no
+     * assignments.
+     * @param value the value of the column
+     * @param column the name of the column, for the exceptions
+     * @return the ids of the assigned entities by the creation date of the entities
+     * @throws InvalidDateException if a date is not valid
+     * @throws IllegalArgumentException if a pair or an id could not be parsed
+     */
+    static TreeMap<LocalDateTime, UUID> readAssignments(String value, String column) throws InvalidDateException {
+        TreeMap<LocalDateTime, UUID> assignments = new TreeMap<>();
+
+        if(value == null || value.isEmpty())
+            return assignments;
+
+        for(String pair : value.split(";")) {
+            int separator = pair.indexOf('@');
+
+            if(separator < 0)
+                throw new IllegalArgumentException("Value of the column \"" + column + "\" is not a list of date@id pairs");
+
+            assignments.put(parseDateTime(pair.substring(0, separator), column),
+                    UUID.fromString(pair.substring(separator + 1)));
+        }
+
+        return assignments;
+    }
+
+    /**
+     * This is a private method that parses a date and time in ISO-8601 format.
+     * @param value the value to be parsed
+     * @param column the name of the column, for the exception
+     * @return the date and time
+     * @throws InvalidDateException if the value is not a date and time in ISO-8601 format
+     */
+    private static LocalDateTime parseDateTime(String value, String column) throws InvalidDateException {
+        try {
+            return LocalDateTime.parse(value);
+        }
+        catch (DateTimeParseException exception) {
+            throw new InvalidDateException("Value of the column \"" + column + "\" is in wrong format", exception);
+        }
+    }
+}
@@ -5,7 +5,9 @@ import java.util.UUID;
 
 /**
  * <h1>Interface FileDatabaseCompatible</h1>
- * This interface is to make sure an entity class is compatible with the FileDatabase class
+ * This interface is to make sure an entity class is compatible with the FileDatabase class.
+ * The FileDatabase finds duplicates of an entity by its hashCode(), so an entity has to override it consistently with
+ * equals() and only from values that are the same in every run of the application.
  */
 public interface FileDatabaseCompatible {
     LocalDateTime getCreationDate();
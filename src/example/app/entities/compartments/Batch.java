@@ -1,5 +1,6 @@
 package example.app.entities.compartments;
 
+import example.app.entities.EntityFormat;
 import example.app.entities.FileDatabaseCompatible;
 import example.app.entities.exceptions.EmptyArgumentException;
 import example.app.entities.exceptions.InvalidDateException;
@@ -45,6 +46,50 @@ public class Batch implements Serializable, FileDatabaseCompatible {
     private final LocalDateTime batchCreationDate;
     private final TreeMap<LocalDateTime, UUID> assignedFaculties = new TreeMap<>();
 
+    /**
+     * The format that writes a batch as a row of text values, for importing and exporting the batches. The course of
+     * the batch is written with the format of the course, in the columns prefixed with "course".
+     */
+    public static final EntityFormat<Batch> FORMAT = new EntityFormat<>() {
+        private static final int OWN_COLUMNS = 7;
+
+        @Override
+        public List<String> columns() {
+            ArrayList<String> columns = new ArrayList<>(List.of("id", "name", "description", "start_date",
+                    "end_date", "creation_date", "assigned_faculties"));
+            columns.addAll(EntityFormat.prefixed("course", Course.FORMAT.columns()));
+
+            return columns;
+        }
+
+        @Override
+        public List<String> write(Batch batch) {
+            ArrayList<String> values = new ArrayList<>(List.of(batch.id.toString(), batch.name, batch.description,
+                    EntityFormat.writeDateTime(batch.startDate), EntityFormat.writeDateTime(batch.endDate),
+                    EntityFormat.writeDateTime(batch.batchCreationDate),
+                    EntityFormat.writeAssignments(batch.assignedFaculties)));
+            values.addAll(Course.FORMAT.write(batch.course));
+
+            return values;
+        }
+
+        @Override
+        public Batch read(List<String> values)
+                throws NullArgumentException, EmptyArgumentException, InvalidDateException {
+            Batch batch = new Batch(EntityFormat.readId(values.get(0), "id"),
+                    EntityFormat.readDateTime(values.get(5), "creation_date"));
+
+            batch.setName(values.get(1));
+            batch.setDescription(values.get(2));
+            batch.setDate(EntityFormat.readDateTime(values.get(3), "start_date"),
+                    EntityFormat.readDateTime(values.get(4), "end_date"));
+            batch.setCourse(Course.FORMAT.read(values.subList(OWN_COLUMNS, values.size())));
+            batch.assignedFaculties.putAll(EntityFormat.readAssignments(values.get(6), "assigned_faculties"));
+
+            return batch;
+        }
+    };
+
     /**
      * Getter for the id of the batch
      * @return the id of the batch
@@ -351,14 +396,14 @@ public class Batch implements Serializable, FileDatabaseCompatible {
             throws NullArgumentException, DuplicatePresentException, CannotCreateFileException,
             FileDatabaseConfigFileException, FileDatabaseInternalException, IOException,
             ClassNotFoundException {
+        ArrayList<Faculty> assigned = new FacultyList().getAll(assignedFaculties.values());
+
         for(Faculty faculty : faculties) {
             if(faculty == null)
                 throw new NullArgumentException("Cannot add null to \"assignedFaculties\" in class \"Batch\"");
 
-            for(LocalDateTime key : assignedFaculties.keySet()) {
-                if(new FacultyList().get(assignedFaculties.get(key)).equals(faculty))
-                    throw new DuplicatePresentException("Faculty with id " + faculty.getId() + " is already assigned to the batch");
-            }
+            if(assigned.contains(faculty))
+                throw new DuplicatePresentException("Faculty with id " + faculty.getId() + " is already assigned to the batch");
         }
 
         for(Faculty faculty : faculties) {
@@ -446,4 +491,14 @@ public class Batch implements Serializable, FileDatabaseCompatible {
         this.setDurationDays(ChronoUnit.DAYS.between(this.startDate, this.endDate));
         this.batchCreationDate = LocalDateTime.now();
     }
+
+    /**
+     * This is a private constructor that restores a batch with its immutable state, used by the format.
+     * @param id the id of the batch
+     * @param batchCreationDate the batch creation date
+     */
+    private Batch(UUID id, LocalDateTime batchCreationDate) {
+        this.id = id;
+        this.batchCreationDate = batchCreationDate;
+    }
 }
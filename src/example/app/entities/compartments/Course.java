@@ -1,12 +1,15 @@
 package example.app.entities.compartments;
 
 import example.app.entities.exceptions.EmptyArgumentException;
+import example.app.entities.exceptions.InvalidDateException;
 import example.app.entities.exceptions.NullArgumentException;
+import example.app.entities.EntityFormat;
 import example.app.entities.FileDatabaseCompatible;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -23,6 +26,35 @@ public class Course implements Serializable, FileDatabaseCompatible {
     private final String code;
     private final LocalDateTime courseCreationDate;
 
+    /**
+     * The format that writes a course as a row of text values, for importing and exporting the courses.
+     */
+    public static final EntityFormat<Course> FORMAT = new EntityFormat<>() {
+        @Override
+        public List<String> columns() {
+            return List.of("id", "name", "description", "code", "creation_date");
+        }
+
+        @Override
+        public List<String> write(Course course) {
+            return List.of(course.id.toString(), course.name, course.description, course.code,
+                    EntityFormat.writeDateTime(course.courseCreationDate));
+        }
+
+        @Override
+        public Course read(List<String> values)
+                throws NullArgumentException, EmptyArgumentException, InvalidDateException {
+            Course course = new Course(EntityFormat.readId(values.get(0), "id"), values.get(1), values.get(2),
+                    values.get(3), EntityFormat.readDateTime(values.get(4), "creation_date"));
+
+            course.checkValidity(course.name, "name");
+            course.checkValidity(course.description, "description");
+            course.checkValidity(course.code, "code");
+
+            return course;
+        }
+    };
+
     /**
      * Getter for the id
      * @return
@@ -109,4 +141,20 @@ public class Course implements Serializable, FileDatabaseCompatible {
         this.id = UUID.randomUUID();
         this.courseCreationDate = LocalDateTime.now();
     }
+
+    /**
+     * This is a private constructor that restores a course with all of its state, used by the format.
+     * @param id the id of the course
+     * @param name the name of the course
+     * @param description the description of the course
+     * @param code the code of the course
+     * @param courseCreationDate the course creation date
+     */
+    private Course(UUID id, String name, String description, String code, LocalDateTime courseCreationDate) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.code = code;
+        this.courseCreationDate = courseCreationDate;
+    }
 }
@@ -2,7 +2,9 @@ package example.app.entities.compartments;
 
 import example.app.entities.users.FacultyUser;
 import example.app.entities.exceptions.EmptyArgumentException;
+import example.app.entities.exceptions.InvalidDateException;
 import example.app.entities.exceptions.NullArgumentException;
+import example.app.entities.EntityFormat;
 import example.app.entities.FileDatabaseCompatible;
 import example.app.entitylist.BatchList;
 import example.app.entitylist.exceptions.DuplicatePresentException;
@@ -38,6 +40,47 @@ public class Faculty implements Serializable, FileDatabaseCompatible {
     private final LocalDateTime facultyCreationDate;
     private final TreeMap<LocalDateTime, UUID> assignedBatches = new TreeMap<>();
 
+    /**
+     * The format that writes a faculty as a row of text values, for importing and exporting the faculties. The
+     * faculty user is written with the format of the faculty user, in the columns prefixed with "user".
+     */
+    public static final EntityFormat<Faculty> FORMAT = new EntityFormat<>() {
+        private static final int OWN_COLUMNS = 5;
+
+        @Override
+        public List<String> columns() {
+            ArrayList<String> columns = new ArrayList<>(List.of("id", "code", "description", "creation_date",
+                    "assigned_batches"));
+            columns.addAll(EntityFormat.prefixed("user", FacultyUser.FORMAT.columns()));
+
+            return columns;
+        }
+
+        @Override
+        public List<String> write(Faculty faculty) {
+            ArrayList<String> values = new ArrayList<>(List.of(faculty.id.toString(), faculty.code,
+                    faculty.description, EntityFormat.writeDateTime(faculty.facultyCreationDate),
+                    EntityFormat.writeAssignments(faculty.assignedBatches)));
+            values.addAll(FacultyUser.FORMAT.write(faculty.facultyUser));
+
+            return values;
+        }
+
+        @Override
+        public Faculty read(List<String> values)
+                throws NullArgumentException, EmptyArgumentException, InvalidDateException {
+            Faculty faculty = new Faculty(EntityFormat.readId(values.get(0), "id"),
+                    EntityFormat.readDateTime(values.get(3), "creation_date"));
+
+            faculty.setCode(values.get(1));
+            faculty.setDescription(values.get(2));
+            faculty.setFacultyUser(FacultyUser.FORMAT.read(values.subList(OWN_COLUMNS, values.size())));
+            faculty.assignedBatches.putAll(EntityFormat.readAssignments(values.get(4), "assigned_batches"));
+
+            return faculty;
+        }
+    };
+
     /**
      * Getter for faculty id
      * @return UUID v4
@@ -143,14 +186,14 @@ public class Faculty implements Serializable, FileDatabaseCompatible {
             throws NullArgumentException, DuplicatePresentException, CannotCreateFileException,
             FileDatabaseConfigFileException, FileDatabaseInternalException,
             IOException, ClassNotFoundException {
+        ArrayList<Batch> assigned = new BatchList().getAll(assignedBatches.values());
+
         for(Batch batch : batches) {
             if(batch == null)
                 throw new NullArgumentException("Cannot add null to \"assignedBatches\" in class \"Faculty\"");
 
-            for(LocalDateTime key : assignedBatches.keySet()) {
-                if(new BatchList().get(assignedBatches.get(key)).equals(batch))
-                    throw new DuplicatePresentException("Batch with id " + batch.getId() + " is already assigned to the faculty");
-            }
+            if(assigned.contains(batch))
+                throw new DuplicatePresentException("Batch with id " + batch.getId() + " is already assigned to the faculty");
         }
 
         for(Batch batch : batches) {
@@ -207,4 +250,14 @@ public class Faculty implements Serializable, FileDatabaseCompatible {
         this.facultyCreationDate = LocalDateTime.now();
         this.id = UUID.randomUUID();
     }
+
+    /**
+     * This is a private constructor that restores a faculty with its immutable state, used by the format.
+     * @param id the id of the faculty
+     * @param facultyCreationDate the faculty creation date
+     */
+    private Faculty(UUID id, LocalDateTime facultyCreationDate) {
+        this.id = id;
+        this.facultyCreationDate = facultyCreationDate;
+    }
 }
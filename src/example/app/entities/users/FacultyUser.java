@@ -1,15 +1,55 @@
 package example.app.entities.users;
 
+import example.app.entities.EntityFormat;
 import example.app.entities.exceptions.EmptyArgumentException;
+import example.app.entities.exceptions.InvalidDateException;
 import example.app.entities.exceptions.NullArgumentException;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
 /**
  * <h1>Class FacultyUser</h1>
  * This class extends User class and represents a faculty user.
  */
 public class FacultyUser extends User {
+    /**
+     * The format that writes a faculty user as a row of text values, for importing and exporting the users.
+     */
+    public static final EntityFormat<FacultyUser> FORMAT = new EntityFormat<>() {
+        @Override
+        public List<String> columns() {
+            return VALUE_COLUMNS;
+        }
+
+        @Override
+        public List<String> write(FacultyUser facultyUser) {
+            return facultyUser.writeValues();
+        }
+
+        @Override
+        public FacultyUser read(List<String> values)
+                throws NullArgumentException, EmptyArgumentException, InvalidDateException {
+            FacultyUser facultyUser = new FacultyUser(EntityFormat.readId(values.get(0), "id"),
+                    EntityFormat.readDateTime(values.get(1), "creation_date"));
+            facultyUser.readValues(values);
+
+            return facultyUser;
+        }
+    };
+
     public FacultyUser(String username, String password, String firstName, String lastName, String email)
             throws NullArgumentException, EmptyArgumentException {
         super(username, password, firstName, lastName, email);
     }
+
+    /**
+     * This is a private constructor that restores a faculty user with its immutable state, used by the format.
+     * @param id the id of the user
+     * @param accountCreationDate the account creation date
+     */
+    private FacultyUser(UUID id, LocalDateTime accountCreationDate) {
+        super(id, accountCreationDate);
+    }
 }
@@ -2,6 +2,7 @@ package example.app.entities.users;
 
 import example.app.entities.exceptions.EmptyArgumentException;
 import example.app.entities.exceptions.NullArgumentException;
+import example.app.entities.EntityFormat;
 import example.app.entities.FileDatabaseCompatible;
 import example.app.utility.Password;
 
@@ -9,6 +10,8 @@ import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -25,6 +28,11 @@ import java.util.UUID;
  */
 public class User implements Serializable, FileDatabaseCompatible {
     private final String DATE_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSS";
+    /**
+     * The names of the columns written by writeValues().
+     */
+    static final List<String> VALUE_COLUMNS = List.of("id", "creation_date", "username", "password_hash",
+            "first_name", "last_name", "email");
     final private UUID id;
     private String username;
     private byte[] password;
@@ -220,4 +228,47 @@ public class User implements Serializable, FileDatabaseCompatible {
         this.accountCreationDate = LocalDateTime.now();
         this.id = UUID.randomUUID();
     }
+
+    /**
+     * This is a package-private constructor that restores a user with its immutable state, used by the formats of
+     * the subclasses together with readValues().
+     * @param id the id of the user
+     * @param accountCreationDate the account creation date
+     */
+    User(UUID id, LocalDateTime accountCreationDate) {
+        this.id = id;
+        this.accountCreationDate = accountCreationDate;
+    }
+
+    /**
+     * This method writes the fields of the user as text values, for the formats of the subclasses. The password is
+     * written as its hash in Base64, the password itself is never known.
+     * @return the values in the order of the columns of VALUE_COLUMNS
+     */
+    List<String> writeValues() {
+        return List.of(id.toString(), EntityFormat.writeDateTime(accountCreationDate), username,
+                Base64.getEncoder().encodeToString(password), firstName, lastName, email);
+    }
+
+    /**
+     * This method reads the mutable fields of the user written by writeValues() and checks them like the setters.
+     * The id and the account creation date are read by the format before the user is constructed.
+     * @param values the values in the order of the columns of VALUE_COLUMNS
+     * @throws NullArgumentException if a value is missing
+     * @throws EmptyArgumentException if a value is empty
+     * @throws IllegalArgumentException if the password hash is not in Base64
+     */
+    void readValues(List<String> values) throws NullArgumentException, EmptyArgumentException {
+        setUsername(values.get(2));
+
+        if(values.get(3) == null)
+            throw new NullArgumentException("Cannot set the value of \"password\" in class \"User\" to null");
+        if(values.get(3).isEmpty())
+            throw new EmptyArgumentException("Cannot set the value of \"password\" in class \"User\" to an empty string");
+
+        password = Base64.getDecoder().decode(values.get(3));
+        setFirstName(values.get(4));
+        setLastName(values.get(5));
+        setEmail(values.get(6));
+    }
 }
@@ -6,19 +6,41 @@ import example.app.filedatabase.Exceptions.FileDatabaseConfigFileException;
 import example.app.filedatabase.Exceptions.FileDatabaseInternalException;
 
 import java.io.IOException;
-import java.util.HashSet;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * <h1>Class BatchList</h1>
  * This class represents a list of batches. It extends the EntityList class. It creates an abstraction for doing
  * FileDatabase related operations that is related to batches. It also provides some other methods that is
- * related to a batch list but not necessarily to a particular batch.
+ * related to a batch list but not necessarily to a particular batch. The batches have a secondary index on their
+ * start date.
  */
 public class BatchList extends EntityList<Batch> {
     private static final String PARTITION_NAME = "batches";
 
+    public static final Field<Batch, LocalDateTime> START_DATE = new Field<>("startDate", Batch::getStartDate);
+
+    /**
+     * This method returns a lazy stream of the batches starting in a range of dates, in the order of their start
+     * dates. The ids are read from the start date index, so only the batches in the range are read.
+     * @param from the earliest start date, inclusive, or null for no lower bound
+     * @param to the latest start date, inclusive, or null for no upper bound
+     * @return the stream of the batches
+     * @throws CannotCreateFileException If the partition directory or the data directory could not be created
+     * @throws FileDatabaseConfigFileException If the syntax in the database.config is wrong
+     * @throws IOException If the database.config could not be read or if there are any errors reading the records
+     * @throws ClassNotFoundException If the class is not found during deserialization of the record.ser file
+     */
+    public Stream<Batch> startingBetween(LocalDateTime from, LocalDateTime to)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        return streamBetween(START_DATE, from, to);
+    }
+
     /**
      * This method gets all the batches from the list of ids and creates a tabular format for displaying.
      * @param batchIds the ids of the batches
@@ -32,13 +54,20 @@ public class BatchList extends EntityList<Batch> {
     public String getTable(TreeSet<UUID> batchIds)
             throws CannotCreateFileException, FileDatabaseConfigFileException,
             FileDatabaseInternalException, IOException, ClassNotFoundException {
+        return getTable(this.getAll(batchIds));
+    }
+
+    /**
+     * This method creates a tabular format of batches for displaying, in the given order.
+     * @param batches the batches, of which null ones are left out
+     * @return String representation of the table of batches
+     */
+    public String getTable(List<Batch> batches) {
         StringBuilder table = new StringBuilder();
         String formatString = "%-6s | %-24s | %-7s | %-12s | %-24s | %-24s\n";
         int i = 0;
 
-        for(UUID id : batchIds) {
-            Batch batch = this.get(id);
-
+        for(Batch batch : batches) {
             if(batch == null) continue;
 
             table.append(String.format(formatString,
@@ -65,7 +94,7 @@ public class BatchList extends EntityList<Batch> {
     }
 
     public BatchList(String partitionName) {
-        super(partitionName);
+        super(partitionName, Batch.FORMAT, List.of(SecondaryIndex.of(START_DATE)));
     }
 
     public BatchList() {
@@ -6,6 +6,7 @@ import example.app.filedatabase.Exceptions.FileDatabaseConfigFileException;
 import example.app.filedatabase.Exceptions.FileDatabaseInternalException;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.TreeSet;
 import java.util.UUID;
 
@@ -13,11 +14,14 @@ import java.util.UUID;
  * <h1>Class CourseList</h1>
  * This class represents a list of courses. It extends the EntityList class. It creates an abstraction for doing
  * FileDatabase related operations that is related to courses. It also provides some other methods that is
- * related to a course list but not necessarily to a particular course.
+ * related to a course list but not necessarily to a particular course. The courses have a secondary index on their
+ * code.
  */
 public class CourseList extends EntityList<Course> {
     private static final String PARTITION_NAME = "courses";
 
+    public static final Field<Course, String> CODE = new Field<>("code", Course::getCode);
+
     /**
      * This method gets all the courses from the list of ids and creates a tabular format for displaying.
      * @param courseIds the ids of the courses
@@ -31,13 +35,20 @@ public class CourseList extends EntityList<Course> {
     public String getTable(TreeSet<UUID> courseIds)
             throws CannotCreateFileException, FileDatabaseConfigFileException,
             FileDatabaseInternalException, IOException, ClassNotFoundException {
+        return getTable(this.getAll(courseIds));
+    }
+
+    /**
+     * This method creates a tabular format of courses for displaying, in the given order.
+     * @param courses the courses, of which null ones are left out
+     * @return String representation of the table of courses
+     */
+    public String getTable(List<Course> courses) {
         StringBuilder table = new StringBuilder();
         String formatString = "%-6s | %-24s | %-15s | %-12s\n";
         int i = 0;
 
-        for(UUID id : courseIds) {
-            Course course = this.get(id);
-
+        for(Course course : courses) {
             if(course == null) continue;
 
             table.append(String.format(formatString,
@@ -59,7 +70,7 @@ public class CourseList extends EntityList<Course> {
     }
 
     public CourseList(String partitionName) {
-        super(partitionName);
+        super(partitionName, Course.FORMAT, List.of(SecondaryIndex.of(CODE)));
     }
 
     public CourseList() {
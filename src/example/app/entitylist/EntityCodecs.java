@@ -0,0 +1,113 @@
+package example.app.entitylist;
+
+import example.app.entities.EntityFormat;
+import example.app.entities.compartments.Batch;
+import example.app.entities.compartments.Course;
+import example.app.entities.compartments.Faculty;
+import example.app.entities.exceptions.EmptyArgumentException;
+import example.app.entities.exceptions.InvalidDateException;
+import example.app.entities.exceptions.NullArgumentException;
+import example.app.entities.users.FacultyUser;
+import example.app.filedatabase.ResourceCodec;
+import example.app.filedatabase.ResourceCodecs;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <h1>Class EntityCodecs</h1>
+ * This class keeps the codecs of the entities, with which the file database stores the entities in its compact
+ * binary form. A codec writes the row of the EntityFormat of its entity as length-prefixed strings, so the entities
+ * don't depend on the file database and their state is still restored and checked in one place.
+ * <br>
+ * All the codecs are registered together by EntityList, before any list reads a resource, so a resource can be
+ * decoded no matter which list class was loaded first. The type identifiers must never change.
+ */
+final class EntityCodecs {
+    static final ResourceCodec<Course> COURSE = new FormatCodec<>(Course.class, 1, Course.FORMAT);
+    static final ResourceCodec<Batch> BATCH = new FormatCodec<>(Batch.class, 2, Batch.FORMAT);
+    static final ResourceCodec<FacultyUser> FACULTY_USER = new FormatCodec<>(FacultyUser.class, 3,
+            FacultyUser.FORMAT);
+    static final ResourceCodec<Faculty> FACULTY = new FormatCodec<>(Faculty.class, 4, Faculty.FORMAT);
+
+    private EntityCodecs() {
+    }
+
+    /**
+     * This method registers the codecs of all the entities. Registering them again does nothing.
+     */
+    static void registerAll() {
+        ResourceCodecs.register(COURSE);
+        ResourceCodecs.register(BATCH);
+        ResourceCodecs.register(FACULTY_USER);
+        ResourceCodecs.register(FACULTY);
+    }
+
+    /**
+     * <h1>Class FormatCodec</h1>
+     * This class encodes one type of entity as the row of its format: the number of values followed by the values.
+     * @param <T> type of the entities encoded by the codec
+     */
+    private static final class FormatCodec<T> implements ResourceCodec<T> {
+        private final Class<T> type;
+        private final int typeId;
+        private final EntityFormat<T> format;
+        private final int columnsCount;
+
+        private FormatCodec(Class<T> type, int typeId, EntityFormat<T> format) {
+            this.type = type;
+            this.typeId = typeId;
+            this.format = format;
+            this.columnsCount = format.columns().size();
+        }
+
+        @Override
+        public Class<T> type() {
+            return type;
+        }
+
+        @Override
+        public int typeId() {
+            return typeId;
+        }
+
+        @Override
+        public int version() {
+            return 1;
+        }
+
+        @Override
+        public void encode(T resource, DataOutput output) throws IOException {
+            List<String> values = format.write(resource);
+            output.writeInt(values.size());
+
+            for(String value : values)
+                ResourceCodecs.writeString(output, value);
+        }
+
+        @Override
+        public T decode(DataInput input, int version) throws IOException {
+            int valuesCount = input.readInt();
+
+            if(valuesCount != columnsCount)
+                throw new StreamCorruptedException(type.getName() + " was encoded with " + valuesCount +
+                        " values instead of " + columnsCount);
+
+            ArrayList<String> values = new ArrayList<>(valuesCount);
+
+            for(int i = 0; i < valuesCount; i++)
+                values.add(ResourceCodecs.readString(input));
+
+            try {
+                return format.read(values);
+            } catch (NullArgumentException | EmptyArgumentException | InvalidDateException |
+                     IllegalArgumentException exception) {
+                throw new StreamCorruptedException("Invalid " + type.getName() + ": " + exception.getMessage());
+            }
+        }
+    }
+}
@@ -1,18 +1,35 @@
 package example.app.entitylist;
 
 import com.sun.source.tree.Tree;
+import example.app.entities.EntityFormat;
 import example.app.entitylist.exceptions.DuplicatePresentException;
+import example.app.entitylist.exceptions.MalformedRowException;
 import example.app.filedatabase.Exceptions.CannotCreateFileException;
 import example.app.filedatabase.Exceptions.FileDatabaseConfigFileException;
 import example.app.filedatabase.Exceptions.FileDatabaseInternalException;
-import example.app.filedatabase.Exceptions.PartitionOverflowException;
 import example.app.filedatabase.FileDatabase;
+import example.app.filedatabase.ResourceEntry;
+import example.app.filedatabase.ScrubReport;
+import example.app.filedatabase.VerifyReport;
 import example.app.entities.FileDatabaseCompatible;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * <h1>Class EntityList</h1>
@@ -20,7 +37,16 @@ import java.util.UUID;
  * @param <T> type of the entities / resources that will be stored in the list
  */
 public class EntityList<T extends FileDatabaseCompatible> {
+    private static final ConcurrentHashMap<String, Object> writeLocks = new ConcurrentHashMap<>();
+
     private final String partitionName;
+    private final EntityFormat<T> format;
+    private final SecondaryIndexes<T> secondaryIndexes;
+    private final Object writeLock;
+
+    static {
+        EntityCodecs.registerAll();
+    }
 
     /**
      * This method is used to add an entity to the list.
@@ -29,18 +55,63 @@ public class EntityList<T extends FileDatabaseCompatible> {
      * @throws FileDatabaseConfigFileException
      * @throws IOException
      * @throws ClassNotFoundException
-     * @throws PartitionOverflowException
      * @throws FileDatabaseInternalException
-     * @throws DuplicatePresentException If the resource already exists
+     * @throws DuplicatePresentException If the resource already exists or another one has its value of a unique index
      */
     public void add(T entity)
             throws CannotCreateFileException, FileDatabaseConfigFileException,
-            IOException, ClassNotFoundException, PartitionOverflowException,
+            IOException, ClassNotFoundException,
             FileDatabaseInternalException, DuplicatePresentException {
-        if(FileDatabase.isResourcePresent(partitionName, entity))
-            throw new DuplicatePresentException("Resource with id " + entity.getId().toString() + " already exists in the partition: " + partitionName);
+        synchronized(writeLock) {
+            // The unique indexes are checked first, so a conflict is reported by the value that conflicts
+            requireUnique(List.of(entity));
 
-        FileDatabase.addResource(partitionName, entity.getCreationDate(), entity.getId().toString(), entity);
+            if(FileDatabase.isResourcePresent(partitionName, entity))
+                throw new DuplicatePresentException("Resource with id " + entity.getId().toString() + " already exists in the partition: " + partitionName);
+
+            secondaryIndexes.added(List.of(entity));
+            FileDatabase.addResource(partitionName, entity.getCreationDate(), entity.getId().toString(), entity);
+        }
+    }
+
+    /**
+     * This method is used to add many entities to the list at once. All the entities are checked for duplicates
+     * before any of them is added, against the list and against each other, and they are written with one update of
+     * the records.
+     * @param entities the entities to be added
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     * @throws FileDatabaseInternalException
+     * @throws DuplicatePresentException If one of the resources already exists or has the value of a unique index of
+     * another one, then none of them is added
+     */
+    public void addAll(Collection<T> entities)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException,
+            FileDatabaseInternalException, DuplicatePresentException {
+        ArrayList<T> newEntities = new ArrayList<>(entities);
+
+        synchronized(writeLock) {
+            requireUnique(newEntities);
+
+            boolean[] present = FileDatabase.areResourcesPresent(partitionName, newEntities);
+            HashSet<T> checkedEntities = new HashSet<>();
+            ArrayList<ResourceEntry> entries = new ArrayList<>();
+
+            for(int i = 0; i < newEntities.size(); i++) {
+                T entity = newEntities.get(i);
+
+                if(present[i] || !checkedEntities.add(entity))
+                    throw new DuplicatePresentException("Resource with id " + entity.getId().toString() + " already exists in the partition: " + partitionName);
+
+                entries.add(new ResourceEntry(entity.getCreationDate(), entity.getId().toString(), entity));
+            }
+
+            secondaryIndexes.added(newEntities);
+            FileDatabase.addResources(partitionName, entries);
+        }
     }
 
     /**
@@ -55,8 +126,43 @@ public class EntityList<T extends FileDatabaseCompatible> {
     public void remove(T entity)
             throws CannotCreateFileException, FileDatabaseConfigFileException,
             IOException, ClassNotFoundException, FileDatabaseInternalException {
-        if(FileDatabase.isResourcePresent(partitionName, entity))
-            FileDatabase.removeResource(partitionName, entity.getId().toString());
+        synchronized(writeLock) {
+            if(FileDatabase.isResourcePresent(partitionName, entity)) {
+                FileDatabase.removeResource(partitionName, entity.getId().toString());
+                secondaryIndexes.removed(List.of(entity));
+            }
+        }
+    }
+
+    /**
+     * This method is used to remove many entities from the list at once, with one update of the records.
+     * @param entities the entities to be removed
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     * @throws FileDatabaseInternalException
+     */
+    public void removeAll(Collection<T> entities)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException, FileDatabaseInternalException {
+        ArrayList<T> removedEntities = new ArrayList<>(entities);
+
+        synchronized(writeLock) {
+            boolean[] present = FileDatabase.areResourcesPresent(partitionName, removedEntities);
+            ArrayList<String> ids = new ArrayList<>();
+            ArrayList<T> presentEntities = new ArrayList<>();
+
+            for(int i = 0; i < removedEntities.size(); i++) {
+                if(present[i]) {
+                    ids.add(removedEntities.get(i).getId().toString());
+                    presentEntities.add(removedEntities.get(i));
+                }
+            }
+
+            FileDatabase.removeResources(partitionName, ids);
+            secondaryIndexes.removed(presentEntities);
+        }
     }
 
     /**
@@ -65,7 +171,10 @@ public class EntityList<T extends FileDatabaseCompatible> {
      * @throws IOException If the database.config could not be read
      */
     public void removeAll() throws FileDatabaseConfigFileException, IOException {
-        FileDatabase.removePartition(partitionName);
+        synchronized(writeLock) {
+            FileDatabase.removePartition(partitionName);
+            secondaryIndexes.cleared();
+        }
     }
 
     /**
@@ -81,7 +190,34 @@ public class EntityList<T extends FileDatabaseCompatible> {
     public T get(UUID id)
             throws CannotCreateFileException, FileDatabaseConfigFileException,
             FileDatabaseInternalException, IOException, ClassNotFoundException {
-        return (T) FileDatabase.getResource(partitionName, id.toString());
+        return entity(FileDatabase.getResource(partitionName, id.toString()));
+    }
+
+    /**
+     * This method is used to get many entities from the list at once. The partition is looked up once and the
+     * entities are read in parallel.
+     * @param ids the ids of the entities
+     * @return the entities in the order of the ids, with null for an id that's not in the list
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws FileDatabaseInternalException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public ArrayList<T> getAll(Collection<UUID> ids)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            FileDatabaseInternalException, IOException, ClassNotFoundException {
+        ArrayList<String> uniqueIds = new ArrayList<>(ids.size());
+
+        for(UUID id : ids)
+            uniqueIds.add(id.toString());
+
+        ArrayList<T> entities = new ArrayList<>(uniqueIds.size());
+
+        for(Object resource : FileDatabase.getResources(partitionName, uniqueIds))
+            entities.add(entity(resource));
+
+        return entities;
     }
 
     /**
@@ -91,12 +227,18 @@ public class EntityList<T extends FileDatabaseCompatible> {
      * @throws FileDatabaseConfigFileException
      * @throws IOException
      * @throws ClassNotFoundException
-     * @throws PartitionOverflowException
+     * @throws FileDatabaseInternalException
+     * @throws DuplicatePresentException If another resource has the value of a unique index of the edited one
      */
     public void edit(T newEntity)
             throws CannotCreateFileException, FileDatabaseConfigFileException,
-            IOException, ClassNotFoundException, PartitionOverflowException {
-        FileDatabase.addResource(partitionName, newEntity.getCreationDate(), newEntity.getId().toString(), newEntity);
+            IOException, ClassNotFoundException,
+            FileDatabaseInternalException, DuplicatePresentException {
+        synchronized(writeLock) {
+            requireUnique(List.of(newEntity));
+            secondaryIndexes.added(List.of(newEntity));
+            FileDatabase.addResource(partitionName, newEntity.getCreationDate(), newEntity.getId().toString(), newEntity);
+        }
     }
 
     /**
@@ -119,7 +261,471 @@ public class EntityList<T extends FileDatabaseCompatible> {
         return ids;
     }
 
+    /**
+     * This method returns one page of entities in the order of their creation dates, with keyset pagination. A
+     * page starts right after the last entity of the previous page, which is named by the cursor, so only the
+     * entities of the page are read, however many entities the list has. Entities added or removed between two
+     * pages do not shift the following pages.
+     * @param order the order of the entities
+     * @param cursor the continuation token of the previous page, or null for the first page
+     * @param limit the largest number of entities in the page
+     * @return the entities of the page and the continuation token of the next page
+     * @throws IllegalArgumentException If the cursor is not a continuation token of this method or the limit is not positive
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws FileDatabaseInternalException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public Page<T> page(PageOrder order, String cursor, int limit)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            FileDatabaseInternalException, IOException, ClassNotFoundException {
+        if(limit < 1)
+            throw new IllegalArgumentException("The limit of a page has to be positive");
+
+        LocalDateTime afterDate = null;
+        String afterId = null;
+
+        if(cursor != null) {
+            int separator = cursor.lastIndexOf('|');
+
+            try {
+                afterDate = LocalDateTime.parse(cursor.substring(0, Math.max(separator, 0)));
+                afterId = UUID.fromString(cursor.substring(separator + 1)).toString();
+            }
+            catch (DateTimeParseException | IllegalArgumentException exception) {
+                throw new IllegalArgumentException("Invalid cursor \"" + cursor + "\" of the partition: " + partitionName, exception);
+            }
+        }
+
+        while(true) {
+            // One more id than the page holds shows if there's a next page
+            ArrayList<String> ids = FileDatabase.getPageOfResources(partitionName, afterDate, afterId,
+                    order == PageOrder.NEWEST_FIRST, limit + 1);
+            boolean hasNext = ids.size() > limit;
+            ArrayList<T> entities = new ArrayList<>(limit);
+
+            for(Object resource : FileDatabase.getResources(partitionName, ids.subList(0, Math.min(limit, ids.size())))) {
+                // The entity was removed since the page was read
+                if(resource != null)
+                    entities.add(entity(resource));
+            }
+
+            if(!hasNext)
+                return new Page<>(entities, null);
+
+            // Every entity of the page was removed, they are left out when the page is read again
+            if(entities.isEmpty())
+                continue;
+
+            T last = entities.get(entities.size() - 1);
+
+            return new Page<>(entities, last.getCreationDate() + "|" + last.getId());
+        }
+    }
+
+    /**
+     * This method returns a lazy stream of all the entities of the list, in the order of their creation dates.
+     * Only the ids are listed at first, every entity is read when it's reached, so a stream that stops early
+     * never reads the rest. An entity that could not be read throws an UncheckedIOException or an
+     * IllegalStateException from the stream.
+     * @return the stream of the entities
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public Stream<T> stream()
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * This method returns a lazy parallel stream of all the entities of the list, which reads and deserializes the
+     * entities on several threads. It's meant for full scans that look at every entity.
+     * @return the parallel stream of the entities
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public Stream<T> parallelStream()
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * This method returns a lazy iterator over all the entities of the list, in the order of their creation dates.
+     * @return the iterator of the entities
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public Iterator<T> iterator()
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        return Spliterators.iterator(spliterator());
+    }
+
+    /**
+     * This method returns a lazy, splittable traversal of all the entities of the list, which stream(),
+     * parallelStream() and iterator() are built on.
+     * @return the traversal of the entities
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public Spliterator<T> spliterator()
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        return entities(FileDatabase.getResourceSpliterator(partitionName));
+    }
+
+    /**
+     * This method returns a lazy stream of the entities created in a range of dates, in the order of their
+     * creation dates. The records are sorted by the creation date, so only the ids in the range are listed and
+     * only the entities in the range are read.
+     * @param from the earliest creation date, inclusive, or null for no lower bound
+     * @param to the latest creation date, inclusive, or null for no upper bound
+     * @return the stream of the entities
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public Stream<T> createdBetween(LocalDateTime from, LocalDateTime to)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        return StreamSupport.stream(entities(FileDatabase.getResourceSpliterator(partitionName, from, to)), false);
+    }
+
+    /**
+     * This method finds the entities that match a query. The query planner reads an index of the list for one of
+     * the conditions if it can, or else scans every entity in parallel. The plan of the query and the number of
+     * entities it read are returned with the entities, and slow queries are reported as set by the "slow_query_ms"
+     * key of the database.config file.
+     * @param query the query
+     * @return the entities that matched and the plan of the query
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public QueryResult<T> find(Query<T> query)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        return QueryPlanner.find(this, query);
+    }
+
+    /**
+     * This method checks that the records of the list agree with the stored entities and that every stored entity
+     * can still be read. Nothing is changed.
+     * @return the problems found in the partition
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public ScrubReport scrub()
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        return FileDatabase.scrubPartition(partitionName);
+    }
+
+    /**
+     * This method verifies the checksums of all the stored entities, without deserializing them.
+     * @return the entities which do not match their checksum
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public VerifyReport verify()
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        return FileDatabase.verifyPartition(partitionName);
+    }
+
+    /**
+     * This method rebuilds the records of the list from the stored entities, keyed by their creation date like in
+     * add(). Entities which could not be read are left out and reported.
+     * @return the entities which could not be read
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     */
+    public ScrubReport rebuildIndex() throws FileDatabaseConfigFileException, IOException {
+        return FileDatabase.rebuildRecords(partitionName,
+                resource -> ((FileDatabaseCompatible) resource).getCreationDate());
+    }
+
+    /**
+     * This method builds the secondary indexes of the list again from the stored entities, reading them in
+     * parallel. Every index is built on its own the first time it's needed, so this is only needed for an index
+     * whose partition was changed outside of the list.
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public void rebuildSecondaryIndexes()
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        synchronized(writeLock) {
+            secondaryIndexes.rebuild();
+        }
+    }
+
+    /**
+     * This method imports the entities from a CSV or JSON lines file, as written by exportTo(). The rows are parsed
+     * in parallel and added in the order of the file, in chunks with one bulk write each. A row whose entity is
+     * already in the list, or repeats an entity of an earlier row, is skipped, so an interrupted import can be
+     * run again. If a row could not be read, the import stops and the chunks before the one of that row stay
+     * imported.
+     * @param reader the reader of the file, which is not closed
+     * @param transferFormat the format of the file
+     * @return the number of imported and skipped rows and the throughput of the import
+     * @throws MalformedRowException If a row could not be parsed or is not a valid entity
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     * @throws FileDatabaseInternalException
+     */
+    public TransferReport importFrom(Reader reader, TransferFormat transferFormat)
+            throws MalformedRowException, CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException, FileDatabaseInternalException {
+        try(EntityTransfer<T> transfer = new EntityTransfer<>(this, requireFormat())) {
+            return transfer.importFrom(reader, transferFormat);
+        }
+    }
+
+    /**
+     * This method exports all the entities of the list to a CSV or JSON lines file, in the order of their creation
+     * dates. The records are read a page at a time, so the ids are never listed all at once, and the entities are
+     * read and formatted in parallel and written in order.
+     * @param writer the writer of the file, which is flushed but not closed
+     * @param transferFormat the format of the file
+     * @return the number of exported entities and the throughput of the export
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     * @throws FileDatabaseInternalException
+     */
+    public TransferReport exportTo(Writer writer, TransferFormat transferFormat)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException, FileDatabaseInternalException {
+        try(EntityTransfer<T> transfer = new EntityTransfer<>(this, requireFormat())) {
+            return transfer.exportTo(writer, transferFormat);
+        }
+    }
+
+    /**
+     * This method adds the entities which are not in the list yet and are not repeated among the entities, with
+     * one bulk write. An entity with the value of a unique index of another entity is left out too. It's used by
+     * the import.
+     * @param entities the entities to be added
+     * @return the number of added entities
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     * @throws FileDatabaseInternalException
+     */
+    int addAbsent(List<T> entities)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException, FileDatabaseInternalException {
+        synchronized(writeLock) {
+            boolean[] present = FileDatabase.areResourcesPresent(partitionName, entities);
+            HashSet<T> checkedEntities = new HashSet<>();
+            ArrayList<T> absentEntities = new ArrayList<>();
+
+            for(int i = 0; i < entities.size(); i++) {
+                if(!present[i] && checkedEntities.add(entities.get(i)))
+                    absentEntities.add(entities.get(i));
+            }
+
+            String[] conflicts = secondaryIndexes.uniqueConflicts(absentEntities);
+            ArrayList<T> addedEntities = new ArrayList<>();
+            ArrayList<ResourceEntry> entries = new ArrayList<>();
+
+            for(int i = 0; i < absentEntities.size(); i++) {
+                T entity = absentEntities.get(i);
+
+                if(conflicts[i] == null) {
+                    addedEntities.add(entity);
+                    entries.add(new ResourceEntry(entity.getCreationDate(), entity.getId().toString(), entity));
+                }
+            }
+
+            if(!entries.isEmpty()) {
+                secondaryIndexes.added(addedEntities);
+                FileDatabase.addResources(partitionName, entries);
+            }
+
+            return entries.size();
+        }
+    }
+
+    /**
+     * This method returns the name of the partition of the list.
+     * @return the name of the partition
+     */
+    String getPartitionName() {
+        return partitionName;
+    }
+
+    /**
+     * This method returns a lazy stream of the entities with the given ids, in their order. It's meant for the ids
+     * found through an index. An id that's not in the list is skipped.
+     * @param uniqueIds the ids of the entities
+     * @return the stream of the entities
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    Stream<T> stream(List<String> uniqueIds)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        return StreamSupport.stream(entities(FileDatabase.getResourceSpliterator(partitionName, uniqueIds)), false);
+    }
+
+    /**
+     * This method returns a lazy stream of the entities whose field is in a range, in the order of the field. The
+     * ids are read from the secondary index of the field, so only the entities in the range are read.
+     * @param field the field, which has to have a secondary index
+     * @param from the smallest value, inclusive, or null for no lower bound
+     * @param to the largest value, inclusive, or null for no upper bound
+     * @return the stream of the entities
+     * @param <V> type of the field
+     * @throws IllegalArgumentException If the field has no secondary index
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    <V extends Comparable<? super V>> Stream<T> streamBetween(Field<T, V> field, V from, V to)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        for(QueryIndex index : secondaryIndexes.queryIndexes()) {
+            if(index.fieldName().equals(field.name())) {
+                Query.Between<T, V> condition = new Query.Between<>(field, from, to);
+
+                // An entry whose entity was removed or moved by an interrupted write is left out
+                return stream(index.idsBetween(from, to)).filter(condition::matches);
+            }
+        }
+
+        throw new IllegalArgumentException("The field " + field + " has no index in the partition: " + partitionName);
+    }
+
+    /**
+     * This method returns the indexes the query planner can read: the records of the list, which are the index of
+     * the creation date, and the secondary indexes.
+     * @return the indexes of the list
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    List<QueryIndex> queryIndexes()
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        ArrayList<QueryIndex> indexes = new ArrayList<>();
+        indexes.add(new QueryIndex(Field.CREATION_DATE, partitionName));
+        indexes.addAll(secondaryIndexes.queryIndexes());
+
+        return indexes;
+    }
+
+    /**
+     * This is a private method that checks the entities against the unique indexes of the list.
+     * @param entities the entities to be added or edited
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     * @throws FileDatabaseInternalException
+     * @throws DuplicatePresentException If an entity has the value of a unique index of another one
+     */
+    private void requireUnique(List<T> entities)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException,
+            FileDatabaseInternalException, DuplicatePresentException {
+        String[] conflicts = secondaryIndexes.uniqueConflicts(entities);
+
+        for(int i = 0; i < conflicts.length; i++) {
+            if(conflicts[i] != null)
+                throw new DuplicatePresentException("Resource with " + conflicts[i] + " already exists in the partition: " +
+                        partitionName + ", so the resource with id " + entities.get(i).getId() + " is not written");
+        }
+    }
+
+    /**
+     * This is a private method that returns the format of the entities, which is needed for importing and
+     * exporting.
+     * @return the format of the entities
+     * @throws UnsupportedOperationException if the list was created without a format
+     */
+    private EntityFormat<T> requireFormat() {
+        if(format == null)
+            throw new UnsupportedOperationException("The list of the partition " + partitionName + " has no format for importing and exporting");
+
+        return format;
+    }
+
+    /**
+     * This is a private method that casts a resource read from the partition to the type of the entities.
+     * @param resource the resource or null
+     * @return the entity or null
+     */
+    // Only the entities of the list are added to its partition, so every resource of it is a T
+    @SuppressWarnings("unchecked")
+    private T entity(Object resource) {
+        return (T) resource;
+    }
+
+    /**
+     * This is a private method that casts a traversal of the resources of the partition to a traversal of the
+     * entities.
+     * @param resources the traversal of the resources
+     * @return the traversal of the entities
+     */
+    // Only the entities of the list are added to its partition, so every resource of the traversal is a T
+    @SuppressWarnings("unchecked")
+    private Spliterator<T> entities(Spliterator<Object> resources) {
+        return (Spliterator<T>) (Spliterator<?>) resources;
+    }
+
     public EntityList(String partitionName) {
+        this(partitionName, null);
+    }
+
+    /**
+     * The constructor creates a list whose entities can be imported and exported with a format.
+     * @param partitionName the name of the partition of the list
+     * @param format the format of the entities
+     */
+    public EntityList(String partitionName, EntityFormat<T> format) {
+        this(partitionName, format, List.of());
+    }
+
+    /**
+     * The constructor creates a list which keeps secondary indexes on fields of its entities, whose entities can
+     * be imported and exported with a format.
+     * @param partitionName the name of the partition of the list
+     * @param format the format of the entities, or null if they are not imported and exported
+     * @param secondaryIndexes the declared indexes
+     */
+    public EntityList(String partitionName, EntityFormat<T> format, List<SecondaryIndex<T>> secondaryIndexes) {
         this.partitionName = partitionName;
+        this.format = format;
+        this.secondaryIndexes = new SecondaryIndexes<>(this, secondaryIndexes);
+        this.writeLock = writeLocks.computeIfAbsent(partitionName, name -> new Object());
     }
 }
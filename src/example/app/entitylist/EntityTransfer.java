@@ -0,0 +1,324 @@
+package example.app.entitylist;
+
+import example.app.entities.EntityFormat;
+import example.app.entities.FileDatabaseCompatible;
+import example.app.entitylist.exceptions.MalformedRowException;
+import example.app.filedatabase.Exceptions.CannotCreateFileException;
+import example.app.filedatabase.Exceptions.FileDatabaseConfigFileException;
+import example.app.filedatabase.Exceptions.FileDatabaseInternalException;
+import example.app.filedatabase.FileDatabase;
+import example.app.filedatabase.RecordEntry;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <h1>Class EntityTransfer</h1>
+ * This class imports and exports the entities of a list as rows of text, in a pipeline:
+ * <ul>
+ *     <li>Import: The calling thread reads the text of the rows in chunks, which are parsed into entities on a pool
+ *     with one thread per processor. The chunks are committed to the list in the order of the file, each with one
+ *     bulk write, so the rows are imported in order while the next chunks are still parsed</li>
+ *     <li>Export: The calling thread reads the records of the entities in pages, in the order of their creation
+ *     dates, with keyset pagination. The entities of every page are read and formatted on the pool, and the calling
+ *     thread writes the formatted chunks in the order of the pages</li>
+ * </ul>
+ * At most two chunks per thread are in flight at once, so the memory used does not grow with the number of rows.
+ * The ids of the entities are never listed all at once.
+ * @param <T> type of the entities of the list
+ */
+final class EntityTransfer<T extends FileDatabaseCompatible> implements Closeable {
+    private static final int CHUNK_SIZE = 512;
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int MAX_PENDING_CHUNKS = 2 * THREADS;
+
+    /**
+     * <h1>Record ExportedChunk</h1>
+     * This record is a chunk of formatted rows, ready to be written.
+     * @param rows the rows, each followed by a line break
+     * @param entities the number of rows
+     */
+    private record ExportedChunk(String rows, int entities) {
+    }
+
+    private final EntityList<T> list;
+    private final EntityFormat<T> format;
+    private final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * This method imports the rows of a file into the list. A row whose entity is already in the list, or which
+     * repeats an entity of an earlier row, is skipped. A row with the id of an entity in the list which is not
+     * equal to it replaces that entity. If a row could not be read, the import stops and the chunks before the one
+     * of that row stay imported.
+     * @param reader the reader of the file
+     * @param transferFormat the format of the file
+     * @return the number of imported and skipped rows and the time the import took
+     * @throws MalformedRowException if a row could not be parsed or is not a valid entity
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     * @throws FileDatabaseInternalException
+     */
+    TransferReport importFrom(Reader reader, TransferFormat transferFormat)
+            throws MalformedRowException, CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException, FileDatabaseInternalException {
+        long start = System.nanoTime();
+        BufferedReader records = reader instanceof BufferedReader bufferedReader ? bufferedReader : new BufferedReader(reader);
+        List<String> header = transferFormat.readHeader(records);
+        ArrayDeque<Future<List<T>>> pending = new ArrayDeque<>();
+        int rows = 0;
+        int imported = 0;
+
+        while(true) {
+            ArrayList<String> chunk = new ArrayList<>(CHUNK_SIZE);
+            String record;
+
+            while(chunk.size() < CHUNK_SIZE && (record = transferFormat.readRecord(records)) != null)
+                chunk.add(record);
+
+            if(chunk.isEmpty())
+                break;
+
+            int firstRow = rows + 1;
+            rows += chunk.size();
+            pending.add(pool.submit(() -> parse(chunk, firstRow, header, transferFormat)));
+
+            if(pending.size() >= MAX_PENDING_CHUNKS)
+                imported += list.addAbsent(await(pending.poll()));
+        }
+
+        while(!pending.isEmpty())
+            imported += list.addAbsent(await(pending.poll()));
+
+        return new TransferReport(list.getPartitionName(), imported, rows - imported, System.nanoTime() - start);
+    }
+
+    /**
+     * This method exports every entity of the list to a file, in the order of their creation dates. The writer is
+     * flushed but not closed.
+     * @param writer the writer of the file
+     * @param transferFormat the format of the file
+     * @return the number of exported entities and the time the export took
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     * @throws FileDatabaseInternalException
+     */
+    TransferReport exportTo(Writer writer, TransferFormat transferFormat)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException, FileDatabaseInternalException {
+        long start = System.nanoTime();
+        BufferedWriter rows = writer instanceof BufferedWriter bufferedWriter ? bufferedWriter : new BufferedWriter(writer);
+        String header = transferFormat.header(format.columns());
+        ArrayDeque<Future<ExportedChunk>> pending = new ArrayDeque<>();
+        int exported = 0;
+
+        if(header != null) {
+            rows.write(header);
+            rows.newLine();
+        }
+
+        List<RecordEntry> page = FileDatabase.getPageOfRecords(list.getPartitionName(), null, null, false, CHUNK_SIZE);
+
+        while(!page.isEmpty()) {
+            ArrayList<UUID> chunk = new ArrayList<>(page.size());
+
+            for(RecordEntry record : page)
+                chunk.add(UUID.fromString(record.uniqueId()));
+
+            pending.add(pool.submit(() -> format(chunk, transferFormat)));
+
+            if(pending.size() >= MAX_PENDING_CHUNKS)
+                exported += write(rows, awaitExport(pending.poll()));
+
+            if(page.size() < CHUNK_SIZE)
+                break;
+
+            RecordEntry last = page.get(page.size() - 1);
+            page = FileDatabase.getPageOfRecords(list.getPartitionName(), last.keyForRecord(), last.uniqueId(),
+                    false, CHUNK_SIZE);
+        }
+
+        while(!pending.isEmpty())
+            exported += write(rows, awaitExport(pending.poll()));
+
+        rows.flush();
+
+        return new TransferReport(list.getPartitionName(), exported, 0, System.nanoTime() - start);
+    }
+
+    /**
+     * This is a private method that parses a chunk of rows into entities, on a thread of the pool.
+     * @param chunk the text of the rows
+     * @param firstRow the number of the first row in the file, counted from 1 after the header
+     * @param header the names of the columns in the file
+     * @param transferFormat the format of the file
+     * @return the entities in the order of the rows
+     * @throws MalformedRowException if a row could not be parsed or is not a valid entity
+     */
+    private List<T> parse(List<String> chunk, int firstRow, List<String> header, TransferFormat transferFormat)
+            throws MalformedRowException {
+        ArrayList<T> entities = new ArrayList<>(chunk.size());
+        List<String> columns = format.columns();
+
+        for(int i = 0; i < chunk.size(); i++) {
+            try {
+                entities.add(format.read(transferFormat.parseRow(chunk.get(i), header, columns)));
+            }
+            catch (MalformedRowException exception) {
+                throw new MalformedRowException("Row " + (firstRow + i) + ": " + exception.getMessage(), exception);
+            }
+            catch (Exception exception) {
+                throw new MalformedRowException("Row " + (firstRow + i) + " is not a valid entity: " +
+                        exception.getMessage(), exception);
+            }
+        }
+
+        return entities;
+    }
+
+    /**
+     * This is a private method that reads and formats the entities of a chunk of ids, on a thread of the pool.
+     * An entity that was removed since its page was read is left out.
+     * @param chunk the ids of the entities
+     * @param transferFormat the format of the file
+     * @return the formatted rows
+     * @throws Exception if an entity could not be read
+     */
+    private ExportedChunk format(List<UUID> chunk, TransferFormat transferFormat) throws Exception {
+        StringBuilder rows = new StringBuilder();
+        List<String> columns = format.columns();
+        int entities = 0;
+
+        for(UUID id : chunk) {
+            T entity = list.get(id);
+
+            if(entity == null)
+                continue;
+
+            rows.append(transferFormat.formatRow(columns, format.write(entity))).append(System.lineSeparator());
+            entities++;
+        }
+
+        return new ExportedChunk(rows.toString(), entities);
+    }
+
+    /**
+     * This is a private method that writes a formatted chunk.
+     * @param rows the writer of the file
+     * @param chunk the formatted chunk
+     * @return the number of written rows
+     * @throws IOException if the file could not be written
+     */
+    private static int write(BufferedWriter rows, ExportedChunk chunk) throws IOException {
+        rows.write(chunk.rows());
+        return chunk.entities();
+    }
+
+    /**
+     * This is a private method that waits for a chunk being parsed.
+     * @param future the chunk
+     * @return the entities of the chunk
+     * @throws MalformedRowException if a row of the chunk could not be read
+     * @throws IOException if the waiting thread was interrupted
+     */
+    private List<T> await(Future<List<T>> future) throws MalformedRowException, IOException {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while importing into the partition: " + list.getPartitionName());
+        }
+        catch (ExecutionException exception) {
+            if(exception.getCause() instanceof MalformedRowException malformedRowException)
+                throw malformedRowException;
+
+            throw unchecked(exception.getCause());
+        }
+    }
+
+    /**
+     * This is a private method that waits for a chunk being formatted.
+     * @param future the chunk
+     * @return the formatted chunk
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     * @throws FileDatabaseInternalException
+     */
+    private ExportedChunk awaitExport(Future<ExportedChunk> future)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException, FileDatabaseInternalException {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while exporting the partition: " + list.getPartitionName());
+        }
+        catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+
+            if(cause instanceof CannotCreateFileException cannotCreateFileException)
+                throw cannotCreateFileException;
+            if(cause instanceof FileDatabaseConfigFileException fileDatabaseConfigFileException)
+                throw fileDatabaseConfigFileException;
+            if(cause instanceof IOException ioException)
+                throw ioException;
+            if(cause instanceof ClassNotFoundException classNotFoundException)
+                throw classNotFoundException;
+            if(cause instanceof FileDatabaseInternalException fileDatabaseInternalException)
+                throw fileDatabaseInternalException;
+
+            throw unchecked(cause);
+        }
+    }
+
+    /**
+     * This is a private method that rethrows an unchecked exception or error of a thread of the pool, or wraps an
+     * unexpected checked exception.
+     * @param cause the exception or error
+     * @return the wrapped checked exception, to be thrown by the caller
+     */
+    private static RuntimeException unchecked(Throwable cause) {
+        if(cause instanceof Error error)
+            throw error;
+        if(cause instanceof RuntimeException runtimeException)
+            throw runtimeException;
+
+        return new IllegalStateException(cause);
+    }
+
+    /**
+     * The constructor creates a transfer for a list and starts its pool. It has to be closed once the transfer is
+     * done.
+     * @param list the list
+     * @param format the format of the entities of the list
+     */
+    EntityTransfer(EntityList<T> list, EntityFormat<T> format) {
+        this.list = list;
+        this.format = format;
+    }
+}
@@ -7,6 +7,7 @@ import example.app.filedatabase.Exceptions.FileDatabaseInternalException;
 
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.TreeSet;
 import java.util.UUID;
 
@@ -14,11 +15,16 @@ import java.util.UUID;
  * <h1>Class FacultyList</h1>
  * This class represents a list of faculties. It extends the EntityList class. It creates an abstraction for doing
  * FileDatabase related operations that is related to faculties. It also provides some other methods that is
- * related to a faculty list but not necessarily to a particular faculty.
+ * related to a faculty list but not necessarily to a particular faculty. The faculties have a secondary index on
+ * the id of their faculty user.
  */
 public class FacultyList extends EntityList<Faculty> {
     private static final String PARTITION_NAME = "faculties";
 
+    public static final Field<Faculty, String> CODE = new Field<>("code", Faculty::getCode);
+    public static final Field<Faculty, UUID> FACULTY_USER_ID =
+            new Field<>("facultyUserId", faculty -> faculty.getFacultyUser().getId());
+
     /**
      * This method gets all the faculties from the list of ids and creates a tabular format for displaying.
      * @param facultyIds the ids of the faculties
@@ -32,13 +38,20 @@ public class FacultyList extends EntityList<Faculty> {
     public String getTable(TreeSet<UUID> facultyIds)
             throws CannotCreateFileException, FileDatabaseConfigFileException,
             FileDatabaseInternalException, IOException, ClassNotFoundException {
+        return getTable(this.getAll(facultyIds));
+    }
+
+    /**
+     * This method creates a tabular format of faculties for displaying, in the given order.
+     * @param faculties the faculties, of which null ones are left out
+     * @return String representation of the table of faculties
+     */
+    public String getTable(List<Faculty> faculties) {
         StringBuilder table = new StringBuilder();
         String formatString = "%-6s | %-24s | %-7s | %-18s | %-12s\n";
         int i = 0;
 
-        for(UUID id : facultyIds) {
-            Faculty faculty = this.get(id);
-
+        for(Faculty faculty : faculties) {
             if(faculty == null) continue;
 
             table.append(String.format(formatString,
@@ -63,7 +76,7 @@ public class FacultyList extends EntityList<Faculty> {
     }
 
     public FacultyList(String partitionName) {
-        super(partitionName);
+        super(partitionName, Faculty.FORMAT, List.of(SecondaryIndex.of(FACULTY_USER_ID)));
     }
 
     public FacultyList() {
@@ -0,0 +1,43 @@
+package example.app.entitylist;
+
+import example.app.entities.FileDatabaseCompatible;
+
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+/**
+ * <h1>Record Field</h1>
+ * This record names a property of an entity and reads it, so that a query can compare it. The name is what the
+ * query planner matches against the indexes of a list, so two fields with the same name have to read the same
+ * property.
+ * @param name the name of the property
+ * @param getter the reader of the property
+ * @param <T> type of the entities
+ * @param <V> type of the property
+ */
+public record Field<T, V>(String name, Function<? super T, ? extends V> getter) {
+    public static final String CREATION_DATE = "creationDate";
+
+    /**
+     * This method reads the property of an entity.
+     * @param entity the entity
+     * @return the value of the property
+     */
+    public V get(T entity) {
+        return getter.apply(entity);
+    }
+
+    /**
+     * This method returns the field of the creation date, by which the records of every list are sorted.
+     * @return the field of the creation date
+     * @param <T> type of the entities
+     */
+    public static <T extends FileDatabaseCompatible> Field<T, LocalDateTime> creationDate() {
+        return new Field<>(CREATION_DATE, FileDatabaseCompatible::getCreationDate);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
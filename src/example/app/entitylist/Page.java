@@ -0,0 +1,20 @@
+package example.app.entitylist;
+
+import java.util.List;
+
+/**
+ * <h1>Record Page</h1>
+ * This record is one page of entities of a list, returned by EntityList.page().
+ * @param entities the entities of the page, in the order of the page
+ * @param nextCursor the continuation token to get the next page with, or null if this is the last page
+ * @param <T> type of the entities
+ */
+public record Page<T>(List<T> entities, String nextCursor) {
+    /**
+     * This method checks if there's a page after this one.
+     * @return true if there's a next page, false otherwise
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,16 @@
+package example.app.entitylist;
+
+/**
+ * <h1>Enum PageOrder</h1>
+ * This enum represents the order in which the entities of a list are paged by EntityList.page(). The entities are
+ * kept sorted by their creation dates in the records of the file database, so both orders are read without sorting.
+ * <ul>
+ *     <li>OLDEST_FIRST: By the creation date, the oldest entity first</li>
+ *     <li>NEWEST_FIRST: By the creation date, the newest entity first</li>
+ * </ul>
+ * Entities with the same creation date are ordered by their ids.
+ */
+public enum PageOrder {
+    OLDEST_FIRST,
+    NEWEST_FIRST
+}
@@ -0,0 +1,225 @@
+package example.app.entitylist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * <h1>Class Query</h1>
+ * This class represents a query over the entities of a list, which is run by EntityList.find(). A query is the
+ * conjunction of its conditions, each of which compares one field of the entities:
+ * <ul>
+ *     <li>Equal: The field is equal to a value</li>
+ *     <li>Between: The field is in a range, both ends inclusive and either of them open</li>
+ *     <li>Prefix: The text of the field starts with a prefix</li>
+ * </ul>
+ * A query is immutable, every method that adds to it returns a new query.
+ * @param <T> type of the entities
+ */
+public final class Query<T> {
+    /**
+     * <h1>Interface Condition</h1>
+     * This interface represents a condition of a query on one field of the entities.
+     * @param <T> type of the entities
+     */
+    public sealed interface Condition<T> permits Equal, Between, Prefix {
+        Field<T, ?> field();
+        boolean matches(T entity);
+    }
+
+    /**
+     * <h1>Record Equal</h1>
+     * This record is the condition that a field is equal to a value.
+     * @param field the field
+     * @param value the value, which can be null
+     * @param <T> type of the entities
+     */
+    public record Equal<T>(Field<T, ?> field, Object value) implements Condition<T> {
+        @Override
+        public boolean matches(T entity) {
+            return Objects.equals(field.get(entity), value);
+        }
+
+        @Override
+        public String toString() {
+            return field + " = " + quoted(value);
+        }
+    }
+
+    /**
+     * <h1>Record Between</h1>
+     * This record is the condition that a field is in a range. An entity whose field is null does not match.
+     * @param field the field
+     * @param from the smallest value, inclusive, or null for no lower bound
+     * @param to the largest value, inclusive, or null for no upper bound
+     * @param <T> type of the entities
+     * @param <V> type of the field
+     */
+    public record Between<T, V extends Comparable<? super V>>(Field<T, V> field, V from, V to)
+            implements Condition<T> {
+        @Override
+        public boolean matches(T entity) {
+            V value = field.get(entity);
+
+            return value != null &&
+                    (from == null || value.compareTo(from) >= 0) &&
+                    (to == null || value.compareTo(to) <= 0);
+        }
+
+        @Override
+        public String toString() {
+            if(from == null)
+                return field + " <= " + quoted(to);
+            if(to == null)
+                return field + " >= " + quoted(from);
+
+            return field + " between " + quoted(from) + " and " + quoted(to);
+        }
+    }
+
+    /**
+     * <h1>Record Prefix</h1>
+     * This record is the condition that the text of a field starts with a prefix. An entity whose field is null
+     * does not match.
+     * @param field the field
+     * @param prefix the prefix
+     * @param <T> type of the entities
+     */
+    public record Prefix<T>(Field<T, String> field, String prefix) implements Condition<T> {
+        @Override
+        public boolean matches(T entity) {
+            String value = field.get(entity);
+
+            return value != null && value.startsWith(prefix);
+        }
+
+        @Override
+        public String toString() {
+            return field + " starts with " + quoted(prefix);
+        }
+    }
+
+    private final List<Condition<T>> conditions;
+    private final int limit;
+
+    /**
+     * This method adds the condition that a field is equal to a value.
+     * @param field the field
+     * @param value the value
+     * @return the new query
+     * @param <V> type of the field
+     */
+    public <V> Query<T> equal(Field<T, V> field, V value) {
+        return and(new Equal<>(field, value));
+    }
+
+    /**
+     * This method adds the condition that a field is in a range, both ends inclusive.
+     * @param field the field
+     * @param from the smallest value, or null for no lower bound
+     * @param to the largest value, or null for no upper bound
+     * @return the new query
+     * @param <V> type of the field
+     */
+    public <V extends Comparable<? super V>> Query<T> between(Field<T, V> field, V from, V to) {
+        return and(new Between<>(field, from, to));
+    }
+
+    /**
+     * This method adds the condition that the text of a field starts with a prefix.
+     * @param field the field
+     * @param prefix the prefix
+     * @return the new query
+     * @throws NullPointerException if the prefix is null
+     */
+    public Query<T> prefix(Field<T, String> field, String prefix) {
+        return and(new Prefix<>(field, Objects.requireNonNull(prefix)));
+    }
+
+    /**
+     * This method adds a condition.
+     * @param condition the condition
+     * @return the new query
+     */
+    public Query<T> and(Condition<T> condition) {
+        ArrayList<Condition<T>> newConditions = new ArrayList<>(conditions);
+        newConditions.add(Objects.requireNonNull(condition));
+
+        return new Query<>(Collections.unmodifiableList(newConditions), limit);
+    }
+
+    /**
+     * This method limits the number of entities the query finds. The query stops reading entities once it has
+     * found them.
+     * @param limit the largest number of entities, or 0 for no limit
+     * @return the new query
+     * @throws IllegalArgumentException if the limit is negative
+     */
+    public Query<T> limit(int limit) {
+        if(limit < 0)
+            throw new IllegalArgumentException("The limit of a query can not be negative");
+
+        return new Query<>(conditions, limit);
+    }
+
+    /**
+     * This method checks if an entity matches every condition of the query.
+     * @param entity the entity
+     * @return true if the entity matches
+     */
+    public boolean matches(T entity) {
+        for(Condition<T> condition : conditions) {
+            if(!condition.matches(entity))
+                return false;
+        }
+
+        return true;
+    }
+
+    public List<Condition<T>> getConditions() {
+        return conditions;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public String toString() {
+        if(conditions.isEmpty())
+            return "all";
+
+        StringBuilder text = new StringBuilder();
+
+        for(Condition<T> condition : conditions) {
+            if(!text.isEmpty())
+                text.append(" and ");
+
+            text.append(condition);
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * This is a private method that writes a value of a condition, with quotes around text.
+     * @param value the value
+     * @return the text of the value
+     */
+    private static String quoted(Object value) {
+        return value instanceof String string ? "\"" + string + "\"" : String.valueOf(value);
+    }
+
+    /**
+     * The constructor creates a query without conditions, which finds every entity.
+     */
+    public Query() {
+        this(List.of(), 0);
+    }
+
+    private Query(List<Condition<T>> conditions, int limit) {
+        this.conditions = conditions;
+        this.limit = limit;
+    }
+}
@@ -0,0 +1,35 @@
+package example.app.entitylist;
+
+import example.app.filedatabase.Exceptions.CannotCreateFileException;
+import example.app.filedatabase.Exceptions.FileDatabaseConfigFileException;
+import example.app.filedatabase.FileDatabase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * <h1>Record QueryIndex</h1>
+ * This record is an index a list offers to the query planner. It's a partition whose records are keyed by the
+ * values of a field and named by the ids of the entities, so the ids of the entities whose field is in a range are
+ * read from the sorted records without reading any entity. The partition of the list itself is the index of the
+ * creation date.
+ * @param fieldName the name of the indexed field
+ * @param partitionName the name of the partition of the index
+ */
+record QueryIndex(String fieldName, String partitionName) {
+    /**
+     * This method reads the ids of the entities whose field is in a range, in the order of the field.
+     * @param from the smallest value, inclusive, or null for no lower bound
+     * @param to the largest value, inclusive, or null for no upper bound
+     * @return the ids of the entities
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    ArrayList<String> idsBetween(Object from, Object to)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        return FileDatabase.getIdsOfResourcesBetween(partitionName, from, to);
+    }
+}
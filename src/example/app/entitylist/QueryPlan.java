@@ -0,0 +1,35 @@
+package example.app.entitylist;
+
+/**
+ * <h1>Record QueryPlan</h1>
+ * This record explains how a query was run by EntityList.find(): which index it read, if any, and how many
+ * entities it had to read for the ones it found. A plan that examines many more entities than it matches points to
+ * a field that needs an index.
+ * @param partitionName the name of the partition of the list
+ * @param query the text of the query
+ * @param index the name of the field whose index was read, or null for a scan of every entity
+ * @param indexCondition the condition that was looked up in the index, or null for a scan of every entity
+ * @param filter the other conditions, which were checked on every entity that was read, or null if there are none
+ * @param examined the number of entities that were read
+ * @param matched the number of entities that matched the query
+ * @param elapsedNanos the time the query took, in nanoseconds
+ */
+public record QueryPlan(String partitionName, String query, String index, String indexCondition, String filter,
+                        long examined, int matched, long elapsedNanos) {
+    /**
+     * This method checks if the query read an index instead of every entity.
+     * @return true if an index was read
+     */
+    public boolean usesIndex() {
+        return index != null;
+    }
+
+    @Override
+    public String toString() {
+        String access = usesIndex() ? "index on " + index + " for " + indexCondition : "parallel scan";
+
+        return "Partition \"" + partitionName + "\": " + query + "\n" +
+                "  plan: " + access + (filter != null ? ", then filter: " + filter : "") + "\n" +
+                "  examined " + examined + ", matched " + matched + " in " + elapsedNanos / 1_000_000 + " ms";
+    }
+}
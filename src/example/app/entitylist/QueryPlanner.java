@@ -0,0 +1,169 @@
+package example.app.entitylist;
+
+import example.app.entities.FileDatabaseCompatible;
+import example.app.filedatabase.Exceptions.CannotCreateFileException;
+import example.app.filedatabase.Exceptions.FileDatabaseConfigFileException;
+import example.app.filedatabase.FileDatabaseConfigFile;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <h1>Class QueryPlanner</h1>
+ * This class plans and runs the queries of EntityList.find(). Of the conditions on an indexed field, the planner
+ * looks up the one that's expected to match the fewest entities:
+ * <ul>
+ *     <li>An equal condition, which is a single key of the index</li>
+ *     <li>A prefix condition or a range with both ends, which is a bounded range of the index</li>
+ *     <li>A range with one end, which is the rest of the index from that end</li>
+ * </ul>
+ * Among conditions of the same kind, the first one of the query is looked up. Only the entities whose ids are in
+ * the range of the index are read, and every condition is checked on them, so an index entry whose entity has
+ * changed since is left out. Without a condition on an indexed field, every entity is read with a parallel scan.
+ * <br>
+ * If the "slow_query_ms" key is in the database.config file, the plan of every query that takes at least that many
+ * milliseconds is written to the standard error, so slow queries can be found without changing the code.
+ */
+final class QueryPlanner {
+    private static final String SLOW_QUERY_KEY = "slow_query_ms";
+
+    /**
+     * This method runs a query over the entities of a list.
+     * @param list the list
+     * @param query the query
+     * @return the entities that matched and the plan of the query
+     * @param <T> type of the entities
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    static <T extends FileDatabaseCompatible> QueryResult<T> find(EntityList<T> list, Query<T> query)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        long start = System.nanoTime();
+        List<QueryIndex> indexes = list.queryIndexes();
+        QueryIndex chosenIndex = null;
+        Query.Condition<T> chosenCondition = null;
+        int bestRank = 0;
+
+        for(Query.Condition<T> condition : query.getConditions()) {
+            int rank = rank(condition);
+
+            if(rank <= bestRank)
+                continue;
+
+            for(QueryIndex index : indexes) {
+                if(index.fieldName().equals(condition.field().name())) {
+                    chosenIndex = index;
+                    chosenCondition = condition;
+                    bestRank = rank;
+                    break;
+                }
+            }
+        }
+
+        AtomicLong examined = new AtomicLong();
+        Stream<T> candidates;
+
+        if(chosenIndex == null)
+            candidates = list.parallelStream();
+        else {
+            Object[] bounds = bounds(chosenCondition);
+            candidates = list.stream(chosenIndex.idsBetween(bounds[0], bounds[1]));
+        }
+
+        Stream<T> matches = candidates.peek(entity -> examined.incrementAndGet()).filter(query::matches);
+
+        if(query.getLimit() > 0)
+            matches = matches.limit(query.getLimit());
+
+        List<T> entities = matches.collect(Collectors.toList());
+        Query<T> filter = new Query<>();
+
+        for(Query.Condition<T> condition : query.getConditions()) {
+            if(condition != chosenCondition)
+                filter = filter.and(condition);
+        }
+
+        QueryPlan plan = new QueryPlan(list.getPartitionName(), query.toString(),
+                chosenIndex == null ? null : chosenIndex.fieldName(),
+                chosenCondition == null ? null : chosenCondition.toString(),
+                filter.getConditions().isEmpty() ? null : filter.toString(),
+                examined.get(), entities.size(), System.nanoTime() - start);
+        long slowQueryMillis = FileDatabaseConfigFile.longValue(SLOW_QUERY_KEY, -1);
+
+        if(slowQueryMillis >= 0 && plan.elapsedNanos() >= slowQueryMillis * 1_000_000)
+            System.err.println("Slow query on partition \"" + list.getPartitionName() + "\"\n" + plan);
+
+        return new QueryResult<>(entities, plan);
+    }
+
+    /**
+     * This is a private method that ranks how few entities a condition is expected to match through an index.
+     * @param condition the condition
+     * @return the rank, higher for fewer entities, or 0 if the condition can not be looked up in an index
+     */
+    private static int rank(Query.Condition<?> condition) {
+        if(condition instanceof Query.Equal<?> equal)
+            return equal.value() != null ? 3 : 0;
+        if(condition instanceof Query.Prefix<?>)
+            return 2;
+        if(condition instanceof Query.Between<?, ?> between) {
+            if(between.from() != null && between.to() != null)
+                return 2;
+
+            return between.from() != null || between.to() != null ? 1 : 0;
+        }
+
+        return 0;
+    }
+
+    /**
+     * This is a private method that returns the range of the index that holds the entities matching a condition.
+     * @param condition the condition
+     * @return the smallest and the largest key of the range, inclusive, where null is an open end
+     */
+    private static Object[] bounds(Query.Condition<?> condition) {
+        if(condition instanceof Query.Equal<?> equal)
+            return new Object[] {equal.value(), equal.value()};
+        if(condition instanceof Query.Prefix<?> prefix)
+            return new Object[] {prefix.prefix(), prefixUpperBound(prefix.prefix())};
+
+        Query.Between<?, ?> between = (Query.Between<?, ?>) condition;
+        return new Object[] {between.from(), between.to()};
+    }
+
+    /**
+     * This is a private method that returns a key after every text starting with a prefix, which is the prefix with
+     * its last code point raised by one. The range up to it can hold a few more texts, which are left out by the
+     * condition. A last code point that can't be raised without breaking the order of the keys is dropped first.
+     * @param prefix the prefix
+     * @return the key after the texts or null if there's none
+     */
+    private static String prefixUpperBound(String prefix) {
+        int end = prefix.length();
+
+        while(end > 0) {
+            int codePoint = prefix.codePointBefore(end);
+            int start = end - Character.charCount(codePoint);
+
+            // The code point after U+FFFF is a surrogate pair, which comes before it in the order of String
+            if(codePoint != Character.MAX_VALUE && codePoint != Character.MAX_CODE_POINT) {
+                int next = codePoint + 1 == Character.MIN_SURROGATE ? Character.MAX_SURROGATE + 1 : codePoint + 1;
+
+                return prefix.substring(0, start) + Character.toString(next);
+            }
+
+            end = start;
+        }
+
+        return null;
+    }
+
+    private QueryPlanner() {
+    }
+}
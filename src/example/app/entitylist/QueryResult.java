@@ -0,0 +1,20 @@
+package example.app.entitylist;
+
+import java.util.List;
+
+/**
+ * <h1>Record QueryResult</h1>
+ * This record is the result of EntityList.find(): the entities that matched the query and the plan it was run with.
+ * @param entities the entities, in the order of the index that was read or of the creation dates for a scan
+ * @param plan the plan of the query
+ * @param <T> type of the entities
+ */
+public record QueryResult<T>(List<T> entities, QueryPlan plan) {
+    /**
+     * This method returns the first entity that matched the query.
+     * @return the first entity or null if none matched
+     */
+    public T first() {
+        return entities.isEmpty() ? null : entities.get(0);
+    }
+}
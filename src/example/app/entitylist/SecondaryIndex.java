@@ -0,0 +1,48 @@
+package example.app.entitylist;
+
+import java.util.Locale;
+
+/**
+ * <h1>Record SecondaryIndex</h1>
+ * This record declares an index of a list on a field of its entities, which the list keeps in a partition of its
+ * own. The partition is named after the partition of the list and the field, like "faculties_by_faculty_user_id",
+ * and its records are keyed by the values of the field and named by the ids of the entities. So the entities with
+ * a value, a range of values or a prefix are found by the query planner without reading the other entities.
+ * <br>
+ * The values of the field have to be of a type the record index of the partition can sort: LocalDateTime, Integer,
+ * Long, UUID or String. Entities whose field is null are not indexed. A unique index also rejects an entity whose
+ * value is already the value of another entity of the list.
+ * @param field the indexed field
+ * @param unique whether two entities of the list can not have the same value
+ * @param <T> type of the entities
+ */
+public record SecondaryIndex<T>(Field<T, ?> field, boolean unique) {
+    /**
+     * This method declares an index on a field whose values can repeat.
+     * @param field the field
+     * @return the index
+     * @param <T> type of the entities
+     */
+    public static <T> SecondaryIndex<T> of(Field<T, ?> field) {
+        return new SecondaryIndex<>(field, false);
+    }
+
+    /**
+     * This method declares an index on a field whose values are unique in the list.
+     * @param field the field
+     * @return the index
+     * @param <T> type of the entities
+     */
+    public static <T> SecondaryIndex<T> unique(Field<T, ?> field) {
+        return new SecondaryIndex<>(field, true);
+    }
+
+    /**
+     * This method returns the name of the partition of the index.
+     * @param listPartitionName the name of the partition of the list
+     * @return the name of the partition of the index
+     */
+    String partitionName(String listPartitionName) {
+        return listPartitionName + "_by_" + field.name().replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,345 @@
+package example.app.entitylist;
+
+import example.app.entities.FileDatabaseCompatible;
+import example.app.filedatabase.Exceptions.CannotCreateFileException;
+import example.app.filedatabase.Exceptions.FileDatabaseConfigFileException;
+import example.app.filedatabase.Exceptions.FileDatabaseInternalException;
+import example.app.filedatabase.FileDatabase;
+import example.app.filedatabase.RecordEntry;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * <h1>Class SecondaryIndexes</h1>
+ * This class keeps the secondary indexes of a list up to date. Every index is a partition of records without
+ * resources, keyed by the value of the field and named by the id of the entity, so an entity has at most one entry
+ * in every index and an edit moves it. Writing an entry only appends to the record.log file of the index, nothing
+ * is written to its data directory.
+ * <br>
+ * The partition of the list has a catalog partition, named after it with "_indexes" appended, which names every
+ * index that was completely built. The first time the indexes of a list are needed in a process, an index that's
+ * not in the catalog is built again from the entities, read with a parallel stream, and then added to the catalog.
+ * So an index whose build was interrupted, or whose declaration changed, is built again too.
+ * <br>
+ * An index is a partition of its own, so an entity and its entries are not written atomically. The writes of a
+ * list are serialized by its write lock, which only isolates them from each other within the process. An entry is
+ * written before its entity and removed after it, so an interrupted write leaves at most an entry whose entity is
+ * missing or has another value. A query checks its conditions on every entity it reads, and the uniqueness check
+ * reads the entity of a conflicting entry, so such an entry is ignored.
+ * <br>
+ * A lookup by value reads the range of records of the value in the index, which is a search of the ordered
+ * records, and then reads every entity the range names.
+ * @param <T> type of the entities
+ */
+final class SecondaryIndexes<T extends FileDatabaseCompatible> {
+    private static final String CATALOG_SUFFIX = "_indexes";
+    private static final Set<String> checkedLists = ConcurrentHashMap.newKeySet();
+
+    private final EntityList<T> list;
+    private final List<SecondaryIndex<T>> indexes;
+
+    /**
+     * This method returns the indexes the query planner can read.
+     * @return the indexes of the list
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    List<QueryIndex> queryIndexes()
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        require();
+
+        ArrayList<QueryIndex> queryIndexes = new ArrayList<>(indexes.size());
+
+        for(SecondaryIndex<T> index : indexes)
+            queryIndexes.add(new QueryIndex(index.field().name(), index.partitionName(list.getPartitionName())));
+
+        return queryIndexes;
+    }
+
+    /**
+     * This method checks the entities against the unique indexes, against the list and against each other. An
+     * entity only conflicts with other entities, so an edited entity does not conflict with itself.
+     * @param entities the entities to be added or edited
+     * @return for every entity, the field and value it conflicts on, or null if it does not conflict
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     * @throws FileDatabaseInternalException
+     */
+    String[] uniqueConflicts(List<T> entities)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException, FileDatabaseInternalException {
+        String[] conflicts = new String[entities.size()];
+
+        for(SecondaryIndex<T> index : indexes) {
+            if(!index.unique())
+                continue;
+
+            require();
+
+            String partitionName = index.partitionName(list.getPartitionName());
+            HashMap<Object, UUID> values = new HashMap<>();
+
+            for(int i = 0; i < entities.size(); i++) {
+                T entity = entities.get(i);
+                Object value = index.field().get(entity);
+
+                if(value == null || conflicts[i] != null)
+                    continue;
+
+                UUID earlier = values.putIfAbsent(value, entity.getId());
+
+                if((earlier != null && !earlier.equals(entity.getId())) || isTaken(index, partitionName, value, entity))
+                    conflicts[i] = index.field().name() + " " + (value instanceof String ? "\"" + value + "\"" : value);
+            }
+        }
+
+        return conflicts;
+    }
+
+    /**
+     * This method adds the entries of entities which are about to be added or edited. The entry of an entity whose
+     * field is null is removed.
+     * @param entities the entities
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    void added(List<T> entities)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        require();
+
+        for(SecondaryIndex<T> index : indexes) {
+            String partitionName = index.partitionName(list.getPartitionName());
+            ArrayList<RecordEntry> entries = new ArrayList<>(entities.size());
+            ArrayList<String> unindexedIds = new ArrayList<>();
+
+            for(T entity : entities) {
+                Object value = index.field().get(entity);
+
+                if(value == null)
+                    unindexedIds.add(entity.getId().toString());
+                else
+                    entries.add(entry(value, entity));
+            }
+
+            if(!entries.isEmpty())
+                FileDatabase.addRecords(partitionName, entries);
+            if(!unindexedIds.isEmpty())
+                FileDatabase.removeRecords(partitionName, unindexedIds);
+        }
+    }
+
+    /**
+     * This method removes the entries of entities which were removed from the list.
+     * @param entities the entities
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    void removed(List<T> entities)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        if(indexes.isEmpty() || entities.isEmpty())
+            return;
+
+        require();
+
+        ArrayList<String> ids = new ArrayList<>(entities.size());
+
+        for(T entity : entities)
+            ids.add(entity.getId().toString());
+
+        for(SecondaryIndex<T> index : indexes)
+            FileDatabase.removeRecords(index.partitionName(list.getPartitionName()), ids);
+    }
+
+    /**
+     * This method removes every index of the list and its catalog.
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     */
+    void cleared() throws FileDatabaseConfigFileException, IOException {
+        if(indexes.isEmpty())
+            return;
+
+        synchronized(checkedLists) {
+            checkedLists.remove(list.getPartitionName());
+
+            for(SecondaryIndex<T> index : indexes)
+                FileDatabase.removePartition(index.partitionName(list.getPartitionName()));
+
+            FileDatabase.removePartition(list.getPartitionName() + CATALOG_SUFFIX);
+        }
+    }
+
+    /**
+     * This method builds every index of the list again from the entities.
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    void rebuild()
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        synchronized(checkedLists) {
+            cleared();
+            require();
+        }
+    }
+
+    /**
+     * This is a private method that checks if another entity of the list has a value of a unique index.
+     * @param index the index
+     * @param partitionName the name of the partition of the index
+     * @param value the value
+     * @param entity the entity that's about to have the value
+     * @return true if another entity has the value
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     * @throws FileDatabaseInternalException
+     */
+    private boolean isTaken(SecondaryIndex<T> index, String partitionName, Object value, T entity)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException, FileDatabaseInternalException {
+        for(String id : FileDatabase.getIdsOfResourcesBetween(partitionName, value, value)) {
+            if(id.equals(entity.getId().toString()))
+                continue;
+
+            T other = list.get(UUID.fromString(id));
+
+            // The entry is left over from an interrupted write if its entity is missing or has another value
+            if(other != null && Objects.equals(index.field().get(other), value))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * This is a private method that builds the indexes which are not in the catalog, the first time the indexes of
+     * the list are needed in the process. The entities are read once for all of them, with a parallel stream.
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private void require()
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        String listPartitionName = list.getPartitionName();
+
+        if(indexes.isEmpty() || checkedLists.contains(listPartitionName))
+            return;
+
+        synchronized(checkedLists) {
+            if(checkedLists.contains(listPartitionName))
+                return;
+
+            String catalogName = listPartitionName + CATALOG_SUFFIX;
+            TreeSet<Object> catalog = FileDatabase.getIdsOfResources(catalogName);
+            ArrayList<SecondaryIndex<T>> missingIndexes = new ArrayList<>();
+
+            for(SecondaryIndex<T> index : indexes) {
+                if(!catalog.contains(catalogEntry(index)))
+                    missingIndexes.add(index);
+            }
+
+            if(!missingIndexes.isEmpty())
+                build(catalogName, missingIndexes);
+
+            checkedLists.add(listPartitionName);
+        }
+    }
+
+    /**
+     * This is a private method that builds indexes from the entities of the list and adds them to the catalog.
+     * @param catalogName the name of the catalog partition
+     * @param missingIndexes the indexes to be built
+     * @throws CannotCreateFileException
+     * @throws FileDatabaseConfigFileException
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private void build(String catalogName, List<SecondaryIndex<T>> missingIndexes)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        ArrayList<ConcurrentLinkedQueue<RecordEntry>> entries = new ArrayList<>(missingIndexes.size());
+
+        for(int i = 0; i < missingIndexes.size(); i++)
+            entries.add(new ConcurrentLinkedQueue<>());
+
+        list.parallelStream().forEach(entity -> {
+            for(int i = 0; i < missingIndexes.size(); i++) {
+                Object value = missingIndexes.get(i).field().get(entity);
+
+                if(value != null)
+                    entries.get(i).add(entry(value, entity));
+            }
+        });
+
+        for(int i = 0; i < missingIndexes.size(); i++) {
+            SecondaryIndex<T> index = missingIndexes.get(i);
+            String partitionName = index.partitionName(list.getPartitionName());
+
+            // The catalog entry of the other declaration of the index and the entries of an interrupted build
+            FileDatabase.removeRecords(catalogName,
+                    List.of(catalogEntry(SecondaryIndex.of(index.field())), catalogEntry(SecondaryIndex.unique(index.field()))));
+            FileDatabase.removePartition(partitionName);
+            FileDatabase.createPartition(partitionName);
+
+            if(!entries.get(i).isEmpty())
+                FileDatabase.addRecords(partitionName, new ArrayList<>(entries.get(i)));
+
+            FileDatabase.addRecords(catalogName, List.of(new RecordEntry(catalogEntry(index), catalogEntry(index))));
+        }
+    }
+
+    /**
+     * This is a private method that returns the name of an index in the catalog, which tells its declaration.
+     * @param index the index
+     * @return the name of the index in the catalog
+     */
+    private String catalogEntry(SecondaryIndex<T> index) {
+        return index.partitionName(list.getPartitionName()) + (index.unique() ? "_unique" : "");
+    }
+
+    /**
+     * This is a private method that creates the entry of an entity in an index.
+     * @param value the value of the field of the entity
+     * @param entity the entity
+     * @return the entry
+     */
+    private static RecordEntry entry(Object value, FileDatabaseCompatible entity) {
+        return new RecordEntry(value, entity.getId().toString());
+    }
+
+    /**
+     * The constructor creates the indexes of a list.
+     * @param list the list
+     * @param indexes the declared indexes of the list
+     */
+    SecondaryIndexes(EntityList<T> list, List<SecondaryIndex<T>> indexes) {
+        this.list = list;
+        this.indexes = List.copyOf(indexes);
+    }
+}
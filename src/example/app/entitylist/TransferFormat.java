@@ -0,0 +1,495 @@
+package example.app.entitylist;
+
+import example.app.entitylist.exceptions.MalformedRowException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * <h1>Enum TransferFormat</h1>
+ * This enum represents the text formats in which the entities of a list are imported and exported, one row per
+ * entity. The values of a row are written by the EntityFormat of the entities.
+ * <ul>
+ *     <li>CSV: A header with the names of the columns followed by one record per entity, as described by RFC 4180.
+ *     A value is quoted when it holds a comma, a quote or a line break, so a record can span several lines. An
+ *     empty unquoted value is a missing value, while "" is an empty string. The columns can be in any order</li>
+ *     <li>JSON_LINES: One JSON object per line, with the names of the columns as the keys and the values as
+ *     strings, or null for a missing value. Keys that are not columns are ignored</li>
+ * </ul>
+ */
+public enum TransferFormat {
+    CSV {
+        @Override
+        String header(List<String> columns) {
+            return String.join(",", columns);
+        }
+
+        @Override
+        String formatRow(List<String> columns, List<String> values) {
+            StringBuilder row = new StringBuilder();
+
+            for(int i = 0; i < values.size(); i++) {
+                if(i > 0)
+                    row.append(',');
+
+                appendCsvValue(row, values.get(i));
+            }
+
+            return row.toString();
+        }
+
+        @Override
+        String readRecord(BufferedReader reader) throws IOException {
+            String line = nextLine(reader);
+
+            if(line == null)
+                return null;
+
+            StringBuilder record = new StringBuilder(line);
+            int quotes = countQuotes(line);
+
+            // An odd number of quotes leaves a quoted value open, which goes on in the next line
+            while(quotes % 2 != 0 && (line = reader.readLine()) != null) {
+                record.append('\n').append(line);
+                quotes += countQuotes(line);
+            }
+
+            return record.toString();
+        }
+
+        @Override
+        List<String> readHeader(BufferedReader reader) throws IOException, MalformedRowException {
+            String record = readRecord(reader);
+
+            if(record == null)
+                return null;
+
+            ArrayList<String> header = parseCsvRecord(record);
+
+            if(header.contains(null))
+                throw new MalformedRowException("The header has a column without a name");
+
+            return header;
+        }
+
+        @Override
+        List<String> parseRow(String record, List<String> header, List<String> columns) throws MalformedRowException {
+            ArrayList<String> fields = parseCsvRecord(record);
+
+            if(fields.size() != header.size())
+                throw new MalformedRowException("The row has " + fields.size() + " values but the header has " +
+                        header.size() + " columns");
+
+            ArrayList<String> values = new ArrayList<>(columns.size());
+
+            for(String column : columns) {
+                int index = header.indexOf(column);
+                values.add(index < 0 ? null : fields.get(index));
+            }
+
+            return values;
+        }
+    },
+    JSON_LINES {
+        @Override
+        String header(List<String> columns) {
+            return null;
+        }
+
+        @Override
+        String formatRow(List<String> columns, List<String> values) {
+            StringBuilder row = new StringBuilder("{");
+
+            for(int i = 0; i < values.size(); i++) {
+                if(i > 0)
+                    row.append(',');
+
+                appendJsonString(row, columns.get(i));
+                row.append(':');
+
+                if(values.get(i) == null)
+                    row.append("null");
+                else
+                    appendJsonString(row, values.get(i));
+            }
+
+            return row.append('}').toString();
+        }
+
+        @Override
+        String readRecord(BufferedReader reader) throws IOException {
+            return nextLine(reader);
+        }
+
+        @Override
+        List<String> readHeader(BufferedReader reader) {
+            return null;
+        }
+
+        @Override
+        List<String> parseRow(String record, List<String> header, List<String> columns) throws MalformedRowException {
+            HashMap<String, String> object = parseJsonObject(record);
+            ArrayList<String> values = new ArrayList<>(columns.size());
+
+            for(String column : columns)
+                values.add(object.get(column));
+
+            return values;
+        }
+    };
+
+    /**
+     * This method returns the first line of a file, which names the columns.
+     * @param columns the names of the columns
+     * @return the header line without the line break, or null if the format has no header
+     */
+    abstract String header(List<String> columns);
+
+    /**
+     * This method writes the values of an entity as one row.
+     * @param columns the names of the columns
+     * @param values the values in the order of the columns, null for a missing value
+     * @return the row without the final line break
+     */
+    abstract String formatRow(List<String> columns, List<String> values);
+
+    /**
+     * This method reads the text of the next row, skipping blank lines. The values are not parsed yet, so that
+     * the rows can be parsed on other threads.
+     * @param reader the reader of the file, after the header
+     * @return the text of the row, or null at the end of the file
+     * @throws IOException if the file could not be read
+     */
+    abstract String readRecord(BufferedReader reader) throws IOException;
+
+    /**
+     * This method reads the header at the beginning of a file.
+     * @param reader the reader of the file
+     * @return the names of the columns in the file, or null if the format has no header or the file is empty
+     * @throws IOException if the file could not be read
+     * @throws MalformedRowException if the header could not be parsed
+     */
+    abstract List<String> readHeader(BufferedReader reader) throws IOException, MalformedRowException;
+
+    /**
+     * This method parses the text of a row read by readRecord().
+     * @param record the text of the row
+     * @param header the names of the columns in the file, as read by readHeader()
+     * @param columns the names of the columns of the entities
+     * @return the values in the order of the columns of the entities, null for a missing value
+     * @throws MalformedRowException if the row could not be parsed
+     */
+    abstract List<String> parseRow(String record, List<String> header, List<String> columns) throws MalformedRowException;
+
+    /**
+     * This method converts the name of a format, like it's given on the command line, to a format.
+     * @param value the name of the format in any case, "csv", "jsonl" or "json_lines"
+     * @return the format
+     * @throws IllegalArgumentException if the value is not a known format
+     */
+    public static TransferFormat parse(String value) {
+        String name = value.trim().toUpperCase();
+
+        return name.equals("JSONL") ? JSON_LINES : TransferFormat.valueOf(name);
+    }
+
+    /**
+     * This is a private method that reads the next line which is not blank.
+     * @param reader the reader of the file
+     * @return the line or null at the end of the file
+     * @throws IOException if the file could not be read
+     */
+    private static String nextLine(BufferedReader reader) throws IOException {
+        String line;
+
+        do {
+            line = reader.readLine();
+        } while(line != null && line.isBlank());
+
+        return line;
+    }
+
+    /**
+     * This is a private method that counts the quotes in a line of a CSV file.
+     * @param line the line
+     * @return the number of quotes
+     */
+    private static int countQuotes(String line) {
+        int quotes = 0;
+
+        for(int i = 0; i < line.length(); i++) {
+            if(line.charAt(i) == '"')
+                quotes++;
+        }
+
+        return quotes;
+    }
+
+    /**
+     * This is a private method that appends a value to a CSV record, quoted if needed.
+     * @param row the record
+     * @param value the value, or null for a missing value
+     */
+    private static void appendCsvValue(StringBuilder row, String value) {
+        if(value == null)
+            return;
+
+        boolean quoted = value.isEmpty() || value.indexOf(',') >= 0 || value.indexOf('"') >= 0 ||
+                value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+
+        if(!quoted) {
+            row.append(value);
+            return;
+        }
+
+        row.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    /**
+     * This is a private method that splits a CSV record into its values.
+     * @param record the record
+     * @return the values, null for an empty unquoted value
+     * @throws MalformedRowException if a quoted value is not closed
+     */
+    private static ArrayList<String> parseCsvRecord(String record) throws MalformedRowException {
+        ArrayList<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean inQuotes = false;
+        boolean wasQuoted = false;
+
+        for(int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+
+            if(inQuotes) {
+                if(c != '"')
+                    value.append(c);
+                else if(i + 1 < record.length() && record.charAt(i + 1) == '"')
+                    value.append(record.charAt(++i));
+                else
+                    inQuotes = false;
+            }
+            else if(c == ',') {
+                values.add(wasQuoted || !value.isEmpty() ? value.toString() : null);
+                value.setLength(0);
+                wasQuoted = false;
+            }
+            else if(c == '"' && value.isEmpty() && !wasQuoted) {
+                inQuotes = true;
+                wasQuoted = true;
+            }
+            else
+                value.append(c);
+        }
+
+        if(inQuotes)
+            throw new MalformedRowException("A quoted value is not closed");
+
+        values.add(wasQuoted || !value.isEmpty() ? value.toString() : null);
+
+        return values;
+    }
+
+    /**
+     * This is a private method that appends a string to a JSON object, quoted and escaped.
+     * @param row the JSON object
+     * @param value the string
+     */
+    private static void appendJsonString(StringBuilder row, String value) {
+        row.append('"');
+
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch(c) {
+                case '"' -> row.append("\\\"");
+                case '\\' -> row.append("\\\\");
+                case '\n' -> row.append("\\n");
+                case '\r' -> row.append("\\r");
+                case '\t' -> row.append("\\t");
+                case '\b' -> row.append("\\b");
+                case '\f' -> row.append("\\f");
+                default -> {
+                    if(c < 0x20 || c == '\u2028' || c == '\u2029')
+                        row.append(String.format("\\u%04x", (int) c));
+                    else
+                        row.append(c);
+                }
+            }
+        }
+
+        row.append('"');
+    }
+
+    /**
+     * This is a private method that parses a JSON object whose values are strings, null, numbers or booleans.
+     * Numbers and booleans are kept as their text. Nested objects and arrays are not supported, since a row never
+     * holds them.
+     * @param record the JSON object
+     * @return the values by their keys
+     * @throws MalformedRowException if the line is not such a JSON object
+     */
+    private static HashMap<String, String> parseJsonObject(String record) throws MalformedRowException {
+        HashMap<String, String> object = new HashMap<>();
+        int[] position = {skipWhitespace(record, 0)};
+
+        expect(record, position, '{');
+
+        if(peek(record, position) == '}') {
+            position[0]++;
+        }
+        else {
+            while(true) {
+                String key = parseJsonString(record, position);
+                expect(record, position, ':');
+                object.put(key, parseJsonValue(record, position));
+
+                char next = peek(record, position);
+                position[0]++;
+
+                if(next == '}')
+                    break;
+                if(next != ',')
+                    throw new MalformedRowException("Expected ',' or '}' at position " + (position[0] - 1));
+            }
+        }
+
+        if(skipWhitespace(record, position[0]) != record.length())
+            throw new MalformedRowException("Unexpected text after the JSON object");
+
+        return object;
+    }
+
+    /**
+     * This is a private method that parses a value of a JSON object.
+     * @param record the JSON object
+     * @param position the position of the value, which is moved after it
+     * @return the string, the text of a number or a boolean, or null
+     * @throws MalformedRowException if the value is not a string, null, a number or a boolean
+     */
+    private static String parseJsonValue(String record, int[] position) throws MalformedRowException {
+        char first = peek(record, position);
+
+        if(first == '"')
+            return parseJsonString(record, position);
+        if(first == '{' || first == '[')
+            throw new MalformedRowException("Nested JSON values are not supported at position " + position[0]);
+
+        int end = position[0];
+
+        while(end < record.length() && ",} \t".indexOf(record.charAt(end)) < 0)
+            end++;
+
+        String literal = record.substring(position[0], end);
+        position[0] = end;
+
+        if(literal.isEmpty())
+            throw new MalformedRowException("Missing JSON value at position " + end);
+
+        return literal.equals("null") ? null : literal;
+    }
+
+    /**
+     * This is a private method that parses a JSON string and resolves its escapes.
+     * @param record the JSON object
+     * @param position the position of the string, which is moved after it
+     * @return the string
+     * @throws MalformedRowException if the string is not closed or has an invalid escape
+     */
+    private static String parseJsonString(String record, int[] position) throws MalformedRowException {
+        expect(record, position, '"');
+
+        StringBuilder value = new StringBuilder();
+        int i = position[0];
+
+        while(i < record.length()) {
+            char c = record.charAt(i++);
+
+            if(c == '"') {
+                position[0] = i;
+                return value.toString();
+            }
+
+            if(c != '\\') {
+                value.append(c);
+                continue;
+            }
+
+            if(i >= record.length())
+                break;
+
+            char escaped = record.charAt(i++);
+
+            switch(escaped) {
+                case '"', '\\', '/' -> value.append(escaped);
+                case 'n' -> value.append('\n');
+                case 'r' -> value.append('\r');
+                case 't' -> value.append('\t');
+                case 'b' -> value.append('\b');
+                case 'f' -> value.append('\f');
+                case 'u' -> {
+                    if(i + 4 > record.length())
+                        throw new MalformedRowException("Invalid unicode escape at position " + (i - 2));
+
+                    try {
+                        value.append((char) Integer.parseInt(record.substring(i, i + 4), 16));
+                    }
+                    catch (NumberFormatException exception) {
+                        throw new MalformedRowException("Invalid unicode escape at position " + (i - 2), exception);
+                    }
+
+                    i += 4;
+                }
+                default -> throw new MalformedRowException("Invalid escape at position " + (i - 2));
+            }
+        }
+
+        throw new MalformedRowException("A JSON string is not closed");
+    }
+
+    /**
+     * This is a private method that checks the next character of a JSON object, after any whitespace, and moves
+     * after it.
+     * @param record the JSON object
+     * @param position the position, which is moved after the character
+     * @param expected the expected character
+     * @throws MalformedRowException if the next character is not the expected one
+     */
+    private static void expect(String record, int[] position, char expected) throws MalformedRowException {
+        if(peek(record, position) != expected)
+            throw new MalformedRowException("Expected '" + expected + "' at position " + position[0]);
+
+        position[0]++;
+    }
+
+    /**
+     * This is a private method that moves after any whitespace and returns the next character of a JSON object.
+     * @param record the JSON object
+     * @param position the position, which is moved after the whitespace
+     * @return the next character
+     * @throws MalformedRowException if the end of the line is reached
+     */
+    private static char peek(String record, int[] position) throws MalformedRowException {
+        position[0] = skipWhitespace(record, position[0]);
+
+        if(position[0] >= record.length())
+            throw new MalformedRowException("Unexpected end of the JSON object");
+
+        return record.charAt(position[0]);
+    }
+
+    /**
+     * This is a private method that skips whitespace.
+     * @param record the text
+     * @param position the position to start from
+     * @return the position of the first character which is not whitespace
+     */
+    private static int skipWhitespace(String record, int position) {
+        while(position < record.length() && Character.isWhitespace(record.charAt(position)))
+            position++;
+
+        return position;
+    }
+}
@@ -0,0 +1,27 @@
+package example.app.entitylist;
+
+/**
+ * <h1>Record TransferReport</h1>
+ * This record is the result of importing or exporting the entities of a list. It's returned by
+ * EntityList.importFrom() and EntityList.exportTo().
+ * @param partitionName the name of the partition of the list
+ * @param entities the number of entities that were imported or exported
+ * @param skipped the number of imported rows whose entity was already in the list or earlier in the file
+ * @param elapsedNanos the time the whole transfer took, in nanoseconds
+ */
+public record TransferReport(String partitionName, int entities, int skipped, long elapsedNanos) {
+    /**
+     * This method returns the throughput of the transfer. The skipped rows are counted too, since they were read
+     * and parsed like the others.
+     * @return the number of rows per second
+     */
+    public double rowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : (entities + skipped) * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Partition \"" + partitionName + "\": " + entities + " entities, " + skipped + " skipped in " +
+                elapsedNanos / 1_000_000 + " ms (" + Math.round(rowsPerSecond()) + " rows/s)";
+    }
+}
@@ -1,5 +1,10 @@
 package example.app.entitylist;
 
+import example.app.entities.EntityFormat;
+import example.app.entities.exceptions.EmptyArgumentException;
+import example.app.entities.exceptions.InvalidDateException;
+import example.app.entities.exceptions.NullArgumentException;
+import example.app.entities.users.FacultyUser;
 import example.app.entities.users.User;
 import example.app.filedatabase.Exceptions.CannotCreateFileException;
 import example.app.filedatabase.Exceptions.FileDatabaseConfigFileException;
@@ -7,6 +12,7 @@ import example.app.filedatabase.Exceptions.FileDatabaseInternalException;
 
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.TreeSet;
 import java.util.UUID;
 
@@ -14,11 +20,55 @@ import java.util.UUID;
  * <h1>Class UserList</h1>
  * This class represents a list of users. It extends the EntityList class. It creates an abstraction for doing
  * FileDatabase related operations that is related to users. It also provides some other methods that is
- * related to a user list but not necessarily to a particular user.
+ * related to a user list but not necessarily to a particular user. The users have a unique, case-sensitive
+ * secondary index on their username, kept in the users_by_username partition, and a secondary index on their
+ * email. Login and the duplicate check search the username index and read only the users it names, instead of
+ * every user. The index is not written atomically with the users, see SecondaryIndexes.
  */
 public class UserList extends EntityList<User> {
     private static final String PARTITION_NAME = "users";
 
+    public static final Field<User, String> USERNAME = new Field<>("username", User::getUsername);
+    public static final Field<User, String> EMAIL = new Field<>("email", User::getEmail);
+
+    /**
+     * The format of the users for importing and exporting. Every user of the list is a faculty user, so it's
+     * written and read with the format of the faculty user.
+     */
+    private static final EntityFormat<User> FORMAT = new EntityFormat<>() {
+        @Override
+        public List<String> columns() {
+            return FacultyUser.FORMAT.columns();
+        }
+
+        @Override
+        public List<String> write(User user) {
+            return FacultyUser.FORMAT.write((FacultyUser) user);
+        }
+
+        @Override
+        public User read(List<String> values)
+                throws NullArgumentException, EmptyArgumentException, InvalidDateException {
+            return FacultyUser.FORMAT.read(values);
+        }
+    };
+
+    /**
+     * This method finds the user with a username, through the username index, so only the users of the entries
+     * of the username are read.
+     * @param username the username, which is case-sensitive
+     * @return the user or null if no user has the username
+     * @throws CannotCreateFileException If the partition directory or the data directory could not be created
+     * @throws FileDatabaseConfigFileException If the syntax in the database.config is wrong
+     * @throws IOException If the database.config could not be read or if there are any errors reading the resource or record.ser file
+     * @throws ClassNotFoundException If the class is not found during deserialization of the record.ser file
+     */
+    public User findByUsername(String username)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        return find(new Query<User>().equal(USERNAME, username).limit(1)).first();
+    }
+
     /**
      * This method gets all the users from the list of ids and creates a tabular format for displaying.
      * @param userIds the ids of the users
@@ -32,13 +82,20 @@ public class UserList extends EntityList<User> {
     public String getTable(TreeSet<UUID> userIds)
             throws CannotCreateFileException, FileDatabaseConfigFileException,
             FileDatabaseInternalException, IOException, ClassNotFoundException {
+        return getTable(this.getAll(userIds));
+    }
+
+    /**
+     * This method creates a tabular format of users for displaying, in the given order.
+     * @param users the users, of which null ones are left out
+     * @return String representation of the table of users
+     */
+    public String getTable(List<User> users) {
         StringBuilder table = new StringBuilder();
         String formatString = "%-6s | %-24s | %-15s | %-12s\n";
         int i = 0;
 
-        for(UUID id : userIds) {
-            User user = this.get(id);
-
+        for(User user : users) {
             if(user == null) continue;
 
             table.append(String.format(formatString,
@@ -61,7 +118,7 @@ public class UserList extends EntityList<User> {
     }
 
     public UserList(String partitionName) {
-        super(partitionName);
+        super(partitionName, FORMAT, List.of(SecondaryIndex.unique(USERNAME), SecondaryIndex.of(EMAIL)));
     }
 
     public UserList() {
@@ -0,0 +1,32 @@
+package example.app.entitylist.exceptions;
+
+import java.io.Serial;
+
+/**
+ * <h1>Class MalformedRowException</h1>
+ * This is class extends to the Exception class and the general use case for it to be thrown when a row of an imported file could not be read as an entity
+ */
+public class MalformedRowException extends Exception {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public MalformedRowException() {
+        super();
+    }
+
+    public MalformedRowException(String message) {
+        super(message);
+    }
+
+    public MalformedRowException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public MalformedRowException(Throwable cause) {
+        super(cause);
+    }
+
+    protected MalformedRowException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
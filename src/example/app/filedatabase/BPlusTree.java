@@ -0,0 +1,570 @@
+package example.app.filedatabase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * <h1>Class BPlusTree</h1>
+ * This class represents a B+tree stored on the pages of a PageFile. The keys and values are arrays of bytes and the
+ * keys are sorted by comparing their bytes as unsigned numbers. Every node is one page. The entries are in the leaves,
+ * which are linked to the next leaf, so a range scan reads only the leaves of the range and the nodes above its start.
+ * <br>
+ * Structure of a node:
+ * <ul>
+ *     <li>Leaf: The byte 0, the number of entries as a short, the page of the next leaf or -1 and every entry as its
+ *     key and its value, each with its length as a short in front</li>
+ *     <li>Inner node: The byte 1, the number of keys as a short, the first child page and every key with its length
+ *     as a short in front followed by the next child page. All the keys below a child are smaller than the key after
+ *     it</li>
+ * </ul>
+ * A node that's less than a quarter full after a removal is merged with its sibling, when both fit on one page, and
+ * an inner root with a single child is replaced by it, so a tree that had many entries removed gets lower again. The
+ * page of a merged node is not reused, the file can be made compact again by building the tree anew.
+ * Changes are not synchronized, the caller has to make sure that the tree is not read while it's changed.
+ */
+final class BPlusTree {
+    static final int MAX_ENTRY_SIZE = (PageFile.PAGE_SIZE - 16) / 4;
+    private static final byte LEAF = 0;
+    private static final byte INNER = 1;
+    private static final int NODE_HEADER_SIZE = 7;
+    private static final int MIN_NODE_SIZE = PageFile.PAGE_SIZE / 4;
+
+    /**
+     * <h1>Interface EntryVisitor</h1>
+     * This interface is called for every entry of a range scan, in the order of the keys.
+     */
+    interface EntryVisitor {
+        /**
+         * @param key the key of the entry
+         * @param value the value of the entry
+         * @return true to continue with the next entry, false to stop the scan
+         * @throws IOException if the visitor fails
+         */
+        boolean visit(byte[] key, byte[] value) throws IOException;
+    }
+
+    /**
+     * <h1>Class Node</h1>
+     * This class represents a decoded node. A leaf has the values and the next leaf, an inner node has the children.
+     */
+    private static final class Node {
+        private final boolean leaf;
+        private final ArrayList<byte[]> keys = new ArrayList<>();
+        private final ArrayList<byte[]> values = new ArrayList<>();
+        private final ArrayList<Integer> children = new ArrayList<>();
+        private int next = -1;
+
+        private Node(boolean leaf) {
+            this.leaf = leaf;
+        }
+
+        private int size() {
+            int size = NODE_HEADER_SIZE;
+
+            for(int i = 0; i < keys.size(); i++)
+                size += entrySize(i);
+
+            return size;
+        }
+
+        private int entrySize(int index) {
+            return 2 + keys.get(index).length + (leaf ? 2 + values.get(index).length : 4);
+        }
+
+        private byte[] encode() {
+            ByteBuffer page = ByteBuffer.allocate(PageFile.PAGE_SIZE);
+            page.put(leaf ? LEAF : INNER).putShort((short) keys.size()).putInt(leaf ? next : children.get(0));
+
+            for(int i = 0; i < keys.size(); i++) {
+                page.putShort((short) keys.get(i).length).put(keys.get(i));
+
+                if(leaf)
+                    page.putShort((short) values.get(i).length).put(values.get(i));
+                else
+                    page.putInt(children.get(i + 1));
+            }
+
+            return page.array();
+        }
+
+        private static Node decode(byte[] content) {
+            ByteBuffer page = ByteBuffer.wrap(content);
+            Node node = new Node(page.get() == LEAF);
+            int count = page.getShort();
+
+            if(node.leaf)
+                node.next = page.getInt();
+            else
+                node.children.add(page.getInt());
+
+            for(int i = 0; i < count; i++) {
+                node.keys.add(read(page));
+
+                if(node.leaf)
+                    node.values.add(read(page));
+                else
+                    node.children.add(page.getInt());
+            }
+
+            return node;
+        }
+
+        private static byte[] read(ByteBuffer page) {
+            byte[] bytes = new byte[page.getShort()];
+            page.get(bytes);
+
+            return bytes;
+        }
+    }
+
+    /**
+     * <h1>Record Split</h1>
+     * This record represents the new right sibling of a node that was split.
+     * @param key the smallest key below the new node
+     * @param page the page of the new node
+     */
+    private record Split(byte[] key, int page) {
+    }
+
+    private final PageFile pageFile;
+    private final int slot;
+    private boolean inserted;
+    private boolean removed;
+
+    /**
+     * This method returns the number of entries of the tree.
+     * @return the number of entries
+     */
+    long size() {
+        return pageFile.count(slot);
+    }
+
+    /**
+     * This method looks up the value of a key.
+     * @param key the key
+     * @return the value of the key or null if it's not present
+     * @throws IOException if a page could not be read
+     */
+    byte[] get(byte[] key) throws IOException {
+        int page = pageFile.root(slot);
+
+        if(page == -1)
+            return null;
+
+        Node node = node(page);
+
+        while(!node.leaf)
+            node = node(node.children.get(childIndex(node, key)));
+
+        int index = search(node.keys, key);
+
+        return index >= 0 ? node.values.get(index) : null;
+    }
+
+    /**
+     * This method adds an entry or replaces the value of an existing key.
+     * @param key the key
+     * @param value the value
+     * @return true if the key was not present before, false otherwise
+     * @throws IOException if a page could not be read
+     * @throws IllegalArgumentException if the key and the value together are larger than MAX_ENTRY_SIZE bytes
+     */
+    boolean put(byte[] key, byte[] value) throws IOException {
+        if(key.length + value.length > MAX_ENTRY_SIZE)
+            throw new IllegalArgumentException("Entry of " + (key.length + value.length) +
+                    " bytes is larger than a tree entry can be");
+
+        int root = pageFile.root(slot);
+
+        if(root == -1) {
+            Node leaf = new Node(true);
+            leaf.keys.add(key);
+            leaf.values.add(value);
+            root = pageFile.allocate();
+            pageFile.write(root, leaf.encode());
+            pageFile.setRoot(slot, root);
+            pageFile.setCount(slot, 1);
+            return true;
+        }
+
+        inserted = false;
+        Split split = insert(root, key, value);
+
+        if(split != null) {
+            Node newRoot = new Node(false);
+            newRoot.children.add(root);
+            newRoot.keys.add(split.key());
+            newRoot.children.add(split.page());
+            int newRootPage = pageFile.allocate();
+            pageFile.write(newRootPage, newRoot.encode());
+            pageFile.setRoot(slot, newRootPage);
+        }
+
+        if(inserted)
+            pageFile.setCount(slot, pageFile.count(slot) + 1);
+
+        return inserted;
+    }
+
+    /**
+     * This method removes an entry.
+     * @param key the key of the entry
+     * @return true if the entry was present, false otherwise
+     * @throws IOException if a page could not be read
+     */
+    boolean remove(byte[] key) throws IOException {
+        int root = pageFile.root(slot);
+
+        if(root == -1)
+            return false;
+
+        removed = false;
+        delete(root, key);
+
+        if(!removed)
+            return false;
+
+        Node rootNode = node(root);
+
+        while(!rootNode.leaf && rootNode.keys.isEmpty()) {
+            root = rootNode.children.get(0);
+            rootNode = node(root);
+            pageFile.setRoot(slot, root);
+        }
+
+        pageFile.setCount(slot, pageFile.count(slot) - 1);
+        return true;
+    }
+
+    /**
+     * This method visits the entries of a range of keys in their order.
+     * @param fromKey the smallest key of the range, inclusive, or null to start with the first entry
+     * @param toKey the end of the range, exclusive, or null to end with the last entry
+     * @param visitor the visitor of the entries
+     * @throws IOException if a page could not be read or the visitor fails
+     */
+    void scan(byte[] fromKey, byte[] toKey, EntryVisitor visitor) throws IOException {
+        int page = pageFile.root(slot);
+
+        if(page == -1)
+            return;
+
+        Node node = node(page);
+
+        while(!node.leaf)
+            node = node(node.children.get(fromKey == null ? 0 : childIndex(node, fromKey)));
+
+        int index = 0;
+
+        if(fromKey != null) {
+            int found = search(node.keys, fromKey);
+            index = found >= 0 ? found : -found - 1;
+        }
+
+        while(true) {
+            for(; index < node.keys.size(); index++) {
+                byte[] key = node.keys.get(index);
+
+                if(toKey != null && Arrays.compareUnsigned(key, toKey) >= 0)
+                    return;
+
+                if(!visitor.visit(key, node.values.get(index)))
+                    return;
+            }
+
+            if(node.next == -1)
+                return;
+
+            node = node(node.next);
+            index = 0;
+        }
+    }
+
+    /**
+     * This method visits the entries below a key in their reverse order. The leaves are only linked to the next
+     * leaf, so the tree is descended again for every leaf, below the smallest key the previous leaf can hold.
+     * @param toKey the end of the range, exclusive, or null to start with the last entry
+     * @param visitor the visitor of the entries
+     * @throws IOException if a page could not be read or the visitor fails
+     */
+    void scanDescending(byte[] toKey, EntryVisitor visitor) throws IOException {
+        byte[] bound = toKey;
+
+        while(true) {
+            int page = pageFile.root(slot);
+
+            if(page == -1)
+                return;
+
+            Node node = node(page);
+            // Every key of the leaf is at least this key and every key of the leaves before is smaller
+            byte[] separator = null;
+
+            while(!node.leaf) {
+                int index = node.children.size() - 1;
+
+                if(bound != null) {
+                    int found = search(node.keys, bound);
+                    index = found >= 0 ? found : -found - 1;
+                }
+
+                if(index > 0)
+                    separator = node.keys.get(index - 1);
+
+                node = node(node.children.get(index));
+            }
+
+            int index = node.keys.size() - 1;
+
+            if(bound != null) {
+                int found = search(node.keys, bound);
+                index = found >= 0 ? found - 1 : -found - 2;
+            }
+
+            for(; index >= 0; index--) {
+                if(!visitor.visit(node.keys.get(index), node.values.get(index)))
+                    return;
+            }
+
+            if(separator == null)
+                return;
+
+            bound = separator;
+        }
+    }
+
+    /**
+     * This method returns the end of the range of all the keys starting with a prefix, for scan().
+     * @param prefix the prefix
+     * @return the smallest key after all the keys with the prefix, or null if there is none
+     */
+    static byte[] prefixEnd(byte[] prefix) {
+        byte[] end = Arrays.copyOf(prefix, prefix.length);
+
+        for(int i = end.length - 1; i >= 0; i--) {
+            if(end[i] != (byte) 0xFF) {
+                end[i]++;
+                return Arrays.copyOf(end, i + 1);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * This is a private method that inserts an entry below a node and splits the node if it's too large.
+     * @param page the page of the node
+     * @param key the key
+     * @param value the value
+     * @return the new right sibling of the node or null if it was not split
+     * @throws IOException if a page could not be read
+     */
+    private Split insert(int page, byte[] key, byte[] value) throws IOException {
+        Node node = node(page);
+
+        if(node.leaf) {
+            int index = search(node.keys, key);
+
+            if(index >= 0)
+                node.values.set(index, value);
+            else {
+                node.keys.add(-index - 1, key);
+                node.values.add(-index - 1, value);
+                inserted = true;
+            }
+        }
+        else {
+            int index = childIndex(node, key);
+            Split split = insert(node.children.get(index), key, value);
+
+            if(split == null)
+                return null;
+
+            node.keys.add(index, split.key());
+            node.children.add(index + 1, split.page());
+        }
+
+        if(node.size() <= PageFile.PAGE_SIZE) {
+            pageFile.write(page, node.encode());
+            return null;
+        }
+
+        return split(page, node);
+    }
+
+    /**
+     * This is a private method that removes an entry below a node and merges the child it was removed from with a
+     * sibling, if the child is too small.
+     * @param page the page of the node
+     * @param key the key of the entry
+     * @return true if the node is less than a quarter full after the removal
+     * @throws IOException if a page could not be read
+     */
+    private boolean delete(int page, byte[] key) throws IOException {
+        Node node = node(page);
+
+        if(node.leaf) {
+            int index = search(node.keys, key);
+
+            if(index < 0)
+                return false;
+
+            node.keys.remove(index);
+            node.values.remove(index);
+            removed = true;
+        }
+        else {
+            int index = childIndex(node, key);
+
+            if(!delete(node.children.get(index), key))
+                return false;
+
+            // The first child is merged with the one after it, every other child with the one before it
+            if(!merge(node, index == 0 ? 0 : index - 1))
+                return false;
+        }
+
+        pageFile.write(page, node.encode());
+        return node.size() < MIN_NODE_SIZE;
+    }
+
+    /**
+     * This is a private method that moves a child of an inner node into the child before it, if both fit on one
+     * page. The separator between them moves down into an inner child.
+     * @param parent the inner node
+     * @param index the index of the left child, which has a child after it
+     * @return true if the children were merged and the parent was changed
+     * @throws IOException if a page could not be read
+     */
+    private boolean merge(Node parent, int index) throws IOException {
+        if(index + 1 >= parent.children.size())
+            return false;
+
+        int leftPage = parent.children.get(index);
+        Node left = node(leftPage);
+        Node right = node(parent.children.get(index + 1));
+
+        if(left.leaf) {
+            left.keys.addAll(right.keys);
+            left.values.addAll(right.values);
+            left.next = right.next;
+        }
+        else {
+            left.keys.add(parent.keys.get(index));
+            left.keys.addAll(right.keys);
+            left.children.addAll(right.children);
+        }
+
+        if(left.size() > PageFile.PAGE_SIZE)
+            return false;
+
+        pageFile.write(leftPage, left.encode());
+        parent.keys.remove(index);
+        parent.children.remove(index + 1);
+        return true;
+    }
+
+    /**
+     * This is a private method that moves the upper half of a node to a new right sibling.
+     * @param page the page of the node
+     * @param node the node, which is too large for a page
+     * @return the new right sibling
+     */
+    private Split split(int page, Node node) {
+        Node right = new Node(node.leaf);
+        int half = node.size() / 2;
+        int middle = 0;
+
+        // Split by the size of the entries, since their lengths differ
+        for(int size = NODE_HEADER_SIZE; middle < node.keys.size() - 1 && size < half; middle++)
+            size += node.entrySize(middle);
+
+        middle = Math.max(middle, 1);
+        byte[] separator = node.keys.get(middle);
+
+        if(node.leaf) {
+            right.keys.addAll(node.keys.subList(middle, node.keys.size()));
+            right.values.addAll(node.values.subList(middle, node.values.size()));
+            node.keys.subList(middle, node.keys.size()).clear();
+            node.values.subList(middle, node.values.size()).clear();
+        }
+        else {
+            // The middle key moves up to the parent, its right child becomes the first child of the sibling
+            right.keys.addAll(node.keys.subList(middle + 1, node.keys.size()));
+            right.children.addAll(node.children.subList(middle + 1, node.children.size()));
+            node.keys.subList(middle, node.keys.size()).clear();
+            node.children.subList(middle + 1, node.children.size()).clear();
+        }
+
+        int rightPage = pageFile.allocate();
+
+        if(node.leaf) {
+            right.next = node.next;
+            node.next = rightPage;
+        }
+
+        pageFile.write(page, node.encode());
+        pageFile.write(rightPage, right.encode());
+
+        return new Split(separator, rightPage);
+    }
+
+    /**
+     * This is a private method that reads and decodes a node.
+     * @param page the page of the node
+     * @return the node
+     * @throws IOException if the page could not be read
+     */
+    private Node node(int page) throws IOException {
+        return Node.decode(pageFile.read(page));
+    }
+
+    /**
+     * This is a private method that finds the child of an inner node below which a key belongs.
+     * @param node the inner node
+     * @param key the key
+     * @return the index of the child
+     */
+    private static int childIndex(Node node, byte[] key) {
+        int index = search(node.keys, key);
+
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * This is a private method that searches a key in the sorted keys of a node.
+     * @param keys the keys of the node
+     * @param key the key to be searched
+     * @return the index of the key, or (-(insertion point) - 1) if it's not present
+     */
+    private static int search(ArrayList<byte[]> keys, byte[] key) {
+        int low = 0;
+        int high = keys.size() - 1;
+
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = Arrays.compareUnsigned(keys.get(middle), key);
+
+            if(comparison < 0)
+                low = middle + 1;
+            else if(comparison > 0)
+                high = middle - 1;
+            else
+                return middle;
+        }
+
+        return -(low + 1);
+    }
+
+    /**
+     * The constructor opens a tree stored in a page file.
+     * @param pageFile the page file
+     * @param slot the slot of the tree in the header of the page file
+     */
+    BPlusTree(PageFile pageFile, int slot) {
+        this.pageFile = pageFile;
+        this.slot = slot;
+    }
+}
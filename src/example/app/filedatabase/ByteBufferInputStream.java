@@ -0,0 +1,44 @@
+package example.app.filedatabase;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * <h1>Class ByteBufferInputStream</h1>
+ * This class is an InputStream over a ByteBuffer, so that a resource can be deserialized directly from a buffer,
+ * for example from a memory mapped file, without copying it to an array first.
+ */
+final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    @Override
+    public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+        if(length == 0)
+            return 0;
+        if(!buffer.hasRemaining())
+            return -1;
+
+        length = Math.min(length, buffer.remaining());
+        buffer.get(bytes, offset, length);
+
+        return length;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+
+    /**
+     * The constructor creates a stream that reads the remaining bytes of a buffer.
+     * @param buffer the buffer to be read. Its position is moved while reading
+     */
+    ByteBufferInputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+}
@@ -0,0 +1,99 @@
+package example.app.filedatabase;
+
+import example.app.filedatabase.Exceptions.ChecksumMismatchException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+/**
+ * <h1>Class Checksums</h1>
+ * This class frames the stored resources and the record.ser files with a CRC32C checksum, so that a torn or damaged
+ * file is detected before it's deserialized. The JDK computes CRC32C with the instructions of the processor.
+ * <br>
+ * Structure of a framed content:
+ * <ul>
+ *     <li>The byte 0xC3, which neither starts a Java serialization stream, a ResourceCodec frame nor a compressed
+ *     resource</li>
+ *     <li>The CRC32C of the content as an int</li>
+ *     <li>The content, which is the compressed resource or the serialized records</li>
+ * </ul>
+ * Contents written before the checksums existed have no frame. They are still readable, but can not be verified.
+ */
+final class Checksums {
+    private static final byte MAGIC = (byte) 0xC3;
+    private static final int HEADER_SIZE = 5;
+
+    /**
+     * This method frames a content with its checksum.
+     * @param content the content to be stored
+     * @return the framed content
+     */
+    static byte[] frame(byte[] content) {
+        return ByteBuffer.allocate(HEADER_SIZE + content.length)
+                .put(MAGIC)
+                .putInt(crc32c(ByteBuffer.wrap(content)))
+                .put(content)
+                .array();
+    }
+
+    /**
+     * This method writes a content with its checksum to a stream, without copying the content.
+     * @param stream the stream of the file
+     * @param content the content to be stored
+     * @throws IOException if the stream could not be written
+     */
+    static void writeFramed(OutputStream stream, byte[] content) throws IOException {
+        stream.write(ByteBuffer.allocate(HEADER_SIZE).put(MAGIC).putInt(crc32c(ByteBuffer.wrap(content))).array());
+        stream.write(content);
+    }
+
+    /**
+     * This method checks if a stored content has a checksum.
+     * @param stored the stored content. Its position is not moved
+     * @return true if the content is framed, false if it was written before the checksums existed
+     */
+    static boolean isFramed(ByteBuffer stored) {
+        return stored.remaining() >= HEADER_SIZE && stored.get(stored.position()) == MAGIC;
+    }
+
+    /**
+     * This method removes the frame of a stored content and verifies its checksum. A content without a frame is
+     * returned as it is. An empty content can only be left by a torn write, so it's always rejected.
+     * @param stored the stored content. Its position is not moved
+     * @param name the name of the content for the error message, like the unique id of the resource
+     * @param verify whether the checksum is verified, or only the frame is removed
+     * @return the content without the frame
+     * @throws ChecksumMismatchException if the content is empty or does not match its checksum
+     */
+    static ByteBuffer unframe(ByteBuffer stored, String name, boolean verify) throws ChecksumMismatchException {
+        if(!stored.hasRemaining())
+            throw new ChecksumMismatchException("Content of " + name + " is empty");
+
+        if(!isFramed(stored))
+            return stored;
+
+        int checksum = stored.getInt(stored.position() + 1);
+        ByteBuffer content = stored.duplicate();
+        content.position(content.position() + HEADER_SIZE);
+        content = content.slice();
+
+        if(verify && crc32c(content) != checksum)
+            throw new ChecksumMismatchException("Content of " + name + " does not match its checksum");
+
+        return content;
+    }
+
+    /**
+     * This is a private method that computes the CRC32C of a content.
+     * @param content the content. Its position is not moved
+     * @return the checksum
+     */
+    private static int crc32c(ByteBuffer content) {
+        CRC32C crc = new CRC32C();
+        crc.update(content.duplicate());
+
+        return (int) crc.getValue();
+    }
+}
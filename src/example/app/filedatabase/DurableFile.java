@@ -0,0 +1,74 @@
+package example.app.filedatabase;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <h1>Class DurableFile</h1>
+ * This class provides the methods for replacing a file so that a crash never leaves it half written.
+ * The new content is written to a temporary file next to the target, forced to the disk and then atomically renamed
+ * over the target. A reader sees either the old or the new content of the file, but never a mix of both.
+ */
+final class DurableFile {
+    /**
+     * <h1>Interface ContentWriter</h1>
+     * This interface writes the new content of a file to a stream.
+     */
+    interface ContentWriter {
+        void write(OutputStream stream) throws IOException;
+    }
+
+    /**
+     * This method atomically replaces the content of a file. The file is created if it does not exist.
+     * @param target the file to be replaced
+     * @param force whether the new content and the rename should be forced to the disk
+     * @param contentWriter the writer of the new content
+     * @throws IOException if the file could not be written or renamed
+     */
+    static void replace(File target, boolean force, ContentWriter contentWriter) throws IOException {
+        File temporaryFile = new File(target.getPath() + ".tmp");
+
+        try(FileOutputStream fileStream = new FileOutputStream(temporaryFile)) {
+            BufferedOutputStream bufferedStream = new BufferedOutputStream(fileStream);
+            contentWriter.write(bufferedStream);
+            bufferedStream.flush();
+
+            if(force)
+                fileStream.getChannel().force(true);
+        }
+
+        Files.move(temporaryFile.toPath(), target.toPath(),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        if(force)
+            forceDirectory(target.getAbsoluteFile().getParentFile());
+    }
+
+    /**
+     * This method atomically replaces the content of a file with the given bytes.
+     * @param target the file to be replaced
+     * @param force whether the new content and the rename should be forced to the disk
+     * @param content the new content of the file
+     * @throws IOException if the file could not be written or renamed
+     */
+    static void replace(File target, boolean force, byte[] content) throws IOException {
+        replace(target, force, stream -> stream.write(content));
+    }
+
+    /**
+     * This method forces the entries of a directory to the disk, so that a rename inside it survives a crash.
+     * Some platforms cannot open a directory for this, in that case nothing is done.
+     * @param directory the directory to be forced
+     */
+    static void forceDirectory(File directory) {
+        try(FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+        catch (IOException ignored) {
+            // Forcing a directory is not supported on every platform
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package example.app.filedatabase.Exceptions;
+
+import java.io.IOException;
+import java.io.Serial;
+
+/**
+ * <h1>Class ChecksumMismatchException</h1>
+ * This class extends the IOException class and used to represent a stored resource or record file whose content
+ * does not match its checksum, because it was torn by a crash or damaged on the disk.
+ */
+public class ChecksumMismatchException extends IOException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public ChecksumMismatchException() {
+        super();
+    }
+
+    public ChecksumMismatchException(String message) {
+        super(message);
+    }
+
+    public ChecksumMismatchException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public ChecksumMismatchException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -4,9 +4,10 @@ import example.app.filedatabase.Exceptions.*;
 
 import java.io.*;
 import java.nio.file.NoSuchFileException;
-import java.util.HashSet;
-import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <h1>Class FileDatabase</h1>
@@ -16,12 +17,46 @@ import java.util.TreeSet;
  *     <li>Root: The top most directory for the file database, configured in database.config</li>
  *     <li>Partition: Each root directory has sub directories, called partitions</li>
  *     <li>Record File: Each partition has a file called record.ser where all the records for the resources are is stored.
- *     It uses TreeMap to store record in a sorted order</li>
- *     <li>Data Directory: Each partition has a directory called data, which stores all the resources. Each resource is an individual file</li>
+ *     It uses a RecordIndex to store record in a sorted order and to find the record of a resource by its id. With the
+ *     btree record index, the records are in a file called record.tree instead, which holds them in B+trees</li>
+ *     <li>Record Log: Each partition has a file called record.log where the changes to the records since the last
+ *     checkpoint of record.ser are appended</li>
+ *     <li>Data Directory: Each partition has a directory called data, which stores all the resources. Each resource is
+ *     an individual file, or with the segments storage, the resources are packed in large segment files. With the
+ *     lsm storage, they are written to a log and sorted runs that are merged in the background. With the hashed
+ *     data layout, the individual files are spread over two levels of shard directories, like data/ab/cd/&lt;uuid&gt;</li>
+ *     <li>Compression Dictionary: A partition with the deflate compression has a file called compression.dict with
+ *     the preset dictionary for its resources</li>
  * </ul>
+ * Every stored resource and every record.ser file is framed with a CRC32C checksum, so a torn or damaged file is
+ * reported as a ChecksumMismatchException instead of failing somewhere in its deserialization.
+ * Each partition is opened once per process and kept in memory as a LogicalPartition handle, so the operations of
+ * this class do not read the record.ser file again. When a partition is full, it rolls over to a new sub-partition
+ * in its parts directory, which has the same structure as the partition directory.
  */
 public final class FileDatabase {
     private static int PARTITION_RESOURCES_COUNT = 1_000_000;
+    private static long RECORD_LOG_CHECKPOINT_SIZE = 1_048_576;
+    private static String FSYNC_POLICY = "interval";
+    private static long FSYNC_INTERVAL_MILLIS = 1000;
+    private static String STORAGE = "files";
+    private static long SEGMENT_SIZE = 64L * 1024 * 1024;
+    private static long LSM_MEMTABLE_SIZE = 4L * 1024 * 1024;
+    private static String DATA_LAYOUT = "flat";
+    private static String READ_MODE = "stream";
+    private static String SERIALIZATION = "binary";
+    private static String COMPRESSION = "none";
+    private static long COMPRESSION_LEVEL = 6;
+    private static long RESOURCE_CACHE_SIZE = 0;
+    private static long IO_THREADS = 1;
+    private static String RECORD_INDEX = "memory";
+    private static String CHECKSUM_VERIFICATION = "always";
+    private static final HashMap<String, LogicalPartition> openPartitions = new HashMap<>();
+    private static ScheduledThreadPoolExecutor backgroundExecutor;
+
+    static {
+        FileDatabaseConfigFile.addReloadListener(FileDatabase::applyReloadedConfig);
+    }
 
     /**
      * This method is used to check if the root directory is present or not, specified by the database.config file.
@@ -138,13 +173,396 @@ public final class FileDatabase {
             isRecordSerFilePresent(partitionName);
         }
         catch (NoSuchFileException exception) {
-            ObjectOutputStream recordFile = new ObjectOutputStream(
-                    new FileOutputStream(FileDatabaseConfigFile.rootPath() + "/" + partitionName + "/record.ser"));
+            new RecordIndex().write(new File(FileDatabaseConfigFile.rootPath() + "/" + partitionName + "/record.ser"));
+        }
+    }
 
-            recordFile.writeObject(new TreeMap<Object, String>());
-            recordFile.flush();
-            recordFile.close();
+    /**
+     * This method opens a partition and returns its handle. The partition is created if it does not exist.
+     * A partition is opened only once per process, every later call returns the same handle. The handle is backed by
+     * all the sub-partitions the partition has grown to.
+     * @param partitionName the name of the partition
+     * @return the handle of the opened partition
+     * @throws CannotCreateFileException if the partition directory or the data directory could not be created
+     * @throws FileDatabaseConfigFileException if the syntax in the database.config is wrong
+     * @throws IOException if the database.config or the record.ser could not be read
+     * @throws ClassNotFoundException if the class is not found during deserialization of the record.ser file
+     */
+    public static synchronized LogicalPartition openPartition(String partitionName)
+            throws CannotCreateFileException, FileDatabaseConfigFileException, IOException,
+            ClassNotFoundException {
+        LogicalPartition partition = openPartitions.get(partitionName);
+
+        if(partition == null) {
+            // A wrong "io_threads" key fails the opening, instead of the background work starting with other threads
+            if(backgroundExecutor == null)
+                startBackground(ioThreads());
+
+            createPartition(partitionName);
+
+            partition = new LogicalPartition(partitionName, FileDatabaseConfigFile.rootPath() + "/" + partitionName);
+            openPartitions.put(partitionName, partition);
         }
+
+        return partition;
+    }
+
+    /**
+     * This method opens one physical sub-partition of a partition. Its directories and its record.ser file are
+     * created if they do not exist. It uses the keys of the partition name in the database.config file.
+     * @param partitionName the name of the partition
+     * @param partitionPath the full path of the sub-partition directory
+     * @return the handle of the opened sub-partition
+     * @throws CannotCreateFileException if the sub-partition directory or the data directory could not be created
+     * @throws FileDatabaseConfigFileException if the syntax in the database.config is wrong
+     * @throws IOException if the database.config or the record.ser could not be read
+     * @throws ClassNotFoundException if the class is not found during deserialization of the record.ser file
+     */
+    static Partition openSubPartition(String partitionName, String partitionPath)
+            throws CannotCreateFileException, FileDatabaseConfigFileException, IOException,
+            ClassNotFoundException {
+        File dataDirectory = new File(partitionPath + "/data");
+
+        if(!dataDirectory.exists() && !dataDirectory.mkdirs())
+            throw new CannotCreateFileException("Cannot create data directory inside partition directory at:" +
+                    partitionPath + "/data");
+
+        File recordFile = new File(partitionPath + "/record.ser");
+
+        if(!recordFile.exists())
+            new RecordIndex().write(recordFile);
+
+        boolean mappedReads = isReadModeMapped(partitionName);
+
+        return new Partition(partitionName,
+                partitionPath,
+                partitionCapacity(partitionName),
+                FileDatabaseConfigFile.longValue("record_log_checkpoint_size", RECORD_LOG_CHECKPOINT_SIZE),
+                FsyncPolicy.parse(Objects.requireNonNullElse(FileDatabaseConfigFile.value("fsync"), FSYNC_POLICY)),
+                FileDatabaseConfigFile.longValue("fsync_interval_ms", FSYNC_INTERVAL_MILLIS),
+                openResourceStore(partitionName, partitionPath + "/data", mappedReads),
+                isSerializationBinary(partitionName),
+                openResourceCompressor(partitionName, partitionPath),
+                resourceCacheSize(partitionName),
+                isChecksumVerified(partitionName),
+                isRecordIndexTree(partitionName),
+                mappedReads);
+    }
+
+    /**
+     * This is a private method that opens the store for the resources of a partition, as configured by the
+     * "storage" key in the database.config file. The key can be overridden for a single partition by prefixing it
+     * with the name of the partition, like "batches.storage".
+     * @param partitionName the name of the partition
+     * @param dataPath the full path of the data directory of the partition
+     * @param mappedReads whether the store reads through memory mapping
+     * @return the store of the resources
+     * @throws IOException if the database.config could not be read or the store could not be opened
+     * @throws FileDatabaseConfigFileException if the value of the storage key is unknown
+     */
+    private static ResourceStore openResourceStore(String partitionName, String dataPath, boolean mappedReads)
+            throws IOException, FileDatabaseConfigFileException {
+        String storage = Objects.requireNonNullElse(partitionConfigValue(partitionName, "storage"), STORAGE);
+
+        return switch(storage) {
+            case "files" -> new FileResourceStore(dataPath, mappedReads, isDataLayoutHashed(partitionName));
+            case "segments" -> new SegmentResourceStore(dataPath,
+                    FileDatabaseConfigFile.longValue("segment_size", SEGMENT_SIZE), mappedReads);
+            case "lsm" -> new LsmResourceStore(dataPath,
+                    FileDatabaseConfigFile.longValue("lsm_memtable_size", LSM_MEMTABLE_SIZE), mappedReads);
+            default -> throw new FileDatabaseConfigFileException("Unknown value \"" + storage +
+                    "\" for \"storage\" in database.config file. It has to be one of files, segments or lsm");
+        };
+    }
+
+    /**
+     * This is a private method that checks if the files of the resources of a partition are spread over shard
+     * directories, as configured by the "data_layout" key in the database.config file. Like the storage key, it can
+     * be set for a single partition. The files are moved to the configured layout when the partition is opened.
+     * @param partitionName the name of the partition
+     * @return true for the hashed layout, false for the flat layout
+     * @throws IOException if the database.config could not be read
+     * @throws FileDatabaseConfigFileException if the value of the data_layout key is unknown
+     */
+    private static boolean isDataLayoutHashed(String partitionName)
+            throws IOException, FileDatabaseConfigFileException {
+        String dataLayout = Objects.requireNonNullElse(partitionConfigValue(partitionName, "data_layout"), DATA_LAYOUT);
+
+        return switch(dataLayout) {
+            case "flat" -> false;
+            case "hashed" -> true;
+            default -> throw new FileDatabaseConfigFileException("Unknown value \"" + dataLayout +
+                    "\" for \"data_layout\" in database.config file. It has to be one of flat or hashed");
+        };
+    }
+
+    /**
+     * This is a private method that checks if a partition is read through memory mapped files, as configured by the
+     * "read_mode" key in the database.config file. Like the storage key, it can be set for a single partition.
+     * @param partitionName the name of the partition
+     * @return true for the mmap read mode, false for the stream read mode
+     * @throws IOException if the database.config could not be read
+     * @throws FileDatabaseConfigFileException if the value of the read_mode key is unknown
+     */
+    private static boolean isReadModeMapped(String partitionName)
+            throws IOException, FileDatabaseConfigFileException {
+        String readMode = Objects.requireNonNullElse(partitionConfigValue(partitionName, "read_mode"), READ_MODE);
+
+        return switch(readMode) {
+            case "stream" -> false;
+            case "mmap" -> true;
+            default -> throw new FileDatabaseConfigFileException("Unknown value \"" + readMode +
+                    "\" for \"read_mode\" in database.config file. It has to be one of stream or mmap");
+        };
+    }
+
+    /**
+     * This is a private method that checks if a partition keeps its records in the record.tree file, as configured by
+     * the "record_index" key in the database.config file. Like the storage key, it can be set for a single partition.
+     * A partition is moved between the record.ser and the record.tree file when it's opened with the other value.
+     * @param partitionName the name of the partition
+     * @return true for the btree record index, false for the memory record index
+     * @throws IOException if the database.config could not be read
+     * @throws FileDatabaseConfigFileException if the value of the record_index key is unknown
+     */
+    private static boolean isRecordIndexTree(String partitionName)
+            throws IOException, FileDatabaseConfigFileException {
+        String recordIndex = Objects.requireNonNullElse(partitionConfigValue(partitionName, "record_index"), RECORD_INDEX);
+
+        return switch(recordIndex) {
+            case "memory" -> false;
+            case "btree" -> true;
+            default -> throw new FileDatabaseConfigFileException("Unknown value \"" + recordIndex +
+                    "\" for \"record_index\" in database.config file. It has to be one of memory or btree");
+        };
+    }
+
+    /**
+     * This is a private method that checks if a partition writes its resources with their ResourceCodec, as
+     * configured by the "serialization" key in the database.config file. Like the storage key, it can be set for a
+     * single partition. Resources written with either serialization are read in both cases.
+     * @param partitionName the name of the partition
+     * @return true for the binary serialization, false for the java serialization
+     * @throws IOException if the database.config could not be read
+     * @throws FileDatabaseConfigFileException if the value of the serialization key is unknown
+     */
+    private static boolean isSerializationBinary(String partitionName)
+            throws IOException, FileDatabaseConfigFileException {
+        String serialization = Objects.requireNonNullElse(partitionConfigValue(partitionName, "serialization"), SERIALIZATION);
+
+        return switch(serialization) {
+            case "java" -> false;
+            case "binary" -> true;
+            default -> throw new FileDatabaseConfigFileException("Unknown value \"" + serialization +
+                    "\" for \"serialization\" in database.config file. It has to be one of java or binary");
+        };
+    }
+
+    /**
+     * This is a private method that creates the compressor for the resources of a partition, as configured by the
+     * "compression" and "compression_level" keys in the database.config file. Like the storage key, the compression
+     * can be set for a single partition.
+     * @param partitionName the name of the partition
+     * @param partitionPath the full path of the partition directory
+     * @return the compressor of the resources
+     * @throws IOException if the database.config or the compression.dict file could not be read
+     * @throws FileDatabaseConfigFileException if the value of the compression or compression_level key is wrong
+     */
+    private static ResourceCompressor openResourceCompressor(String partitionName, String partitionPath)
+            throws IOException, FileDatabaseConfigFileException {
+        String compression = Objects.requireNonNullElse(partitionConfigValue(partitionName, "compression"), COMPRESSION);
+        long level = FileDatabaseConfigFile.longValue("compression_level", COMPRESSION_LEVEL);
+
+        if(level < 1 || level > 9)
+            throw new FileDatabaseConfigFileException("Value of \"compression_level\" in database.config file " +
+                    "has to be between 1 and 9");
+
+        boolean enabled = switch(compression) {
+            case "none" -> false;
+            case "deflate" -> true;
+            default -> throw new FileDatabaseConfigFileException("Unknown value \"" + compression +
+                    "\" for \"compression\" in database.config file. It has to be one of none or deflate");
+        };
+
+        return new ResourceCompressor(new File(partitionPath + "/compression.dict"), enabled, (int) level);
+    }
+
+    /**
+     * This is a private method that returns the maximum number of resources in a sub-partition of a partition, as
+     * configured by the "partition_capacity" key in the database.config file. Like the storage key, it can be set for
+     * a single partition.
+     * @param partitionName the name of the partition
+     * @return the maximum number of resources
+     * @throws IOException if the database.config could not be read
+     * @throws FileDatabaseConfigFileException if the value of the partition_capacity key is not a positive number
+     */
+    private static int partitionCapacity(String partitionName)
+            throws IOException, FileDatabaseConfigFileException {
+        long capacity = partitionLongValue(partitionName, "partition_capacity", PARTITION_RESOURCES_COUNT);
+
+        if(capacity < 1 || capacity > Integer.MAX_VALUE)
+            throw new FileDatabaseConfigFileException("Value of \"partition_capacity\" in database.config file " +
+                    "has to be a positive number");
+
+        return (int) capacity;
+    }
+
+    /**
+     * This is a private method that returns the number of recently used resources a partition keeps in memory, as
+     * configured by the "resource_cache_size" key in the database.config file. Like the storage key, it can be set
+     * for a single partition.
+     * @param partitionName the name of the partition
+     * @return the number of resources, 0 for none
+     * @throws IOException if the database.config could not be read
+     * @throws FileDatabaseConfigFileException if the value of the resource_cache_size key is negative
+     */
+    private static int resourceCacheSize(String partitionName)
+            throws IOException, FileDatabaseConfigFileException {
+        long resourceCacheSize = partitionLongValue(partitionName, "resource_cache_size", RESOURCE_CACHE_SIZE);
+
+        if(resourceCacheSize < 0 || resourceCacheSize > Integer.MAX_VALUE)
+            throw new FileDatabaseConfigFileException("Value of \"resource_cache_size\" in database.config file " +
+                    "cannot be negative");
+
+        return (int) resourceCacheSize;
+    }
+
+    /**
+     * This is a private method that checks if the checksums of the resources read from the store of a partition are
+     * verified, as configured by the "checksum_verification" key in the database.config file. Like the storage key,
+     * it can be set for a single partition. A single read can still decide otherwise.
+     * @param partitionName the name of the partition
+     * @return true if the checksums are verified on every read, false otherwise
+     * @throws IOException if the database.config could not be read
+     * @throws FileDatabaseConfigFileException if the value of the checksum_verification key is unknown
+     */
+    private static boolean isChecksumVerified(String partitionName)
+            throws IOException, FileDatabaseConfigFileException {
+        String checksumVerification = Objects.requireNonNullElse(
+                partitionConfigValue(partitionName, "checksum_verification"), CHECKSUM_VERIFICATION);
+
+        return switch(checksumVerification) {
+            case "always" -> true;
+            case "never" -> false;
+            default -> throw new FileDatabaseConfigFileException("Unknown value \"" + checksumVerification +
+                    "\" for \"checksum_verification\" in database.config file. It has to be one of always or never");
+        };
+    }
+
+    /**
+     * This is a private method that returns the number of threads of the background executor, as configured by the
+     * "io_threads" key in the database.config file.
+     * @return the number of threads
+     * @throws IOException if the database.config could not be read
+     * @throws FileDatabaseConfigFileException if the value of the io_threads key is not a positive number
+     */
+    private static int ioThreads() throws IOException, FileDatabaseConfigFileException {
+        long ioThreads = FileDatabaseConfigFile.longValue("io_threads", IO_THREADS);
+
+        if(ioThreads < 1 || ioThreads > Short.MAX_VALUE)
+            throw new FileDatabaseConfigFileException("Value of \"io_threads\" in database.config file " +
+                    "has to be a positive number");
+
+        return (int) ioThreads;
+    }
+
+    /**
+     * This is a private method that applies the keys of a reloaded database.config file, which can be changed while
+     * the partitions are open: the capacity, the cache size and the checksum verification of every open partition
+     * and the number of threads. If a key cannot be applied, the failure is kept by every open partition and thrown
+     * by its next change or sync.
+     */
+    private static synchronized void applyReloadedConfig() {
+        try {
+            for(LogicalPartition partition : openPartitions.values()) {
+                for(Partition subPartition : partition.getSubPartitions()) {
+                    subPartition.setCapacity(partitionCapacity(partition.getName()));
+                    subPartition.setResourceCacheSize(resourceCacheSize(partition.getName()));
+                    subPartition.setVerifyChecksums(isChecksumVerified(partition.getName()));
+                }
+            }
+
+            if(backgroundExecutor != null)
+                backgroundExecutor.setCorePoolSize(ioThreads());
+        }
+        catch (IOException | FileDatabaseConfigFileException exception) {
+            IOException failure = new IOException("Problem in applying the reloaded database.config file", exception);
+
+            for(LogicalPartition partition : openPartitions.values()) {
+                for(Partition subPartition : partition.getSubPartitions())
+                    subPartition.failInBackground(failure);
+            }
+        }
+    }
+
+    /**
+     * This is a private method that returns the value of a key for a partition from the database.config file as a
+     * number. The key prefixed with the name of the partition takes precedence over the key itself.
+     * @param partitionName the name of the partition
+     * @param key the key to be looked up
+     * @param defaultValue the value to be returned if the key is not present
+     * @return the value of the key or the default value
+     * @throws IOException if the database.config could not be read
+     * @throws FileDatabaseConfigFileException if the value of the key is not a number
+     */
+    private static long partitionLongValue(String partitionName, String key, long defaultValue)
+            throws IOException, FileDatabaseConfigFileException {
+        String prefixedKey = partitionName + "." + key;
+
+        return FileDatabaseConfigFile.longValue(prefixedKey,
+                FileDatabaseConfigFile.longValue(key, defaultValue));
+    }
+
+    /**
+     * This is a private method that returns the value of a key for a partition from the database.config file.
+     * The key prefixed with the name of the partition takes precedence over the key itself.
+     * @param partitionName the name of the partition
+     * @param key the key to be looked up
+     * @return the value of the key or null if the key is not present
+     * @throws IOException if the database.config could not be read
+     */
+    private static String partitionConfigValue(String partitionName, String key) throws IOException {
+        String value = FileDatabaseConfigFile.value(partitionName + "." + key);
+
+        return value != null ? value : FileDatabaseConfigFile.value(key);
+    }
+
+    /**
+     * This method returns the executor that runs the background work of the file database, like the checkpoints of
+     * the partitions. It has as many threads as the "io_threads" key in the database.config file says. Its threads
+     * are daemon threads, so they do not keep the application running. It's started by openPartition(), before that
+     * it's started with the default number of threads.
+     * @return the background executor
+     */
+    static synchronized ScheduledExecutorService background() {
+        if(backgroundExecutor == null)
+            startBackground((int) IO_THREADS);
+
+        return backgroundExecutor;
+    }
+
+    /**
+     * This is a private method that starts the background executor with a number of threads.
+     * @param ioThreads the number of threads
+     */
+    private static synchronized void startBackground(int ioThreads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        backgroundExecutor = new ScheduledThreadPoolExecutor(ioThreads, runnable -> {
+            Thread thread = new Thread(runnable, "file-database-background-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * This method returns the number of threads of the background executor, which read resources together with
+     * the calling thread in a multi-get.
+     * @return the number of threads
+     */
+    static synchronized int backgroundThreads() {
+        background();
+
+        return backgroundExecutor.getCorePoolSize();
     }
 
     /**
@@ -161,83 +579,89 @@ public final class FileDatabase {
      * @throws IOException if the database.config or the record.ser could not be read or
      * if there are any errors updating the record.ser file and creating resource file the data directory
      * @throws ClassNotFoundException if the class is not found during deserialization of the record.ser file
-     * @throws PartitionOverflowException if the partition is already full
      */
     public static int addResource(String partitionName, Object keyForRecord, String uniqueId, Object resource)
             throws CannotCreateFileException, FileDatabaseConfigFileException, IOException,
-            ClassNotFoundException, PartitionOverflowException {
-        createPartition(partitionName);
-
-        String fullPartitionPath = FileDatabaseConfigFile.rootPath() + "/" + partitionName;
-
-        // Read the record.ser file
-        ObjectInputStream recordFileReader = new ObjectInputStream(
-                new FileInputStream(fullPartitionPath + "/record.ser"));
-        TreeMap<Object, String> recordMap = (TreeMap<Object, String>) recordFileReader.readObject();
-        recordFileReader.close();
-
-        ObjectOutputStream recordFileWriter = new ObjectOutputStream(
-                new FileOutputStream(fullPartitionPath + "/record.ser"));
-        ObjectOutputStream resourceFileInDataDir = new ObjectOutputStream(
-                new FileOutputStream(fullPartitionPath + "/data" + "/" + uniqueId));
-
-        // Check if the partition is already full or not and update the data retrieved from record.ser
-        if(recordMap.size() == PARTITION_RESOURCES_COUNT)
-            throw new PartitionOverflowException("Partition at path \"" + fullPartitionPath + "\" is already full.");
-        recordMap.put(keyForRecord, uniqueId);
-
-        // Write the data to the partition
-        recordFileWriter.writeObject(recordMap);
-        resourceFileInDataDir.writeObject(resource);
-
-        recordFileWriter.flush();
-        resourceFileInDataDir.flush();
-        recordFileWriter.close();
-        resourceFileInDataDir.close();
+            ClassNotFoundException {
+        return openPartition(partitionName).add(keyForRecord, uniqueId, resource);
+    }
 
-        return recordMap.size();
+    /**
+     * This method adds many resources to a partition at once. The resources are serialized in parallel, and every
+     * sub-partition takes its share under one lock with one force of its record.log file, instead of one per
+     * resource. Resources that exist are overwritten.
+     * @param partitionName the name of the partition
+     * @param entries the resources to be added, with their keys and unique ids
+     * @return the updated size of the partition
+     * @throws CannotCreateFileException if the partition directory or the data directory could not be created
+     * @throws FileDatabaseConfigFileException if the syntax in the database.config is wrong
+     * @throws IOException if the database.config or the record.ser could not be read or
+     * if there are any errors appending to the record.log file and creating the resource files
+     * @throws ClassNotFoundException if the class is not found during deserialization of the record.ser file
+     */
+    public static int addResources(String partitionName, List<ResourceEntry> entries)
+            throws CannotCreateFileException, FileDatabaseConfigFileException, IOException,
+            ClassNotFoundException {
+        return openPartition(partitionName).addAll(entries);
     }
 
     /**
-     * This method retrieves the resource from the file database.
+     * This method retrieves the resource from the file database. Its checksum is verified as configured by the
+     * "checksum_verification" key in the database.config file.
      * @param partitionName the name of the partition
      * @param uniqueId the unique identifier of the resource to be retrieved
      * @return the resource object retrieved from the data directory or null in case it's not present
      * @throws CannotCreateFileException If the partition directory or the data directory could not be created
      * @throws FileDatabaseConfigFileException If the syntax in the database.config is wrong
      * @throws IOException If the database.config could not be read or if there are any errors reading the resource or record.ser file
+     * @throws ChecksumMismatchException If the checksum is verified and the stored resource does not match it
      * @throws ClassNotFoundException If the class is not found during deserialization of the record.ser file
      * @throws FileDatabaseInternalException If there's a mismatch between the record.ser file and the data directory entries
      */
     public static Object getResource(String partitionName, Object uniqueId)
             throws CannotCreateFileException, FileDatabaseConfigFileException, IOException,
             ClassNotFoundException, FileDatabaseInternalException {
-        createPartition(partitionName);
-
-        String fullPartitionPath = FileDatabaseConfigFile.rootPath() + "/" + partitionName;
-
-        // Read the record.ser file
-        ObjectInputStream recordFileReader = new ObjectInputStream(
-                new FileInputStream(fullPartitionPath + "/record.ser"));
-        TreeMap<Object, String> recordMap = (TreeMap<Object, String>) recordFileReader.readObject();
-        recordFileReader.close();
-
-        Object resource = null;
-
-        if(recordMap.containsValue(uniqueId)) {
-            File resourceFile = new File(fullPartitionPath + "/data" + "/" + uniqueId);
+        return openPartition(partitionName).get(uniqueId);
+    }
 
-            if(resourceFile.exists()) {
-                ObjectInputStream resourceFileInDataDir = new ObjectInputStream(
-                        new FileInputStream(fullPartitionPath + "/data" + "/" + uniqueId));
-                resource = resourceFileInDataDir.readObject();
-                resourceFileInDataDir.close();
-            }
-            else
-                throw new FileDatabaseInternalException("Mismatch is record.src file entries and data directory entries.");
-        }
+    /**
+     * This method retrieves the resource from the file database and decides for this read whether the checksum of
+     * the stored resource is verified, regardless of the "checksum_verification" key in the database.config file.
+     * @param partitionName the name of the partition
+     * @param uniqueId the unique identifier of the resource to be retrieved
+     * @param verifyChecksum whether the checksum of the stored resource is verified
+     * @return the resource object retrieved from the data directory or null in case it's not present
+     * @throws CannotCreateFileException If the partition directory or the data directory could not be created
+     * @throws FileDatabaseConfigFileException If the syntax in the database.config is wrong
+     * @throws IOException If the database.config could not be read or if there are any errors reading the resource or record.ser file
+     * @throws ChecksumMismatchException If the checksum is verified and the stored resource does not match it
+     * @throws ClassNotFoundException If the class is not found during deserialization of the record.ser file
+     * @throws FileDatabaseInternalException If there's a mismatch between the record.ser file and the data directory entries
+     */
+    public static Object getResource(String partitionName, Object uniqueId, boolean verifyChecksum)
+            throws CannotCreateFileException, FileDatabaseConfigFileException, IOException,
+            ClassNotFoundException, FileDatabaseInternalException {
+        return openPartition(partitionName).get(uniqueId, verifyChecksum);
+    }
 
-        return resource;
+    /**
+     * This method retrieves many resources from a partition at once. The partition is looked up once and the
+     * resource files are read in parallel, by the calling thread and the threads of the background executor, so
+     * the number of reads at once follows the "io_threads" key in the database.config file.
+     * @param partitionName the name of the partition
+     * @param uniqueIds the unique identifiers of the resources to be retrieved
+     * @return the resources in the order of their unique ids, with null for a resource that's not present
+     * @throws CannotCreateFileException If the partition directory or the data directory could not be created
+     * @throws FileDatabaseConfigFileException If the syntax in the database.config is wrong
+     * @throws IOException If the database.config could not be read or if there are any errors reading the resources or record.ser file
+     * @throws ChecksumMismatchException If the checksum is verified and a stored resource does not match it
+     * @throws ClassNotFoundException If the class is not found during deserialization of the record.ser file
+     * @throws FileDatabaseInternalException If there's a mismatch between the record.ser file and the data directory entries
+     */
+    public static ArrayList<Object> getResources(String partitionName, List<?> uniqueIds)
+            throws CannotCreateFileException, FileDatabaseConfigFileException, IOException,
+            ClassNotFoundException, FileDatabaseInternalException {
+        return openPartition(partitionName).getAll(uniqueIds);
     }
 
     /**
@@ -252,17 +676,132 @@ public final class FileDatabase {
     public static TreeSet<Object> getIdsOfResources(String partitionName)
             throws CannotCreateFileException, FileDatabaseConfigFileException,
             IOException, ClassNotFoundException {
-        createPartition(partitionName);
+        return openPartition(partitionName).getIds();
+    }
 
-        String fullPartitionPath = FileDatabaseConfigFile.rootPath() + "/" + partitionName;
+    /**
+     * This method retrieves the ids of the resources of a partition whose keys are in a range, in the order of their
+     * keys. With the btree record index, only the pages of the range are read.
+     * @param partitionName the name of the partition
+     * @param fromKey the smallest key, inclusive, or null for no lower bound
+     * @param toKey the largest key, inclusive, or null for no upper bound
+     * @return the ids of the resources in the order of their keys
+     * @throws CannotCreateFileException If the partition directory or the data directory could not be created
+     * @throws FileDatabaseConfigFileException If the syntax in the database.config is wrong
+     * @throws IOException If the database.config could not be read, if there are any errors reading the records or if
+     * the type of the keys is not supported by the btree record index
+     * @throws ClassNotFoundException If the class is not found during deserialization of the record.ser file
+     */
+    public static ArrayList<String> getIdsOfResourcesBetween(String partitionName, Object fromKey, Object toKey)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        return openPartition(partitionName).getIdsBetween(fromKey, toKey);
+    }
 
-        // Read the record.ser file
-        ObjectInputStream recordFileReader = new ObjectInputStream(
-                new FileInputStream(fullPartitionPath + "/record.ser"));
-        TreeMap<Object, String> recordMap = (TreeMap<Object, String>) recordFileReader.readObject();
-        recordFileReader.close();
+    /**
+     * This method retrieves the ids of one page of resources of a partition, in the order of their keys and then
+     * their unique ids, for keyset pagination. A page starts right after the last resource of the previous page, so
+     * resources added or removed in the meantime do not shift the pages. With the btree record index, only the
+     * pages of the tree that hold the page of records are read.
+     * @param partitionName the name of the partition
+     * @param afterKey the key of the last resource of the previous page, or null for the first page
+     * @param afterUniqueId the unique id of the last resource of the previous page, or null for the first page
+     * @param descending whether the resources are in the reverse order of their keys
+     * @param limit the largest number of resources in the page
+     * @return the ids of the resources of the page
+     * @throws CannotCreateFileException If the partition directory or the data directory could not be created
+     * @throws FileDatabaseConfigFileException If the syntax in the database.config is wrong
+     * @throws IOException If the database.config could not be read, if there are any errors reading the records or if
+     * the type of the keys is not supported by the btree record index
+     * @throws ClassNotFoundException If the class is not found during deserialization of the record.ser file
+     */
+    public static ArrayList<String> getPageOfResources(String partitionName, Object afterKey, String afterUniqueId,
+                                                       boolean descending, int limit)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        return openPartition(partitionName).getPage(afterKey, afterUniqueId, descending, limit);
+    }
 
-        return new TreeSet<>(recordMap.values());
+    /**
+     * This method retrieves one page of records of a partition like getPageOfResources(), with the key of every
+     * record, so the position of the next page is known without reading the resources.
+     * @param partitionName the name of the partition
+     * @param afterKey the key of the last resource of the previous page, or null for the first page
+     * @param afterUniqueId the unique id of the last resource of the previous page, or null for the first page
+     * @param descending whether the resources are in the reverse order of their keys
+     * @param limit the largest number of resources in the page
+     * @return the records of the page
+     * @throws CannotCreateFileException If the partition directory or the data directory could not be created
+     * @throws FileDatabaseConfigFileException If the syntax in the database.config is wrong
+     * @throws IOException If the database.config could not be read, if there are any errors reading the records or if
+     * the type of the keys is not supported by the btree record index
+     * @throws ClassNotFoundException If the class is not found during deserialization of the record.ser file
+     */
+    public static ArrayList<RecordEntry> getPageOfRecords(String partitionName, Object afterKey, String afterUniqueId,
+                                                          boolean descending, int limit)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        return openPartition(partitionName).getRecordPage(afterKey, afterUniqueId, descending, limit);
+    }
+
+    /**
+     * This method returns a lazy traversal of the resources of a partition, in the order of their keys. Only the
+     * unique ids are listed at first, every resource is read and deserialized when it's reached. The traversal can
+     * be split, so a parallel stream over it deserializes the resources on several threads.
+     * @param partitionName the name of the partition
+     * @return the traversal of the resources
+     * @throws CannotCreateFileException If the partition directory or the data directory could not be created
+     * @throws FileDatabaseConfigFileException If the syntax in the database.config is wrong
+     * @throws IOException If the database.config could not be read or if there are any errors reading the records
+     * @throws ClassNotFoundException If the class is not found during deserialization of the record.ser file
+     */
+    public static Spliterator<Object> getResourceSpliterator(String partitionName)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        return getResourceSpliterator(partitionName, null, null);
+    }
+
+    /**
+     * This method returns a lazy traversal of the resources of a partition whose keys are in a range, in the order
+     * of their keys. Only the unique ids of the range are listed at first, so with the btree record index only the
+     * pages of the range are read, and only the resources of the range are deserialized.
+     * @param partitionName the name of the partition
+     * @param fromKey the smallest key, inclusive, or null for no lower bound
+     * @param toKey the largest key, inclusive, or null for no upper bound
+     * @return the traversal of the resources
+     * @throws CannotCreateFileException If the partition directory or the data directory could not be created
+     * @throws FileDatabaseConfigFileException If the syntax in the database.config is wrong
+     * @throws IOException If the database.config could not be read, if there are any errors reading the records or if
+     * the type of the keys is not supported by the btree record index
+     * @throws ClassNotFoundException If the class is not found during deserialization of the record.ser file
+     */
+    public static Spliterator<Object> getResourceSpliterator(String partitionName, Object fromKey, Object toKey)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        LogicalPartition partition = openPartition(partitionName);
+        String[] uniqueIds = partition.getIdsBetween(fromKey, toKey).toArray(new String[0]);
+
+        return new ResourceSpliterator(partition, uniqueIds, 0, uniqueIds.length);
+    }
+
+    /**
+     * This method returns a lazy traversal of the resources of a partition with the given unique ids, in their
+     * order. It's meant for unique ids found through another partition, like an index kept by the caller. A
+     * unique id that's not present is skipped.
+     * @param partitionName the name of the partition
+     * @param uniqueIds the unique ids of the resources
+     * @return the traversal of the resources
+     * @throws CannotCreateFileException If the partition directory or the data directory could not be created
+     * @throws FileDatabaseConfigFileException If the syntax in the database.config is wrong
+     * @throws IOException If the database.config could not be read or if there are any errors reading the records
+     * @throws ClassNotFoundException If the class is not found during deserialization of the record.ser file
+     */
+    public static Spliterator<Object> getResourceSpliterator(String partitionName, List<String> uniqueIds)
+            throws CannotCreateFileException, FileDatabaseConfigFileException,
+            IOException, ClassNotFoundException {
+        String[] ids = uniqueIds.toArray(new String[0]);
+
+        return new ResourceSpliterator(openPartition(partitionName), ids, 0, ids.length);
     }
 
     /**
@@ -278,37 +817,85 @@ public final class FileDatabase {
     public static void removeResource(String partitionName, String uniqueId)
             throws CannotCreateFileException, FileDatabaseConfigFileException, IOException,
             ClassNotFoundException {
-        createPartition(partitionName);
-
-        String fullPartitionPath = FileDatabaseConfigFile.rootPath() + "/" + partitionName;
-
-        // Read the record.ser file
-        ObjectInputStream recordFileReader = new ObjectInputStream(
-                new FileInputStream(fullPartitionPath + "/record.ser"));
-        TreeMap<Object, String> recordMap = (TreeMap<Object, String>) recordFileReader.readObject();
-        recordFileReader.close();
+        openPartition(partitionName).remove(uniqueId);
+    }
 
-        ObjectOutputStream recordFileWriter = new ObjectOutputStream(
-                new FileOutputStream(fullPartitionPath + "/record.ser"));
-        File resourceFileInDataDir = new File(fullPartitionPath + "/data" + "/" + uniqueId);
+    /**
+     * This method removes many resources from a partition at once, with one force of the record.log file of every
+     * sub-partition instead of one per resource.
+     * @param partitionName the name of the partition
+     * @param uniqueIds the unique ids of the resources to be removed
+     * @throws CannotCreateFileException if the partition directory or the data directory could not be created
+     * @throws FileDatabaseConfigFileException if the syntax in the database.config is wrong
+     * @throws IOException if the database.config or the record.ser could not be read or
+     * if there are any errors appending to the record.log file
+     * @throws ClassNotFoundException if the class is not found during deserialization of the record.ser file
+     */
+    public static void removeResources(String partitionName, Collection<String> uniqueIds)
+            throws CannotCreateFileException, FileDatabaseConfigFileException, IOException,
+            ClassNotFoundException {
+        openPartition(partitionName).removeAll(uniqueIds);
+    }
 
-        for(Object key : recordMap.keySet()) {
-            if(recordMap.get(key).equals(uniqueId)) {
-                recordMap.remove(key);
-                break;
-            }
-        }
+    /**
+     * This method adds many records without a resource to a partition at once, for a partition whose records are all
+     * that's read, like an index whose unique ids name the resources of another partition. Only the record.log file
+     * of every sub-partition is appended to and forced once, nothing is written to the data directory. Records that
+     * exist get the new key. The resources of such a partition cannot be read, and a scrub reports its records as
+     * dangling records.
+     * @param partitionName the name of the partition
+     * @param entries the records to be added, with their keys and unique ids
+     * @return the updated number of records of the partition
+     * @throws CannotCreateFileException if the partition directory or the data directory could not be created
+     * @throws FileDatabaseConfigFileException if the syntax in the database.config is wrong
+     * @throws IOException if the database.config or the record.ser could not be read or
+     * if there are any errors appending to the record.log file
+     * @throws ClassNotFoundException if the class is not found during deserialization of the record.ser file
+     */
+    public static int addRecords(String partitionName, List<RecordEntry> entries)
+            throws CannotCreateFileException, FileDatabaseConfigFileException, IOException,
+            ClassNotFoundException {
+        return openPartition(partitionName).addRecords(entries);
+    }
 
-        resourceFileInDataDir.delete();
+    /**
+     * This method removes many records without a resource from a partition at once, as added by addRecords().
+     * @param partitionName the name of the partition
+     * @param uniqueIds the unique ids of the records to be removed
+     * @throws CannotCreateFileException if the partition directory or the data directory could not be created
+     * @throws FileDatabaseConfigFileException if the syntax in the database.config is wrong
+     * @throws IOException if the database.config or the record.ser could not be read or
+     * if there are any errors appending to the record.log file
+     * @throws ClassNotFoundException if the class is not found during deserialization of the record.ser file
+     */
+    public static void removeRecords(String partitionName, Collection<String> uniqueIds)
+            throws CannotCreateFileException, FileDatabaseConfigFileException, IOException,
+            ClassNotFoundException {
+        openPartition(partitionName).removeRecords(uniqueIds);
+    }
 
-        // Write the record.ser data to the file
-        recordFileWriter.writeObject(recordMap);
-        recordFileWriter.flush();
-        recordFileWriter.close();
+    /**
+     * This method checks for many resources at once if they are present in the file database. The records are
+     * looked up once for all the resources, and every resource with the same hashCode() as one of them is read once.
+     * @param partitionName the name of the partition
+     * @param resources The resources to be matched
+     * @return for every resource, whether an equal one is present
+     * @throws FileDatabaseConfigFileException If the syntax in the database.config is wrong
+     * @throws CannotCreateFileException If the partition directory or the data directory could not be created
+     * @throws IOException If the database.config could not be read or if there are any errors reading the resource file
+     * @throws ClassNotFoundException If the class is not found during deserialization of the record.ser file
+     * @throws FileDatabaseInternalException If there's a mismatch between the record.ser file and the data directory entries
+     */
+    public static boolean[] areResourcesPresent(String partitionName, List<?> resources)
+            throws FileDatabaseConfigFileException, IOException,
+            CannotCreateFileException, FileDatabaseInternalException,
+            ClassNotFoundException {
+        return openPartition(partitionName).arePresent(resources);
     }
 
     /**
-     * This method checks if a resource is present in the file database.
+     * This method checks if a resource is present in the file database. Only the resources with the same hashCode()
+     * as the given resource are read and compared.
      * @param partitionName the name of the partition
      * @param resource The resource to be matched
      * @return true if the resource is present, false otherwise
@@ -322,12 +909,112 @@ public final class FileDatabase {
             throws FileDatabaseConfigFileException, IOException,
             CannotCreateFileException, FileDatabaseInternalException,
             ClassNotFoundException {
-        for(Object uniqueId : getIdsOfResources(partitionName)) {
-            if(getResource(partitionName, uniqueId).equals(resource))
-                return true;
+        return openPartition(partitionName).isPresent(resource);
+    }
+
+    /**
+     * This method returns the compression ratio of the resources written to a partition since it was opened, as
+     * configured by the "compression" key in the database.config file.
+     * @param partitionName the name of the partition
+     * @return the uncompressed size of the resources divided by their stored size, 1 if nothing was compressed
+     * @throws FileDatabaseConfigFileException If the syntax in the database.config is wrong
+     * @throws CannotCreateFileException If the partition directory or the data directory could not be created
+     * @throws IOException If the database.config or the record.ser file could not be read
+     * @throws ClassNotFoundException If the class is not found during deserialization of the record.ser file
+     */
+    public static double getCompressionRatio(String partitionName)
+            throws FileDatabaseConfigFileException, CannotCreateFileException, IOException,
+            ClassNotFoundException {
+        return openPartition(partitionName).getCompressionRatio();
+    }
+
+    /**
+     * This method checks the consistency of a partition while it stays in use. In every sub-partition the records
+     * are compared with the stored resources, and every stored resource is read and deserialized in parallel on a
+     * fork-join pool. Nothing is changed, the problems are only reported.
+     * @param partitionName the name of the partition
+     * @return the orphans, dangling records, corrupt and undeserializable resources of the partition
+     * @throws FileDatabaseConfigFileException If the syntax in the database.config is wrong
+     * @throws CannotCreateFileException If the partition directory or the data directory could not be created
+     * @throws IOException If the database.config, the records or the stores could not be read
+     * @throws ClassNotFoundException If the class is not found during deserialization of the record.ser file
+     */
+    public static ScrubReport scrubPartition(String partitionName)
+            throws FileDatabaseConfigFileException, CannotCreateFileException, IOException,
+            ClassNotFoundException {
+        LogicalPartition partition = openPartition(partitionName);
+
+        try(PartitionScrubber scrubber = new PartitionScrubber(partitionName)) {
+            for(Partition subPartition : partition.getSubPartitions())
+                scrubber.scrub(subPartition);
+
+            return scrubber.report();
+        }
+    }
+
+    /**
+     * This method verifies the checksum of every stored resource of a partition while it stays in use. The
+     * resources are read in parallel on a fork-join pool, but not decompressed or deserialized, so the
+     * verification runs at the speed of the disk.
+     * @param partitionName the name of the partition
+     * @return the resources which do not match their checksum
+     * @throws FileDatabaseConfigFileException If the syntax in the database.config is wrong
+     * @throws CannotCreateFileException If the partition directory or the data directory could not be created
+     * @throws IOException If the database.config, the records or the stores could not be read
+     * @throws ClassNotFoundException If the class is not found during deserialization of the record.ser file
+     */
+    public static VerifyReport verifyPartition(String partitionName)
+            throws FileDatabaseConfigFileException, CannotCreateFileException, IOException,
+            ClassNotFoundException {
+        LogicalPartition partition = openPartition(partitionName);
+
+        try(PartitionScrubber scrubber = new PartitionScrubber(partitionName)) {
+            for(Partition subPartition : partition.getSubPartitions())
+                scrubber.verify(subPartition);
+
+            return scrubber.verifyReport();
         }
+    }
+
+    /**
+     * This method rebuilds the record.ser files of a partition from its stored resources, when they are lost or
+     * corrupt or disagree with the data directory. The partition is closed first and its records are not read, so
+     * it does not have to be openable. Every stored resource is deserialized in parallel on a fork-join pool and
+     * gets a record with the key returned by the extractor. No partition can be opened during the rebuild.
+     * @param partitionName the name of the partition
+     * @param keyExtractor the extractor of the key of every resource, the same key that was used to add it
+     * @return the resources that were corrupt or could not be deserialized and got no record
+     * @throws FileDatabaseConfigFileException If the syntax in the database.config is wrong
+     * @throws NoSuchFileException If the partition directory is not present
+     * @throws IOException If the database.config or the stores could not be read, or the record.ser files could
+     * not be written
+     */
+    public static synchronized ScrubReport rebuildRecords(String partitionName, RecordKeyExtractor keyExtractor)
+            throws FileDatabaseConfigFileException, IOException {
+        isPartitionPresent(partitionName);
 
-        return false;
+        LogicalPartition partition = openPartitions.remove(partitionName);
+
+        if(partition != null)
+            partition.close();
+
+        String partitionPath = FileDatabaseConfigFile.rootPath() + "/" + partitionName;
+
+        try(PartitionScrubber scrubber = new PartitionScrubber(partitionName)) {
+            for(String subPartitionPath : LogicalPartition.subPartitionPaths(partitionPath)) {
+                ResourceStore resourceStore = openResourceStore(partitionName, subPartitionPath + "/data", false);
+
+                try {
+                    scrubber.rebuild(subPartitionPath, resourceStore,
+                            openResourceCompressor(partitionName, subPartitionPath), keyExtractor);
+                }
+                finally {
+                    resourceStore.close();
+                }
+            }
+
+            return scrubber.report();
+        }
     }
 
     /**
@@ -360,6 +1047,15 @@ public final class FileDatabase {
      */
     public static void removePartition(String partitionName)
             throws FileDatabaseConfigFileException, IOException {
+        LogicalPartition partition;
+
+        synchronized(FileDatabase.class) {
+            partition = openPartitions.remove(partitionName);
+        }
+
+        if(partition != null)
+            partition.close();
+
         File partitionDirectory = new File(FileDatabaseConfigFile.rootPath() + "/" + partitionName);
         deleteDir(partitionDirectory);
     }
@@ -3,6 +3,10 @@ package example.app.filedatabase;
 import example.app.filedatabase.Exceptions.FileDatabaseConfigFileException;
 
 import java.io.*;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * <h1>Class FileDatabaseConfigFile</h1>
@@ -15,10 +19,60 @@ import java.io.*;
  *     <li>"root" key represents root database directory</li>
  *     <li>"root" key's value represents it's directory path</li>
  *     <li>Lines starting with '#' are ignored</li>
+ *     <li>"record_log_checkpoint_size" key represents the size in bytes after which the record.log file of a
+ *     partition is folded into its record.ser file (optional)</li>
+ *     <li>"fsync" key represents when the changes to the records are forced to the disk. Its value is one of
+ *     always, interval or os (optional)</li>
+ *     <li>"fsync_interval_ms" key represents the interval in milliseconds between two forces for the interval
+ *     policy (optional)</li>
+ *     <li>"storage" key represents how the resources of a partition are stored in its data directory. Its value is
+ *     files for one file per resource, segments for packed segment files or lsm for a log-structured merge tree
+ *     for partitions with many writes. It can be set for a single partition by prefixing the key with the name of
+ *     the partition, like "batches.storage". A partition of the files storage can be switched to segments or lsm,
+ *     its files are moved into the new storage when it's opened. A partition of the segments or lsm storage cannot be
+ *     switched to another storage, it's not opened until the storage is set back (optional)</li>
+ *     <li>"segment_size" key represents the size in bytes after which a new segment file is started (optional)</li>
+ *     <li>"data_layout" key represents how the files of the files storage are laid out in the data directory. Its
+ *     value is flat for one directory or hashed for two levels of shard directories named by the start of the unique
+ *     id. Like "storage", it can be set for a single partition (optional)</li>
+ *     <li>"lsm_memtable_size" key represents the size in bytes of the resources kept in memory by the lsm storage
+ *     before they are written to a sorted run (optional)</li>
+ *     <li>"read_mode" key represents how the files of a partition are read. Its value is stream for plain reads or
+ *     mmap for memory mapped reads. Like "storage", it can be set for a single partition (optional)</li>
+ *     <li>"serialization" key represents how the resources of a partition are written. Its value is java for Java
+ *     serialization or binary for the compact ResourceCodec form. Like "storage", it can be set for a single
+ *     partition (optional)</li>
+ *     <li>"compression" key represents how the resources of a partition are compressed. Its value is none or
+ *     deflate, which compresses with a dictionary trained from the first resources of the partition. Like "storage",
+ *     it can be set for a single partition (optional)</li>
+ *     <li>"compression_level" key represents the deflate level from 1 (fastest) to 9 (smallest) (optional)</li>
+ *     <li>"partition_capacity" key represents the maximum number of resources in a sub-partition. When it's
+ *     reached, the partition rolls over to a new sub-partition. Like "storage", it can be set for a single partition
+ *     (optional)</li>
+ *     <li>"resource_cache_size" key represents the number of recently used resources a partition keeps in memory,
+ *     0 turns the cache off. Like "storage", it can be set for a single partition (optional)</li>
+ *     <li>"checksum_verification" key represents whether the checksums of the resources are verified when they are
+ *     read from the store. Its value is always or never, and a single read can still decide otherwise. Like
+ *     "storage", it can be set for a single partition (optional)</li>
+ *     <li>"io_threads" key represents the number of threads for the background work of the file database, like
+ *     checkpoints and compactions (optional)</li>
+ *     <li>"record_index" key represents where the records of a partition are kept. Its value is memory for the
+ *     record.ser file, which is loaded in memory, or btree for the paged record.tree file. Like "storage", it can be
+ *     set for a single partition (optional)</li>
+ *     <li>"slow_query_ms" key represents the time in milliseconds from which the plan of a query of an entity list
+ *     is written to the standard error, 0 for every query (optional)</li>
  * </ul>
+ * The file is parsed once into an immutable snapshot, which is parsed again whenever the file changes. The capacity,
+ * the cache size and the number of threads are applied to the open partitions right away, the other keys of a
+ * partition are applied when it's opened next.
+ * <br>
+ * The file is looked up in the present directory, unless the "database.config" system property gives another path.
  */
 public final class FileDatabaseConfigFile {
-    private static String CONFIG_FILE_NAME = "database.config";
+    private static String CONFIG_FILE_NAME = System.getProperty("database.config", "database.config");
+    private static volatile Map<String, String> snapshot;
+    private static final CopyOnWriteArrayList<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
+    private static Thread watcher;
 
     /**
      * This method creates a new database.config file. The file path is the present directory
@@ -35,11 +89,49 @@ public final class FileDatabaseConfigFile {
                  #   "root" key represents root database directory
                  #   "root" key's value represents it's directory path
                  #   Lines starting with '#' are ignored
+                 #   "record_log_checkpoint_size" key represents the size in bytes after which the record.log
+                 #   file of a partition is folded into its record.ser file (optional)
+                 #   "fsync" key represents when the changes to the records are forced to the disk.
+                 #   Its value is one of always, interval or os (optional)
+                 #   "fsync_interval_ms" key represents the interval in milliseconds between two forces
+                 #   for the interval policy (optional)
+                 #   "storage" key represents how the resources of a partition are stored. Its value is
+                 #   files for one file per resource, segments for packed segment files or lsm for a log-structured
+                 #   merge tree. It can be set for a single partition by prefixing it with the partition name, like
+                 #   batches.storage (optional)
+                 #   "segment_size" key represents the size in bytes after which a new segment file is started (optional)
+                 #   "data_layout" key represents how the files of the files storage are laid out. Its value is
+                 #   flat or hashed for two levels of shard directories. It can be set for a single partition (optional)
+                 #   "lsm_memtable_size" key represents the size in bytes of the resources kept in memory by the lsm
+                 #   storage before they are written to a sorted run (optional)
+                 #   "read_mode" key represents how the files of a partition are read. Its value is stream
+                 #   for plain reads or mmap for memory mapped reads. It can be set for a single partition (optional)
+                 #   "serialization" key represents how the resources of a partition are written. Its value is
+                 #   java or binary. It can be set for a single partition (optional)
+                 #   "compression" key represents how the resources of a partition are compressed. Its value is
+                 #   none or deflate. It can be set for a single partition (optional)
+                 #   "compression_level" key represents the deflate level from 1 to 9 (optional)
+                 #   "partition_capacity" key represents the maximum number of resources in a sub-partition,
+                 #   after which a new one is started. It can be set for a single partition (optional)
+                 #   "resource_cache_size" key represents the number of recently used resources a partition
+                 #   keeps in memory, 0 turns the cache off. It can be set for a single partition (optional)
+                 #   "checksum_verification" key represents whether the checksums of the resources are
+                 #   verified when they are read. Its value is always or never. It can be set for a single
+                 #   partition (optional)
+                 #   "io_threads" key represents the number of threads for the background work (optional)
+                 #   "record_index" key represents where the records of a partition are kept. Its value is
+                 #   memory or btree. It can be set for a single partition (optional)
+                 #   "slow_query_ms" key represents the time in milliseconds from which the plan of a query
+                 #   is written to the standard error, 0 for every query (optional)
                  """
         );
 
         writer.flush();
         writer.close();
+
+        synchronized(FileDatabaseConfigFile.class) {
+            snapshot = null;
+        }
     }
 
     /**
@@ -49,21 +141,178 @@ public final class FileDatabaseConfigFile {
      * @throws IOException if the file could not be read
      */
     public static String rootPath() throws IOException, FileDatabaseConfigFileException {
+        String rootPath = value("root");
+
+        if(rootPath == null)
+            throw new FileDatabaseConfigFileException("Cannot find root directory path in database.config file");
+
+        return rootPath;
+    }
+
+    /**
+     * This method returns the value of a key from the database.config file.
+     * @param key the key to be looked up
+     * @return the value of the key or null if the key is not present
+     * @throws IOException if the file could not be read
+     */
+    public static String value(String key) throws IOException {
+        return snapshot().get(key);
+    }
+
+    /**
+     * This method returns all the keys and values of the database.config file. The file is parsed only once, after
+     * that the same snapshot is returned until the file changes.
+     * @return an unmodifiable map of the keys to their values
+     * @throws IOException if the file could not be read
+     */
+    public static Map<String, String> snapshot() throws IOException {
+        Map<String, String> currentSnapshot = snapshot;
+
+        return currentSnapshot != null ? currentSnapshot : load();
+    }
+
+    /**
+     * This method registers an action that is run on the watcher thread after the database.config file was changed
+     * and parsed again.
+     * @param listener the action to be run
+     */
+    public static void addReloadListener(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
+    /**
+     * This is a private method that parses the database.config file, if it's not parsed yet, and starts watching it.
+     * @return the snapshot of the file
+     * @throws IOException if the file could not be read
+     */
+    private static synchronized Map<String, String> load() throws IOException {
+        if(snapshot == null) {
+            snapshot = parse();
+            watch();
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * This is a private method that parses the database.config file. When a key is present more than once, the
+     * first value is kept.
+     * @return an unmodifiable map of the keys to their values
+     * @throws IOException if the file could not be read
+     */
+    private static Map<String, String> parse() throws IOException {
+        HashMap<String, String> values = new HashMap<>();
         BufferedReader reader = new BufferedReader(new FileReader(CONFIG_FILE_NAME));
 
-        while(reader.ready()) {
-            String line = reader.readLine().trim();
+        try {
+            while(reader.ready()) {
+                String line = reader.readLine().trim();
+
+                if(!line.startsWith("#")) // Ignoring lines starting with '#'
+                {
+                    String[] keyValue = line.split("=");
 
-            if(!line.startsWith("#")) // Ignoring lines starting with '#'
-            {
-                String[] keyValue = line.split("=");
+                    if(keyValue.length == 2)
+                        values.putIfAbsent(keyValue[0].trim(), keyValue[1].trim());
+                }
+            }
+        }
+        finally {
+            reader.close();
+        }
+
+        return Map.copyOf(values);
+    }
+
+    /**
+     * This is a private method that starts a daemon thread, which parses the database.config file again whenever it
+     * is changed. If the platform cannot watch the file, the first snapshot is kept.
+     */
+    private static void watch() {
+        if(watcher != null)
+            return;
 
-                if(keyValue.length == 2 && keyValue[0].trim().equals("root")) {
-                    return keyValue[1].trim();
+        try {
+            Path configPath = Paths.get(CONFIG_FILE_NAME).toAbsolutePath();
+            WatchService watchService = configPath.getFileSystem().newWatchService();
+            configPath.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+            watcher = new Thread(() -> {
+                try {
+                    while(true) {
+                        WatchKey watchKey = watchService.take();
+                        boolean changed = false;
+
+                        for(WatchEvent<?> event : watchKey.pollEvents()) {
+                            if(configPath.getFileName().equals(event.context()))
+                                changed = true;
+                        }
+
+                        watchKey.reset();
+
+                        if(changed)
+                            reload();
+                    }
                 }
+                catch (InterruptedException | ClosedWatchServiceException ignored) {
+                    // The watcher ends with the application
+                }
+            }, "file-database-config-watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+        catch (IOException exception) {
+            System.err.println("Problem in watching the database.config file\n" + exception);
+        }
+    }
+
+    /**
+     * This is a private method that replaces the snapshot after the database.config file was changed. If the file
+     * was deleted or cannot be read, the snapshot is dropped, so the next access reads the file again and throws the
+     * failure to its caller.
+     */
+    private static void reload() {
+        synchronized(FileDatabaseConfigFile.class) {
+            try {
+                snapshot = parse();
+            }
+            catch (IOException exception) {
+                snapshot = null;
+                return;
+            }
+        }
+
+        for(Runnable listener : reloadListeners) {
+            try {
+                listener.run();
+            }
+            catch (RuntimeException exception) {
+                System.err.println("Problem in applying the reloaded database.config file\n" + exception);
             }
         }
+    }
+
+    /**
+     * This method returns the value of a key from the database.config file as a number.
+     * @param key the key to be looked up
+     * @param defaultValue the value to be returned if the key is not present
+     * @return the value of the key or the default value
+     * @throws IOException if the file could not be read
+     * @throws FileDatabaseConfigFileException if the value of the key is not a number
+     */
+    public static long longValue(String key, long defaultValue)
+            throws IOException, FileDatabaseConfigFileException {
+        String value = value(key);
+
+        if(value == null)
+            return defaultValue;
 
-        throw new FileDatabaseConfigFileException("Cannot find root directory path in database.config file");
+        try {
+            return Long.parseLong(value.replace("_", ""));
+        }
+        catch (NumberFormatException exception) {
+            throw new FileDatabaseConfigFileException("Value of \"" + key + "\" in database.config file is not a number", exception);
+        }
     }
 }
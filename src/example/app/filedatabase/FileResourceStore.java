@@ -0,0 +1,382 @@
+package example.app.filedatabase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <h1>Class FileResourceStore</h1>
+ * This class stores each resource of a partition as an individual file in the data directory. The name of the file
+ * is the unique id of the resource. This is the default storage of a partition. In the mapped read mode every file
+ * is mapped in memory while it's read, instead of being copied to an array.
+ * <br>
+ * The files are laid out in one of two ways, as configured by the "data_layout" key in the database.config file:
+ * <ul>
+ *     <li>Flat: Every file is directly in the data directory, like data/&lt;uuid&gt;</li>
+ *     <li>Hashed: The files are spread over two levels of directories named by the first four characters of the
+ *     unique id, like data/ab/cd/&lt;uuid&gt;, so that no directory gets too large. Unique ids that do not start
+ *     with four hexadecimal digits are spread by their hash instead</li>
+ * </ul>
+ * When the store is opened with one layout and files of the other layout are present, they are moved to the
+ * configured layout in the background. Until the move is finished, a resource that is not found in the configured
+ * layout is looked up in the other one, so the partition stays usable during the migration. A failed migration is
+ * kept and thrown by the next write, delete or sync, which starts the migration again.
+ * <br>
+ * A file that's written without force is remembered until the next sync(), which forces it and its directory, so
+ * the record.log entries forced after it never point at a file that's not on the disk yet.
+ */
+final class FileResourceStore implements ResourceStore {
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final String dataPath;
+    private final boolean mapped;
+    private final boolean hashed;
+    private volatile boolean migrating;
+    private final Set<String> unsyncedIds = ConcurrentHashMap.newKeySet();
+    private final AtomicReference<IOException> migrationFailure = new AtomicReference<>();
+
+    @Override
+    public void write(String uniqueId, byte[] content, boolean force) throws IOException {
+        throwMigrationFailure();
+
+        File file = file(uniqueId, hashed);
+
+        if(hashed)
+            file.getParentFile().mkdirs();
+
+        DurableFile.replace(file, force, content);
+
+        if(!force)
+            unsyncedIds.add(uniqueId);
+
+        // The older copy in the other layout must not be moved over the new content
+        if(migrating)
+            Files.deleteIfExists(file(uniqueId, !hashed).toPath());
+    }
+
+    @Override
+    public ByteBuffer read(String uniqueId) throws IOException {
+        ByteBuffer content = read(file(uniqueId, hashed).toPath());
+
+        if(content != null || !migrating)
+            return content;
+
+        content = read(file(uniqueId, !hashed).toPath());
+
+        // The file can have been moved between the two reads
+        return content != null ? content : read(file(uniqueId, hashed).toPath());
+    }
+
+    @Override
+    public void delete(String uniqueId) throws IOException {
+        throwMigrationFailure();
+        unsyncedIds.remove(uniqueId);
+
+        if(migrating)
+            Files.deleteIfExists(file(uniqueId, !hashed).toPath());
+
+        Files.deleteIfExists(file(uniqueId, hashed).toPath());
+    }
+
+    @Override
+    public Set<String> ids() throws IOException {
+        HashSet<String> ids = new HashSet<>();
+
+        for(File file : resourceFiles(dataPath)) {
+            if(!file.getName().endsWith(TEMPORARY_SUFFIX))
+                ids.add(file.getName());
+        }
+
+        return ids;
+    }
+
+    @Override
+    public void sync() throws IOException {
+        throwMigrationFailure();
+
+        HashSet<File> directories = new HashSet<>();
+
+        for(String uniqueId : unsyncedIds) {
+            // A write in the meantime remembers the file again, so it's forced by the next sync at the latest
+            unsyncedIds.remove(uniqueId);
+
+            File file = file(uniqueId, hashed);
+
+            try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            catch (NoSuchFileException ignored) {
+                // The resource was deleted since it was written
+                continue;
+            }
+
+            directories.add(file.getAbsoluteFile().getParentFile());
+        }
+
+        for(File directory : directories)
+            DurableFile.forceDirectory(directory);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // No file is kept open, only the files written without force are forced
+        sync();
+    }
+
+    /**
+     * This method moves every file of the other layout to the configured layout. A file is linked to its new path
+     * before its old path is deleted, and the link fails if the resource was written to the new path in the
+     * meantime, so a newer content is never replaced by an older one.
+     * @throws IOException if a file could not be moved
+     */
+    void migrate() throws IOException {
+        for(File file : resourceFiles(dataPath)) {
+            boolean inShard = !file.getParent().equals(new File(dataPath).getPath());
+
+            if(inShard == hashed)
+                continue;
+
+            // A temporary file of the other layout is left over from an interrupted write
+            if(file.getName().endsWith(TEMPORARY_SUFFIX)) {
+                Files.deleteIfExists(file.toPath());
+                continue;
+            }
+
+            File target = file(file.getName(), hashed);
+
+            if(hashed)
+                target.getParentFile().mkdirs();
+
+            try {
+                Files.createLink(target.toPath(), file.toPath());
+            }
+            catch (FileAlreadyExistsException | NoSuchFileException ignored) {
+                // The resource was written or deleted since the migration started
+            }
+
+            Files.deleteIfExists(file.toPath());
+        }
+
+        if(!hashed)
+            deleteEmptyShards(dataPath);
+
+        migrating = false;
+    }
+
+    /**
+     * This is a private method that starts the migration of the files of the other layout in the background.
+     */
+    private void startMigration() {
+        FileDatabase.background().execute(() -> {
+            try {
+                migrate();
+            }
+            catch (IOException | RuntimeException exception) {
+                migrationFailure.compareAndSet(null,
+                        exception instanceof IOException ioException ? ioException : new IOException(exception));
+            }
+        });
+    }
+
+    /**
+     * This is a private method that throws the kept failure of the migration once and starts the migration again.
+     * @throws IOException if the migration failed since the last time this method was called
+     */
+    private void throwMigrationFailure() throws IOException {
+        IOException failure = migrationFailure.getAndSet(null);
+
+        if(failure == null)
+            return;
+
+        startMigration();
+
+        throw new IOException("Problem in migrating the data directory at \"" + dataPath + "\"", failure);
+    }
+
+    /**
+     * This method lists the files of the resources in a data directory in both layouts. Temporary files and the
+     * files of the other stores are listed too, the caller has to skip the names it does not want.
+     * @param dataPath the full path of the data directory
+     * @return the files of the data directory and of its shard directories
+     * @throws IOException if a directory could not be listed
+     */
+    static ArrayList<File> resourceFiles(String dataPath) throws IOException {
+        ArrayList<File> files = new ArrayList<>();
+
+        if(!new File(dataPath).exists())
+            return files;
+
+        try(DirectoryStream<Path> entries = Files.newDirectoryStream(Path.of(dataPath))) {
+            for(Path entry : entries) {
+                if(Files.isRegularFile(entry))
+                    files.add(entry.toFile());
+                else if(isShard(entry))
+                    files.addAll(shardFiles(entry));
+            }
+        }
+
+        return files;
+    }
+
+    /**
+     * This method deletes the shard directories of a data directory which are empty, after their files were moved
+     * to the flat layout or to another store. Directories that still hold files are kept.
+     * @param dataPath the full path of the data directory
+     * @throws IOException if a directory could not be listed
+     */
+    static void deleteEmptyShards(String dataPath) throws IOException {
+        try(DirectoryStream<Path> firstLevels = Files.newDirectoryStream(Path.of(dataPath), FileResourceStore::isShard)) {
+            for(Path firstLevel : firstLevels) {
+                try(DirectoryStream<Path> secondLevels = Files.newDirectoryStream(firstLevel, FileResourceStore::isShard)) {
+                    for(Path secondLevel : secondLevels)
+                        secondLevel.toFile().delete();
+                }
+
+                firstLevel.toFile().delete();
+            }
+        }
+    }
+
+    /**
+     * This is a private method that lists the files in the shard directories below a first level shard directory.
+     * @param firstLevel the first level shard directory
+     * @return the files of the resources
+     * @throws IOException if a directory could not be listed
+     */
+    private static ArrayList<File> shardFiles(Path firstLevel) throws IOException {
+        ArrayList<File> files = new ArrayList<>();
+
+        try(DirectoryStream<Path> secondLevels = Files.newDirectoryStream(firstLevel)) {
+            for(Path secondLevel : secondLevels) {
+                if(!isShard(secondLevel))
+                    continue;
+
+                try(DirectoryStream<Path> entries = Files.newDirectoryStream(secondLevel)) {
+                    for(Path entry : entries) {
+                        if(Files.isRegularFile(entry))
+                            files.add(entry.toFile());
+                    }
+                }
+            }
+        }
+
+        return files;
+    }
+
+    /**
+     * This is a private method that checks if the data directory holds files of the other layout.
+     * @return true if there's at least one file to be migrated, false otherwise
+     * @throws IOException if the data directory could not be listed
+     */
+    private boolean hasFilesOfOtherLayout() throws IOException {
+        if(!new File(dataPath).exists())
+            return false;
+
+        try(DirectoryStream<Path> entries = Files.newDirectoryStream(Path.of(dataPath))) {
+            for(Path entry : entries) {
+                if(hashed && Files.isRegularFile(entry) && !entry.getFileName().toString().endsWith(TEMPORARY_SUFFIX))
+                    return true;
+                if(!hashed && isShard(entry))
+                    return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * This is a private method that reads a file.
+     * @param file the path of the file
+     * @return the content of the file or null if it does not exist
+     * @throws IOException if the file could not be read
+     */
+    private ByteBuffer read(Path file) throws IOException {
+        try {
+            if(!mapped)
+                return ByteBuffer.wrap(Files.readAllBytes(file));
+
+            try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        catch (NoSuchFileException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * This is a private method that returns the file of a resource in a layout.
+     * @param uniqueId the unique identifier of the resource
+     * @param hashed whether the file is in the hashed layout
+     * @return the file of the resource
+     */
+    private File file(String uniqueId, boolean hashed) {
+        if(!hashed)
+            return new File(dataPath + "/" + uniqueId);
+
+        String shard = shard(uniqueId);
+
+        return new File(dataPath + "/" + shard.substring(0, 2) + "/" + shard.substring(2, 4) + "/" + uniqueId);
+    }
+
+    /**
+     * This is a private method that returns the four hexadecimal digits which name the shard directories of a
+     * resource. They are the first four characters of the unique id if those are hexadecimal digits, like for a
+     * UUID, or else taken from the hash of the unique id.
+     * @param uniqueId the unique identifier of the resource
+     * @return the four lowercase hexadecimal digits
+     */
+    private static String shard(String uniqueId) {
+        if(uniqueId.length() >= 4 && uniqueId.substring(0, 4).matches("[0-9a-f]{4}"))
+            return uniqueId.substring(0, 4);
+
+        return String.format("%04x", uniqueId.hashCode() & 0xFFFF);
+    }
+
+    /**
+     * This is a private method that checks if a path is a shard directory, which is named by two lowercase
+     * hexadecimal digits.
+     * @param path the path to be checked
+     * @return true if the path is a shard directory, false otherwise
+     */
+    private static boolean isShard(Path path) {
+        return Files.isDirectory(path) && path.getFileName().toString().matches("[0-9a-f]{2}");
+    }
+
+    /**
+     * The constructor creates a store over the data directory of a partition. If files of the other layout are
+     * present, their migration is started in the background. A data directory that holds the files of the segments
+     * or the lsm storage is not opened, since its files are not resources.
+     * @param dataPath the full path of the data directory
+     * @param mapped whether the files are read through memory mapping
+     * @param hashed whether the files are laid out in the hashed layout, otherwise in the flat layout
+     * @throws IOException if the data directory could not be listed or holds the files of another storage
+     */
+    FileResourceStore(String dataPath, boolean mapped, boolean hashed) throws IOException {
+        String[] fileNames = new File(dataPath).list();
+
+        if(fileNames != null) {
+            for(String fileName : fileNames) {
+                if(SegmentResourceStore.isStoreFile(fileName) || LsmResourceStore.isStoreFile(fileName))
+                    throw new IOException("Data directory at \"" + dataPath + "\" holds the files of the " +
+                            (SegmentResourceStore.isStoreFile(fileName) ? "segments" : "lsm") +
+                            " storage, so it cannot be opened with the files storage");
+            }
+        }
+
+        this.dataPath = dataPath;
+        this.mapped = mapped;
+        this.hashed = hashed;
+        this.migrating = hasFilesOfOtherLayout();
+
+        if(migrating)
+            startMigration();
+    }
+}
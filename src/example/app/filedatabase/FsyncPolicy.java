@@ -0,0 +1,37 @@
+package example.app.filedatabase;
+
+import example.app.filedatabase.Exceptions.FileDatabaseConfigFileException;
+
+/**
+ * <h1>Enum FsyncPolicy</h1>
+ * This enum represents when the changes appended to the record.log file of a partition are forced to the disk.
+ * It's configured with the "fsync" key in the database.config file.
+ * <ul>
+ *     <li>ALWAYS: Every change is forced before the operation returns. Changes of concurrent writers are forced
+ *     together with a single fsync (group commit)</li>
+ *     <li>INTERVAL: The changes are forced in the background every "fsync_interval_ms" milliseconds</li>
+ *     <li>OS: The changes are never forced explicitly, the operating system decides when to write them</li>
+ * </ul>
+ * Checkpoints of the record.ser file are always forced and atomically renamed into place, regardless of the policy.
+ */
+public enum FsyncPolicy {
+    ALWAYS,
+    INTERVAL,
+    OS;
+
+    /**
+     * This method converts the value of the "fsync" key in the database.config file to a policy.
+     * @param value the value of the key, in any case
+     * @return the policy
+     * @throws FileDatabaseConfigFileException if the value is not a known policy
+     */
+    public static FsyncPolicy parse(String value) throws FileDatabaseConfigFileException {
+        try {
+            return FsyncPolicy.valueOf(value.trim().toUpperCase());
+        }
+        catch (IllegalArgumentException exception) {
+            throw new FileDatabaseConfigFileException("Unknown value \"" + value + "\" for \"fsync\" in database.config file. " +
+                    "It has to be one of always, interval or os", exception);
+        }
+    }
+}
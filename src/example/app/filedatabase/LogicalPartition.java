@@ -0,0 +1,763 @@
+package example.app.filedatabase;
+
+import example.app.filedatabase.Exceptions.CannotCreateFileException;
+import example.app.filedatabase.Exceptions.FileDatabaseConfigFileException;
+import example.app.filedatabase.Exceptions.FileDatabaseInternalException;
+import example.app.filedatabase.Exceptions.PartitionOverflowException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * <h1>Class LogicalPartition</h1>
+ * This class is the handle of a partition as it's addressed by its name, like "batches". It's backed by one or more
+ * numbered physical partitions, called sub-partitions:
+ * <ul>
+ *     <li>Sub-partition 0: The partition directory itself, so a partition that never grew past its capacity is laid
+ *     out like before</li>
+ *     <li>Sub-partition N: The directory parts/N inside the partition directory, with its own record.ser file, record.log
+ *     file and data directory</li>
+ * </ul>
+ * A new resource is added to the last sub-partition. When it's full, a new sub-partition is started instead of
+ * failing with a PartitionOverflowException, so the capacity of a partition grows without its callers knowing.
+ * A resource that is already present is changed in the sub-partition that holds it. Reads that need every
+ * sub-partition fan out over them in parallel on the background executor of the FileDatabase. All the sub-partitions
+ * use the keys of the partition name in the database.config file.
+ */
+public final class LogicalPartition {
+    private static final String PARTS_DIRECTORY = "parts";
+
+    /**
+     * <h1>Interface SubPartitionReader</h1>
+     * This interface reads something from one sub-partition, for a fan-out read.
+     */
+    private interface SubPartitionReader<T> {
+        T read(Partition subPartition) throws IOException, ClassNotFoundException, FileDatabaseInternalException;
+    }
+
+    /**
+     * <h1>Interface SubPartitionWriter</h1>
+     * This interface adds a new resource to one sub-partition, without forcing its record.log file.
+     */
+    private interface SubPartitionWriter {
+        void write(Partition subPartition) throws IOException, PartitionOverflowException;
+    }
+
+    private final String name;
+    private final String path;
+    private final CopyOnWriteArrayList<Partition> subPartitions = new CopyOnWriteArrayList<>();
+    private int lastNumber;
+
+    /**
+     * Getter for the name of the partition
+     * @return the name of the partition
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Getter for the full path of the partition directory, which is also the directory of sub-partition 0
+     * @return the full path of the partition directory
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * This method returns the sub-partitions, from the oldest to the one new resources are added to.
+     * @return a copy of the sub-partitions
+     */
+    public List<Partition> getSubPartitions() {
+        return List.copyOf(subPartitions);
+    }
+
+    /**
+     * This method returns the number of resources in all the sub-partitions.
+     * @return the number of resources
+     */
+    public int size() {
+        int size = 0;
+
+        for(Partition subPartition : subPartitions)
+            size += subPartition.size();
+
+        return size;
+    }
+
+    /**
+     * This method returns the compression ratio of the resources written to the sub-partitions since they were opened.
+     * @return the uncompressed size of the resources divided by their stored size, 1 if nothing was compressed
+     */
+    public double getCompressionRatio() {
+        long uncompressedBytes = 0;
+        long storedBytes = 0;
+
+        for(Partition subPartition : subPartitions) {
+            uncompressedBytes += subPartition.getUncompressedBytes();
+            storedBytes += subPartition.getStoredBytes();
+        }
+
+        return storedBytes == 0 ? 1 : (double) uncompressedBytes / storedBytes;
+    }
+
+    /**
+     * This method adds a resource. If the resource exists, it's overwritten in the sub-partition that holds it,
+     * otherwise it's added to the last sub-partition. When that one is full, a new sub-partition is started.
+     * @param keyForRecord the key of the resource in the records. This will be used for sorting.
+     * @param uniqueId the unique identifier of the resource
+     * @param resource the resource to be added
+     * @return the updated number of resources in all the sub-partitions
+     * @throws IOException if the resource could not be written or a new sub-partition could not be opened
+     * @throws ClassNotFoundException if the class is not found during deserialization of the record.ser file of a new
+     * sub-partition
+     * @throws FileDatabaseConfigFileException if the syntax in the database.config is wrong
+     * @throws CannotCreateFileException if the directories of a new sub-partition could not be created
+     */
+    public int add(Object keyForRecord, String uniqueId, Object resource)
+            throws IOException, ClassNotFoundException, FileDatabaseConfigFileException, CannotCreateFileException {
+        Partition holder = holderOf(uniqueId);
+
+        if(holder != null) {
+            try {
+                holder.add(keyForRecord, uniqueId, resource);
+                return size();
+            }
+            catch (PartitionOverflowException exception) {
+                // The resource was removed since it was looked up and its full sub-partition does not take it back
+            }
+        }
+
+        addNew(uniqueId, target -> target.add(keyForRecord, uniqueId, resource, false)).forceRecordLog();
+
+        return size();
+    }
+
+    /**
+     * This method adds many resources at once. Resources that exist are overwritten in the sub-partitions that hold
+     * them, the others are added to the last sub-partition, rolling over to new sub-partitions as they fill up. Every
+     * sub-partition takes its share of the resources under one lock and forces its record.log file once.
+     * @param entries the resources to be added
+     * @return the updated number of resources in all the sub-partitions
+     * @throws IOException if the resources could not be written or a new sub-partition could not be opened
+     * @throws ClassNotFoundException if the class is not found during deserialization of the record.ser file of a new
+     * sub-partition
+     * @throws FileDatabaseConfigFileException if the syntax in the database.config is wrong
+     * @throws CannotCreateFileException if the directories of a new sub-partition could not be created
+     */
+    public int addAll(List<ResourceEntry> entries)
+            throws IOException, ClassNotFoundException, FileDatabaseConfigFileException, CannotCreateFileException {
+        List<ResourceEntry> newEntries = new ArrayList<>();
+
+        // A sub-partition always accepts the resources it already holds, the ones removed in the meantime are new
+        for(Map.Entry<Partition, ArrayList<ResourceEntry>> holderEntries :
+                groupByHolder(entries, ResourceEntry::uniqueId, newEntries).entrySet()) {
+            ArrayList<ResourceEntry> heldEntries = holderEntries.getValue();
+            int added = holderEntries.getKey().addAll(heldEntries);
+
+            newEntries.addAll(heldEntries.subList(added, heldEntries.size()));
+        }
+
+        if(!newEntries.isEmpty()) {
+            for(Partition target : addAllNew(newEntries))
+                target.forceRecordLog();
+        }
+
+        return size();
+    }
+
+    /**
+     * This method retrieves a resource from the sub-partition that holds it.
+     * @param uniqueId the unique identifier of the resource to be retrieved
+     * @return the resource or null in case it's not present
+     * @throws IOException if there are any errors reading the resource
+     * @throws ClassNotFoundException if the class is not found during deserialization of the resource
+     * @throws FileDatabaseInternalException if there's a mismatch between the records and the data directory entries
+     */
+    public Object get(Object uniqueId)
+            throws IOException, ClassNotFoundException, FileDatabaseInternalException {
+        Partition holder = holderOf(uniqueId);
+
+        return holder == null ? null : holder.get(uniqueId);
+    }
+
+    /**
+     * This method retrieves a resource from the sub-partition that holds it and decides for this read whether its
+     * checksum is verified.
+     * @param uniqueId the unique identifier of the resource to be retrieved
+     * @param verifyChecksum whether the checksum of the stored resource is verified
+     * @return the resource or null in case it's not present
+     * @throws IOException if there are any errors reading the resource or its checksum does not match
+     * @throws ClassNotFoundException if the class is not found during deserialization of the resource
+     * @throws FileDatabaseInternalException if there's a mismatch between the records and the data directory entries
+     */
+    public Object get(Object uniqueId, boolean verifyChecksum)
+            throws IOException, ClassNotFoundException, FileDatabaseInternalException {
+        Partition holder = holderOf(uniqueId);
+
+        return holder == null ? null : holder.get(uniqueId, verifyChecksum);
+    }
+
+    /**
+     * This method retrieves many resources at once. The sub-partition of every resource is looked up first, then the
+     * resource files are read by the calling thread and the background threads together, each taking the next
+     * unread resource, so as many files are read at once as there are background threads plus one.
+     * @param uniqueIds the unique identifiers of the resources to be retrieved
+     * @return the resources in the order of their unique ids, with null for a resource that's not present
+     * @throws IOException if there are any errors reading the resources
+     * @throws ClassNotFoundException if the class is not found during deserialization of a resource
+     * @throws FileDatabaseInternalException if there's a mismatch between the records and the data directory entries
+     */
+    public ArrayList<Object> getAll(List<?> uniqueIds)
+            throws IOException, ClassNotFoundException, FileDatabaseInternalException {
+        Partition[] holders = new Partition[uniqueIds.size()];
+        Object[] resources = new Object[uniqueIds.size()];
+
+        for(int i = 0; i < holders.length; i++)
+            holders[i] = holderOf(uniqueIds.get(i));
+
+        AtomicInteger next = new AtomicInteger();
+        ArrayList<FutureTask<Object>> reads = new ArrayList<>();
+        int readers = Math.min(holders.length, FileDatabase.backgroundThreads() + 1);
+
+        for(int reader = 0; reader < readers; reader++) {
+            reads.add(new FutureTask<>(() -> {
+                for(int i = next.getAndIncrement(); i < holders.length; i = next.getAndIncrement()) {
+                    if(holders[i] != null)
+                        resources[i] = holders[i].get(uniqueIds.get(i));
+                }
+
+                return null;
+            }));
+        }
+
+        runAll(reads);
+
+        return new ArrayList<>(Arrays.asList(resources));
+    }
+
+    /**
+     * This method returns the ids of all the resources, read from the sub-partitions in parallel.
+     * @return a copy of the ids of the resources
+     * @throws IOException if the records could not be read
+     */
+    public TreeSet<Object> getIds() throws IOException {
+        TreeSet<Object> ids = new TreeSet<>();
+
+        for(TreeSet<Object> subPartitionIds : fanOutRecords(Partition::getIds))
+            ids.addAll(subPartitionIds);
+
+        return ids;
+    }
+
+    /**
+     * This method returns the ids of the resources whose keys are in a range, in the order of their keys. The ranges
+     * of the sub-partitions are read in parallel and merged by their keys.
+     * @param fromKey the smallest key, inclusive, or null for no lower bound
+     * @param toKey the largest key, inclusive, or null for no upper bound
+     * @return the ids of the resources in the order of their keys
+     * @throws IOException if the records could not be read or the keys are not supported
+     */
+    public ArrayList<String> getIdsBetween(Object fromKey, Object toKey) throws IOException {
+        if(subPartitions.size() == 1)
+            return subPartitions.get(0).getIdsBetween(fromKey, toKey);
+
+        ArrayList<RecordIndex.RecordKey> records = new ArrayList<>();
+
+        for(ArrayList<RecordIndex.RecordKey> subPartitionRecords : fanOutRecords(subPartition -> {
+            ArrayList<RecordIndex.RecordKey> keyedIds = new ArrayList<>();
+
+            for(String uniqueId : subPartition.getIdsBetween(fromKey, toKey)) {
+                Object key = subPartition.keyOf(uniqueId);
+
+                // The resource was removed since the range was read
+                if(key != null)
+                    keyedIds.add(new RecordIndex.RecordKey(key, uniqueId));
+            }
+
+            return keyedIds;
+        }))
+            records.addAll(subPartitionRecords);
+
+        // Sorted like the records of a single partition, by the key and then by the unique id
+        Collections.sort(records);
+
+        ArrayList<String> ids = new ArrayList<>(records.size());
+
+        for(RecordIndex.RecordKey record : records)
+            ids.add(record.uniqueId());
+
+        return ids;
+    }
+
+    /**
+     * This method returns the ids of a page of resources in the order of their keys and then their unique ids,
+     * starting right after the position of the last resource of the previous page. Every sub-partition reads at
+     * most one page, in parallel, and the pages are merged, so the time taken depends on the size of the page and
+     * not on the number of resources.
+     * @param afterKey the key of the last resource of the previous page, or null for the first page
+     * @param afterUniqueId the unique id of the last resource of the previous page, or null for the first page
+     * @param descending whether the resources are in the reverse order of their keys
+     * @param limit the largest number of resources in the page
+     * @return the unique ids of the resources of the page
+     * @throws IOException if the records could not be read or the keys are not supported
+     */
+    public ArrayList<String> getPage(Object afterKey, String afterUniqueId, boolean descending, int limit)
+            throws IOException {
+        ArrayList<String> ids = new ArrayList<>();
+
+        for(RecordEntry record : getRecordPage(afterKey, afterUniqueId, descending, limit))
+            ids.add(record.uniqueId());
+
+        return ids;
+    }
+
+    /**
+     * This method returns a page of records like getPage(), with the key of every record, so the next page can be
+     * read without reading the resources of this one.
+     * @param afterKey the key of the last resource of the previous page, or null for the first page
+     * @param afterUniqueId the unique id of the last resource of the previous page, or null for the first page
+     * @param descending whether the resources are in the reverse order of their keys
+     * @param limit the largest number of resources in the page
+     * @return the records of the page
+     * @throws IOException if the records could not be read or the keys are not supported
+     */
+    public ArrayList<RecordEntry> getRecordPage(Object afterKey, String afterUniqueId, boolean descending, int limit)
+            throws IOException {
+        RecordIndex.RecordKey after = afterKey == null ? null : new RecordIndex.RecordKey(afterKey, afterUniqueId);
+        ArrayList<RecordIndex.RecordKey> records = new ArrayList<>();
+
+        for(ArrayList<RecordIndex.RecordKey> subPartitionRecords :
+                fanOutRecords(subPartition -> subPartition.page(after, descending, limit)))
+            records.addAll(subPartitionRecords);
+
+        records.sort(descending ? Comparator.reverseOrder() : Comparator.naturalOrder());
+
+        ArrayList<RecordEntry> page = new ArrayList<>(Math.min(limit, records.size()));
+
+        for(int i = 0; i < records.size() && i < limit; i++)
+            page.add(new RecordEntry(records.get(i).key(), records.get(i).uniqueId()));
+
+        return page;
+    }
+
+    /**
+     * This method removes a resource from the sub-partition that holds it.
+     * @param uniqueId the unique identifier of the resource to be removed
+     * @throws IOException if there are any errors appending to the record.log file
+     */
+    public void remove(String uniqueId) throws IOException {
+        Partition holder = holderOf(uniqueId);
+
+        if(holder != null)
+            holder.remove(uniqueId);
+    }
+
+    /**
+     * This method removes many resources from the sub-partitions that hold them. Every sub-partition removes its
+     * share of the resources under one lock and forces its record.log file once.
+     * @param uniqueIds the unique identifiers of the resources to be removed
+     * @throws IOException if there are any errors appending to the record.log files
+     */
+    public void removeAll(Collection<String> uniqueIds) throws IOException {
+        for(Map.Entry<Partition, ArrayList<String>> holderIds : idsByHolder(uniqueIds).entrySet())
+            holderIds.getKey().removeAll(holderIds.getValue());
+    }
+
+    /**
+     * This method adds many records without a resource, for a partition whose records are all that's read. Records
+     * that exist get the new key in the sub-partitions that hold them, the others are added to the last
+     * sub-partition. The capacity does not apply to records without a resource, so no sub-partition is started.
+     * @param entries the records to be added
+     * @return the updated number of records in all the sub-partitions
+     * @throws IOException if there are any errors appending to the record.log files
+     */
+    public int addRecords(List<RecordEntry> entries) throws IOException {
+        List<RecordEntry> newEntries = new ArrayList<>();
+
+        for(Map.Entry<Partition, ArrayList<RecordEntry>> holderEntries :
+                groupByHolder(entries, RecordEntry::uniqueId, newEntries).entrySet())
+            holderEntries.getKey().addRecords(holderEntries.getValue(), true);
+
+        if(!newEntries.isEmpty()) {
+            for(Partition target : addNewRecords(newEntries))
+                target.forceRecordLog();
+        }
+
+        return size();
+    }
+
+    /**
+     * This method removes many records without a resource from the sub-partitions that hold them, like removeAll()
+     * but without touching the stores.
+     * @param uniqueIds the unique identifiers of the records to be removed
+     * @throws IOException if there are any errors appending to the record.log files
+     */
+    public void removeRecords(Collection<String> uniqueIds) throws IOException {
+        for(Map.Entry<Partition, ArrayList<String>> holderIds : idsByHolder(uniqueIds).entrySet())
+            holderIds.getKey().removeRecords(holderIds.getValue());
+    }
+
+    /**
+     * This method checks for many resources at once if an equal resource is present in any sub-partition. The
+     * sub-partitions are searched in parallel, each from one snapshot of its records.
+     * @param resources the resources to be matched
+     * @return for every resource, whether an equal one is present
+     * @throws IOException if there are any errors reading the resource files
+     * @throws ClassNotFoundException if the class is not found during deserialization of a resource
+     * @throws FileDatabaseInternalException if there's a mismatch between the records and the data directory entries
+     */
+    public boolean[] arePresent(List<?> resources)
+            throws IOException, ClassNotFoundException, FileDatabaseInternalException {
+        boolean[] present = new boolean[resources.size()];
+
+        for(boolean[] subPartitionPresent : fanOut(subPartition -> subPartition.arePresent(resources))) {
+            for(int i = 0; i < present.length; i++)
+                present[i] |= subPartitionPresent[i];
+        }
+
+        return present;
+    }
+
+    /**
+     * This method checks if a resource equal to the given one is present in any sub-partition. The sub-partitions
+     * are searched in parallel.
+     * @param resource the resource to be matched
+     * @return true if the resource is present, false otherwise
+     * @throws IOException if there are any errors reading the resource files
+     * @throws ClassNotFoundException if the class is not found during deserialization of a resource
+     * @throws FileDatabaseInternalException if there's a mismatch between the records and the data directory entries
+     */
+    public boolean isPresent(Object resource)
+            throws IOException, ClassNotFoundException, FileDatabaseInternalException {
+        for(boolean present : fanOut(subPartition -> subPartition.isPresent(resource))) {
+            if(present)
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * This method closes every sub-partition.
+     * @throws IOException if a sub-partition could not be closed
+     */
+    void close() throws IOException {
+        for(Partition subPartition : subPartitions)
+            subPartition.close();
+    }
+
+    /**
+     * This is a private method that finds the sub-partition holding a resource. The newest sub-partitions are looked
+     * at first, since they are changed the most.
+     * @param uniqueId the unique identifier of the resource
+     * @return the sub-partition or null if no sub-partition holds the resource
+     * @throws IOException if the records could not be read
+     */
+    private Partition holderOf(Object uniqueId) throws IOException {
+        List<Partition> currentSubPartitions = subPartitions;
+
+        for(int i = currentSubPartitions.size() - 1; i >= 0; i--) {
+            if(currentSubPartitions.get(i).contains(uniqueId))
+                return currentSubPartitions.get(i);
+        }
+
+        return null;
+    }
+
+    /**
+     * This is a private method that adds a resource which had no sub-partition when it was looked up. The lookup is
+     * repeated and the resource is written under the monitor of rollOver(), so two adds of the same new resource
+     * cannot land in different sub-partitions, where a remove would bring back the older copy. The record.log file
+     * is forced by the caller after the monitor is released, so concurrent writers still share one fsync.
+     * @param uniqueId the unique identifier of the resource
+     * @param writer the writer of the resource to a sub-partition
+     * @return the sub-partition that took the resource
+     * @throws IOException if the resource could not be written or a new sub-partition could not be opened
+     * @throws ClassNotFoundException if the class is not found during deserialization of the record.ser file of a new
+     * sub-partition
+     * @throws FileDatabaseConfigFileException if the syntax in the database.config is wrong
+     * @throws CannotCreateFileException if the directories of a new sub-partition could not be created
+     */
+    private synchronized Partition addNew(String uniqueId, SubPartitionWriter writer)
+            throws IOException, ClassNotFoundException, FileDatabaseConfigFileException, CannotCreateFileException {
+        while(true) {
+            Partition target = holderOf(uniqueId);
+
+            if(target == null)
+                target = subPartitions.get(subPartitions.size() - 1);
+
+            try {
+                writer.write(target);
+                return target;
+            }
+            catch (PartitionOverflowException exception) {
+                rollOver(target);
+            }
+        }
+    }
+
+    /**
+     * This is a private method that adds many resources which had no sub-partition when they were looked up, like
+     * addNew() does for one resource.
+     * @param entries the resources to be added
+     * @return the sub-partitions that took the resources, whose record.log files the caller has to force
+     * @throws IOException if the resources could not be written or a new sub-partition could not be opened
+     * @throws ClassNotFoundException if the class is not found during deserialization of the record.ser file of a new
+     * sub-partition
+     * @throws FileDatabaseConfigFileException if the syntax in the database.config is wrong
+     * @throws CannotCreateFileException if the directories of a new sub-partition could not be created
+     */
+    private synchronized Set<Partition> addAllNew(List<ResourceEntry> entries)
+            throws IOException, ClassNotFoundException, FileDatabaseConfigFileException, CannotCreateFileException {
+        LinkedHashSet<Partition> targets = new LinkedHashSet<>();
+        List<ResourceEntry> newEntries = new ArrayList<>();
+
+        for(Map.Entry<Partition, ArrayList<ResourceEntry>> holderEntries :
+                groupByHolder(entries, ResourceEntry::uniqueId, newEntries).entrySet()) {
+            ArrayList<ResourceEntry> heldEntries = holderEntries.getValue();
+            int added = holderEntries.getKey().addAll(heldEntries, false);
+
+            targets.add(holderEntries.getKey());
+            newEntries.addAll(heldEntries.subList(added, heldEntries.size()));
+        }
+
+        while(!newEntries.isEmpty()) {
+            Partition target = subPartitions.get(subPartitions.size() - 1);
+            int added = target.addAll(newEntries, false);
+
+            targets.add(target);
+            newEntries = newEntries.subList(added, newEntries.size());
+
+            if(!newEntries.isEmpty())
+                rollOver(target);
+        }
+
+        return targets;
+    }
+
+    /**
+     * This is a private method that adds many records which had no sub-partition when they were looked up, under the
+     * monitor of rollOver() like addNew().
+     * @param entries the records to be added
+     * @return the sub-partitions that took the records, whose record.log files the caller has to force
+     * @throws IOException if there are any errors appending to the record.log files
+     */
+    private synchronized Set<Partition> addNewRecords(List<RecordEntry> entries) throws IOException {
+        List<RecordEntry> newEntries = new ArrayList<>();
+        LinkedHashMap<Partition, ArrayList<RecordEntry>> entriesByTarget =
+                groupByHolder(entries, RecordEntry::uniqueId, newEntries);
+
+        if(!newEntries.isEmpty())
+            entriesByTarget.computeIfAbsent(subPartitions.get(subPartitions.size() - 1),
+                    subPartition -> new ArrayList<>()).addAll(newEntries);
+
+        for(Map.Entry<Partition, ArrayList<RecordEntry>> targetEntries : entriesByTarget.entrySet())
+            targetEntries.getKey().addRecords(targetEntries.getValue(), false);
+
+        return entriesByTarget.keySet();
+    }
+
+    /**
+     * This is a private method that groups unique ids by the sub-partition holding them. The unique ids which no
+     * sub-partition holds are left out.
+     * @param uniqueIds the unique ids
+     * @return the unique ids of every sub-partition that holds some of them, in their order
+     * @throws IOException if the records could not be read
+     */
+    private LinkedHashMap<Partition, ArrayList<String>> idsByHolder(Collection<String> uniqueIds) throws IOException {
+        return groupByHolder(new ArrayList<>(uniqueIds), uniqueId -> uniqueId, new ArrayList<>());
+    }
+
+    /**
+     * This is a private method that groups entries by the sub-partition holding them.
+     * @param entries the entries
+     * @param uniqueIdOf the unique identifier of an entry
+     * @param newEntries receives the entries which no sub-partition holds, in their order
+     * @return the entries of every sub-partition that holds some of them, in their order
+     * @throws IOException if the records could not be read
+     */
+    private <E> LinkedHashMap<Partition, ArrayList<E>> groupByHolder(List<E> entries, Function<E, String> uniqueIdOf,
+                                                                    List<E> newEntries) throws IOException {
+        LinkedHashMap<Partition, ArrayList<E>> entriesByHolder = new LinkedHashMap<>();
+
+        for(E entry : entries) {
+            Partition holder = holderOf(uniqueIdOf.apply(entry));
+
+            if(holder == null)
+                newEntries.add(entry);
+            else
+                entriesByHolder.computeIfAbsent(holder, subPartition -> new ArrayList<>()).add(entry);
+        }
+
+        return entriesByHolder;
+    }
+
+    /**
+     * This is a private method that starts a new sub-partition after the last one, unless another thread has started
+     * one since the given sub-partition was found to be full.
+     * @param fullSubPartition the sub-partition that was full
+     * @throws IOException if the database.config file could not be read or the new sub-partition could not be opened
+     * @throws ClassNotFoundException if the class is not found during deserialization of the record.ser file
+     * @throws FileDatabaseConfigFileException if the syntax in the database.config is wrong
+     * @throws CannotCreateFileException if the directories of the new sub-partition could not be created
+     */
+    private synchronized void rollOver(Partition fullSubPartition)
+            throws IOException, ClassNotFoundException, FileDatabaseConfigFileException, CannotCreateFileException {
+        if(subPartitions.get(subPartitions.size() - 1) != fullSubPartition)
+            return;
+
+        File partsDirectory = new File(path + "/" + PARTS_DIRECTORY);
+
+        if(!partsDirectory.exists() && !partsDirectory.mkdir())
+            throw new CannotCreateFileException("Cannot create sub-partitions directory at:" + partsDirectory.getPath());
+
+        subPartitions.add(FileDatabase.openSubPartition(name, partsDirectory.getPath() + "/" + (lastNumber + 1)));
+        lastNumber++;
+    }
+
+    /**
+     * This is a private method that reads something from every sub-partition in parallel, when only the records are
+     * read.
+     * @param reader the reader of one sub-partition
+     * @return the results of the sub-partitions in their order
+     * @throws IOException if a sub-partition could not be read
+     */
+    private <T> ArrayList<T> fanOutRecords(SubPartitionReader<T> reader) throws IOException {
+        try {
+            return fanOut(reader);
+        }
+        catch (ClassNotFoundException | FileDatabaseInternalException exception) {
+            throw new IOException("Problem in reading the records of partition \"" + name + "\"", exception);
+        }
+    }
+
+    /**
+     * This is a private method that reads something from every sub-partition in parallel, with runAll().
+     * @param reader the reader of one sub-partition
+     * @return the results of the sub-partitions in their order
+     * @throws IOException if a sub-partition could not be read
+     * @throws ClassNotFoundException if the class is not found during deserialization of a resource
+     * @throws FileDatabaseInternalException if there's a mismatch between the records and the data directory entries
+     */
+    private <T> ArrayList<T> fanOut(SubPartitionReader<T> reader)
+            throws IOException, ClassNotFoundException, FileDatabaseInternalException {
+        List<Partition> currentSubPartitions = subPartitions;
+        ArrayList<T> results = new ArrayList<>();
+
+        if(currentSubPartitions.size() == 1) {
+            results.add(reader.read(currentSubPartitions.get(0)));
+            return results;
+        }
+
+        ArrayList<FutureTask<T>> reads = new ArrayList<>();
+
+        for(Partition subPartition : currentSubPartitions)
+            reads.add(new FutureTask<>(() -> reader.read(subPartition)));
+
+        return runAll(reads);
+    }
+
+    /**
+     * This is a private method that runs tasks in parallel. Every task but the first is handed to the background
+     * executor and the calling thread runs every task no background thread has started yet, so the tasks finish
+     * even if all the background threads are busy.
+     * @param tasks the tasks
+     * @return the results of the tasks in their order
+     * @throws IOException if a task could not read
+     * @throws ClassNotFoundException if the class is not found during deserialization of a resource
+     * @throws FileDatabaseInternalException if there's a mismatch between the records and the data directory entries
+     */
+    private <T> ArrayList<T> runAll(ArrayList<FutureTask<T>> tasks)
+            throws IOException, ClassNotFoundException, FileDatabaseInternalException {
+        ArrayList<T> results = new ArrayList<>();
+
+        for(int i = 1; i < tasks.size(); i++)
+            FileDatabase.background().execute(tasks.get(i));
+
+        for(FutureTask<T> task : tasks)
+            task.run();
+
+        try {
+            for(FutureTask<T> task : tasks)
+                results.add(task.get());
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading the sub-partitions of \"" + name + "\"");
+        }
+        catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+
+            if(cause instanceof IOException ioException)
+                throw ioException;
+            if(cause instanceof ClassNotFoundException classNotFoundException)
+                throw classNotFoundException;
+            if(cause instanceof FileDatabaseInternalException internalException)
+                throw internalException;
+            if(cause instanceof RuntimeException runtimeException)
+                throw runtimeException;
+            if(cause instanceof Error error)
+                throw error;
+
+            throw new IOException(cause);
+        }
+
+        return results;
+    }
+
+    /**
+     * This method lists the directories of the sub-partitions of a partition, from the oldest to the newest. The
+     * sub-partitions are not opened, so it can be used while the partition is closed.
+     * @param path the full path of the partition directory
+     * @return the full paths of the sub-partition directories, starting with the partition directory itself
+     */
+    static ArrayList<String> subPartitionPaths(String path) {
+        ArrayList<String> paths = new ArrayList<>();
+        paths.add(path);
+
+        TreeSet<Integer> numbers = new TreeSet<>();
+        String[] partNames = new File(path + "/" + PARTS_DIRECTORY).list();
+
+        if(partNames != null) {
+            for(String partName : partNames) {
+                if(partName.matches("[1-9][0-9]*"))
+                    numbers.add(Integer.parseInt(partName));
+            }
+        }
+
+        for(int number : numbers)
+            paths.add(path + "/" + PARTS_DIRECTORY + "/" + number);
+
+        return paths;
+    }
+
+    /**
+     * The constructor opens every sub-partition of a partition. The partition directory has to exist already.
+     * FileDatabase.openPartition() should be used to get a partition instead.
+     * @param name the name of the partition
+     * @param path the full path of the partition directory
+     * @throws IOException if the database.config file or the records of a sub-partition could not be read
+     * @throws ClassNotFoundException if the class is not found during deserialization of a record.ser file
+     * @throws FileDatabaseConfigFileException if the syntax in the database.config is wrong
+     * @throws CannotCreateFileException if the directories of a sub-partition could not be created
+     */
+    LogicalPartition(String name, String path)
+            throws IOException, ClassNotFoundException, FileDatabaseConfigFileException, CannotCreateFileException {
+        this.name = name;
+        this.path = path;
+
+        for(String subPartitionPath : subPartitionPaths(path))
+            subPartitions.add(FileDatabase.openSubPartition(name, subPartitionPath));
+
+        lastNumber = subPartitions.size() == 1 ? 0 :
+                Integer.parseInt(new File(subPartitions.get(subPartitions.size() - 1).getPath()).getName());
+    }
+}
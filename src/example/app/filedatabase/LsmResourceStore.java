@@ -0,0 +1,1296 @@
+package example.app.filedatabase;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Class LsmResourceStore</h1>
+ * This class stores the resources of a partition in a log-structured merge tree inside the data directory, so that
+ * writing a resource is a sequential append instead of a random rewrite. It's made for partitions that are written
+ * much more often than they are read.
+ * <ul>
+ *     <li>Memtable: Written and deleted resources are first kept in a sorted map in memory. Every change is also
+ *     appended to a write-ahead log file (wal-N.log), from which the memtable is rebuilt when the store is opened</li>
+ *     <li>Sorted runs: When the memtable is full, it's written in the background to an immutable run file
+ *     (run-N.sst) sorted by the unique ids, and its log file is deleted. A deleted resource is kept as a tombstone,
+ *     which hides the resource in older runs</li>
+ *     <li>Levels: New runs are in level 0, where their ids can overlap. When level 0 has too many runs, they are
+ *     merged with the overlapping runs of level 1. Every deeper level holds runs that do not overlap and is ten times
+ *     larger than the level above it. When a level is too large, one of its runs is merged into the next level.
+ *     Tombstones are dropped when they reach the deepest level</li>
+ * </ul>
+ * The runs of every level are listed in the lsm.manifest file, which is atomically replaced after every flush and
+ * compaction. Run files that are not listed in it are left over from an interrupted flush or compaction and are
+ * deleted when the store is opened.
+ * <br>
+ * Structure of a run file:
+ * <ul>
+ *     <li>The entries sorted by the unique id, each as the unique id written by DataOutput.writeUTF(), the length of
+ *     the serialized resource or -1 for a tombstone, and the serialized resource</li>
+ *     <li>The index: the number of indexed entries, the unique id and the offset of every 32nd entry, and the last
+ *     unique id of the run</li>
+ *     <li>The bloom filter of the unique ids: the number of its words and the words</li>
+ *     <li>The footer: the offset of the index, the offset of the bloom filter, a magic number and the version</li>
+ * </ul>
+ * A read looks in the memtable, then in the runs from the newest to the oldest. The bloom filter skips most runs that
+ * do not hold the resource, and the index narrows the search to a block of 32 entries, which is read at once.
+ * <br>
+ * The flushes and the compactions run on two threads of the store itself, not on the background executor of the
+ * file database, since a write that waits for a flush holds the lock of its partition, and the background executor
+ * also runs the work that needs that lock. A failed flush or compaction is kept and thrown by the next write or sync,
+ * and that write starts the failed flush again.
+ */
+final class LsmResourceStore implements ResourceStore {
+    private static final String RUN_PREFIX = "run-";
+    private static final String RUN_SUFFIX = ".sst";
+    private static final String LOG_PREFIX = "wal-";
+    private static final String LOG_SUFFIX = ".log";
+    private static final String MANIFEST = "lsm.manifest";
+    private static final int MAGIC = 0x4C534D52;
+    private static final int VERSION = 1;
+    private static final int FOOTER_SIZE = 24;
+    private static final int TOMBSTONE_LENGTH = -1;
+    private static final byte[] TOMBSTONE = new byte[0];
+    private static final ByteBuffer DELETED = ByteBuffer.allocate(0);
+    private static final int INDEX_INTERVAL = 32;
+    private static final int BLOOM_BITS_PER_KEY = 10;
+    private static final int BLOOM_HASHES = 7;
+    private static final int LEVEL_ZERO_RUNS = 4;
+    private static final int LEVEL_RATIO = 10;
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * <h1>Class Run</h1>
+     * This class represents an open run file with its index and bloom filter in memory.
+     */
+    private static final class Run {
+        private final int number;
+        private final File file;
+        private final FileChannel channel;
+        private final MappedFile mappedFile;
+        private final String[] indexKeys;
+        private final long[] indexOffsets;
+        private final String lastKey;
+        private final long[] bloom;
+        private final long dataEnd;
+        private final long size;
+
+        private String firstKey() {
+            return indexKeys[0];
+        }
+
+        /**
+         * This method looks up a resource in the run.
+         * @param uniqueId the unique identifier of the resource
+         * @param hash the hash of the unique identifier
+         * @return the serialized resource, DELETED for a tombstone or null if the run has no entry for it
+         * @throws IOException if the run could not be read
+         */
+        private ByteBuffer get(String uniqueId, long hash) throws IOException {
+            if(uniqueId.compareTo(firstKey()) < 0 || uniqueId.compareTo(lastKey) > 0 || !mightContain(hash))
+                return null;
+
+            int block = Arrays.binarySearch(indexKeys, uniqueId);
+
+            if(block < 0)
+                block = -block - 2;
+
+            long blockStart = indexOffsets[block];
+            long blockEnd = block + 1 < indexOffsets.length ? indexOffsets[block + 1] : dataEnd;
+            ByteBuffer entries;
+
+            if(mappedFile != null)
+                entries = mappedFile.slice(blockStart, (int) (blockEnd - blockStart));
+            else {
+                entries = ByteBuffer.allocate((int) (blockEnd - blockStart));
+                SegmentResourceStore.readFully(channel, entries, blockStart);
+                entries.flip();
+            }
+
+            DataInputStream entryReader = new DataInputStream(new ByteBufferInputStream(entries));
+
+            while(entries.hasRemaining()) {
+                int comparison = entryReader.readUTF().compareTo(uniqueId);
+                int length = entryReader.readInt();
+
+                if(comparison == 0)
+                    return length == TOMBSTONE_LENGTH ? DELETED : entries.slice(entries.position(), length);
+
+                if(comparison > 0)
+                    return null;
+
+                entries.position(entries.position() + Math.max(length, 0));
+            }
+
+            return null;
+        }
+
+        private boolean mightContain(long hash) {
+            long bits = (long) bloom.length * 64;
+
+            for(int i = 0; i < BLOOM_HASHES; i++) {
+                long bit = Math.floorMod((hash & 0xFFFFFFFFL) + i * (hash >>> 32), bits);
+
+                if((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0)
+                    return false;
+            }
+
+            return true;
+        }
+
+        private void delete() throws IOException {
+            channel.close();
+            Files.deleteIfExists(file.toPath());
+        }
+
+        /**
+         * The constructor opens a run file and reads its index and bloom filter.
+         * @param file the run file
+         * @param number the number of the run
+         * @param mapped whether the run is read through memory mapping
+         * @throws IOException if the file could not be read or is not a complete run file
+         */
+        private Run(File file, int number, boolean mapped) throws IOException {
+            this.number = number;
+            this.file = file;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+            try {
+                size = channel.size();
+
+                if(size < FOOTER_SIZE)
+                    throw new StreamCorruptedException("Run file \"" + file.getPath() + "\" is incomplete");
+
+                ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+                SegmentResourceStore.readFully(channel, footer, size - FOOTER_SIZE);
+                footer.flip();
+                dataEnd = footer.getLong();
+                long bloomOffset = footer.getLong();
+
+                if(footer.getInt() != MAGIC || footer.getInt() != VERSION)
+                    throw new StreamCorruptedException("File \"" + file.getPath() + "\" is not a run file");
+
+                ByteBuffer metadata = ByteBuffer.allocate((int) (size - FOOTER_SIZE - dataEnd));
+                SegmentResourceStore.readFully(channel, metadata, dataEnd);
+                metadata.flip();
+
+                DataInputStream metadataReader = new DataInputStream(new ByteBufferInputStream(metadata));
+                int indexCount = metadataReader.readInt();
+                indexKeys = new String[indexCount];
+                indexOffsets = new long[indexCount];
+
+                for(int i = 0; i < indexCount; i++) {
+                    indexKeys[i] = metadataReader.readUTF();
+                    indexOffsets[i] = metadataReader.readLong();
+                }
+
+                lastKey = metadataReader.readUTF();
+                metadata.position((int) (bloomOffset - dataEnd));
+                bloom = new long[metadata.getInt()];
+                metadata.asLongBuffer().get(bloom);
+            }
+            catch (IOException | RuntimeException exception) {
+                channel.close();
+                throw exception;
+            }
+
+            this.mappedFile = mapped ? new MappedFile(channel) : null;
+        }
+    }
+
+    /**
+     * <h1>Class RunWriter</h1>
+     * This class writes a new run file. The entries have to be added in the order of their unique ids.
+     */
+    private final class RunWriter {
+        private final int number;
+        private final File file;
+        private final FileOutputStream fileStream;
+        private final DataOutputStream writer;
+        private final ByteArrayOutputStream index = new ByteArrayOutputStream();
+        private final DataOutputStream indexWriter = new DataOutputStream(index);
+        private long[] hashes = new long[64];
+        private int count;
+        private long position;
+        private String lastKey;
+
+        private void add(String uniqueId, byte[] content) throws IOException {
+            if(count % INDEX_INTERVAL == 0) {
+                indexWriter.writeUTF(uniqueId);
+                indexWriter.writeLong(position);
+            }
+
+            if(count == hashes.length)
+                hashes = Arrays.copyOf(hashes, count * 2);
+
+            hashes[count++] = hash(uniqueId);
+            lastKey = uniqueId;
+
+            writer.writeUTF(uniqueId);
+            writer.writeInt(content == null ? TOMBSTONE_LENGTH : content.length);
+
+            if(content != null)
+                writer.write(content);
+
+            position += 2 + SegmentResourceStore.utfLength(uniqueId) + 4 + (content == null ? 0 : content.length);
+        }
+
+        /**
+         * This method writes the index, the bloom filter and the footer, forces the file to the disk and opens it.
+         * @return the new run
+         * @throws IOException if the file could not be written or opened
+         */
+        private Run finish() throws IOException {
+            long[] bloom = new long[(Math.max(64, count * BLOOM_BITS_PER_KEY) + 63) / 64];
+            long bits = (long) bloom.length * 64;
+
+            for(int i = 0; i < count; i++) {
+                for(int j = 0; j < BLOOM_HASHES; j++) {
+                    long bit = Math.floorMod((hashes[i] & 0xFFFFFFFFL) + j * (hashes[i] >>> 32), bits);
+                    bloom[(int) (bit >>> 6)] |= 1L << bit;
+                }
+            }
+
+            long indexOffset = position;
+            writer.writeInt((count + INDEX_INTERVAL - 1) / INDEX_INTERVAL);
+            index.writeTo(writer);
+            writer.writeUTF(lastKey);
+            long bloomOffset = indexOffset + 4 + index.size() + 2 + SegmentResourceStore.utfLength(lastKey);
+
+            writer.writeInt(bloom.length);
+            for(long word : bloom)
+                writer.writeLong(word);
+
+            writer.writeLong(indexOffset);
+            writer.writeLong(bloomOffset);
+            writer.writeInt(MAGIC);
+            writer.writeInt(VERSION);
+            writer.flush();
+            fileStream.getChannel().force(true);
+            fileStream.close();
+
+            return new Run(file, number, mapped);
+        }
+
+        private void abort() throws IOException {
+            fileStream.close();
+            Files.deleteIfExists(file.toPath());
+        }
+
+        private RunWriter(int number) throws IOException {
+            this.number = number;
+            this.file = runFile(number);
+            this.fileStream = new FileOutputStream(file);
+            this.writer = new DataOutputStream(new BufferedOutputStream(fileStream));
+        }
+    }
+
+    /**
+     * <h1>Class RunReader</h1>
+     * This class reads the entries of a run file in order, for a compaction.
+     */
+    private static final class RunReader implements Closeable {
+        private final DataInputStream reader;
+        private final long dataEnd;
+        private final int age;
+        private final boolean withContent;
+        private long position;
+        private String uniqueId;
+        private byte[] content;
+        private boolean tombstone;
+
+        /**
+         * This method reads the next entry.
+         * @return true if an entry was read, false at the end of the run
+         * @throws IOException if the run could not be read
+         */
+        private boolean next() throws IOException {
+            if(position >= dataEnd)
+                return false;
+
+            uniqueId = reader.readUTF();
+            int length = reader.readInt();
+            tombstone = length == TOMBSTONE_LENGTH;
+
+            if(withContent)
+                content = tombstone ? null : reader.readNBytes(length);
+            else if(!tombstone)
+                reader.skipNBytes(length);
+            position += 2 + SegmentResourceStore.utfLength(uniqueId) + 4 + Math.max(length, 0);
+
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+
+        /**
+         * The constructor opens a run file for reading its entries.
+         * @param run the run
+         * @param age the position of the run from the newest run of a compaction, which wins for equal unique ids
+         * @param withContent whether the serialized resources are read, or only the unique ids
+         * @throws FileNotFoundException if the run file was deleted
+         */
+        private RunReader(Run run, int age, boolean withContent) throws FileNotFoundException {
+            this.reader = new DataInputStream(new BufferedInputStream(new FileInputStream(run.file)));
+            this.dataEnd = run.dataEnd;
+            this.age = age;
+            this.withContent = withContent;
+        }
+    }
+
+    /**
+     * <h1>Record Compaction</h1>
+     * This record represents the runs merged by a compaction.
+     * @param level the level of the upper runs, the merged runs are written to the next level
+     * @param upperRuns the runs of the level, from the newest to the oldest
+     * @param lowerRuns the runs of the next level whose unique ids overlap with the upper runs
+     */
+    private record Compaction(int level, List<Run> upperRuns, List<Run> lowerRuns) {
+    }
+
+    private final String dataPath;
+    private final long memtableSize;
+    private final boolean mapped;
+    private volatile ConcurrentSkipListMap<String, byte[]> memtable = new ConcurrentSkipListMap<>();
+    private volatile ConcurrentSkipListMap<String, byte[]> immutableMemtable;
+    private volatile List<List<Run>> levels = List.of();
+    private final HashMap<Integer, String> compactionCursors = new HashMap<>();
+    private List<Integer> immutableLogs = List.of();
+    private long memtableBytes;
+    private int nextFileNumber = 1;
+    private int logNumber;
+    private FileChannel log;
+    private boolean compactionPending = false;
+    private volatile boolean closed = false;
+    private IOException backgroundFailure;
+    private final ExecutorService flushExecutor = storeExecutor("file-database-lsm-flush");
+    private final ExecutorService compactionExecutor = storeExecutor("file-database-lsm-compaction");
+
+    @Override
+    public synchronized void write(String uniqueId, byte[] content, boolean force) throws IOException {
+        change(uniqueId, content, force);
+    }
+
+    @Override
+    public ByteBuffer read(String uniqueId) throws IOException {
+        byte[] content = memtable.get(uniqueId);
+
+        if(content == null) {
+            ConcurrentSkipListMap<String, byte[]> currentImmutableMemtable = immutableMemtable;
+
+            if(currentImmutableMemtable != null)
+                content = currentImmutableMemtable.get(uniqueId);
+        }
+
+        if(content != null)
+            return content == TOMBSTONE ? null : ByteBuffer.wrap(content);
+
+        long hash = hash(uniqueId);
+
+        // A compaction can delete a run while it's read, in that case the runs are looked up again
+        while(true) {
+            List<List<Run>> currentLevels = levels;
+
+            try {
+                for(int level = 0; level < currentLevels.size(); level++) {
+                    ArrayList<Run> candidates = new ArrayList<>();
+
+                    if(level == 0)
+                        candidates.addAll(currentLevels.get(0));
+                    else {
+                        Run run = runContaining(currentLevels.get(level), uniqueId);
+
+                        if(run != null)
+                            candidates.add(run);
+                    }
+
+                    for(Run run : candidates) {
+                        ByteBuffer found = run.get(uniqueId, hash);
+
+                        if(found != null)
+                            return found == DELETED ? null : found;
+                    }
+                }
+
+                return null;
+            }
+            catch (ClosedChannelException exception) {
+                // The runs did not change, so the store itself was closed
+                if(levels == currentLevels)
+                    throw exception;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void delete(String uniqueId) throws IOException {
+        change(uniqueId, null, false);
+    }
+
+    @Override
+    public Set<String> ids() throws IOException {
+        // A compaction can delete a run while it's read, in that case the runs are read again
+        while(true) {
+            ConcurrentSkipListMap<String, byte[]> currentMemtable;
+            ConcurrentSkipListMap<String, byte[]> currentImmutableMemtable;
+            List<List<Run>> currentLevels;
+
+            synchronized(this) {
+                currentMemtable = memtable;
+                currentImmutableMemtable = immutableMemtable;
+                currentLevels = levels;
+            }
+
+            HashSet<String> ids = new HashSet<>();
+
+            try {
+                // From the oldest entries to the newest ones, so that a tombstone removes the older entries
+                for(int level = currentLevels.size() - 1; level >= 0; level--) {
+                    List<Run> runs = currentLevels.get(level);
+
+                    for(int i = runs.size() - 1; i >= 0; i--) {
+                        try(RunReader runReader = new RunReader(runs.get(i), 0, false)) {
+                            while(runReader.next()) {
+                                if(runReader.tombstone)
+                                    ids.remove(runReader.uniqueId);
+                                else
+                                    ids.add(runReader.uniqueId);
+                            }
+                        }
+                    }
+                }
+            }
+            catch (FileNotFoundException exception) {
+                if(levels == currentLevels)
+                    throw exception;
+                continue;
+            }
+
+            for(ConcurrentSkipListMap<String, byte[]> changes : Arrays.asList(currentImmutableMemtable, currentMemtable)) {
+                if(changes == null)
+                    continue;
+
+                for(Map.Entry<String, byte[]> change : changes.entrySet()) {
+                    if(change.getValue() == TOMBSTONE)
+                        ids.remove(change.getKey());
+                    else
+                        ids.add(change.getKey());
+                }
+            }
+
+            return ids;
+        }
+    }
+
+    @Override
+    public synchronized void sync() throws IOException {
+        if(closed)
+            return;
+
+        throwBackgroundFailure();
+        log.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized(this) {
+            if(closed)
+                return;
+
+            closed = true;
+            flushExecutor.shutdown();
+            compactionExecutor.shutdown();
+            notifyAll();
+            log.force(false);
+            log.close();
+        }
+
+        // The running flush and compaction need the lock of the store to finish, and they must be over before the
+        // data directory is opened again, so that they do not delete the files of the new store
+        try {
+            flushExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            compactionExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the flush and the compaction");
+        }
+
+        for(List<Run> level : levels) {
+            for(Run run : level)
+                run.channel.close();
+        }
+    }
+
+    /**
+     * This method writes the frozen memtable to a new run in level 0 and deletes its log files. If the store has no
+     * runs yet, its tombstones are left out, since there's nothing for them to hide.
+     * @throws IOException if the run or the manifest could not be written
+     */
+    void flush() throws IOException {
+        ConcurrentSkipListMap<String, byte[]> frozenMemtable;
+        List<Integer> frozenLogs;
+        boolean dropTombstones;
+        int number;
+
+        synchronized(this) {
+            if(closed || immutableMemtable == null)
+                return;
+
+            frozenMemtable = immutableMemtable;
+            frozenLogs = immutableLogs;
+            dropTombstones = levels.stream().allMatch(List::isEmpty);
+            number = nextFileNumber++;
+        }
+
+        RunWriter runWriter = new RunWriter(number);
+        Run run = null;
+
+        try {
+            for(Map.Entry<String, byte[]> entry : frozenMemtable.entrySet()) {
+                if(entry.getValue() != TOMBSTONE)
+                    runWriter.add(entry.getKey(), entry.getValue());
+                else if(!dropTombstones)
+                    runWriter.add(entry.getKey(), null);
+            }
+
+            if(runWriter.count > 0)
+                run = runWriter.finish();
+            else
+                runWriter.abort();
+        }
+        catch (IOException exception) {
+            runWriter.abort();
+            throw exception;
+        }
+
+        synchronized(this) {
+            if(closed) {
+                if(run != null)
+                    run.delete();
+                return;
+            }
+
+            if(run != null) {
+                ArrayList<List<Run>> newLevels = new ArrayList<>(levels);
+
+                if(newLevels.isEmpty())
+                    newLevels.add(List.of());
+
+                ArrayList<Run> levelZero = new ArrayList<>();
+                levelZero.add(run);
+                levelZero.addAll(newLevels.get(0));
+                newLevels.set(0, List.copyOf(levelZero));
+                commitLevels(newLevels);
+            }
+
+            // The run is in the levels before the memtable is dropped, so a read always finds the resources
+            immutableMemtable = null;
+            immutableLogs = List.of();
+
+            for(int frozenLog : frozenLogs)
+                Files.deleteIfExists(logFile(frozenLog).toPath());
+
+            notifyAll();
+            scheduleCompactionIfNeeded();
+        }
+    }
+
+    /**
+     * This method merges runs into the next level until no level is too large. Only one compaction runs at a time.
+     * The merged runs are deleted after the manifest lists the new runs.
+     * @throws IOException if a run could not be read or written
+     */
+    void compact() throws IOException {
+        try {
+            while(true) {
+                Compaction compaction;
+                boolean dropTombstones;
+
+                synchronized(this) {
+                    compaction = closed ? null : pickCompaction();
+
+                    if(compaction == null) {
+                        compactionPending = false;
+                        return;
+                    }
+
+                    dropTombstones = true;
+
+                    for(int level = compaction.level() + 2; level < levels.size(); level++)
+                        dropTombstones &= levels.get(level).isEmpty();
+                }
+
+                ArrayList<Run> mergedRuns = merge(compaction, dropTombstones);
+
+                synchronized(this) {
+                    if(closed) {
+                        for(Run run : mergedRuns)
+                            run.delete();
+
+                        compactionPending = false;
+                        return;
+                    }
+
+                    ArrayList<List<Run>> newLevels = new ArrayList<>(levels);
+
+                    if(newLevels.size() == compaction.level() + 1)
+                        newLevels.add(List.of());
+
+                    ArrayList<Run> upperLevel = new ArrayList<>(newLevels.get(compaction.level()));
+                    upperLevel.removeAll(compaction.upperRuns());
+                    newLevels.set(compaction.level(), List.copyOf(upperLevel));
+
+                    ArrayList<Run> lowerLevel = new ArrayList<>(newLevels.get(compaction.level() + 1));
+                    lowerLevel.removeAll(compaction.lowerRuns());
+                    lowerLevel.addAll(mergedRuns);
+                    lowerLevel.sort(Comparator.comparing(Run::firstKey));
+                    newLevels.set(compaction.level() + 1, List.copyOf(lowerLevel));
+
+                    commitLevels(newLevels);
+
+                    if(compaction.level() > 0)
+                        compactionCursors.put(compaction.level(), compaction.upperRuns().get(0).lastKey);
+                }
+
+                for(Run run : compaction.upperRuns())
+                    run.delete();
+                for(Run run : compaction.lowerRuns())
+                    run.delete();
+            }
+        }
+        catch (IOException | RuntimeException exception) {
+            synchronized(this) {
+                compactionPending = false;
+            }
+
+            throw exception;
+        }
+    }
+
+    /**
+     * This is a private method that writes or deletes a resource in the memtable, after appending the change to the
+     * log. A full memtable is frozen and flushed before the change, so a change that fails leaves nothing behind.
+     * It must be called while holding the lock of the store.
+     * @param uniqueId the unique identifier of the resource
+     * @param content the serialized resource or null to delete it
+     * @param force whether the log should be forced to the disk before returning
+     * @throws IOException if the log could not be written, a flush or a compaction failed or the store is closed
+     */
+    private void change(String uniqueId, byte[] content, boolean force) throws IOException {
+        if(closed)
+            throw new ClosedChannelException();
+
+        throwBackgroundFailure();
+
+        if(memtableBytes >= memtableSize)
+            freezeMemtable();
+
+        ByteArrayOutputStream entry = new ByteArrayOutputStream();
+        DataOutputStream entryWriter = new DataOutputStream(entry);
+        entryWriter.writeUTF(uniqueId);
+        entryWriter.writeInt(content == null ? TOMBSTONE_LENGTH : content.length);
+
+        if(content != null)
+            entryWriter.write(content);
+
+        ByteBuffer buffer = ByteBuffer.wrap(entry.toByteArray());
+
+        while(buffer.hasRemaining())
+            log.write(buffer);
+
+        if(force)
+            log.force(false);
+
+        memtable.put(uniqueId, content == null ? TOMBSTONE : content);
+        memtableBytes += entry.size() + 2L * uniqueId.length();
+    }
+
+    /**
+     * This is a private method that starts a new memtable and log file and flushes the full memtable in the
+     * background. If the previous memtable is still being flushed, it waits for that first, so the writes cannot get
+     * ahead of the disk. The flush runs on the flush thread of the store, which only needs the lock of the store, so
+     * the wait always ends. It must be called while holding the lock of the store.
+     * @throws IOException if the log could not be forced, a new one could not be opened or the previous flush failed
+     */
+    private void freezeMemtable() throws IOException {
+        try {
+            while(immutableMemtable != null && !closed && backgroundFailure == null)
+                wait();
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the flush of the memtable");
+        }
+
+        if(closed)
+            throw new ClosedChannelException();
+
+        throwBackgroundFailure();
+
+        log.force(false);
+        log.close();
+
+        // The frozen memtable is visible before the new one, so a read always finds the resources
+        immutableLogs = List.of(logNumber);
+        immutableMemtable = memtable;
+        memtable = new ConcurrentSkipListMap<>();
+        memtableBytes = 0;
+        openLog(nextFileNumber++);
+
+        flushExecutor.execute(this::flushInBackground);
+    }
+
+    /**
+     * This is a private method that flushes the frozen memtable on the flush thread. If the flush fails, the failure
+     * is kept for the next write or sync, the resources stay readable from the frozen memtable in the meantime.
+     */
+    private void flushInBackground() {
+        try {
+            flush();
+        }
+        catch (IOException | RuntimeException exception) {
+            failInBackground(exception);
+        }
+    }
+
+    /**
+     * This is a private method that keeps the failure of a flush or a compaction and wakes up a write that waits for
+     * the flush. Only the first failure is kept until it's thrown.
+     * @param exception the failure
+     */
+    private synchronized void failInBackground(Exception exception) {
+        if(backgroundFailure == null)
+            backgroundFailure = exception instanceof IOException ioException ? ioException : new IOException(exception);
+
+        notifyAll();
+    }
+
+    /**
+     * This is a private method that throws the kept failure of a flush or a compaction once and starts the failed
+     * work again, so the next write tries it again. It must be called while holding the lock of the store.
+     * @throws IOException if a flush or a compaction failed since the last time this method was called
+     */
+    private void throwBackgroundFailure() throws IOException {
+        if(backgroundFailure == null)
+            return;
+
+        IOException failure = backgroundFailure;
+        backgroundFailure = null;
+
+        if(immutableMemtable != null)
+            flushExecutor.execute(this::flushInBackground);
+        scheduleCompactionIfNeeded();
+
+        throw new IOException("Problem in the background work of the store at \"" + dataPath + "\"", failure);
+    }
+
+    /**
+     * This is a private method that schedules a compaction on the compaction thread if a level is too large. It must
+     * be called while holding the lock of the store.
+     */
+    private void scheduleCompactionIfNeeded() {
+        if(compactionPending || closed || pickCompaction() == null)
+            return;
+
+        compactionPending = true;
+        compactionExecutor.execute(() -> {
+            try {
+                compact();
+            }
+            catch (IOException | RuntimeException exception) {
+                failInBackground(exception);
+            }
+        });
+    }
+
+    /**
+     * This is a private method that creates an executor with one daemon thread for the background work of the store.
+     * The thread ends when it has been idle for a while, so a store that is not written has no thread.
+     * @param threadName the name of the thread
+     * @return the executor
+     */
+    private static ExecutorService storeExecutor(String threadName) {
+        return new ThreadPoolExecutor(0, 1, THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, threadName);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * This is a private method that chooses the runs of the next compaction. Level 0 is compacted when it has too
+     * many runs, every deeper level when its runs are larger than its capacity. In a deeper level, the run after the
+     * one compacted last is chosen, so the compactions go around the whole level. It must be called while holding
+     * the lock of the store.
+     * @return the runs to be compacted or null if no level is too large
+     */
+    private Compaction pickCompaction() {
+        if(!levels.isEmpty() && levels.get(0).size() >= LEVEL_ZERO_RUNS)
+            return new Compaction(0, levels.get(0), overlappingRuns(1, levels.get(0)));
+
+        for(int level = 1; level < levels.size(); level++) {
+            List<Run> runs = levels.get(level);
+            long levelSize = 0;
+
+            for(Run run : runs)
+                levelSize += run.size;
+
+            if(levelSize <= memtableSize * (long) Math.pow(LEVEL_RATIO, level))
+                continue;
+
+            String cursor = compactionCursors.get(level);
+            Run chosenRun = runs.get(0);
+
+            for(Run run : runs) {
+                if(cursor == null || run.firstKey().compareTo(cursor) > 0) {
+                    chosenRun = run;
+                    break;
+                }
+            }
+
+            return new Compaction(level, List.of(chosenRun), overlappingRuns(level + 1, List.of(chosenRun)));
+        }
+
+        return null;
+    }
+
+    /**
+     * This is a private method that finds the runs of a level whose unique ids overlap with the unique ids of other
+     * runs. It must be called while holding the lock of the store.
+     * @param level the level of the overlapping runs
+     * @param runs the other runs
+     * @return the overlapping runs
+     */
+    private List<Run> overlappingRuns(int level, List<Run> runs) {
+        if(level >= levels.size())
+            return List.of();
+
+        String smallestKey = runs.get(0).firstKey();
+        String largestKey = runs.get(0).lastKey;
+
+        for(Run run : runs) {
+            if(run.firstKey().compareTo(smallestKey) < 0)
+                smallestKey = run.firstKey();
+            if(run.lastKey.compareTo(largestKey) > 0)
+                largestKey = run.lastKey;
+        }
+
+        ArrayList<Run> overlappingRuns = new ArrayList<>();
+
+        for(Run run : levels.get(level)) {
+            if(run.lastKey.compareTo(smallestKey) >= 0 && run.firstKey().compareTo(largestKey) <= 0)
+                overlappingRuns.add(run);
+        }
+
+        return overlappingRuns;
+    }
+
+    /**
+     * This is a private method that merges the runs of a compaction into new runs of about the size of the memtable.
+     * Of the entries with the same unique id, only the one of the newest run is kept.
+     * @param compaction the runs to be merged
+     * @param dropTombstones whether tombstones are left out, because no deeper level has runs
+     * @return the new runs
+     * @throws IOException if a run could not be read or written
+     */
+    private ArrayList<Run> merge(Compaction compaction, boolean dropTombstones) throws IOException {
+        ArrayList<RunReader> runReaders = new ArrayList<>();
+        ArrayList<Run> mergedRuns = new ArrayList<>();
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(
+                Comparator.comparing((RunReader runReader) -> runReader.uniqueId).thenComparingInt(runReader -> runReader.age));
+        RunWriter runWriter = null;
+
+        try {
+            ArrayList<Run> runs = new ArrayList<>(compaction.upperRuns());
+            runs.addAll(compaction.lowerRuns());
+
+            for(Run run : runs) {
+                RunReader runReader = new RunReader(run, runReaders.size(), true);
+                runReaders.add(runReader);
+
+                if(runReader.next())
+                    queue.add(runReader);
+            }
+
+            while(!queue.isEmpty()) {
+                if(closed)
+                    throw new ClosedChannelException();
+
+                RunReader newest = queue.poll();
+                String uniqueId = newest.uniqueId;
+                byte[] content = newest.content;
+
+                if(newest.next())
+                    queue.add(newest);
+
+                while(!queue.isEmpty() && queue.peek().uniqueId.equals(uniqueId)) {
+                    RunReader older = queue.poll();
+
+                    if(older.next())
+                        queue.add(older);
+                }
+
+                if(content == null && dropTombstones)
+                    continue;
+
+                if(runWriter != null && runWriter.position >= memtableSize) {
+                    mergedRuns.add(runWriter.finish());
+                    runWriter = null;
+                }
+
+                if(runWriter == null)
+                    runWriter = new RunWriter(nextFileNumber());
+
+                runWriter.add(uniqueId, content);
+            }
+
+            if(runWriter != null)
+                mergedRuns.add(runWriter.finish());
+
+            return mergedRuns;
+        }
+        catch (IOException exception) {
+            if(runWriter != null)
+                runWriter.abort();
+            for(Run run : mergedRuns)
+                run.delete();
+
+            throw exception;
+        }
+        finally {
+            for(RunReader runReader : runReaders)
+                runReader.close();
+        }
+    }
+
+    /**
+     * This is a private method that writes the manifest with the runs of every level and makes them the current
+     * levels. It must be called while holding the lock of the store.
+     * @param newLevels the runs of every level
+     * @throws IOException if the manifest could not be written
+     */
+    private void commitLevels(List<List<Run>> newLevels) throws IOException {
+        DurableFile.replace(new File(dataPath + "/" + MANIFEST), true, stream -> {
+            DataOutputStream manifestWriter = new DataOutputStream(stream);
+            manifestWriter.writeInt(MAGIC);
+            manifestWriter.writeInt(VERSION);
+            manifestWriter.writeInt(newLevels.size());
+
+            for(List<Run> level : newLevels) {
+                manifestWriter.writeInt(level.size());
+
+                for(Run run : level)
+                    manifestWriter.writeInt(run.number);
+            }
+
+            manifestWriter.flush();
+        });
+
+        levels = List.copyOf(newLevels);
+    }
+
+    /**
+     * This is a private method that reads the numbers of the runs of every level from the manifest.
+     * @return the numbers of the runs of every level, which is empty if there's no manifest yet
+     * @throws IOException if the manifest could not be read or is not a manifest
+     */
+    private ArrayList<ArrayList<Integer>> readManifest() throws IOException {
+        ArrayList<ArrayList<Integer>> runNumbers = new ArrayList<>();
+        File manifestFile = new File(dataPath + "/" + MANIFEST);
+
+        if(!manifestFile.exists())
+            return runNumbers;
+
+        try(DataInputStream manifestReader = new DataInputStream(new BufferedInputStream(new FileInputStream(manifestFile)))) {
+            if(manifestReader.readInt() != MAGIC || manifestReader.readInt() != VERSION)
+                throw new StreamCorruptedException("File \"" + manifestFile.getPath() + "\" is not a manifest");
+
+            int levelCount = manifestReader.readInt();
+
+            for(int level = 0; level < levelCount; level++) {
+                ArrayList<Integer> levelNumbers = new ArrayList<>();
+                int runCount = manifestReader.readInt();
+
+                for(int i = 0; i < runCount; i++)
+                    levelNumbers.add(manifestReader.readInt());
+
+                runNumbers.add(levelNumbers);
+            }
+        }
+
+        return runNumbers;
+    }
+
+    /**
+     * This is a private method that reads the changes of a log file into the memtable. An incomplete entry at the end
+     * of the log is ignored.
+     * @param number the number of the log file
+     * @throws IOException if the log could not be read
+     */
+    private void replayLog(int number) throws IOException {
+        try(DataInputStream logReader = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile(number))))) {
+            while(true) {
+                String uniqueId = logReader.readUTF();
+                int length = logReader.readInt();
+
+                if(length < TOMBSTONE_LENGTH)
+                    break;
+
+                byte[] content = length == TOMBSTONE_LENGTH ? TOMBSTONE : logReader.readNBytes(length);
+
+                if(content.length < length)
+                    break;
+
+                memtable.put(uniqueId, content);
+            }
+        }
+        catch (EOFException ignored) {
+            // An incomplete entry at the end of the log has been reached
+        }
+    }
+
+    /**
+     * This is a private method that opens a new log file for the memtable. It must be called while holding the lock
+     * of the store.
+     * @param number the number of the log file
+     * @throws IOException if the log could not be opened
+     */
+    private void openLog(int number) throws IOException {
+        log = FileChannel.open(logFile(number).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        logNumber = number;
+    }
+
+    /**
+     * This is a private method that takes the number of a new run or log file.
+     * @return the number of the file
+     */
+    private synchronized int nextFileNumber() {
+        return nextFileNumber++;
+    }
+
+    /**
+     * This is a private method that finds the run of a level whose unique ids can include a unique id. The runs of
+     * the level must not overlap and be sorted.
+     * @param runs the runs of the level
+     * @param uniqueId the unique identifier of the resource
+     * @return the run or null if no run of the level can hold the unique id
+     */
+    private static Run runContaining(List<Run> runs, String uniqueId) {
+        int low = 0;
+        int high = runs.size() - 1;
+        Run found = null;
+
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+
+            if(runs.get(middle).firstKey().compareTo(uniqueId) <= 0) {
+                found = runs.get(middle);
+                low = middle + 1;
+            }
+            else
+                high = middle - 1;
+        }
+
+        return found;
+    }
+
+    /**
+     * This is a private method that hashes a unique id for the bloom filters. The lower and the upper half of the
+     * hash are used as two independent hashes.
+     * @param uniqueId the unique identifier of a resource
+     * @return the 64 bit hash
+     */
+    private static long hash(String uniqueId) {
+        long hash = 0xCBF29CE484222325L;
+
+        for(int i = 0; i < uniqueId.length(); i++) {
+            hash ^= uniqueId.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+
+    /**
+     * This method checks if a file in a data directory belongs to this store, so that no other store takes it for the
+     * file of a resource.
+     * @param fileName the name of the file
+     * @return true if the file is a run, a log or the manifest, false otherwise
+     */
+    static boolean isStoreFile(String fileName) {
+        return fileNumber(fileName, RUN_PREFIX, RUN_SUFFIX) >= 0 || fileNumber(fileName, LOG_PREFIX, LOG_SUFFIX) >= 0 ||
+                fileName.startsWith(MANIFEST);
+    }
+
+    /**
+     * This is a private method that returns the file of a run.
+     * @param number the number of the run
+     * @return the file of the run
+     */
+    private File runFile(int number) {
+        return new File(dataPath + "/" + RUN_PREFIX + String.format("%06d", number) + RUN_SUFFIX);
+    }
+
+    /**
+     * This is a private method that returns a log file of the memtable.
+     * @param number the number of the log file
+     * @return the log file
+     */
+    private File logFile(int number) {
+        return new File(dataPath + "/" + LOG_PREFIX + String.format("%06d", number) + LOG_SUFFIX);
+    }
+
+    /**
+     * This is a private method that returns the number in the name of a run or log file.
+     * @param fileName the name of the file
+     * @param prefix the prefix of the name
+     * @param suffix the suffix of the name
+     * @return the number or -1 if the name is not of that kind of file
+     */
+    private static int fileNumber(String fileName, String prefix, String suffix) {
+        if(!fileName.startsWith(prefix) || !fileName.endsWith(suffix))
+            return -1;
+
+        try {
+            return Integer.parseInt(fileName.substring(prefix.length(), fileName.length() - suffix.length()));
+        }
+        catch (NumberFormatException exception) {
+            return -1;
+        }
+    }
+
+    /**
+     * This is a private method that moves the resources stored as individual files in the data directory, in
+     * either layout of the FileResourceStore, into
+     * the store, so that a partition can switch from FileResourceStore to this store.
+     * @throws IOException if a file could not be read or moved
+     */
+    private synchronized void importIndividualFiles() throws IOException {
+        for(File file : FileResourceStore.resourceFiles(dataPath)) {
+            String fileName = file.getName();
+
+            if(!file.isFile() || isStoreFile(fileName) || SegmentResourceStore.isStoreFile(fileName))
+                continue;
+
+            if(!fileName.endsWith(".tmp"))
+                change(fileName, Files.readAllBytes(file.toPath()), false);
+
+            Files.delete(file.toPath());
+        }
+
+        FileResourceStore.deleteEmptyShards(dataPath);
+        sync();
+    }
+
+    /**
+     * The constructor opens the runs listed in the manifest of a data directory and rebuilds the memtable from the
+     * log files. The rebuilt memtable is flushed right away, so the store starts with an empty log. Run files that
+     * are not listed in the manifest are deleted. A data directory that holds the files of the segments storage is
+     * not opened, since its files are not resources.
+     * @param dataPath the full path of the data directory
+     * @param memtableSize the size in bytes at which the memtable is flushed, which is also the size of the runs
+     * @param mapped whether the runs are read through memory mapping
+     * @throws IOException if the manifest, a run or a log could not be read, or the data directory holds the files of
+     * the segments storage
+     */
+    LsmResourceStore(String dataPath, long memtableSize, boolean mapped) throws IOException {
+        this.dataPath = dataPath;
+        this.memtableSize = memtableSize;
+        this.mapped = mapped;
+
+        String[] fileNames = new File(dataPath).list();
+
+        if(fileNames != null) {
+            for(String fileName : fileNames) {
+                if(SegmentResourceStore.isStoreFile(fileName))
+                    throw new IOException("Data directory at \"" + dataPath + "\" holds the files of the segments " +
+                            "storage, so it cannot be opened with the lsm storage");
+            }
+        }
+
+        ArrayList<ArrayList<Integer>> runNumbers = readManifest();
+        HashSet<Integer> listedRuns = new HashSet<>();
+        TreeSet<Integer> logNumbers = new TreeSet<>();
+
+        for(ArrayList<Integer> levelNumbers : runNumbers)
+            listedRuns.addAll(levelNumbers);
+
+        if(fileNames != null) {
+            for(String fileName : fileNames) {
+                int runNumber = fileNumber(fileName, RUN_PREFIX, RUN_SUFFIX);
+                int number = Math.max(runNumber, fileNumber(fileName, LOG_PREFIX, LOG_SUFFIX));
+
+                if(runNumber >= 0 && !listedRuns.contains(runNumber))
+                    Files.delete(runFile(runNumber).toPath());
+                else if(runNumber < 0 && number >= 0)
+                    logNumbers.add(number);
+
+                nextFileNumber = Math.max(nextFileNumber, number + 1);
+            }
+        }
+
+        ArrayList<List<Run>> openedLevels = new ArrayList<>();
+
+        try {
+            for(ArrayList<Integer> levelNumbers : runNumbers) {
+                ArrayList<Run> level = new ArrayList<>();
+
+                for(int number : levelNumbers)
+                    level.add(new Run(runFile(number), number, mapped));
+
+                openedLevels.add(List.copyOf(level));
+            }
+        }
+        catch (IOException exception) {
+            for(List<Run> level : openedLevels) {
+                for(Run run : level)
+                    run.channel.close();
+            }
+
+            throw exception;
+        }
+
+        levels = List.copyOf(openedLevels);
+
+        for(int number : logNumbers)
+            replayLog(number);
+
+        if(!memtable.isEmpty()) {
+            immutableMemtable = memtable;
+            immutableLogs = List.copyOf(logNumbers);
+            memtable = new ConcurrentSkipListMap<>();
+            flush();
+        }
+        else {
+            for(int number : logNumbers)
+                Files.delete(logFile(number).toPath());
+        }
+
+        openLog(nextFileNumber++);
+        importIndividualFiles();
+
+        synchronized(this) {
+            scheduleCompactionIfNeeded();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package example.app.filedatabase;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <h1>Class MappedFile</h1>
+ * This class maps a file of the file database in memory with FileChannel.map(), so that its content can be read
+ * without copying it out of the page cache. The whole file is mapped once and it's mapped again only when a read
+ * goes past the end of the current mapping because the file has grown.
+ * A single mapping cannot be larger than 2 GB, so larger files cannot be read through this class.
+ */
+final class MappedFile {
+    private final FileChannel channel;
+    private volatile MappedByteBuffer mapping;
+
+    /**
+     * This method returns a read-only view over a part of the file. The view shares the memory of the mapping.
+     * @param position the offset of the part in the file
+     * @param length the length of the part
+     * @return the view over the part of the file
+     * @throws IOException if the file could not be mapped or the part is past the end of the file
+     */
+    ByteBuffer slice(long position, int length) throws IOException {
+        MappedByteBuffer currentMapping = mapping;
+
+        if(currentMapping == null || position + length > currentMapping.capacity())
+            currentMapping = remap(position + length);
+
+        return currentMapping.slice((int) position, length);
+    }
+
+    /**
+     * This method returns a read-only view over the whole file.
+     * @return the view over the file
+     * @throws IOException if the file could not be mapped
+     */
+    ByteBuffer all() throws IOException {
+        return slice(0, (int) channel.size());
+    }
+
+    /**
+     * This is a private method that maps the file again after it has grown.
+     * @param requiredSize the size the mapping needs to have at least
+     * @return the new mapping
+     * @throws IOException if the file could not be mapped or is smaller than the required size
+     */
+    private synchronized MappedByteBuffer remap(long requiredSize) throws IOException {
+        if(mapping != null && mapping.capacity() >= requiredSize)
+            return mapping;
+
+        long size = channel.size();
+
+        if(size < requiredSize)
+            throw new EOFException("Mapped file ended before the requested position");
+        if(size > Integer.MAX_VALUE)
+            throw new IOException("File of " + size + " bytes is too large to be mapped");
+
+        mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        return mapping;
+    }
+
+    /**
+     * The constructor creates a mapping over an opened channel. Nothing is mapped until the first read.
+     * @param channel the channel of the file, opened for reading
+     */
+    MappedFile(FileChannel channel) {
+        this.channel = channel;
+    }
+}
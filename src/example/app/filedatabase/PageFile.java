@@ -0,0 +1,315 @@
+package example.app.filedatabase;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * <h1>Class PageFile</h1>
+ * This class represents a file of fixed size pages, on which one or more BPlusTrees are stored.
+ * <br>
+ * Structure of the file:
+ * <ul>
+ *     <li>Page 0: The header, with a magic number, the version, the page size, the number of pages, and the root page
+ *     and the number of entries of every tree in the file</li>
+ *     <li>Every other page: A node of one of the trees</li>
+ * </ul>
+ * Changed pages stay in memory until the next flush, only the pages that are read are loaded and the least recently
+ * used unchanged pages are dropped again. A flush writes only the changed pages. They are first written to a journal
+ * file, which is atomically renamed into place, and then to their position in the file. If the process stops while
+ * the pages are written in place, the journal is written again when the file is opened, so the file never holds a
+ * half written flush.
+ */
+final class PageFile {
+    static final int PAGE_SIZE = 4096;
+    static final int ROOT_SLOTS = 8;
+    private static final int MAGIC = 0x46444254;
+    private static final int VERSION = 1;
+    private static final int CACHED_PAGES = 1024;
+
+    /**
+     * <h1>Record Flush</h1>
+     * This record represents the pages changed since the last flush, taken by snapshot().
+     * @param pages the content of the changed pages by their number
+     */
+    record Flush(TreeMap<Integer, byte[]> pages) {
+    }
+
+    private final File journalFile;
+    private final FileChannel channel;
+    private final LinkedHashMap<Integer, byte[]> cachedPages = new LinkedHashMap<>(16, 0.75f, true);
+    private final HashMap<Integer, byte[]> changedPages = new HashMap<>();
+    private final HashMap<Integer, byte[]> flushingPages = new HashMap<>();
+    private final int[] roots = new int[ROOT_SLOTS];
+    private final long[] counts = new long[ROOT_SLOTS];
+    private int pageCount;
+    private boolean headerChanged;
+
+    /**
+     * This method returns the content of a page. The content must not be changed, write() has to be used instead.
+     * @param page the number of the page
+     * @return the content of the page
+     * @throws IOException if the page could not be read
+     */
+    synchronized byte[] read(int page) throws IOException {
+        byte[] content = changedPages.get(page);
+
+        if(content == null)
+            content = flushingPages.get(page);
+
+        if(content == null)
+            content = cachedPages.get(page);
+
+        if(content == null) {
+            content = new byte[PAGE_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+
+            while(buffer.hasRemaining()) {
+                if(channel.read(buffer, (long) page * PAGE_SIZE + buffer.position()) < 0)
+                    throw new EOFException("Page " + page + " is missing from the page file");
+            }
+
+            cache(page, content);
+        }
+
+        return content;
+    }
+
+    /**
+     * This method replaces the content of a page. The page is written to the file with the next flush.
+     * @param page the number of the page
+     * @param content the new content of the page, at most PAGE_SIZE bytes
+     */
+    synchronized void write(int page, byte[] content) {
+        cachedPages.remove(page);
+        changedPages.put(page, content.length == PAGE_SIZE ? content : Arrays.copyOf(content, PAGE_SIZE));
+    }
+
+    /**
+     * This method adds a new page at the end of the file.
+     * @return the number of the new page
+     */
+    synchronized int allocate() {
+        headerChanged = true;
+        return pageCount++;
+    }
+
+    /**
+     * This method returns the root page of a tree.
+     * @param slot the slot of the tree in the header
+     * @return the root page or -1 if the tree is empty
+     */
+    synchronized int root(int slot) {
+        return roots[slot];
+    }
+
+    /**
+     * Setter for the root page of a tree.
+     * @param slot the slot of the tree in the header
+     * @param page the root page
+     */
+    synchronized void setRoot(int slot, int page) {
+        roots[slot] = page;
+        headerChanged = true;
+    }
+
+    /**
+     * This method returns the number of entries of a tree.
+     * @param slot the slot of the tree in the header
+     * @return the number of entries
+     */
+    synchronized long count(int slot) {
+        return counts[slot];
+    }
+
+    /**
+     * Setter for the number of entries of a tree.
+     * @param slot the slot of the tree in the header
+     * @param count the number of entries
+     */
+    synchronized void setCount(int slot, long count) {
+        counts[slot] = count;
+        headerChanged = true;
+    }
+
+    /**
+     * This method takes the pages changed since the last flush. It has to be called while no tree in the file is
+     * changed, the flush itself can be written while the trees are used again.
+     * @return the pages to be written by flush()
+     */
+    synchronized Flush snapshot() {
+        TreeMap<Integer, byte[]> pages = new TreeMap<>(changedPages);
+
+        if(headerChanged || !pages.isEmpty())
+            pages.put(0, header());
+
+        flushingPages.putAll(changedPages);
+        changedPages.clear();
+        headerChanged = false;
+
+        return new Flush(pages);
+    }
+
+    /**
+     * This method writes the pages of a snapshot to the file, through the journal.
+     * Only one flush of a file may run at a time.
+     * @param flush the pages taken by snapshot()
+     * @throws IOException if the journal or the pages could not be written
+     */
+    void flush(Flush flush) throws IOException {
+        if(flush.pages().isEmpty())
+            return;
+
+        DurableFile.replace(journalFile, true, stream -> {
+            DataOutputStream journalWriter = new DataOutputStream(stream);
+
+            for(Map.Entry<Integer, byte[]> page : flush.pages().entrySet()) {
+                journalWriter.writeInt(page.getKey());
+                journalWriter.write(page.getValue());
+            }
+
+            journalWriter.flush();
+        });
+
+        writePages(flush.pages());
+        Files.delete(journalFile.toPath());
+
+        synchronized(this) {
+            for(Map.Entry<Integer, byte[]> page : flush.pages().entrySet()) {
+                if(flushingPages.get(page.getKey()) == page.getValue()) {
+                    flushingPages.remove(page.getKey());
+                    cache(page.getKey(), page.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * This method closes the file. Pages changed since the last flush are not written.
+     * @throws IOException if the file could not be closed
+     */
+    synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * This is a private method that keeps an unchanged page in memory and drops the least recently used ones.
+     * @param page the number of the page
+     * @param content the content of the page
+     */
+    private void cache(int page, byte[] content) {
+        cachedPages.put(page, content);
+
+        Iterator<Integer> iterator = cachedPages.keySet().iterator();
+
+        while(cachedPages.size() > CACHED_PAGES && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * This is a private method that encodes the header page.
+     * @return the content of the header page
+     */
+    private byte[] header() {
+        ByteBuffer header = ByteBuffer.allocate(PAGE_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(PAGE_SIZE).putInt(pageCount);
+
+        for(int slot = 0; slot < ROOT_SLOTS; slot++)
+            header.putInt(roots[slot]).putLong(counts[slot]);
+
+        return header.array();
+    }
+
+    /**
+     * This is a private method that writes pages to their position in the file and forces them to the disk.
+     * @param pages the content of the pages by their number
+     * @throws IOException if the pages could not be written
+     */
+    private void writePages(Map<Integer, byte[]> pages) throws IOException {
+        for(Map.Entry<Integer, byte[]> page : pages.entrySet()) {
+            ByteBuffer buffer = ByteBuffer.wrap(page.getValue());
+
+            while(buffer.hasRemaining())
+                channel.write(buffer, (long) page.getKey() * PAGE_SIZE + buffer.position());
+        }
+
+        channel.force(true);
+    }
+
+    /**
+     * This is a private method that writes the pages of a journal left by an interrupted flush.
+     * The journal is only present if it was completely written.
+     * @throws IOException if the journal could not be read or its pages could not be written
+     */
+    private void recoverJournal() throws IOException {
+        TreeMap<Integer, byte[]> pages = new TreeMap<>();
+
+        try(DataInputStream journalReader = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+            while(true) {
+                int page;
+
+                try {
+                    page = journalReader.readInt();
+                }
+                catch (EOFException endOfJournal) {
+                    break;
+                }
+
+                byte[] content = new byte[PAGE_SIZE];
+                journalReader.readFully(content);
+                pages.put(page, content);
+            }
+        }
+
+        writePages(pages);
+        Files.delete(journalFile.toPath());
+    }
+
+    /**
+     * The constructor opens a page file, or creates an empty one if it does not exist.
+     * @param file the page file
+     * @throws IOException if the file could not be opened or is not a page file
+     */
+    PageFile(File file) throws IOException {
+        this.journalFile = new File(file.getPath() + ".journal");
+        this.channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if(journalFile.exists())
+            recoverJournal();
+
+        if(channel.size() == 0) {
+            Arrays.fill(roots, -1);
+            pageCount = 1;
+            headerChanged = true;
+            return;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(PAGE_SIZE);
+
+        while(header.hasRemaining()) {
+            if(channel.read(header, header.position()) < 0)
+                break;
+        }
+
+        header.flip();
+
+        if(header.remaining() < PAGE_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION ||
+                header.getInt() != PAGE_SIZE) {
+            channel.close();
+            throw new StreamCorruptedException("File \"" + file.getPath() + "\" is not a page file");
+        }
+
+        pageCount = header.getInt();
+
+        for(int slot = 0; slot < ROOT_SLOTS; slot++) {
+            roots[slot] = header.getInt();
+            counts[slot] = header.getLong();
+        }
+    }
+}
@@ -0,0 +1,1080 @@
+package example.app.filedatabase;
+
+import example.app.filedatabase.Exceptions.ChecksumMismatchException;
+import example.app.filedatabase.Exceptions.FileDatabaseInternalException;
+import example.app.filedatabase.Exceptions.PartitionOverflowException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * <h1>Class Partition</h1>
+ * This class is a long-lived handle to a physical partition of the file database, one sub-partition of a
+ * LogicalPartition. A partition is opened only once per process with FileDatabase.openPartition(), after that the paths of the partition stay resolved and the records are kept by
+ * its RecordStore: either in memory as a RecordIndex, read from the record.ser file, so looking up a record does not
+ * need any file access, or as a RecordTree in the record.tree file. Every change to the
+ * records is appended to the record.log file of the partition. Once the log grows past the configured
+ * checkpoint size, the records are checkpointed to the record.ser or record.tree file in the background. When the changes are
+ * forced to the disk is decided by the FsyncPolicy of the partition. The content of the resources is kept by the
+ * ResourceStore of the partition. Resources with a registered ResourceCodec are written in its binary form when the
+ * partition uses the binary serialization, all others with Java serialization. Both forms are always readable.
+ * The serialized resources pass through the ResourceCompressor of the partition on their way to the store, and the
+ * recently used ones are kept in its ResourceCache. Every stored resource is framed with its checksum, which is
+ * verified when the resource is read back, unless the partition or the read turns the verification off.
+ * <br>
+ * A failure of the background work of the partition, like a checkpoint or the forcing of the record.log file, is
+ * kept and thrown by the next change or sync of the partition.
+ */
+public final class Partition {
+    private final String name;
+    private final String path;
+    private volatile int capacity;
+    private final long checkpointSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final ResourceStore resourceStore;
+    private final boolean binarySerialization;
+    private final ResourceCompressor resourceCompressor;
+    private final ResourceCache resourceCache;
+    private volatile boolean verifyChecksums;
+    private final RecordStore recordIndex;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private RecordLog recordLog;
+    private boolean checkpointPending = false;
+    private ScheduledFuture<?> syncTask;
+    private final AtomicReference<IOException> backgroundFailure = new AtomicReference<>();
+
+    /**
+     * Getter for the name of the partition
+     * @return the name of the partition
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Getter for the full path of the partition directory
+     * @return the full path of the partition directory
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * This method returns the number of resources in the partition.
+     * @return the number of resources
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return recordIndex.size();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Setter for the maximum number of resources in the partition. It's used when the database.config file is
+     * reloaded. A partition that already holds more resources keeps them, but does not accept new ones.
+     * @param capacity the maximum number of resources
+     */
+    void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Setter for the number of recently used resources kept in memory. It's used when the database.config file is
+     * reloaded.
+     * @param resourceCacheSize the number of resources, 0 for none
+     */
+    void setResourceCacheSize(int resourceCacheSize) {
+        resourceCache.setCapacity(resourceCacheSize);
+    }
+
+    /**
+     * Setter for whether the checksums of the resources read from the store are verified by default. It's used
+     * when the database.config file is reloaded.
+     * @param verifyChecksums whether the checksums are verified
+     */
+    void setVerifyChecksums(boolean verifyChecksums) {
+        this.verifyChecksums = verifyChecksums;
+    }
+
+    /**
+     * This method returns the compression ratio of the resources written to the partition since it was opened.
+     * @return the uncompressed size of the resources divided by their stored size, 1 if nothing was compressed
+     */
+    public double getCompressionRatio() {
+        return resourceCompressor.ratio();
+    }
+
+    /**
+     * This method returns the size of the serialized resources written to the partition since it was opened, before
+     * they were compressed.
+     * @return the number of bytes
+     */
+    long getUncompressedBytes() {
+        return resourceCompressor.uncompressedBytes();
+    }
+
+    /**
+     * This method returns the size of the resources written to the partition since it was opened, as they are stored.
+     * @return the number of bytes
+     */
+    long getStoredBytes() {
+        return resourceCompressor.storedBytes();
+    }
+
+    /**
+     * This method adds a resource to the partition and appends the change to the record.log file.
+     * If the resource exists, it overwrites it.
+     * @param keyForRecord the key of the resource in the record.ser file. This will be used for sorting.
+     * @param uniqueId the unique identifier of the resource. This is also the name of the file for the resource
+     *                 inside the data directory
+     * @param resource the resource to be added
+     * @return the updated size of the partition
+     * @throws IOException if there are any errors appending to the record.log file or creating the resource file, or
+     * the background work of the partition failed
+     * @throws PartitionOverflowException if the partition is already full and does not hold the resource yet
+     */
+    public int add(Object keyForRecord, String uniqueId, Object resource)
+            throws IOException, PartitionOverflowException {
+        return add(keyForRecord, uniqueId, resource, true);
+    }
+
+    /**
+     * This method adds a resource to the partition like add(), and decides whether the record.log file is forced
+     * afterwards as the FsyncPolicy says. Without the force, the caller has to call forceRecordLog() itself.
+     * @param keyForRecord the key of the resource in the record.ser file. This will be used for sorting.
+     * @param uniqueId the unique identifier of the resource
+     * @param resource the resource to be added
+     * @param forceLog whether the record.log file is forced before returning
+     * @return the updated size of the partition
+     * @throws IOException if there are any errors appending to the record.log file or creating the resource file, or
+     * the background work of the partition failed
+     * @throws PartitionOverflowException if the partition is already full and does not hold the resource yet
+     */
+    int add(Object keyForRecord, String uniqueId, Object resource, boolean forceLog)
+            throws IOException, PartitionOverflowException {
+        RecordLog log;
+        long logPosition;
+        int size;
+
+        throwBackgroundFailure();
+
+        lock.writeLock().lock();
+        try {
+            // A full partition still accepts changes to the resources it already holds
+            if(recordIndex.size() >= capacity && !recordIndex.contains(uniqueId))
+                throw new PartitionOverflowException("Partition at path \"" + path + "\" is already full.");
+
+            byte[] content = serialize(resource, binarySerialization);
+            resourceStore.write(uniqueId, Checksums.frame(resourceCompressor.compress(content)),
+                    fsyncPolicy == FsyncPolicy.ALWAYS);
+
+            resourceCache.put(uniqueId, content);
+
+            int fingerprint = resource.hashCode();
+
+            log = recordLog;
+            logPosition = log.appendPut(keyForRecord, uniqueId, fingerprint);
+            recordIndex.put(keyForRecord, uniqueId, fingerprint);
+            scheduleCheckpointIfNeeded();
+
+            size = recordIndex.size();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+
+        // Forcing outside the lock lets the changes of concurrent writers share one fsync
+        if(forceLog && fsyncPolicy == FsyncPolicy.ALWAYS)
+            log.sync(logPosition);
+
+        return size;
+    }
+
+    /**
+     * This method forces the changes appended to the record.log file so far, if the FsyncPolicy forces every
+     * change. It's called after add() or addAll() were told not to force the log.
+     * @throws IOException if the record.log file could not be forced
+     */
+    void forceRecordLog() throws IOException {
+        if(fsyncPolicy != FsyncPolicy.ALWAYS)
+            return;
+
+        RecordLog log;
+
+        lock.readLock().lock();
+        try {
+            log = recordLog;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+
+        log.sync();
+    }
+
+    /**
+     * This method retrieves a resource from the partition. Its checksum is verified if the partition is configured
+     * to verify the checksums.
+     * @param uniqueId the unique identifier of the resource to be retrieved
+     * @return the resource or null in case it's not present
+     * @throws IOException if there are any errors reading the resource
+     * @throws ChecksumMismatchException if the stored resource does not match its checksum
+     * @throws ClassNotFoundException if the class is not found during deserialization of the resource
+     * @throws FileDatabaseInternalException if there's a mismatch between the records and the data directory entries
+     */
+    public Object get(Object uniqueId)
+            throws IOException, ClassNotFoundException, FileDatabaseInternalException {
+        return get(uniqueId, verifyChecksums);
+    }
+
+    /**
+     * This method retrieves a resource from the partition and decides for this read whether its checksum is
+     * verified. A resource served from the cache was verified when it was read from the store, or was written by
+     * this process.
+     * @param uniqueId the unique identifier of the resource to be retrieved
+     * @param verifyChecksum whether the checksum of the stored resource is verified
+     * @return the resource or null in case it's not present
+     * @throws IOException if there are any errors reading the resource
+     * @throws ChecksumMismatchException if the checksum is verified and the stored resource does not match it
+     * @throws ClassNotFoundException if the class is not found during deserialization of the resource
+     * @throws FileDatabaseInternalException if there's a mismatch between the records and the data directory entries
+     */
+    public Object get(Object uniqueId, boolean verifyChecksum)
+            throws IOException, ClassNotFoundException, FileDatabaseInternalException {
+        lock.readLock().lock();
+        try {
+            if(!recordIndex.contains(uniqueId))
+                return null;
+
+            return readResource(uniqueId.toString(), verifyChecksum);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method checks if the partition holds a resource, without reading it.
+     * @param uniqueId the unique identifier of the resource
+     * @return true if the partition holds the resource, false otherwise
+     * @throws IOException if the records could not be read
+     */
+    public boolean contains(Object uniqueId) throws IOException {
+        lock.readLock().lock();
+        try {
+            return recordIndex.contains(uniqueId);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method returns the key of the record of a resource.
+     * @param uniqueId the unique identifier of the resource
+     * @return the key of the resource or null if the partition does not hold it
+     * @throws IOException if the records could not be read
+     */
+    Object keyOf(String uniqueId) throws IOException {
+        lock.readLock().lock();
+        try {
+            return recordIndex.keyOf(uniqueId);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method compares the records of the partition with its resource store. Both are read while no resource is
+     * added or removed, so a change in progress is never reported as a mismatch.
+     * @param orphans receives the unique ids of the stored resources which have no record
+     * @param danglingRecords receives the unique ids of the records whose resource is not stored
+     * @return the unique ids of all the stored resources
+     * @throws IOException if the records or the store could not be read
+     */
+    Set<String> compareRecordsWithStore(List<String> orphans, List<String> danglingRecords) throws IOException {
+        lock.readLock().lock();
+        try {
+            Set<String> storedIds = resourceStore.ids();
+            HashSet<String> recordIds = new HashSet<>();
+
+            for(Object uniqueId : recordIndex.ids())
+                recordIds.add(uniqueId.toString());
+
+            for(String uniqueId : storedIds) {
+                if(!recordIds.contains(uniqueId))
+                    orphans.add(uniqueId);
+            }
+
+            for(String uniqueId : recordIds) {
+                if(!storedIds.contains(uniqueId))
+                    danglingRecords.add(uniqueId);
+            }
+
+            return storedIds;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method returns the unique ids of the stored resources, whether they have a record or not.
+     * @return a copy of the unique ids
+     * @throws IOException if the store could not be listed
+     */
+    Set<String> storedIds() throws IOException {
+        return resourceStore.ids();
+    }
+
+    /**
+     * This method reads a resource directly from the store, past the cache and whether it has a record or not.
+     * It's used to check that the stored content can still be deserialized.
+     * @param uniqueId the unique identifier of the resource
+     * @return the resource or null if it's not stored
+     * @throws IOException if the resource could not be read or deserialized
+     * @throws ClassNotFoundException if the class of the resource is not found
+     */
+    Object readStored(String uniqueId) throws IOException, ClassNotFoundException {
+        return readStored(resourceStore, resourceCompressor, uniqueId);
+    }
+
+    /**
+     * This method verifies the checksum of a stored resource, without decompressing or deserializing it.
+     * @param uniqueId the unique identifier of the resource
+     * @return true if the resource has a checksum, false if it was stored before the checksums existed, or null if
+     * it's not stored
+     * @throws IOException if the resource could not be read
+     * @throws ChecksumMismatchException if the stored resource does not match its checksum
+     */
+    Boolean verifyStored(String uniqueId) throws IOException {
+        ByteBuffer storedContent = resourceStore.read(uniqueId);
+
+        if(storedContent == null)
+            return null;
+
+        Checksums.unframe(storedContent, "resource " + uniqueId, true);
+        return Checksums.isFramed(storedContent);
+    }
+
+    /**
+     * This method reads a resource from a store and deserializes it, without a partition being opened. It's used to
+     * rebuild the records of a partition from its stored resources.
+     * @param resourceStore the store of the resources
+     * @param resourceCompressor the compressor the resources were stored with
+     * @param uniqueId the unique identifier of the resource
+     * @return the resource or null if it's not stored
+     * @throws IOException if the resource could not be read or deserialized
+     * @throws ChecksumMismatchException if the stored resource does not match its checksum
+     * @throws ClassNotFoundException if the class of the resource is not found
+     */
+    static Object readStored(ResourceStore resourceStore, ResourceCompressor resourceCompressor, String uniqueId)
+            throws IOException, ClassNotFoundException {
+        ByteBuffer storedContent = resourceStore.read(uniqueId);
+
+        if(storedContent == null)
+            return null;
+
+        return deserialize(resourceCompressor.decompress(Checksums.unframe(storedContent, "resource " + uniqueId, true)));
+    }
+
+    /**
+     * This method returns the ids of all the resources in the partition.
+     * @return a copy of the ids of the resources
+     * @throws IOException if the records could not be read
+     */
+    public TreeSet<Object> getIds() throws IOException {
+        lock.readLock().lock();
+        try {
+            return recordIndex.ids();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method returns a page of records in the order of their keys, starting right after a position. With the
+     * btree record index, only the pages of the tree that hold the page of records are read.
+     * @param after the position of the last record of the previous page, or null for the first page
+     * @param descending whether the records are in the reverse order
+     * @param limit the largest number of records in the page
+     * @return the records of the page
+     * @throws IOException if the records could not be read or the keys are not supported
+     */
+    ArrayList<RecordIndex.RecordKey> page(RecordIndex.RecordKey after, boolean descending, int limit)
+            throws IOException {
+        lock.readLock().lock();
+        try {
+            return recordIndex.page(after, descending, limit);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method returns the ids of the resources whose keys are in a range, in the order of their keys. With the
+     * btree record index, only the pages of the range are read.
+     * @param fromKey the smallest key, inclusive, or null for no lower bound
+     * @param toKey the largest key, inclusive, or null for no upper bound
+     * @return the ids of the resources in the order of their keys
+     * @throws IOException if the records could not be read or the keys are not supported
+     */
+    public ArrayList<String> getIdsBetween(Object fromKey, Object toKey) throws IOException {
+        lock.readLock().lock();
+        try {
+            return recordIndex.idsBetween(fromKey, toKey);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method removes a resource from the partition and appends the change to the record.log file.
+     * @param uniqueId the unique identifier of the resource to be removed
+     * @throws IOException if there are any errors appending to the record.log file, or the background work of the
+     * partition failed
+     */
+    public void remove(String uniqueId) throws IOException {
+        RecordLog log;
+        long logPosition;
+
+        throwBackgroundFailure();
+
+        lock.writeLock().lock();
+        try {
+            // The change is appended before the records change, so a failed append leaves both as they were
+            log = recordLog;
+            logPosition = log.appendRemove(uniqueId);
+
+            recordIndex.remove(uniqueId);
+            resourceCache.remove(uniqueId);
+            resourceStore.delete(uniqueId);
+            scheduleCheckpointIfNeeded();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+
+        if(fsyncPolicy == FsyncPolicy.ALWAYS)
+            log.sync(logPosition);
+    }
+
+    /**
+     * This method adds many resources to the partition under one lock. The resources are serialized in parallel
+     * before the lock is taken, and the record.log file is forced once for all of them. Resources are added in the
+     * order of the list until the partition is full, resources it already holds are always accepted.
+     * @param entries the resources to be added
+     * @return the number of resources added, from the start of the list
+     * @throws IOException if there are any errors appending to the record.log file or writing the resources, or the
+     * background work of the partition failed
+     */
+    int addAll(List<ResourceEntry> entries) throws IOException {
+        return addAll(entries, true);
+    }
+
+    /**
+     * This method adds many resources to the partition like addAll(), and decides whether the record.log file is
+     * forced afterwards as the FsyncPolicy says. Without the force, the caller has to call forceRecordLog() itself.
+     * @param entries the resources to be added
+     * @param forceLog whether the record.log file is forced before returning
+     * @return the number of resources added, from the start of the list
+     * @throws IOException if there are any errors appending to the record.log file or writing the resources, or the
+     * background work of the partition failed
+     */
+    int addAll(List<ResourceEntry> entries, boolean forceLog) throws IOException {
+        throwBackgroundFailure();
+
+        byte[][] contents = serializeAll(entries);
+        RecordLog log;
+        long logPosition = -1;
+        int added = 0;
+
+        lock.writeLock().lock();
+        try {
+            log = recordLog;
+
+            for(ResourceEntry entry : entries) {
+                if(recordIndex.size() >= capacity && !recordIndex.contains(entry.uniqueId()))
+                    break;
+
+                byte[] content = contents[added];
+                resourceStore.write(entry.uniqueId(), Checksums.frame(resourceCompressor.compress(content)),
+                        fsyncPolicy == FsyncPolicy.ALWAYS);
+
+                resourceCache.put(entry.uniqueId(), content);
+
+                int fingerprint = entry.resource().hashCode();
+
+                logPosition = log.appendPut(entry.keyForRecord(), entry.uniqueId(), fingerprint);
+                recordIndex.put(entry.keyForRecord(), entry.uniqueId(), fingerprint);
+                added++;
+            }
+
+            scheduleCheckpointIfNeeded();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+
+        if(forceLog && fsyncPolicy == FsyncPolicy.ALWAYS && added > 0)
+            log.sync(logPosition);
+
+        return added;
+    }
+
+    /**
+     * This method removes many resources from the partition under one lock. The record.log file is forced once for
+     * all of them.
+     * @param uniqueIds the unique identifiers of the resources to be removed
+     * @throws IOException if there are any errors appending to the record.log file, or the background work of the
+     * partition failed
+     */
+    void removeAll(Collection<String> uniqueIds) throws IOException {
+        removeAll(uniqueIds, true);
+    }
+
+    /**
+     * This method adds many records without a resource under one lock, for a partition whose records are all that's
+     * read, like an index kept by the caller. Only the record.log file is appended to, nothing is written to the
+     * store. A record without a resource has no fingerprint, and the capacity of the partition, which bounds its
+     * stored resources, does not apply to it.
+     * @param entries the records to be added
+     * @param forceLog whether the record.log file is forced before returning, as the FsyncPolicy says
+     * @throws IOException if there are any errors appending to the record.log file, or the background work of the
+     * partition failed
+     */
+    void addRecords(List<RecordEntry> entries, boolean forceLog) throws IOException {
+        RecordLog log;
+        long logPosition = -1;
+
+        throwBackgroundFailure();
+
+        lock.writeLock().lock();
+        try {
+            log = recordLog;
+
+            for(RecordEntry entry : entries) {
+                logPosition = log.appendPut(entry.keyForRecord(), entry.uniqueId(), null);
+                recordIndex.put(entry.keyForRecord(), entry.uniqueId(), null);
+            }
+
+            scheduleCheckpointIfNeeded();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+
+        if(forceLog && fsyncPolicy == FsyncPolicy.ALWAYS && logPosition >= 0)
+            log.sync(logPosition);
+    }
+
+    /**
+     * This method removes many records without a resource under one lock, like removeAll() but without touching
+     * the store.
+     * @param uniqueIds the unique identifiers of the records to be removed
+     * @throws IOException if there are any errors appending to the record.log file, or the background work of the
+     * partition failed
+     */
+    void removeRecords(Collection<String> uniqueIds) throws IOException {
+        removeAll(uniqueIds, false);
+    }
+
+    /**
+     * This is a private method that removes many records under one lock and forces the record.log file once for all
+     * of them.
+     * @param uniqueIds the unique identifiers of the records to be removed
+     * @param withResources whether the resources of the records are removed from the store too
+     * @throws IOException if there are any errors appending to the record.log file, or the background work of the
+     * partition failed
+     */
+    private void removeAll(Collection<String> uniqueIds, boolean withResources) throws IOException {
+        RecordLog log;
+        long logPosition = -1;
+
+        throwBackgroundFailure();
+
+        lock.writeLock().lock();
+        try {
+            log = recordLog;
+
+            for(String uniqueId : uniqueIds) {
+                logPosition = log.appendRemove(uniqueId);
+
+                recordIndex.remove(uniqueId);
+
+                if(withResources) {
+                    resourceCache.remove(uniqueId);
+                    resourceStore.delete(uniqueId);
+                }
+            }
+
+            scheduleCheckpointIfNeeded();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+
+        if(fsyncPolicy == FsyncPolicy.ALWAYS && logPosition >= 0)
+            log.sync(logPosition);
+    }
+
+    /**
+     * This method checks for many resources at once if an equal resource is present in the partition, like
+     * isPresent(). The candidates of all the fingerprints are taken from one snapshot of the records, and every
+     * candidate is read only once.
+     * @param resources the resources to be matched
+     * @return for every resource, whether an equal one is present
+     * @throws IOException if there are any errors reading the resource files
+     * @throws ClassNotFoundException if the class is not found during deserialization of a resource
+     * @throws FileDatabaseInternalException if there's a mismatch between the records and the data directory entries
+     */
+    public boolean[] arePresent(List<?> resources)
+            throws IOException, ClassNotFoundException, FileDatabaseInternalException {
+        HashMap<Integer, HashSet<String>> candidatesByFingerprint = new HashMap<>();
+        HashSet<String> candidatesWithoutFingerprint;
+
+        lock.readLock().lock();
+        try {
+            for(Object resource : resources)
+                candidatesByFingerprint.computeIfAbsent(resource.hashCode(), fingerprint -> new HashSet<>());
+
+            for(Map.Entry<Integer, HashSet<String>> candidates : candidatesByFingerprint.entrySet())
+                candidates.getValue().addAll(recordIndex.idsWithFingerprint(candidates.getKey()));
+
+            candidatesWithoutFingerprint = recordIndex.idsWithoutFingerprint();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+
+        HashMap<String, Object> candidates = new HashMap<>();
+
+        // The resources without a known fingerprint are read once, which gives them their fingerprint
+        for(String uniqueId : candidatesWithoutFingerprint) {
+            Object candidate = get(uniqueId);
+
+            if(candidate == null)
+                continue;
+
+            recordFingerprintIfUnknown(uniqueId, candidate);
+            candidates.put(uniqueId, candidate);
+
+            HashSet<String> sameFingerprint = candidatesByFingerprint.get(candidate.hashCode());
+
+            if(sameFingerprint != null)
+                sameFingerprint.add(uniqueId);
+        }
+
+        boolean[] present = new boolean[resources.size()];
+
+        for(int i = 0; i < present.length; i++) {
+            Object resource = resources.get(i);
+
+            for(String uniqueId : candidatesByFingerprint.get(resource.hashCode())) {
+                if(!candidates.containsKey(uniqueId))
+                    candidates.put(uniqueId, get(uniqueId));
+
+                if(resource.equals(candidates.get(uniqueId))) {
+                    present[i] = true;
+                    break;
+                }
+            }
+        }
+
+        return present;
+    }
+
+    /**
+     * This method checks if a resource equal to the given one is present in the partition. Only the resources
+     * with the same fingerprint as the given one are read and compared, since equal resources have the same
+     * hashCode(). Resources without a known fingerprint, which were added before the fingerprints existed, are
+     * read once and get their fingerprint recorded.
+     * @param resource the resource to be matched
+     * @return true if the resource is present, false otherwise
+     * @throws IOException if there are any errors reading the resource files
+     * @throws ClassNotFoundException if the class is not found during deserialization of a resource
+     * @throws FileDatabaseInternalException if there's a mismatch between the records and the data directory entries
+     */
+    public boolean isPresent(Object resource)
+            throws IOException, ClassNotFoundException, FileDatabaseInternalException {
+        HashSet<String> candidates;
+
+        lock.readLock().lock();
+        try {
+            candidates = recordIndex.idsWithFingerprint(resource.hashCode());
+            candidates.addAll(recordIndex.idsWithoutFingerprint());
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+
+        for(String uniqueId : candidates) {
+            Object candidate = get(uniqueId);
+
+            if(candidate == null)
+                continue;
+
+            recordFingerprintIfUnknown(uniqueId, candidate);
+
+            if(resource.equals(candidate))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * This is a private method that records the fingerprint of a resource, if it's not known yet.
+     * @param uniqueId the unique identifier of the resource
+     * @param resource the resource read from the store
+     * @throws IOException if the fingerprint could not be appended to the record.log file
+     */
+    private void recordFingerprintIfUnknown(String uniqueId, Object resource) throws IOException {
+        lock.writeLock().lock();
+        try {
+            Object key = recordIndex.keyOf(uniqueId);
+
+            if(key == null || recordIndex.fingerprintOf(uniqueId) != null)
+                return;
+
+            int fingerprint = resource.hashCode();
+
+            recordLog.appendPut(key, uniqueId, fingerprint);
+            recordIndex.put(key, uniqueId, fingerprint);
+            scheduleCheckpointIfNeeded();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method folds the record.log file into the record.ser or record.tree file. The records are taken and the log
+     * is rotated to record.log.old while holding the lock, the records are written after the lock is released, so
+     * the partition stays usable during the checkpoint. If the process stops in between, the rotated log is replayed
+     * again when the partition is opened. Only one checkpoint of a partition runs at a time.
+     * @throws IOException if the record.ser file could not be written or the log could not be rotated
+     */
+    public synchronized void checkpoint() throws IOException {
+        RecordStore.CheckpointWriter checkpointWriter;
+
+        // Most of the resources are forced before the lock is taken, like in sync()
+        if(fsyncPolicy == FsyncPolicy.INTERVAL)
+            resourceStore.sync();
+
+        lock.writeLock().lock();
+        try {
+            checkpointPending = false;
+
+            if(recordLog.size() == 0)
+                return;
+
+            checkpointWriter = recordIndex.checkpoint(path);
+
+            // The rotated log is forced, so the resources its changes point at are forced before
+            if(fsyncPolicy == FsyncPolicy.INTERVAL)
+                resourceStore.sync();
+
+            rotateRecordLog();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+
+        checkpointWriter.write();
+        new File(path + "/record.log.old").delete();
+    }
+
+    /**
+     * This method forces every written resource and every change appended to the record.log file so far to the disk.
+     * The resources are forced before the changes, so a forced change never points at a resource that's not on the
+     * disk. Most of them are forced while the partition stays writable, only the ones written in the meantime and the
+     * record.log file are forced while no resource is added or removed.
+     * @throws IOException if the resources or the record.log file could not be forced, or the background work of the
+     * partition failed
+     */
+    public void sync() throws IOException {
+        throwBackgroundFailure();
+        syncChanges();
+    }
+
+    /**
+     * This method keeps a failure of the background work of the partition, so that the next change or sync throws it.
+     * Only the first failure is kept until it's thrown.
+     * @param exception the failure
+     */
+    void failInBackground(Exception exception) {
+        backgroundFailure.compareAndSet(null,
+                exception instanceof IOException ioException ? ioException : new IOException(exception));
+    }
+
+    /**
+     * This is a private method that throws the kept failure of the background work of the partition once.
+     * @throws IOException if the background work failed since the last time this method was called
+     */
+    private void throwBackgroundFailure() throws IOException {
+        IOException failure = backgroundFailure.getAndSet(null);
+
+        if(failure != null)
+            throw new IOException("Problem in the background work of partition \"" + name + "\"", failure);
+    }
+
+    /**
+     * This is a private method that forces the resources and then the record.log file, like sync(), without throwing
+     * the kept failure. It's run by the sync task of the interval policy.
+     * @throws IOException if the resources or the record.log file could not be forced
+     */
+    private void syncChanges() throws IOException {
+        resourceStore.sync();
+
+        lock.readLock().lock();
+        try {
+            resourceStore.sync();
+            recordLog.sync();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method closes the partition. The changes are already in the record.log file, so nothing is lost.
+     * @throws IOException if the record.log file could not be closed
+     */
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if(syncTask != null)
+                syncTask.cancel(false);
+
+            // The resources are forced before the changes of the record.log file that point at them
+            if(fsyncPolicy != FsyncPolicy.OS)
+                resourceStore.sync();
+
+            recordLog.close(fsyncPolicy != FsyncPolicy.OS);
+            recordIndex.close();
+            resourceStore.close();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This is a private method that schedules a checkpoint in the background once the record.log file has grown
+     * past the configured checkpoint size. It must be called while holding the write lock.
+     */
+    private void scheduleCheckpointIfNeeded() {
+        if(checkpointPending || recordLog.size() < checkpointSize)
+            return;
+
+        checkpointPending = true;
+        FileDatabase.background().execute(() -> {
+            try {
+                checkpoint();
+            }
+            catch (IOException | RuntimeException exception) {
+                failInBackground(exception);
+
+                // The checkpoint can fail before it took the lock, so the next change schedules it again
+                lock.writeLock().lock();
+                try {
+                    checkpointPending = false;
+                }
+                finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        });
+    }
+
+    /**
+     * This is a private method that moves the current record.log file to record.log.old and starts a new log.
+     * If a record.log.old file is left from a failed checkpoint, the current log is appended to it instead.
+     * It must be called while holding the write lock.
+     * @throws IOException if the log could not be rotated
+     */
+    private void rotateRecordLog() throws IOException {
+        File currentLog = new File(path + "/record.log");
+        File oldLog = new File(path + "/record.log.old");
+
+        recordLog.close(fsyncPolicy != FsyncPolicy.OS);
+
+        if(oldLog.exists()) {
+            try(FileOutputStream oldLogWriter = new FileOutputStream(oldLog, true)) {
+                Files.copy(currentLog.toPath(), oldLogWriter);
+            }
+            Files.delete(currentLog.toPath());
+        }
+        else
+            Files.move(currentLog.toPath(), oldLog.toPath());
+
+        recordLog = new RecordLog(currentLog);
+    }
+
+    /**
+     * This is a private method that reads a resource from the store and deserializes it.
+     * @param uniqueId the unique identifier of the resource, which must have a record
+     * @param verifyChecksum whether the checksum of the stored resource is verified
+     * @return the resource
+     * @throws IOException if there are any errors reading the resource
+     * @throws ChecksumMismatchException if the checksum is verified and the stored resource does not match it
+     * @throws ClassNotFoundException if the class is not found during deserialization of the resource
+     * @throws FileDatabaseInternalException if the resource has a record but is missing from the store
+     */
+    private Object readResource(String uniqueId, boolean verifyChecksum)
+            throws IOException, ClassNotFoundException, FileDatabaseInternalException {
+        byte[] cachedContent = resourceCache.get(uniqueId);
+
+        if(cachedContent != null)
+            return deserialize(ByteBuffer.wrap(cachedContent));
+
+        ByteBuffer storedContent = resourceStore.read(uniqueId);
+
+        if(storedContent == null)
+            throw new FileDatabaseInternalException("Mismatch is record.src file entries and data directory entries.");
+
+        ByteBuffer content = resourceCompressor.decompress(
+                Checksums.unframe(storedContent, "resource " + uniqueId, verifyChecksum));
+        byte[] contentCopy = new byte[content.remaining()];
+        content.duplicate().get(contentCopy);
+        resourceCache.put(uniqueId, contentCopy);
+
+        return deserialize(ByteBuffer.wrap(contentCopy));
+    }
+
+    /**
+     * This is a private method that serializes many resources in parallel on the common fork-join pool.
+     * @param entries the resources to be serialized
+     * @return the serialized resources in the order of the entries
+     * @throws IOException if a resource could not be serialized
+     */
+    private byte[][] serializeAll(List<ResourceEntry> entries) throws IOException {
+        byte[][] contents = new byte[entries.size()][];
+
+        try {
+            IntStream.range(0, contents.length).parallel().forEach(i -> {
+                try {
+                    contents[i] = serialize(entries.get(i).resource(), binarySerialization);
+                }
+                catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            });
+        }
+        catch (UncheckedIOException exception) {
+            throw exception.getCause();
+        }
+
+        return contents;
+    }
+
+    /**
+     * This is a private method that serializes a resource.
+     * @param resource the resource to be serialized
+     * @param binary whether the resource is encoded with its ResourceCodec, if one is registered for its class
+     * @return the serialized resource
+     * @throws IOException if the resource could not be serialized
+     */
+    private static byte[] serialize(Object resource, boolean binary) throws IOException {
+        if(binary) {
+            byte[] encodedResource = ResourceCodecs.encode(resource);
+
+            if(encodedResource != null)
+                return encodedResource;
+        }
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        ObjectOutputStream resourceWriter = new ObjectOutputStream(content);
+        resourceWriter.writeObject(resource);
+        resourceWriter.close();
+
+        return content.toByteArray();
+    }
+
+    /**
+     * This is a private method that deserializes a resource directly from the buffer returned by the store.
+     * The resource is decoded with its ResourceCodec if it was written in the binary form.
+     * @param content the serialized resource
+     * @return the resource
+     * @throws IOException if the resource could not be deserialized
+     * @throws ClassNotFoundException if the class of the resource is not found
+     */
+    private static Object deserialize(ByteBuffer content) throws IOException, ClassNotFoundException {
+        if(ResourceCodecs.isEncoded(content))
+            return ResourceCodecs.decode(content);
+
+        ObjectInputStream resourceReader = new ObjectInputStream(new ByteBufferInputStream(content));
+        Object resource = resourceReader.readObject();
+        resourceReader.close();
+
+        return resource;
+    }
+
+    /**
+     * The constructor opens an existing partition, loads its records in memory and replays its record.log files.
+     * FileDatabase.openPartition() should be used to get a partition instead.
+     * @param name the name of the partition, which is the name of its LogicalPartition
+     * @param path the full path of the partition directory
+     * @param capacity the maximum number of resources in the partition
+     * @param checkpointSize the size of the record.log file in bytes after which a checkpoint is done
+     * @param fsyncPolicy the policy for forcing the record.log file to the disk
+     * @param fsyncIntervalMillis the interval between two forces of the record.log file for the INTERVAL policy
+     * @param resourceStore the store of the content of the resources
+     * @param binarySerialization whether resources with a registered ResourceCodec are written in the binary form
+     * @param resourceCompressor the compressor of the resources
+     * @param resourceCacheSize the number of recently used resources kept in memory, 0 for none
+     * @param verifyChecksums whether the checksums of the resources read from the store are verified by default
+     * @param treeRecords whether the records are kept in the record.tree file instead of the record.ser file
+     * @param mappedReads whether the record.ser file is read through memory mapping
+     * @throws IOException if the record.ser or record.log files could not be read
+     * @throws ClassNotFoundException if the class is not found during deserialization of the records
+     */
+    Partition(String name, String path, int capacity, long checkpointSize,
+              FsyncPolicy fsyncPolicy, long fsyncIntervalMillis, ResourceStore resourceStore,
+              boolean binarySerialization, ResourceCompressor resourceCompressor,
+              int resourceCacheSize, boolean verifyChecksums, boolean treeRecords, boolean mappedReads)
+            throws IOException, ClassNotFoundException {
+        this.name = name;
+        this.path = path;
+        this.capacity = capacity;
+        this.checkpointSize = checkpointSize;
+        this.fsyncPolicy = fsyncPolicy;
+        this.resourceStore = resourceStore;
+        this.binarySerialization = binarySerialization;
+        this.resourceCompressor = resourceCompressor;
+        this.resourceCache = new ResourceCache(resourceCacheSize);
+        this.verifyChecksums = verifyChecksums;
+        this.recordIndex = treeRecords ? RecordTree.open(path) : RecordIndex.read(path, mappedReads);
+
+        RecordLog.replay(new File(path + "/record.log.old"), recordIndex);
+        RecordLog.replay(new File(path + "/record.log"), recordIndex);
+        this.recordLog = new RecordLog(new File(path + "/record.log"));
+
+        if(fsyncPolicy == FsyncPolicy.INTERVAL) {
+            this.syncTask = FileDatabase.background().scheduleWithFixedDelay(() -> {
+                try {
+                    syncChanges();
+                }
+                catch (IOException | RuntimeException exception) {
+                    failInBackground(exception);
+                }
+            }, fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
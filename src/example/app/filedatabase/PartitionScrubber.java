@@ -0,0 +1,231 @@
+package example.app.filedatabase;
+
+import example.app.filedatabase.Exceptions.ChecksumMismatchException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serial;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <h1>Class PartitionScrubber</h1>
+ * This class checks the consistency of the sub-partitions of a partition and rebuilds their records from the stored
+ * resources. The records of a sub-partition are compared with the unique ids in its store, then every stored
+ * resource is read and deserialized in parallel on a fork-join pool with one thread per processor. The unique ids
+ * are split in halves until a chunk is small enough to be read by one task, so the idle threads steal the remaining
+ * halves. A resource which does not match its checksum or could not be deserialized is reported instead of
+ * stopping the check. The checksums alone can be verified the same way, without deserializing the resources.
+ * The results of every checked sub-partition are added to one ScrubReport or VerifyReport.
+ */
+final class PartitionScrubber implements Closeable {
+    private static final int CHUNK_SIZE = 256;
+
+    /**
+     * <h1>Interface StoredResourceReader</h1>
+     * This interface reads and deserializes one stored resource.
+     */
+    private interface StoredResourceReader {
+        Object read(String uniqueId) throws IOException, ClassNotFoundException;
+    }
+
+    /**
+     * <h1>Interface ResourceVisitor</h1>
+     * This interface receives every resource that was deserialized. It's called by several threads at once.
+     */
+    private interface ResourceVisitor {
+        void visit(String uniqueId, Object resource);
+    }
+
+    /**
+     * <h1>Record StoredRecord</h1>
+     * This record is the record of a resource taken from its stored content while the records are rebuilt.
+     * @param key the key of the resource
+     * @param uniqueId the unique identifier of the resource
+     * @param fingerprint the hashCode() of the resource
+     */
+    private record StoredRecord(Object key, String uniqueId, int fingerprint) {
+    }
+
+    /**
+     * <h1>Class ReadTask</h1>
+     * This class reads and deserializes the stored resources of a range of unique ids. A range larger than
+     * CHUNK_SIZE is split in two tasks.
+     */
+    private final class ReadTask extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final String[] uniqueIds;
+        private final int from;
+        private final int to;
+        private final StoredResourceReader reader;
+        private final ResourceVisitor visitor;
+
+        @Override
+        protected void compute() {
+            if(to - from > CHUNK_SIZE) {
+                int middle = (from + to) >>> 1;
+
+                invokeAll(new ReadTask(uniqueIds, from, middle, reader, visitor),
+                        new ReadTask(uniqueIds, middle, to, reader, visitor));
+                return;
+            }
+
+            for(int i = from; i < to; i++) {
+                try {
+                    Object resource = reader.read(uniqueIds[i]);
+
+                    // The resource was removed since the unique ids were listed
+                    if(resource != null)
+                        visitor.visit(uniqueIds[i], resource);
+                }
+                catch (ChecksumMismatchException exception) {
+                    corrupt.add(uniqueIds[i]);
+                }
+                catch (Exception exception) {
+                    undeserializable.add(uniqueIds[i]);
+                }
+            }
+        }
+
+        /**
+         * The constructor creates a task for a range of unique ids.
+         * @param uniqueIds the unique ids of all the stored resources
+         * @param from the first index of the range, inclusive
+         * @param to the last index of the range, exclusive
+         * @param reader the reader of the stored resources
+         * @param visitor the receiver of the deserialized resources
+         */
+        private ReadTask(String[] uniqueIds, int from, int to, StoredResourceReader reader, ResourceVisitor visitor) {
+            this.uniqueIds = uniqueIds;
+            this.from = from;
+            this.to = to;
+            this.reader = reader;
+            this.visitor = visitor;
+        }
+    }
+
+    private final String partitionName;
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private final ArrayList<String> orphans = new ArrayList<>();
+    private final ArrayList<String> danglingRecords = new ArrayList<>();
+    private final ConcurrentLinkedQueue<String> corrupt = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<String> undeserializable = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger resourcesWithoutChecksum = new AtomicInteger();
+    private int checkedResources = 0;
+    private boolean recordsRebuilt = false;
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * This method checks an open sub-partition: its records are compared with its store and every stored resource
+     * is deserialized. The sub-partition stays usable during the check.
+     * @param subPartition the sub-partition to be checked
+     * @throws IOException if the records or the store could not be listed
+     */
+    void scrub(Partition subPartition) throws IOException {
+        Set<String> storedIds = subPartition.compareRecordsWithStore(orphans, danglingRecords);
+
+        readAll(storedIds, subPartition::readStored, (uniqueId, resource) -> {});
+    }
+
+    /**
+     * This method verifies the checksum of every stored resource of an open sub-partition, without decompressing or
+     * deserializing the resources, so it's bound by the speed of the disk only.
+     * @param subPartition the sub-partition to be verified
+     * @throws IOException if the store could not be listed
+     */
+    void verify(Partition subPartition) throws IOException {
+        readAll(subPartition.storedIds(), subPartition::verifyStored, (uniqueId, hasChecksum) -> {
+            if(!((Boolean) hasChecksum))
+                resourcesWithoutChecksum.incrementAndGet();
+        });
+    }
+
+    /**
+     * This method replaces the records of a closed sub-partition with records built from its stored resources.
+     * Resources which do not match their checksum, could not be deserialized or whose key could not be extracted
+     * get no record and are reported. The record.log files and the record.tree file are deleted, so the sub-partition
+     * is opened from the new record.ser file only.
+     * @param partitionPath the full path of the sub-partition directory
+     * @param resourceStore the store of the sub-partition
+     * @param resourceCompressor the compressor of the sub-partition
+     * @param keyExtractor the extractor of the key of every resource
+     * @throws IOException if the store could not be listed or the record files could not be written
+     */
+    void rebuild(String partitionPath, ResourceStore resourceStore, ResourceCompressor resourceCompressor,
+                 RecordKeyExtractor keyExtractor) throws IOException {
+        ConcurrentLinkedQueue<StoredRecord> storedRecords = new ConcurrentLinkedQueue<>();
+
+        readAll(resourceStore.ids(),
+                uniqueId -> Partition.readStored(resourceStore, resourceCompressor, uniqueId),
+                (uniqueId, resource) ->
+                        storedRecords.add(new StoredRecord(keyExtractor.keyOf(resource), uniqueId, resource.hashCode())));
+
+        RecordIndex recordIndex = new RecordIndex();
+
+        for(StoredRecord storedRecord : storedRecords)
+            recordIndex.put(storedRecord.key(), storedRecord.uniqueId(), storedRecord.fingerprint());
+
+        // The old changes must not be replayed over the new records
+        for(String fileName : new String[] {"record.log", "record.log.old", "record.tree", "record.tree.journal"})
+            Files.deleteIfExists(new File(partitionPath + "/" + fileName).toPath());
+
+        recordIndex.write(new File(partitionPath + "/record.ser"));
+        recordsRebuilt = true;
+    }
+
+    /**
+     * This method returns the results of every sub-partition checked so far.
+     * @return the report of the partition
+     */
+    ScrubReport report() {
+        return new ScrubReport(partitionName, checkedResources, new ArrayList<>(orphans),
+                new ArrayList<>(danglingRecords), new ArrayList<>(corrupt), new ArrayList<>(undeserializable),
+                recordsRebuilt);
+    }
+
+    /**
+     * This method returns the results of every sub-partition verified so far.
+     * @return the report of the partition
+     */
+    VerifyReport verifyReport() {
+        // Without deserializing, a resource can only fail by not being readable
+        ArrayList<String> unreadable = new ArrayList<>(corrupt);
+        unreadable.addAll(undeserializable);
+
+        return new VerifyReport(partitionName, checkedResources, resourcesWithoutChecksum.get(), unreadable);
+    }
+
+    /**
+     * This is a private method that reads every stored resource of a sub-partition on the fork-join pool.
+     * @param storedIds the unique ids of the stored resources
+     * @param reader the reader of the stored resources
+     * @param visitor the receiver of the deserialized resources
+     */
+    private void readAll(Set<String> storedIds, StoredResourceReader reader, ResourceVisitor visitor) {
+        String[] uniqueIds = storedIds.toArray(new String[0]);
+
+        pool.invoke(new ReadTask(uniqueIds, 0, uniqueIds.length, reader, visitor));
+        checkedResources += uniqueIds.length;
+    }
+
+    /**
+     * The constructor creates a scrubber for the sub-partitions of a partition and starts its fork-join pool.
+     * It has to be closed once the check is done.
+     * @param partitionName the name of the partition
+     */
+    PartitionScrubber(String partitionName) {
+        this.partitionName = partitionName;
+    }
+}
@@ -0,0 +1,11 @@
+package example.app.filedatabase;
+
+/**
+ * <h1>Record RecordEntry</h1>
+ * This record is one record of a partition without its resource, written with FileDatabase.addRecords() or read
+ * with FileDatabase.getPageOfRecords().
+ * @param keyForRecord the key of the record. This will be used for sorting
+ * @param uniqueId the unique identifier of the record
+ */
+public record RecordEntry(Object keyForRecord, String uniqueId) {
+}
@@ -0,0 +1,460 @@
+package example.app.filedatabase;
+
+import example.app.filedatabase.Exceptions.ChecksumMismatchException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * <h1>Class RecordIndex</h1>
+ * This class represents the records of a partition, which is what the record.ser file stores. It keeps the records
+ * in two directions:
+ * <ul>
+ *     <li>Ordered: The records sorted by the key of the resource and then by its unique id. Since the unique id is
+ *     part of the order, two resources with the same key do not overwrite each other</li>
+ *     <li>By id: The key of every resource by its unique id, so that a resource is found or removed without
+ *     scanning the records</li>
+ *     <li>By fingerprint: The unique ids of the resources by their fingerprint, which is the hashCode() of the
+ *     resource. Equal resources have the same fingerprint, so a duplicate of a resource can only be one of the
+ *     resources with its fingerprint</li>
+ * </ul>
+ * Only the ordered records and their fingerprints are written when the index is serialized, the other directions
+ * are rebuilt while reading. Records from before the fingerprints were added have no fingerprint until it's set.
+ * A record.ser file of an older version, which contains a TreeMap from the keys to the unique ids, can still be read
+ * with fromRecordFile(). This is the RecordStore of the partitions with the memory record index.
+ * <br>
+ * A checkpoint does not copy the records. While its writer runs, every change first saves the record it replaces in
+ * an undo log, so the writer reads the current records and takes the saved record for every resource that changed
+ * since the checkpoint. Taking the records for a checkpoint only starts the undo log.
+ */
+final class RecordIndex implements RecordStore, Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    private static final int FORMAT_WITH_FINGERPRINTS = -1;
+
+    /**
+     * <h1>Record RecordKey</h1>
+     * This record represents the position of a resource in the ordered records.
+     * @param key the key of the resource, used for sorting
+     * @param uniqueId the unique identifier of the resource, used for sorting resources with the same key
+     */
+    record RecordKey(Object key, String uniqueId) implements Comparable<RecordKey> {
+        @Override
+        @SuppressWarnings("unchecked")
+        public int compareTo(RecordKey other) {
+            int comparison = ((Comparable<Object>) key).compareTo(other.key);
+
+            return comparison != 0 ? comparison : uniqueId.compareTo(other.uniqueId);
+        }
+    }
+
+    /**
+     * <h1>Record SavedRecord</h1>
+     * This record represents the record of a resource as it was when a checkpoint was taken.
+     * @param recordKey the position of the resource or null if it had no record
+     * @param fingerprint the fingerprint of the resource or null if it was not known
+     */
+    private record SavedRecord(RecordKey recordKey, Integer fingerprint) {
+    }
+
+    // The ordered records and the fingerprints are read by the writer of a checkpoint while they change
+    private transient ConcurrentSkipListSet<RecordKey> ordered = new ConcurrentSkipListSet<>();
+    private transient HashMap<String, RecordKey> byId = new HashMap<>();
+    private transient ConcurrentHashMap<String, Integer> fingerprints = new ConcurrentHashMap<>();
+    private transient HashMap<Integer, HashSet<String>> byFingerprint = new HashMap<>();
+    private transient HashSet<String> withoutFingerprint = new HashSet<>();
+    private transient volatile ConcurrentHashMap<String, SavedRecord> undoLog;
+    private transient List<SavedRecord> checkpointRecords;
+
+    /**
+     * This method returns the number of records.
+     * @return the number of records
+     */
+    @Override
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * This method checks if a resource has a record.
+     * @param uniqueId the unique identifier of the resource
+     * @return true if the resource has a record, false otherwise
+     */
+    @Override
+    public boolean contains(Object uniqueId) {
+        return byId.containsKey(uniqueId);
+    }
+
+    /**
+     * This method returns the key of a resource.
+     * @param uniqueId the unique identifier of the resource
+     * @return the key of the resource or null if it has no record
+     */
+    @Override
+    public Object keyOf(String uniqueId) {
+        RecordKey recordKey = byId.get(uniqueId);
+
+        return recordKey == null ? null : recordKey.key();
+    }
+
+    /**
+     * This method returns the fingerprint of a resource.
+     * @param uniqueId the unique identifier of the resource
+     * @return the fingerprint of the resource or null if it's not known
+     */
+    @Override
+    public Integer fingerprintOf(String uniqueId) {
+        return fingerprints.get(uniqueId);
+    }
+
+    /**
+     * This method returns the unique ids of the resources with a fingerprint.
+     * @param fingerprint the fingerprint
+     * @return a copy of the unique ids of the resources with the fingerprint
+     */
+    @Override
+    public HashSet<String> idsWithFingerprint(int fingerprint) {
+        HashSet<String> uniqueIds = byFingerprint.get(fingerprint);
+
+        return uniqueIds == null ? new HashSet<>() : new HashSet<>(uniqueIds);
+    }
+
+    /**
+     * This method returns the unique ids of the resources whose fingerprint is not known.
+     * @return a copy of the unique ids of the resources without a fingerprint
+     */
+    @Override
+    public HashSet<String> idsWithoutFingerprint() {
+        return new HashSet<>(withoutFingerprint);
+    }
+
+    /**
+     * This method adds or replaces the record of a resource.
+     * @param key the key of the resource
+     * @param uniqueId the unique identifier of the resource
+     * @param fingerprint the fingerprint of the resource or null if it's not known
+     */
+    @Override
+    public void put(Object key, String uniqueId, Integer fingerprint) {
+        saveForCheckpoint(uniqueId);
+
+        RecordKey recordKey = new RecordKey(key, uniqueId);
+        RecordKey oldRecordKey = byId.put(uniqueId, recordKey);
+
+        if(oldRecordKey != null) {
+            ordered.remove(oldRecordKey);
+            removeFingerprint(uniqueId);
+        }
+
+        ordered.add(recordKey);
+
+        if(fingerprint == null)
+            withoutFingerprint.add(uniqueId);
+        else {
+            fingerprints.put(uniqueId, fingerprint);
+            byFingerprint.computeIfAbsent(fingerprint, ignored -> new HashSet<>()).add(uniqueId);
+        }
+    }
+
+    /**
+     * This method removes the record of a resource.
+     * @param uniqueId the unique identifier of the resource
+     * @return true if the resource had a record, false otherwise
+     */
+    @Override
+    public boolean remove(String uniqueId) {
+        saveForCheckpoint(uniqueId);
+
+        RecordKey recordKey = byId.remove(uniqueId);
+
+        if(recordKey == null)
+            return false;
+
+        ordered.remove(recordKey);
+        removeFingerprint(uniqueId);
+        return true;
+    }
+
+    /**
+     * This is a private method that saves the record of a resource in the undo log before its first change since
+     * the checkpoint that's being written. Nothing is saved while no checkpoint is written.
+     * @param uniqueId the unique identifier of the resource
+     */
+    private void saveForCheckpoint(String uniqueId) {
+        ConcurrentHashMap<String, SavedRecord> currentUndoLog = undoLog;
+
+        if(currentUndoLog != null && !currentUndoLog.containsKey(uniqueId))
+            currentUndoLog.put(uniqueId, new SavedRecord(byId.get(uniqueId), fingerprints.get(uniqueId)));
+    }
+
+    /**
+     * This is a private method that removes the fingerprint of a resource.
+     * @param uniqueId the unique identifier of the resource
+     */
+    private void removeFingerprint(String uniqueId) {
+        withoutFingerprint.remove(uniqueId);
+        Integer fingerprint = fingerprints.remove(uniqueId);
+
+        if(fingerprint != null) {
+            HashSet<String> uniqueIds = byFingerprint.get(fingerprint);
+            uniqueIds.remove(uniqueId);
+
+            if(uniqueIds.isEmpty())
+                byFingerprint.remove(fingerprint);
+        }
+    }
+
+    /**
+     * This method returns the unique ids of all the resources.
+     * @return the unique ids, sorted by themselves
+     */
+    @Override
+    public TreeSet<Object> ids() {
+        return new TreeSet<>(byId.keySet());
+    }
+
+    @Override
+    public ArrayList<String> idsBetween(Object fromKey, Object toKey) {
+        ArrayList<String> ids = new ArrayList<>();
+        // The empty unique id comes before every other one with the same key
+        NavigableSet<RecordKey> range = fromKey == null ? ordered : ordered.tailSet(new RecordKey(fromKey, ""), true);
+
+        for(RecordKey recordKey : range) {
+            if(toKey != null && new RecordKey(recordKey.key(), "").compareTo(new RecordKey(toKey, "")) > 0)
+                break;
+
+            ids.add(recordKey.uniqueId());
+        }
+
+        return ids;
+    }
+
+    @Override
+    public ArrayList<RecordKey> page(RecordKey after, boolean descending, int limit) {
+        ArrayList<RecordKey> page = new ArrayList<>();
+        NavigableSet<RecordKey> range;
+
+        if(descending)
+            range = after == null ? ordered.descendingSet() : ordered.headSet(after, false).descendingSet();
+        else
+            range = after == null ? ordered : ordered.tailSet(after, false);
+
+        for(RecordKey recordKey : range) {
+            if(page.size() >= limit)
+                break;
+
+            page.add(recordKey);
+        }
+
+        return page;
+    }
+
+    @Override
+    public CheckpointWriter checkpoint(String partitionPath) {
+        ConcurrentHashMap<String, SavedRecord> checkpointUndoLog = new ConcurrentHashMap<>();
+        undoLog = checkpointUndoLog;
+
+        return () -> {
+            try {
+                RecordIndex snapshot = new RecordIndex();
+                snapshot.checkpointRecords = recordsAtCheckpoint(checkpointUndoLog);
+                snapshot.write(new File(partitionPath + "/record.ser"));
+            }
+            finally {
+                undoLog = null;
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * This method returns the records in order of their keys.
+     * @return an unmodifiable view of the ordered records
+     */
+    NavigableSet<RecordKey> ordered() {
+        return Collections.unmodifiableNavigableSet(ordered);
+    }
+
+    /**
+     * This is a private method that reads the records as they were when a checkpoint was taken, while they change.
+     * A record that's read before its first change is the one of the checkpoint. Every other record of the
+     * checkpoint was saved in the undo log before it changed, so it's taken from there.
+     * @param checkpointUndoLog the undo log started by the checkpoint
+     * @return the records of the checkpoint in the order of their keys
+     */
+    private List<SavedRecord> recordsAtCheckpoint(ConcurrentHashMap<String, SavedRecord> checkpointUndoLog) {
+        ArrayList<SavedRecord> records = new ArrayList<>();
+
+        for(RecordKey recordKey : ordered) {
+            Integer fingerprint = fingerprints.get(recordKey.uniqueId());
+
+            // A change saves the record before it changes anything, so the record read before is unchanged
+            if(!checkpointUndoLog.containsKey(recordKey.uniqueId()))
+                records.add(new SavedRecord(recordKey, fingerprint));
+        }
+
+        HashMap<String, SavedRecord> changedRecords = new HashMap<>(checkpointUndoLog);
+
+        if(changedRecords.isEmpty())
+            return records;
+
+        records.removeIf(record -> changedRecords.containsKey(record.recordKey().uniqueId()));
+
+        for(SavedRecord changedRecord : changedRecords.values()) {
+            if(changedRecord.recordKey() != null)
+                records.add(changedRecord);
+        }
+
+        records.sort(Comparator.comparing(SavedRecord::recordKey));
+        return records;
+    }
+
+    /**
+     * This method converts the object read from a record.ser file to an index.
+     * @param records the object read from the record.ser file. Either a RecordIndex or, for an older version of the
+     *                file, a TreeMap from the keys to the unique ids
+     * @return the index
+     * @throws InvalidClassException if the object is neither of both
+     */
+    static RecordIndex fromRecordFile(Object records) throws InvalidClassException {
+        if(records instanceof RecordIndex recordIndex)
+            return recordIndex;
+
+        if(records instanceof TreeMap<?, ?> recordMap) {
+            RecordIndex recordIndex = new RecordIndex();
+
+            for(Map.Entry<?, ?> record : recordMap.entrySet())
+                recordIndex.put(record.getKey(), record.getValue().toString(), null);
+
+            return recordIndex;
+        }
+
+        throw new InvalidClassException(records.getClass().getName(), "is not a record index");
+    }
+
+    /**
+     * This method reads the records of a partition from its record.ser file, either with plain reads or through a
+     * memory mapping of the file. If the partition has a record.tree file, because it used the btree record index
+     * before, the records are taken from it instead, written to the record.ser file and the record.tree file is
+     * deleted. The checksum of the file is verified before the records are deserialized.
+     * @param partitionPath the full path of the partition directory
+     * @param mapped whether the file is read through memory mapping
+     * @return the records of the partition
+     * @throws IOException if the record.ser file could not be read
+     * @throws ChecksumMismatchException if the record.ser file does not match its checksum
+     * @throws ClassNotFoundException if the class is not found during deserialization of the record.ser file
+     */
+    static RecordIndex read(String partitionPath, boolean mapped) throws IOException, ClassNotFoundException {
+        File treeFile = new File(partitionPath + "/record.tree");
+
+        if(treeFile.exists()) {
+            RecordTree recordTree = RecordTree.open(partitionPath);
+            RecordIndex recordIndex = recordTree.toRecordIndex();
+            recordTree.close();
+
+            recordIndex.write(new File(partitionPath + "/record.ser"));
+            Files.delete(treeFile.toPath());
+            return recordIndex;
+        }
+
+        ByteBuffer recordFileContent;
+
+        if(mapped) {
+            try(FileChannel channel = FileChannel.open(Path.of(partitionPath, "record.ser"), StandardOpenOption.READ)) {
+                recordFileContent = new MappedFile(channel).all();
+            }
+        }
+        else
+            recordFileContent = ByteBuffer.wrap(Files.readAllBytes(Path.of(partitionPath, "record.ser")));
+
+        ByteBuffer serializedRecords = Checksums.unframe(recordFileContent,
+                "record.ser at \"" + partitionPath + "\"", true);
+        ObjectInputStream recordFileReader = new ObjectInputStream(new ByteBufferInputStream(serializedRecords));
+        Object records = recordFileReader.readObject();
+        recordFileReader.close();
+
+        return fromRecordFile(records);
+    }
+
+    /**
+     * This method writes the records to a record.ser file, framed with their checksum. The file is written to a
+     * temporary file, forced and then atomically renamed over the record.ser file.
+     * @param recordFile the record.ser file
+     * @throws IOException if the record.ser file could not be written
+     */
+    void write(File recordFile) throws IOException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        ObjectOutputStream recordFileWriter = new ObjectOutputStream(records);
+        recordFileWriter.writeObject(this);
+        recordFileWriter.close();
+
+        DurableFile.replace(recordFile, true, stream -> Checksums.writeFramed(stream, records.toByteArray()));
+    }
+
+    @Serial
+    private void writeObject(ObjectOutputStream stream) throws IOException {
+        List<SavedRecord> records = checkpointRecords;
+
+        if(records == null) {
+            records = new ArrayList<>(ordered.size());
+
+            for(RecordKey recordKey : ordered)
+                records.add(new SavedRecord(recordKey, fingerprints.get(recordKey.uniqueId())));
+        }
+
+        stream.defaultWriteObject();
+        stream.writeInt(FORMAT_WITH_FINGERPRINTS);
+        stream.writeInt(records.size());
+
+        for(SavedRecord record : records) {
+            RecordKey recordKey = record.recordKey();
+            Integer fingerprint = record.fingerprint();
+
+            stream.writeObject(recordKey.key());
+            stream.writeUTF(recordKey.uniqueId());
+            stream.writeBoolean(fingerprint != null);
+            stream.writeInt(fingerprint == null ? 0 : fingerprint);
+        }
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        ordered = new ConcurrentSkipListSet<>();
+        byId = new HashMap<>();
+        fingerprints = new ConcurrentHashMap<>();
+        byFingerprint = new HashMap<>();
+        withoutFingerprint = new HashSet<>();
+
+        // Before the fingerprints were added, the size was written first
+        int format = stream.readInt();
+        boolean hasFingerprints = format == FORMAT_WITH_FINGERPRINTS;
+        int size = hasFingerprints ? stream.readInt() : format;
+
+        for(int i = 0; i < size; i++) {
+            Object key = stream.readObject();
+            String uniqueId = stream.readUTF();
+            Integer fingerprint = null;
+
+            if(hasFingerprints) {
+                boolean fingerprintKnown = stream.readBoolean();
+                int value = stream.readInt();
+
+                if(fingerprintKnown)
+                    fingerprint = value;
+            }
+
+            put(key, uniqueId, fingerprint);
+        }
+    }
+}
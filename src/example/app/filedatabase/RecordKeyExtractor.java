@@ -0,0 +1,16 @@
+package example.app.filedatabase;
+
+/**
+ * <h1>Interface RecordKeyExtractor</h1>
+ * This interface returns the key of the record of a resource, the same key that was given when the resource was
+ * added. It's used to rebuild the records of a partition from its stored resources, when the record.ser file is lost
+ * or corrupt.
+ */
+public interface RecordKeyExtractor {
+    /**
+     * This method returns the key of the record of a resource.
+     * @param resource the deserialized resource
+     * @return the key of the resource, used for sorting
+     */
+    Object keyOf(Object resource);
+}
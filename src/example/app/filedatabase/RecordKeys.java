@@ -0,0 +1,149 @@
+package example.app.filedatabase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InvalidClassException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * <h1>Class RecordKeys</h1>
+ * This class encodes the keys of the records to bytes, whose unsigned order is the same as the order of the keys.
+ * It's used by the RecordTree. Every encoded key starts with a byte for its type, followed by:
+ * <ul>
+ *     <li>LocalDateTime: The seconds since the epoch in UTC and the nanoseconds</li>
+ *     <li>Integer and Long: The number</li>
+ *     <li>UUID: The most and the least significant bits</li>
+ *     <li>String: The UTF-16 code units big-endian, in which every byte 0x00 is written as 0x00 0xFF, ended by
+ *     0x00 0x01</li>
+ * </ul>
+ * Numbers are written big-endian with the sign bit flipped, so negative numbers come first. No encoded key is the
+ * start of another one, so bytes appended to an encoded key do not change the order of the keys. Strings are
+ * written as UTF-16 code units, like String.compareTo() compares them, so the RecordTree and the RecordIndex keep
+ * the same order of the keys.
+ */
+final class RecordKeys {
+    private static final byte LOCAL_DATE_TIME = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte UUID_KEY = 4;
+    private static final byte STRING = 5;
+
+    /**
+     * This method encodes a key.
+     * @param key the key
+     * @return the encoded key
+     * @throws InvalidClassException if the type of the key is not supported
+     */
+    static byte[] encode(Object key) throws InvalidClassException {
+        if(key instanceof LocalDateTime dateTime)
+            return ByteBuffer.allocate(13).put(LOCAL_DATE_TIME)
+                    .putLong(dateTime.toEpochSecond(ZoneOffset.UTC) ^ Long.MIN_VALUE)
+                    .putInt(dateTime.getNano()).array();
+
+        if(key instanceof Integer number)
+            return ByteBuffer.allocate(5).put(INTEGER).putInt(number ^ Integer.MIN_VALUE).array();
+
+        if(key instanceof Long number)
+            return ByteBuffer.allocate(9).put(LONG).putLong(number ^ Long.MIN_VALUE).array();
+
+        if(key instanceof UUID uuid)
+            return ByteBuffer.allocate(17).put(UUID_KEY)
+                    .putLong(uuid.getMostSignificantBits() ^ Long.MIN_VALUE)
+                    .putLong(uuid.getLeastSignificantBits() ^ Long.MIN_VALUE).array();
+
+        if(key instanceof String string) {
+            ByteArrayOutputStream encodedKey = new ByteArrayOutputStream(2 * string.length() + 3);
+            encodedKey.write(STRING);
+
+            for(int i = 0; i < string.length(); i++) {
+                char character = string.charAt(i);
+
+                writeEscaped(encodedKey, character >>> 8);
+                writeEscaped(encodedKey, character & 0xFF);
+            }
+
+            encodedKey.write(0);
+            encodedKey.write(1);
+            return encodedKey.toByteArray();
+        }
+
+        throw new InvalidClassException(key.getClass().getName(), "is not supported as a key of the record tree");
+    }
+
+    /**
+     * This method decodes a key and moves the position of the buffer past it.
+     * @param encodedKey the buffer positioned at the start of the encoded key
+     * @return the key
+     * @throws StreamCorruptedException if the buffer does not hold a valid encoded key
+     */
+    static Object decode(ByteBuffer encodedKey) throws StreamCorruptedException {
+        byte type = encodedKey.get();
+
+        switch(type) {
+            case LOCAL_DATE_TIME:
+                return LocalDateTime.ofEpochSecond(encodedKey.getLong() ^ Long.MIN_VALUE, encodedKey.getInt(),
+                        ZoneOffset.UTC);
+            case INTEGER:
+                return encodedKey.getInt() ^ Integer.MIN_VALUE;
+            case LONG:
+                return encodedKey.getLong() ^ Long.MIN_VALUE;
+            case UUID_KEY:
+                return new UUID(encodedKey.getLong() ^ Long.MIN_VALUE, encodedKey.getLong() ^ Long.MIN_VALUE);
+            case STRING:
+                StringBuilder string = new StringBuilder();
+
+                while(true) {
+                    int high = readEscaped(encodedKey);
+
+                    if(high < 0)
+                        return string.toString();
+
+                    int low = readEscaped(encodedKey);
+
+                    if(low < 0)
+                        throw new StreamCorruptedException("An encoded string key ends in the middle of a character");
+
+                    string.append((char) (high << 8 | low));
+                }
+            default:
+                throw new StreamCorruptedException("Unknown type " + type + " of an encoded key");
+        }
+    }
+
+    /**
+     * This is a private method that writes a byte of an encoded string, with 0x00 written as 0x00 0xFF.
+     * @param encodedKey the encoded key
+     * @param value the byte
+     */
+    private static void writeEscaped(ByteArrayOutputStream encodedKey, int value) {
+        encodedKey.write(value);
+
+        if(value == 0)
+            encodedKey.write(0xFF);
+    }
+
+    /**
+     * This is a private method that reads a byte of an encoded string.
+     * @param encodedKey the buffer positioned at the byte
+     * @return the byte from 0 to 255, or -1 if the string ends there
+     * @throws StreamCorruptedException if 0x00 is followed by neither 0xFF nor 0x01
+     */
+    private static int readEscaped(ByteBuffer encodedKey) throws StreamCorruptedException {
+        int value = encodedKey.get() & 0xFF;
+
+        if(value != 0)
+            return value;
+
+        byte escape = encodedKey.get();
+
+        if(escape == 1)
+            return -1;
+        if(escape != (byte) 0xFF)
+            throw new StreamCorruptedException("Unknown escape " + escape + " in an encoded string key");
+
+        return 0;
+    }
+}
@@ -0,0 +1,223 @@
+package example.app.filedatabase;
+
+import java.io.*;
+
+/**
+ * <h1>Class RecordLog</h1>
+ * This class represents the append-only log of a partition, stored next to the record.ser file as record.log.
+ * Instead of rewriting the whole record.ser file on every change, only the change itself is appended to the log.
+ * <br>
+ * Structure of an entry in the log:
+ * <ul>
+ *     <li>Put: the byte 'P', the length of the serialized key, the serialized key and the unique id of the resource</li>
+ *     <li>Put with fingerprint: the byte 'A', followed by the same fields as a put and the fingerprint of the
+ *     resource</li>
+ *     <li>Remove: the byte 'R' and the unique id of the resource</li>
+ * </ul>
+ * When the partition is opened, the entries of the log are replayed on top of the records from record.ser.
+ * A checkpoint writes all the records to a fresh record.ser file, after which the old entries are not needed anymore.
+ * <br>
+ * Appending an entry only hands it to the operating system. The entries are forced to the disk with sync(). If many
+ * writers call sync() at the same time, the first one forces the entries of all of them with a single fsync and the
+ * others return without forcing again (group commit).
+ */
+final class RecordLog {
+    private static final byte PUT = 'P';
+    private static final byte PUT_WITH_FINGERPRINT = 'A';
+    private static final byte REMOVE = 'R';
+
+    private final FileOutputStream fileStream;
+    private final DataOutputStream writer;
+    private final Object syncLock = new Object();
+    private volatile long size;
+    private long syncedSize;
+    private boolean closed = false;
+
+    /**
+     * Getter for the size of the log file in bytes
+     * @return the size of the log file
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * This method appends a put entry to the log.
+     * @param key the key of the resource in the records
+     * @param uniqueId the unique identifier of the resource
+     * @param fingerprint the fingerprint of the resource or null if it's not known
+     * @return the size of the log after the entry, to be passed to sync()
+     * @throws IOException if the entry could not be written
+     */
+    long appendPut(Object key, String uniqueId, Integer fingerprint) throws IOException {
+        ByteArrayOutputStream keyBytes = new ByteArrayOutputStream();
+        ObjectOutputStream keyWriter = new ObjectOutputStream(keyBytes);
+        keyWriter.writeObject(key);
+        keyWriter.close();
+
+        writer.writeByte(fingerprint == null ? PUT : PUT_WITH_FINGERPRINT);
+        writer.writeInt(keyBytes.size());
+        keyBytes.writeTo(writer);
+        writer.writeUTF(uniqueId);
+        if(fingerprint != null)
+            writer.writeInt(fingerprint);
+        return flush();
+    }
+
+    /**
+     * This method appends a remove entry to the log.
+     * @param uniqueId the unique identifier of the removed resource
+     * @return the size of the log after the entry, to be passed to sync()
+     * @throws IOException if the entry could not be written
+     */
+    long appendRemove(String uniqueId) throws IOException {
+        writer.writeByte(REMOVE);
+        writer.writeUTF(uniqueId);
+        return flush();
+    }
+
+    /**
+     * This is a private method that pushes the written entries to the file and updates the size of the log.
+     * @return the size of the log
+     * @throws IOException if the entries could not be written
+     */
+    private long flush() throws IOException {
+        writer.flush();
+        size = fileStream.getChannel().position();
+        return size;
+    }
+
+    /**
+     * This method forces the log to the disk up to at least the given size. If another writer has already forced
+     * the log past that size while this one was waiting, nothing is forced again.
+     * @param position the size of the log returned by an append
+     * @throws IOException if the log could not be forced
+     */
+    void sync(long position) throws IOException {
+        synchronized(syncLock) {
+            if(closed || syncedSize >= position)
+                return;
+
+            long target = size;
+            fileStream.getChannel().force(false);
+            syncedSize = target;
+        }
+    }
+
+    /**
+     * This method forces everything appended so far to the disk.
+     * @throws IOException if the log could not be forced
+     */
+    void sync() throws IOException {
+        sync(size);
+    }
+
+    /**
+     * This method closes the log. After that nothing can be appended to it.
+     * @param force whether the log should be forced to the disk before closing
+     * @throws IOException if the log could not be closed
+     */
+    void close(boolean force) throws IOException {
+        synchronized(syncLock) {
+            if(closed) return;
+
+            writer.flush();
+            if(force)
+                fileStream.getChannel().force(false);
+
+            closed = true;
+            writer.close();
+        }
+    }
+
+    /**
+     * This method replays the entries of a log file on top of the given records. An incomplete entry at the end of
+     * the file, which is left by a crash in the middle of a write, is ignored and cut off from the file.
+     * @param file the log file to be replayed
+     * @param records the records on which the entries are applied
+     * @throws IOException if the log file could not be read
+     * @throws ClassNotFoundException if the class of a key is not found during deserialization
+     */
+    static void replay(File file, RecordStore records) throws IOException, ClassNotFoundException {
+        if(!file.exists()) return;
+
+        long validLength = 0;
+        CountingInputStream counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+        try(DataInputStream reader = new DataInputStream(counter)) {
+            while(true) {
+                byte operation = reader.readByte();
+
+                if(operation == PUT || operation == PUT_WITH_FINGERPRINT) {
+                    byte[] keyBytes = new byte[reader.readInt()];
+                    reader.readFully(keyBytes);
+                    String uniqueId = reader.readUTF();
+                    Integer fingerprint = operation == PUT_WITH_FINGERPRINT ? reader.readInt() : null;
+
+                    ObjectInputStream keyReader = new ObjectInputStream(new ByteArrayInputStream(keyBytes));
+                    Object key = keyReader.readObject();
+                    keyReader.close();
+
+                    records.put(key, uniqueId, fingerprint);
+                }
+                else if(operation == REMOVE) {
+                    String uniqueId = reader.readUTF();
+
+                    records.remove(uniqueId);
+                }
+                else
+                    break;
+
+                validLength = counter.count;
+            }
+        }
+        catch (EOFException ignored) {
+            // The end of the log or an incomplete entry has been reached
+        }
+
+        if(validLength < file.length()) {
+            try(RandomAccessFile logFile = new RandomAccessFile(file, "rw")) {
+                logFile.setLength(validLength);
+            }
+        }
+    }
+
+    /**
+     * <h1>Class CountingInputStream</h1>
+     * This is a private class that counts the bytes read from the underlying stream, so that the length of the
+     * complete entries in the log is known.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if(value != -1) count++;
+            return value;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if(read > 0) count += read;
+            return read;
+        }
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+    }
+
+    /**
+     * The constructor opens a log file for appending. The file is created if it does not exist.
+     * @param file the log file
+     * @throws IOException if the log file could not be opened
+     */
+    RecordLog(File file) throws IOException {
+        this.fileStream = new FileOutputStream(file, true);
+        this.writer = new DataOutputStream(new BufferedOutputStream(fileStream));
+        this.size = file.length();
+        this.syncedSize = this.size;
+    }
+}
@@ -0,0 +1,133 @@
+package example.app.filedatabase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.TreeSet;
+
+/**
+ * <h1>Interface RecordStore</h1>
+ * This interface represents the records of a partition: the key and the fingerprint of every resource by its unique
+ * id, and the unique ids in the order of their keys. There are two implementations, chosen with the "record_index"
+ * key in the database.config file:
+ * <ul>
+ *     <li>RecordIndex: The records are kept in memory and written to the record.ser file at every checkpoint</li>
+ *     <li>RecordTree: The records are kept in B+trees in the record.tree file. Only the pages that are used are
+ *     loaded and only the changed pages are written at every checkpoint</li>
+ * </ul>
+ * The changes between two checkpoints are in the record.log file in both cases.
+ * The methods are not synchronized, the Partition holds its lock while using them.
+ */
+interface RecordStore {
+    /**
+     * <h1>Interface CheckpointWriter</h1>
+     * This interface writes the records taken by checkpoint() to the disk.
+     */
+    interface CheckpointWriter {
+        void write() throws IOException;
+    }
+
+    /**
+     * This method returns the number of records.
+     * @return the number of records
+     */
+    int size();
+
+    /**
+     * This method checks if a resource has a record.
+     * @param uniqueId the unique identifier of the resource
+     * @return true if the resource has a record, false otherwise
+     * @throws IOException if the records could not be read
+     */
+    boolean contains(Object uniqueId) throws IOException;
+
+    /**
+     * This method returns the key of a resource.
+     * @param uniqueId the unique identifier of the resource
+     * @return the key of the resource or null if it has no record
+     * @throws IOException if the records could not be read
+     */
+    Object keyOf(String uniqueId) throws IOException;
+
+    /**
+     * This method returns the fingerprint of a resource.
+     * @param uniqueId the unique identifier of the resource
+     * @return the fingerprint of the resource or null if it's not known
+     * @throws IOException if the records could not be read
+     */
+    Integer fingerprintOf(String uniqueId) throws IOException;
+
+    /**
+     * This method returns the unique ids of the resources with a fingerprint.
+     * @param fingerprint the fingerprint
+     * @return a copy of the unique ids of the resources with the fingerprint
+     * @throws IOException if the records could not be read
+     */
+    HashSet<String> idsWithFingerprint(int fingerprint) throws IOException;
+
+    /**
+     * This method returns the unique ids of the resources whose fingerprint is not known.
+     * @return a copy of the unique ids of the resources without a fingerprint
+     * @throws IOException if the records could not be read
+     */
+    HashSet<String> idsWithoutFingerprint() throws IOException;
+
+    /**
+     * This method adds or replaces the record of a resource.
+     * @param key the key of the resource
+     * @param uniqueId the unique identifier of the resource
+     * @param fingerprint the fingerprint of the resource or null if it's not known
+     * @throws IOException if the records could not be read or the key is not supported
+     */
+    void put(Object key, String uniqueId, Integer fingerprint) throws IOException;
+
+    /**
+     * This method removes the record of a resource.
+     * @param uniqueId the unique identifier of the resource
+     * @return true if the resource had a record, false otherwise
+     * @throws IOException if the records could not be read
+     */
+    boolean remove(String uniqueId) throws IOException;
+
+    /**
+     * This method returns the unique ids of all the resources.
+     * @return the unique ids, sorted by themselves
+     * @throws IOException if the records could not be read
+     */
+    TreeSet<Object> ids() throws IOException;
+
+    /**
+     * This method returns the unique ids of the resources whose keys are in a range, in the order of their keys.
+     * @param fromKey the smallest key, inclusive, or null for no lower bound
+     * @param toKey the largest key, inclusive, or null for no upper bound
+     * @return the unique ids in the order of the keys
+     * @throws IOException if the records could not be read or the keys are not supported
+     */
+    ArrayList<String> idsBetween(Object fromKey, Object toKey) throws IOException;
+
+    /**
+     * This method returns a page of records in the order of their keys and then their unique ids, starting right
+     * after a position, for keyset pagination.
+     * @param after the position of the last record of the previous page, or null for the first page
+     * @param descending whether the records are in the reverse order
+     * @param limit the largest number of records in the page
+     * @return the records of the page
+     * @throws IOException if the records could not be read or the keys are not supported
+     */
+    ArrayList<RecordIndex.RecordKey> page(RecordIndex.RecordKey after, boolean descending, int limit) throws IOException;
+
+    /**
+     * This method takes the records for a checkpoint. It's called while the records are not changed, the returned
+     * writer is called after the changes continue.
+     * @param partitionPath the full path of the partition directory
+     * @return the writer of the taken records
+     * @throws IOException if the records could not be taken
+     */
+    CheckpointWriter checkpoint(String partitionPath) throws IOException;
+
+    /**
+     * This method closes the records. Changes since the last checkpoint are only kept by the record.log file.
+     * @throws IOException if the records could not be closed
+     */
+    void close() throws IOException;
+}
@@ -0,0 +1,320 @@
+package example.app.filedatabase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.TreeSet;
+
+/**
+ * <h1>Class RecordTree</h1>
+ * This class keeps the records of a partition in three BPlusTrees in the record.tree file:
+ * <ul>
+ *     <li>Ordered: The encoded key of every resource followed by its unique id, so the records are sorted by the key
+ *     and then by the unique id. A range of keys is read by scanning only the leaves of that range</li>
+ *     <li>By id: The unique id of every resource, with its encoded key and its fingerprint as the value</li>
+ *     <li>By fingerprint: Whether the fingerprint is known, the fingerprint and the unique id of every resource</li>
+ * </ul>
+ * The keys are encoded with RecordKeys. A checkpoint writes only the pages changed since the last checkpoint.
+ * When the file does not exist yet, it's built from the record.ser file of the partition.
+ */
+final class RecordTree implements RecordStore {
+    private static final int ORDERED = 0;
+    private static final int BY_ID = 1;
+    private static final int BY_FINGERPRINT = 2;
+    private static final byte[] EMPTY = new byte[0];
+    private static final byte[] UNKNOWN_FINGERPRINT = {0};
+    private static final byte[] KNOWN_FINGERPRINT = {1};
+
+    private final PageFile pageFile;
+    private final BPlusTree ordered;
+    private final BPlusTree byId;
+    private final BPlusTree byFingerprint;
+
+    @Override
+    public int size() {
+        return (int) byId.size();
+    }
+
+    @Override
+    public boolean contains(Object uniqueId) throws IOException {
+        return byId.get(bytes(uniqueId.toString())) != null;
+    }
+
+    @Override
+    public Object keyOf(String uniqueId) throws IOException {
+        byte[] record = byId.get(bytes(uniqueId));
+
+        return record == null ? null : RecordKeys.decode(ByteBuffer.wrap(record));
+    }
+
+    @Override
+    public Integer fingerprintOf(String uniqueId) throws IOException {
+        byte[] record = byId.get(bytes(uniqueId));
+
+        return record == null ? null : fingerprint(record);
+    }
+
+    @Override
+    public HashSet<String> idsWithFingerprint(int fingerprint) throws IOException {
+        return idsWithPrefix(fingerprintKey(fingerprint, EMPTY));
+    }
+
+    @Override
+    public HashSet<String> idsWithoutFingerprint() throws IOException {
+        return idsWithPrefix(UNKNOWN_FINGERPRINT);
+    }
+
+    @Override
+    public void put(Object key, String uniqueId, Integer fingerprint) throws IOException {
+        byte[] id = bytes(uniqueId);
+        byte[] encodedKey = RecordKeys.encode(key);
+
+        if(encodedKey.length + id.length + 5 > BPlusTree.MAX_ENTRY_SIZE)
+            throw new IOException("Key of the resource with id " + uniqueId + " is too large for the record tree");
+
+        removeEntries(id, byId.get(id));
+
+        ByteBuffer record = ByteBuffer.allocate(encodedKey.length + 5).put(encodedKey);
+
+        if(fingerprint == null)
+            record.put((byte) 0).putInt(0);
+        else
+            record.put((byte) 1).putInt(fingerprint);
+
+        byId.put(id, record.array());
+        ordered.put(concat(encodedKey, id), EMPTY);
+        byFingerprint.put(fingerprint == null ? concat(UNKNOWN_FINGERPRINT, id) : fingerprintKey(fingerprint, id), EMPTY);
+    }
+
+    @Override
+    public boolean remove(String uniqueId) throws IOException {
+        byte[] id = bytes(uniqueId);
+        byte[] record = byId.get(id);
+
+        if(record == null)
+            return false;
+
+        removeEntries(id, record);
+        byId.remove(id);
+        return true;
+    }
+
+    @Override
+    public TreeSet<Object> ids() throws IOException {
+        TreeSet<Object> ids = new TreeSet<>();
+
+        byId.scan(null, null, (id, record) -> {
+            ids.add(new String(id, StandardCharsets.UTF_8));
+            return true;
+        });
+
+        return ids;
+    }
+
+    @Override
+    public ArrayList<String> idsBetween(Object fromKey, Object toKey) throws IOException {
+        ArrayList<String> ids = new ArrayList<>();
+        byte[] from = fromKey == null ? null : RecordKeys.encode(fromKey);
+        // No byte of a unique id is 0xFF, so this ends after every id with the last key
+        byte[] to = toKey == null ? null : concat(RecordKeys.encode(toKey), new byte[] {(byte) 0xFF});
+
+        ordered.scan(from, to, (orderedKey, empty) -> {
+            ByteBuffer buffer = ByteBuffer.wrap(orderedKey);
+            RecordKeys.decode(buffer);
+            ids.add(StandardCharsets.UTF_8.decode(buffer).toString());
+            return true;
+        });
+
+        return ids;
+    }
+
+    @Override
+    public ArrayList<RecordIndex.RecordKey> page(RecordIndex.RecordKey after, boolean descending, int limit)
+            throws IOException {
+        ArrayList<RecordIndex.RecordKey> page = new ArrayList<>();
+        byte[] position = after == null ? null : concat(RecordKeys.encode(after.key()), bytes(after.uniqueId()));
+        BPlusTree.EntryVisitor visitor = (orderedKey, empty) -> {
+            if(page.size() >= limit)
+                return false;
+
+            // The scan upwards starts at the position itself, which belongs to the previous page
+            if(position != null && Arrays.equals(orderedKey, position))
+                return true;
+
+            ByteBuffer buffer = ByteBuffer.wrap(orderedKey);
+            Object key = RecordKeys.decode(buffer);
+            page.add(new RecordIndex.RecordKey(key, StandardCharsets.UTF_8.decode(buffer).toString()));
+            return true;
+        };
+
+        if(limit <= 0)
+            return page;
+
+        if(descending)
+            ordered.scanDescending(position, visitor);
+        else
+            ordered.scan(position, null, visitor);
+
+        return page;
+    }
+
+    @Override
+    public CheckpointWriter checkpoint(String partitionPath) {
+        PageFile.Flush flush = pageFile.snapshot();
+
+        return () -> pageFile.flush(flush);
+    }
+
+    @Override
+    public void close() throws IOException {
+        pageFile.close();
+    }
+
+    /**
+     * This method copies the records into a RecordIndex, which is used to go back from the record.tree file to the
+     * record.ser file.
+     * @return the records in memory
+     * @throws IOException if the records could not be read
+     */
+    RecordIndex toRecordIndex() throws IOException {
+        RecordIndex recordIndex = new RecordIndex();
+
+        byId.scan(null, null, (id, record) -> {
+            recordIndex.put(RecordKeys.decode(ByteBuffer.wrap(record)), new String(id, StandardCharsets.UTF_8),
+                    fingerprint(record));
+            return true;
+        });
+
+        return recordIndex;
+    }
+
+    /**
+     * This method opens the record.tree file of a partition. If it does not exist, it's built from the records in
+     * the record.ser file first. The tree is built in a temporary file, which is renamed into place once it's
+     * complete.
+     * @param partitionPath the full path of the partition directory
+     * @return the records of the partition
+     * @throws IOException if the record.tree or record.ser file could not be read or written
+     * @throws ClassNotFoundException if the class is not found during deserialization of the record.ser file
+     */
+    static RecordTree open(String partitionPath) throws IOException, ClassNotFoundException {
+        File treeFile = new File(partitionPath + "/record.tree");
+
+        if(!treeFile.exists()) {
+            File temporaryFile = new File(partitionPath + "/record.tree.tmp");
+            Files.deleteIfExists(temporaryFile.toPath());
+
+            RecordTree recordTree = new RecordTree(new PageFile(temporaryFile));
+            RecordIndex recordIndex = RecordIndex.read(partitionPath, false);
+
+            for(RecordIndex.RecordKey recordKey : recordIndex.ordered())
+                recordTree.put(recordKey.key(), recordKey.uniqueId(), recordIndex.fingerprintOf(recordKey.uniqueId()));
+
+            recordTree.checkpoint(partitionPath).write();
+            recordTree.close();
+
+            Files.move(temporaryFile.toPath(), treeFile.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            DurableFile.forceDirectory(treeFile.getAbsoluteFile().getParentFile());
+        }
+
+        return new RecordTree(new PageFile(treeFile));
+    }
+
+    /**
+     * This is a private method that removes the ordered and the fingerprint entries of a record.
+     * @param id the unique id of the resource as bytes
+     * @param record the value of the record in the tree by id, or null if there's none
+     * @throws IOException if the records could not be read
+     */
+    private void removeEntries(byte[] id, byte[] record) throws IOException {
+        if(record == null)
+            return;
+
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        RecordKeys.decode(buffer);
+
+        ordered.remove(concat(Arrays.copyOf(record, buffer.position()), id));
+
+        Integer fingerprint = fingerprint(record);
+        byFingerprint.remove(fingerprint == null ? concat(UNKNOWN_FINGERPRINT, id) : fingerprintKey(fingerprint, id));
+    }
+
+    /**
+     * This is a private method that collects the unique ids of the entries by fingerprint with a prefix.
+     * @param prefix the prefix of the entries
+     * @return the unique ids
+     * @throws IOException if the records could not be read
+     */
+    private HashSet<String> idsWithPrefix(byte[] prefix) throws IOException {
+        HashSet<String> ids = new HashSet<>();
+
+        byFingerprint.scan(prefix, BPlusTree.prefixEnd(prefix), (fingerprintKey, empty) -> {
+            ids.add(new String(fingerprintKey, prefix.length, fingerprintKey.length - prefix.length,
+                    StandardCharsets.UTF_8));
+            return true;
+        });
+
+        return ids;
+    }
+
+    /**
+     * This is a private method that returns the fingerprint stored at the end of the value of a record.
+     * @param record the value of the record in the tree by id
+     * @return the fingerprint or null if it's not known
+     */
+    private static Integer fingerprint(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record, record.length - 5, 5);
+
+        return buffer.get() == 0 ? null : buffer.getInt();
+    }
+
+    /**
+     * This is a private method that builds the key of an entry by fingerprint.
+     * @param fingerprint the known fingerprint
+     * @param id the unique id of the resource as bytes, or no bytes for the prefix of the fingerprint
+     * @return the key of the entry
+     */
+    private static byte[] fingerprintKey(int fingerprint, byte[] id) {
+        return ByteBuffer.allocate(5 + id.length).put(KNOWN_FINGERPRINT).putInt(fingerprint).put(id).array();
+    }
+
+    /**
+     * This is a private method that joins two arrays of bytes.
+     * @param first the first bytes
+     * @param second the bytes appended to the first
+     * @return the joined bytes
+     */
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+
+        return joined;
+    }
+
+    /**
+     * This is a private method that encodes a unique id.
+     * @param uniqueId the unique id
+     * @return the UTF-8 bytes of the unique id
+     */
+    private static byte[] bytes(String uniqueId) {
+        return uniqueId.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The constructor opens the trees in a page file.
+     * @param pageFile the page file
+     */
+    private RecordTree(PageFile pageFile) {
+        this.pageFile = pageFile;
+        this.ordered = new BPlusTree(pageFile, ORDERED);
+        this.byId = new BPlusTree(pageFile, BY_ID);
+        this.byFingerprint = new BPlusTree(pageFile, BY_FINGERPRINT);
+    }
+}
@@ -0,0 +1,76 @@
+package example.app.filedatabase;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <h1>Class ResourceCache</h1>
+ * This class keeps the serialized content of the recently used resources of a partition in memory, so reading them
+ * again does not need the ResourceStore. The content is kept instead of the resources themselves, because the
+ * callers are free to change the resources they get. The least recently used content is dropped once the cache holds
+ * more resources than its capacity. A capacity of 0 turns the cache off.
+ */
+final class ResourceCache {
+    private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int capacity;
+
+    /**
+     * This method returns the cached content of a resource.
+     * @param uniqueId the unique identifier of the resource
+     * @return the serialized resource or null if it's not cached
+     */
+    synchronized byte[] get(String uniqueId) {
+        return capacity == 0 ? null : entries.get(uniqueId);
+    }
+
+    /**
+     * This method caches the content of a resource.
+     * @param uniqueId the unique identifier of the resource
+     * @param content the serialized resource, which must not be changed afterwards
+     */
+    synchronized void put(String uniqueId, byte[] content) {
+        if(capacity == 0)
+            return;
+
+        entries.put(uniqueId, content);
+        trim();
+    }
+
+    /**
+     * This method drops the content of a resource from the cache.
+     * @param uniqueId the unique identifier of the resource
+     */
+    synchronized void remove(String uniqueId) {
+        entries.remove(uniqueId);
+    }
+
+    /**
+     * Setter for the number of resources the cache holds. Reducing it drops the least recently used content.
+     * @param capacity the number of resources, 0 turns the cache off
+     */
+    synchronized void setCapacity(int capacity) {
+        this.capacity = capacity;
+        trim();
+    }
+
+    /**
+     * This is a private method that drops the least recently used content until the capacity is respected.
+     */
+    private void trim() {
+        Iterator<Map.Entry<String, byte[]>> iterator = entries.entrySet().iterator();
+
+        while(entries.size() > capacity && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * The constructor creates an empty cache.
+     * @param capacity the number of resources the cache holds, 0 turns the cache off
+     */
+    ResourceCache(int capacity) {
+        this.capacity = capacity;
+    }
+}
@@ -0,0 +1,52 @@
+package example.app.filedatabase;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * <h1>Interface ResourceCodec</h1>
+ * This interface represents a hand written binary encoder and decoder for one type of resource. A resource with a
+ * registered codec is stored in a compact binary form instead of with Java serialization, when the serialization of
+ * its partition is set to binary. See ResourceCodecs for the framing around the encoded resource.
+ * @param <T> type of the resources encoded by the codec
+ */
+public interface ResourceCodec<T> {
+    /**
+     * This method returns the type of the resources encoded by the codec. Only resources of exactly this class
+     * are encoded with it.
+     * @return the class of the resources
+     */
+    Class<T> type();
+
+    /**
+     * This method returns the identifier of the type, which is stored with every encoded resource. It must be
+     * unique among the registered codecs and must never change.
+     * @return the identifier of the type
+     */
+    int typeId();
+
+    /**
+     * This method returns the version of the encoding, which is stored with every encoded resource.
+     * It has to be increased whenever the encoding changes, so that older resources can still be decoded.
+     * @return the version of the encoding
+     */
+    int version();
+
+    /**
+     * This method encodes a resource.
+     * @param resource the resource to be encoded
+     * @param output the output to which the resource is written
+     * @throws IOException if the resource could not be written
+     */
+    void encode(T resource, DataOutput output) throws IOException;
+
+    /**
+     * This method decodes a resource.
+     * @param input the input from which the resource is read
+     * @param version the version of the encoding with which the resource was written
+     * @return the decoded resource
+     * @throws IOException if the resource could not be read
+     */
+    T decode(DataInput input, int version) throws IOException;
+}
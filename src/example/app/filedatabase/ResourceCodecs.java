@@ -0,0 +1,246 @@
+package example.app.filedatabase;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <h1>Class ResourceCodecs</h1>
+ * This class keeps the registered ResourceCodecs and frames the resources encoded with them.
+ * <br>
+ * Structure of an encoded resource:
+ * <ul>
+ *     <li>The byte 0xB1, which can never start a Java serialization stream (it always starts with 0xAC)</li>
+ *     <li>The type identifier of the codec as a short</li>
+ *     <li>The version of the encoding as a byte</li>
+ *     <li>The resource, as written by the codec</li>
+ * </ul>
+ * It also provides the methods the codecs use for the common values: UUIDs as two longs, dates as epoch seconds and
+ * nanoseconds, and strings as length-prefixed UTF-8.
+ */
+public final class ResourceCodecs {
+    private static final byte MAGIC = (byte) 0xB1;
+    private static final ConcurrentHashMap<Class<?>, ResourceCodec<?>> codecsByType = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Integer, ResourceCodec<?>> codecsByTypeId = new ConcurrentHashMap<>();
+
+    /**
+     * This method registers a codec. Registering the same codec again does nothing.
+     * @param codec the codec to be registered
+     * @throws IllegalArgumentException if another codec is already registered with the same type identifier
+     */
+    public static void register(ResourceCodec<?> codec) {
+        ResourceCodec<?> registeredCodec = codecsByTypeId.putIfAbsent(codec.typeId(), codec);
+
+        if(registeredCodec != null && registeredCodec != codec)
+            throw new IllegalArgumentException("Type id " + codec.typeId() + " is already registered for " +
+                    registeredCodec.type().getName());
+
+        codecsByType.put(codec.type(), codec);
+    }
+
+    /**
+     * This method encodes a resource with the codec registered for its class.
+     * @param resource the resource to be encoded
+     * @return the encoded resource or null if no codec is registered for its class
+     * @throws IOException if the resource could not be encoded
+     */
+    @SuppressWarnings("unchecked")
+    static byte[] encode(Object resource) throws IOException {
+        ResourceCodec<Object> codec = (ResourceCodec<Object>) codecsByType.get(resource.getClass());
+
+        if(codec == null)
+            return null;
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(content);
+        output.writeByte(MAGIC);
+        output.writeShort(codec.typeId());
+        output.writeByte(codec.version());
+        codec.encode(resource, output);
+        output.flush();
+
+        return content.toByteArray();
+    }
+
+    /**
+     * This method checks if a stored resource was encoded with a codec.
+     * @param content the stored resource. Its position is not moved
+     * @return true if it was encoded with a codec, false if it was written with Java serialization
+     */
+    static boolean isEncoded(ByteBuffer content) {
+        return content.hasRemaining() && content.get(content.position()) == MAGIC;
+    }
+
+    /**
+     * This method decodes a resource that was encoded with a codec.
+     * @param content the stored resource
+     * @return the decoded resource
+     * @throws IOException if the resource could not be decoded or no codec is registered for its type
+     */
+    static Object decode(ByteBuffer content) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteBufferInputStream(content));
+
+        if(input.readByte() != MAGIC)
+            throw new StreamCorruptedException("Resource was not encoded with a codec");
+
+        int typeId = input.readShort();
+        int version = input.readByte();
+        ResourceCodec<?> codec = codecsByTypeId.get(typeId);
+
+        if(codec == null)
+            throw new InvalidClassException("No codec is registered for the type id " + typeId);
+
+        return decode(codec, input, version);
+    }
+
+    /**
+     * This method writes a resource that is part of another resource, together with the version of its codec.
+     * @param output the output
+     * @param codec the codec of the embedded resource
+     * @param value the embedded resource
+     * @param <T> type of the embedded resource
+     * @throws IOException if the value could not be written
+     */
+    public static <T> void writeEmbedded(DataOutput output, ResourceCodec<T> codec, T value) throws IOException {
+        output.writeByte(codec.version());
+        codec.encode(value, output);
+    }
+
+    /**
+     * This method reads a resource written by writeEmbedded().
+     * @param input the input
+     * @param codec the codec of the embedded resource
+     * @param <T> type of the embedded resource
+     * @return the embedded resource
+     * @throws IOException if the value could not be read
+     */
+    public static <T> T readEmbedded(DataInput input, ResourceCodec<T> codec) throws IOException {
+        return decode(codec, input, input.readByte());
+    }
+
+    /**
+     * This is a private method that decodes a resource after checking that the codec knows its version.
+     * @param codec the codec of the resource
+     * @param input the input
+     * @param version the version with which the resource was written
+     * @param <T> type of the resource
+     * @return the resource
+     * @throws IOException if the resource could not be read or was written by a newer version of the codec
+     */
+    private static <T> T decode(ResourceCodec<T> codec, DataInput input, int version) throws IOException {
+        if(version < 1 || version > codec.version())
+            throw new InvalidClassException(codec.type().getName(), "Unknown version " + version + " of the codec");
+
+        return codec.decode(input, version);
+    }
+
+    /**
+     * This method writes a UUID as two longs.
+     * @param output the output
+     * @param value the UUID to be written
+     * @throws IOException if the value could not be written
+     */
+    public static void writeUUID(DataOutput output, UUID value) throws IOException {
+        output.writeLong(value.getMostSignificantBits());
+        output.writeLong(value.getLeastSignificantBits());
+    }
+
+    /**
+     * This method reads a UUID written by writeUUID().
+     * @param input the input
+     * @return the UUID
+     * @throws IOException if the value could not be read
+     */
+    public static UUID readUUID(DataInput input) throws IOException {
+        return new UUID(input.readLong(), input.readLong());
+    }
+
+    /**
+     * This method writes a date as its seconds since the epoch in UTC and its nanoseconds.
+     * @param output the output
+     * @param value the date to be written
+     * @throws IOException if the value could not be written
+     */
+    public static void writeDateTime(DataOutput output, LocalDateTime value) throws IOException {
+        output.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+        output.writeInt(value.getNano());
+    }
+
+    /**
+     * This method reads a date written by writeDateTime().
+     * @param input the input
+     * @return the date
+     * @throws IOException if the value could not be read
+     */
+    public static LocalDateTime readDateTime(DataInput input) throws IOException {
+        return LocalDateTime.ofEpochSecond(input.readLong(), input.readInt(), ZoneOffset.UTC);
+    }
+
+    /**
+     * This method writes a string as its length in bytes followed by its UTF-8 bytes. A null string is written as
+     * the length -1.
+     * @param output the output
+     * @param value the string to be written or null
+     * @throws IOException if the value could not be written
+     */
+    public static void writeString(DataOutput output, String value) throws IOException {
+        if(value == null) {
+            output.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * This method reads a string written by writeString().
+     * @param input the input
+     * @return the string or null
+     * @throws IOException if the value could not be read
+     */
+    public static String readString(DataInput input) throws IOException {
+        byte[] bytes = readBytes(input);
+
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * This method writes an array of bytes with its length in front. A null array is written as the length -1.
+     * @param output the output
+     * @param value the bytes to be written or null
+     * @throws IOException if the value could not be written
+     */
+    public static void writeBytes(DataOutput output, byte[] value) throws IOException {
+        if(value == null) {
+            output.writeInt(-1);
+            return;
+        }
+
+        output.writeInt(value.length);
+        output.write(value);
+    }
+
+    /**
+     * This method reads an array of bytes written by writeBytes().
+     * @param input the input
+     * @return the bytes or null
+     * @throws IOException if the value could not be read
+     */
+    public static byte[] readBytes(DataInput input) throws IOException {
+        int length = input.readInt();
+
+        if(length < 0)
+            return null;
+
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+
+        return bytes;
+    }
+}
@@ -0,0 +1,207 @@
+package example.app.filedatabase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * <h1>Class ResourceCompressor</h1>
+ * This class compresses the serialized resources of a partition with Deflater at the boundary to its ResourceStore.
+ * <br>
+ * Structure of a compressed resource:
+ * <ul>
+ *     <li>The byte 0xC7, which neither starts a Java serialization stream nor a ResourceCodec frame</li>
+ *     <li>The length of the uncompressed resource as an int</li>
+ *     <li>The deflate stream of the resource</li>
+ * </ul>
+ * The first resources of a partition are compressed on their own and kept as samples. Once enough samples are
+ * collected, they are joined into a preset dictionary, which is written to the compression.dict file of the
+ * partition and used for all the later resources. Small resources repeat the same names and embedded records, so the
+ * dictionary makes them compress much better. The dictionary never changes after it's written, and the deflate
+ * stream tells which dictionary it needs, so every resource stays readable. A resource that does not get smaller is
+ * stored uncompressed. Uncompressed resources are always readable, even when the compression is turned off later.
+ */
+final class ResourceCompressor {
+    private static final byte MAGIC = (byte) 0xC7;
+    private static final int SAMPLE_COUNT = 32;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private final File dictionaryFile;
+    private final boolean enabled;
+    private final int level;
+    private final ArrayList<byte[]> samples = new ArrayList<>();
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+    private final AtomicLong storedBytes = new AtomicLong();
+    private volatile byte[] dictionary;
+
+    /**
+     * This method compresses a serialized resource, if the compression is enabled.
+     * Calls have to be serialized by the caller, because the samples for the dictionary are collected here.
+     * @param content the serialized resource
+     * @return the content to be stored
+     * @throws IOException if the dictionary could not be written
+     */
+    byte[] compress(byte[] content) throws IOException {
+        if(!enabled)
+            return content;
+
+        if(dictionary == null)
+            collectSample(content);
+
+        byte[] compressedContent = deflate(content, dictionary);
+        byte[] storedContent = compressedContent.length < content.length ? compressedContent : content;
+
+        uncompressedBytes.addAndGet(content.length);
+        storedBytes.addAndGet(storedContent.length);
+        return storedContent;
+    }
+
+    /**
+     * This method decompresses a stored resource. Resources that were stored uncompressed are returned as they are.
+     * @param content the stored resource
+     * @return the serialized resource
+     * @throws IOException if the resource is corrupted or needs a dictionary that is not present
+     */
+    ByteBuffer decompress(ByteBuffer content) throws IOException {
+        if(!content.hasRemaining() || content.get(content.position()) != MAGIC)
+            return content;
+
+        ByteBuffer compressedContent = content.duplicate();
+        compressedContent.get();
+        byte[] uncompressedContent = new byte[compressedContent.getInt()];
+        Inflater inflater = new Inflater();
+
+        try {
+            inflater.setInput(compressedContent);
+            int length = inflater.inflate(uncompressedContent);
+
+            if(inflater.needsDictionary()) {
+                byte[] presetDictionary = dictionary;
+
+                if(presetDictionary == null)
+                    throw new StreamCorruptedException("Resource needs the compression.dict file, which is missing");
+
+                inflater.setDictionary(presetDictionary);
+                length += inflater.inflate(uncompressedContent, length, uncompressedContent.length - length);
+            }
+
+            if(length != uncompressedContent.length || !inflater.finished())
+                throw new StreamCorruptedException("Compressed resource is truncated");
+        }
+        catch (DataFormatException | IllegalArgumentException exception) {
+            throw new StreamCorruptedException("Compressed resource is corrupted: " + exception.getMessage());
+        }
+        finally {
+            inflater.end();
+        }
+
+        return ByteBuffer.wrap(uncompressedContent);
+    }
+
+    /**
+     * This method returns the compression ratio of the resources written since the partition was opened.
+     * @return the uncompressed size divided by the stored size, or 1 if nothing was compressed
+     */
+    double ratio() {
+        long stored = storedBytes.get();
+
+        return stored == 0 ? 1 : (double) uncompressedBytes.get() / stored;
+    }
+
+    /**
+     * This method returns the size of the resources written since the partition was opened, before compression.
+     * @return the number of bytes
+     */
+    long uncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    /**
+     * This method returns the size of the resources written since the partition was opened, as they are stored.
+     * @return the number of bytes
+     */
+    long storedBytes() {
+        return storedBytes.get();
+    }
+
+    /**
+     * This is a private method that keeps a resource as a sample and writes the dictionary once enough samples are
+     * collected.
+     * @param content the serialized resource
+     * @throws IOException if the dictionary could not be written
+     */
+    private void collectSample(byte[] content) throws IOException {
+        samples.add(content);
+
+        if(samples.size() < SAMPLE_COUNT)
+            return;
+
+        // Deflate reaches back at most 32 KiB, so only the end of the dictionary is useful. The samples are
+        // spread evenly over it, with the earlier ones furthest away.
+        ByteArrayOutputStream trainedDictionary = new ByteArrayOutputStream();
+        int sampleSize = DICTIONARY_SIZE / samples.size();
+
+        for(byte[] sample : samples)
+            trainedDictionary.write(sample, 0, Math.min(sample.length, sampleSize));
+
+        byte[] newDictionary = trainedDictionary.toByteArray();
+        DurableFile.replace(dictionaryFile, true, newDictionary);
+        samples.clear();
+        dictionary = newDictionary;
+    }
+
+    /**
+     * This is a private method that deflates a resource and frames it.
+     * @param content the serialized resource
+     * @param presetDictionary the preset dictionary or null
+     * @return the compressed resource
+     */
+    private byte[] deflate(byte[] content, byte[] presetDictionary) {
+        Deflater deflater = new Deflater(level);
+        ByteArrayOutputStream compressedContent = new ByteArrayOutputStream(content.length / 2 + 16);
+        byte[] buffer = new byte[4096];
+
+        try {
+            if(presetDictionary != null)
+                deflater.setDictionary(presetDictionary);
+
+            deflater.setInput(content);
+            deflater.finish();
+
+            compressedContent.write(MAGIC);
+            compressedContent.write(ByteBuffer.allocate(4).putInt(content.length).array(), 0, 4);
+
+            while(!deflater.finished())
+                compressedContent.write(buffer, 0, deflater.deflate(buffer));
+        }
+        finally {
+            deflater.end();
+        }
+
+        return compressedContent.toByteArray();
+    }
+
+    /**
+     * The constructor loads the dictionary of the partition, if one was written.
+     * @param dictionaryFile the compression.dict file of the partition
+     * @param enabled whether new resources are compressed
+     * @param level the level of the compression, from 1 for the fastest to 9 for the smallest
+     * @throws IOException if the dictionary could not be read
+     */
+    ResourceCompressor(File dictionaryFile, boolean enabled, int level) throws IOException {
+        this.dictionaryFile = dictionaryFile;
+        this.enabled = enabled;
+        this.level = level;
+
+        if(dictionaryFile.exists())
+            this.dictionary = Files.readAllBytes(dictionaryFile.toPath());
+    }
+}
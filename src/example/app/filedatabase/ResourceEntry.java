@@ -0,0 +1,12 @@
+package example.app.filedatabase;
+
+/**
+ * <h1>Record ResourceEntry</h1>
+ * This record is one resource of a bulk write with FileDatabase.addResources(), with the same values that
+ * FileDatabase.addResource() takes for a single resource.
+ * @param keyForRecord the key of the resource in the records. This will be used for sorting
+ * @param uniqueId the unique identifier of the resource
+ * @param resource the resource to be added
+ */
+public record ResourceEntry(Object keyForRecord, String uniqueId, Object resource) {
+}
@@ -0,0 +1,96 @@
+package example.app.filedatabase;
+
+import example.app.filedatabase.Exceptions.FileDatabaseInternalException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * <h1>Class ResourceSpliterator</h1>
+ * This class traverses the resources of a partition lazily, in the order of their keys. Only the unique ids are
+ * listed when the traversal starts; every resource is read and deserialized when it's reached, so a traversal that
+ * stops early never reads the rest. The unique ids are split in halves, so a parallel stream reads and deserializes
+ * the resources on several threads.
+ * <br>
+ * The traversal is weakly consistent: a resource removed after the unique ids were listed is skipped and a resource
+ * added after that is not reached. Since a Spliterator can not throw checked exceptions, a resource that could not
+ * be read throws an UncheckedIOException, and a class that is not found or a mismatch between the records and the
+ * data directory throws an IllegalStateException with the original exception as its cause.
+ */
+final class ResourceSpliterator implements Spliterator<Object> {
+    private final LogicalPartition partition;
+    private final String[] uniqueIds;
+    private int from;
+    private final int to;
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Object> action) {
+        while(from < to) {
+            Object resource = read(uniqueIds[from++]);
+
+            if(resource != null) {
+                action.accept(resource);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public Spliterator<Object> trySplit() {
+        int middle = (from + to) >>> 1;
+
+        if(middle <= from)
+            return null;
+
+        ResourceSpliterator prefix = new ResourceSpliterator(partition, uniqueIds, from, middle);
+        from = middle;
+
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+
+    /**
+     * This is a private method that reads and deserializes one resource.
+     * @param uniqueId the unique identifier of the resource
+     * @return the resource or null if it was removed since the unique ids were listed
+     */
+    private Object read(String uniqueId) {
+        try {
+            return partition.get(uniqueId);
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        catch (ClassNotFoundException | FileDatabaseInternalException exception) {
+            throw new IllegalStateException("Problem in reading the resource with id " + uniqueId +
+                    " from the partition: " + partition.getName(), exception);
+        }
+    }
+
+    /**
+     * The constructor creates a traversal of the resources of a range of unique ids.
+     * @param partition the partition
+     * @param uniqueIds the unique ids of all the resources, in the order of their keys
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     */
+    ResourceSpliterator(LogicalPartition partition, String[] uniqueIds, int from, int to) {
+        this.partition = partition;
+        this.uniqueIds = uniqueIds;
+        this.from = from;
+        this.to = to;
+    }
+}
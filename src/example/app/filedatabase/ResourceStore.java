@@ -0,0 +1,66 @@
+package example.app.filedatabase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+/**
+ * <h1>Interface ResourceStore</h1>
+ * This interface represents the place where the serialized resources of a partition are stored, inside the data
+ * directory of the partition. A Partition keeps the records and uses a ResourceStore only for the content of the
+ * resources.
+ * <ul>
+ *     <li>FileResourceStore: Each resource is an individual file named by its unique id</li>
+ *     <li>SegmentResourceStore: The resources are appended to large segment files</li>
+ *     <li>LsmResourceStore: The resources are collected in memory and written to sorted runs, which are merged in
+ *     the background</li>
+ * </ul>
+ * All the stores can read either with plain reads or through memory mapped files, as configured by the "read_mode" key
+ * in the database.config file.
+ */
+interface ResourceStore {
+    /**
+     * This method writes the content of a resource. If the resource exists, it overwrites it.
+     * @param uniqueId the unique identifier of the resource
+     * @param content the serialized resource
+     * @param force whether the content should be forced to the disk before returning
+     * @throws IOException if the content could not be written
+     */
+    void write(String uniqueId, byte[] content, boolean force) throws IOException;
+
+    /**
+     * This method reads the content of a resource. In the mapped read mode the returned buffer is a view over a
+     * memory mapped file, so it must only be read.
+     * @param uniqueId the unique identifier of the resource
+     * @return the serialized resource or null if it's not present
+     * @throws IOException if the content could not be read
+     */
+    ByteBuffer read(String uniqueId) throws IOException;
+
+    /**
+     * This method deletes a resource. Nothing is done if it's not present.
+     * @param uniqueId the unique identifier of the resource
+     * @throws IOException if the resource could not be deleted
+     */
+    void delete(String uniqueId) throws IOException;
+
+    /**
+     * This method returns the unique ids of all the stored resources, without reading the resources. It's used to
+     * compare the store with the records of the partition.
+     * @return a copy of the unique ids
+     * @throws IOException if the store could not be listed
+     */
+    Set<String> ids() throws IOException;
+
+    /**
+     * This method forces every written resource to the disk.
+     * @throws IOException if the resources could not be forced
+     */
+    void sync() throws IOException;
+
+    /**
+     * This method closes the store. After that it cannot be used anymore.
+     * @throws IOException if the store could not be closed
+     */
+    void close() throws IOException;
+}
@@ -0,0 +1,37 @@
+package example.app.filedatabase;
+
+import java.util.List;
+
+/**
+ * <h1>Record ScrubReport</h1>
+ * This record is the result of a consistency check of a partition over all its sub-partitions. It's returned by
+ * FileDatabase.scrubPartition() and FileDatabase.rebuildRecords().
+ * @param partitionName the name of the partition
+ * @param checkedResources the number of stored resources that were read and deserialized
+ * @param orphans the unique ids of the stored resources which have no record
+ * @param danglingRecords the unique ids of the records whose resource is not stored
+ * @param corrupt the unique ids of the stored resources which do not match their checksum
+ * @param undeserializable the unique ids of the stored resources which could not be read or deserialized
+ * @param recordsRebuilt whether the records were rebuilt from the stored resources
+ */
+public record ScrubReport(String partitionName, int checkedResources, List<String> orphans,
+                          List<String> danglingRecords, List<String> corrupt, List<String> undeserializable,
+                          boolean recordsRebuilt) {
+    /**
+     * This method checks if no problem was found.
+     * @return true if there are no orphans, dangling records, corrupt or undeserializable resources, false otherwise
+     */
+    public boolean isConsistent() {
+        return orphans.isEmpty() && danglingRecords.isEmpty() && corrupt.isEmpty() && undeserializable.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "Partition \"" + partitionName + "\": " + checkedResources + " resources checked, " +
+                orphans.size() + " orphans " + orphans + ", " +
+                danglingRecords.size() + " dangling records " + danglingRecords + ", " +
+                corrupt.size() + " corrupt " + corrupt + ", " +
+                undeserializable.size() + " undeserializable " + undeserializable +
+                (recordsRebuilt ? ", records rebuilt" : "");
+    }
+}
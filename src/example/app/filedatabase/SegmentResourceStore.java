@@ -0,0 +1,507 @@
+package example.app.filedatabase;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * <h1>Class SegmentResourceStore</h1>
+ * This class stores the resources of a partition packed in large segment files inside the data directory, instead
+ * of one file per resource. A resource is appended to the active segment and an in-memory map keeps the segment,
+ * offset and length of every resource. When the active segment is full, a new one is started.
+ * <br>
+ * Structure of an entry in a segment file:
+ * <ul>
+ *     <li>The unique id of the resource, as written by DataOutput.writeUTF()</li>
+ *     <li>The length of the serialized resource, or -1 for a deleted resource (tombstone)</li>
+ *     <li>The serialized resource</li>
+ * </ul>
+ * When the store is opened, the segments are scanned in order and a later entry of a resource replaces an earlier
+ * one. Overwritten and deleted entries stay in their segments until a background compaction copies the live entries
+ * of a mostly dead segment to the active segment and deletes it. A failed compaction is kept and thrown by the next
+ * write, delete or sync of the store.
+ * <br>
+ * In the mapped read mode every segment is mapped in memory and a read returns a view over the mapping, so reading a
+ * resource does not copy it. The active segment is mapped again only when a read goes past the end of its mapping.
+ */
+final class SegmentResourceStore implements ResourceStore {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final double COMPACTION_DEAD_RATIO = 0.5;
+    private static final int TOMBSTONE = -1;
+
+    /**
+     * <h1>Record Location</h1>
+     * This record represents where an entry is stored.
+     * @param segment the number of the segment
+     * @param position the offset of the entry inside the segment
+     * @param headerLength the length of the id and the length fields of the entry
+     * @param length the length of the serialized resource
+     */
+    private record Location(int segment, long position, int headerLength, int length) {
+        int entryLength() {
+            return headerLength + Math.max(length, 0);
+        }
+    }
+
+    /**
+     * <h1>Interface EntryVisitor</h1>
+     * This interface is called for every entry while a segment is scanned.
+     */
+    private interface EntryVisitor {
+        void visit(String uniqueId, Location location) throws IOException;
+    }
+
+    private final String dataPath;
+    private final long segmentSize;
+    private final ConcurrentHashMap<String, Location> locations = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, FileChannel> segments = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Integer, MappedFile> mappedSegments = new ConcurrentHashMap<>();
+    private final boolean mapped;
+    private final HashMap<Integer, Long> liveBytes = new HashMap<>();
+    private int activeSegment;
+    private long activeSize;
+    private boolean compactionPending = false;
+    private volatile boolean closed = false;
+    private IOException compactionFailure;
+
+    @Override
+    public synchronized void write(String uniqueId, byte[] content, boolean force) throws IOException {
+        throwCompactionFailure();
+
+        Location location = append(uniqueId, content);
+        release(locations.put(uniqueId, location));
+        liveBytes.merge(location.segment(), (long) location.entryLength(), Long::sum);
+
+        if(force)
+            segments.get(activeSegment).force(false);
+
+        scheduleCompactionIfNeeded();
+    }
+
+    @Override
+    public ByteBuffer read(String uniqueId) throws IOException {
+        // A compaction can move the entry between the lookup and the read, in that case it's looked up again
+        while(true) {
+            if(closed)
+                throw new ClosedChannelException();
+
+            Location location = locations.get(uniqueId);
+
+            if(location == null)
+                return null;
+
+            FileChannel channel = segments.get(location.segment());
+
+            if(channel == null)
+                continue;
+
+            try {
+                long contentPosition = location.position() + location.headerLength();
+
+                if(mapped)
+                    return mappedSegments.computeIfAbsent(location.segment(), segment -> new MappedFile(channel))
+                            .slice(contentPosition, location.length());
+
+                ByteBuffer content = ByteBuffer.allocate(location.length());
+                readFully(channel, content, contentPosition);
+                return content.flip();
+            }
+            catch (ClosedChannelException exception) {
+                // The segment was compacted while reading, unless the store itself was closed
+                if(closed)
+                    throw exception;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void delete(String uniqueId) throws IOException {
+        throwCompactionFailure();
+
+        Location location = locations.remove(uniqueId);
+
+        if(location == null)
+            return;
+
+        release(location);
+        append(uniqueId, null);
+        scheduleCompactionIfNeeded();
+    }
+
+    @Override
+    public Set<String> ids() {
+        return new HashSet<>(locations.keySet());
+    }
+
+    @Override
+    public synchronized void sync() throws IOException {
+        throwCompactionFailure();
+        segments.get(activeSegment).force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+
+        for(FileChannel channel : segments.values())
+            channel.close();
+
+        segments.clear();
+        mappedSegments.clear();
+    }
+
+    /**
+     * This method copies the live entries of every sealed segment that is mostly dead to the active segment and
+     * deletes those segments. The copies are forced before a segment is deleted, so a crash in between leaves
+     * both copies, of which the later one wins when the store is opened again.
+     * @throws IOException if a segment could not be read or the entries could not be copied
+     */
+    void compact() throws IOException {
+        synchronized(this) {
+            compactionPending = false;
+        }
+
+        for(int segment : new ArrayList<>(segments.keySet())) {
+            boolean olderSegmentExists;
+
+            synchronized(this) {
+                // The store has been closed in the meantime
+                if(closed)
+                    return;
+
+                if(segment == activeSegment || deadRatio(segment) < COMPACTION_DEAD_RATIO)
+                    continue;
+
+                olderSegmentExists = segments.firstKey() < segment;
+            }
+
+            scanSegment(segment, (uniqueId, location) -> {
+                synchronized(this) {
+                    if(location.length() == TOMBSTONE) {
+                        // A tombstone still hides the resource in an older segment, so it has to be kept
+                        if(olderSegmentExists && !locations.containsKey(uniqueId))
+                            append(uniqueId, null);
+                    }
+                    else if(location.equals(locations.get(uniqueId))) {
+                        ByteBuffer content = ByteBuffer.allocate(location.length());
+                        readFully(segments.get(segment), content, location.position() + location.headerLength());
+
+                        Location newLocation = append(uniqueId, content.array());
+                        locations.put(uniqueId, newLocation);
+                        liveBytes.merge(newLocation.segment(), (long) newLocation.entryLength(), Long::sum);
+                    }
+                }
+            });
+
+            synchronized(this) {
+                segments.get(activeSegment).force(false);
+
+                segments.remove(segment).close();
+                mappedSegments.remove(segment);
+                liveBytes.remove(segment);
+                Files.delete(segmentFile(segment).toPath());
+            }
+        }
+    }
+
+    /**
+     * This is a private method that appends an entry to the active segment. A new segment is started if the entry
+     * does not fit in the active one anymore. It must be called while holding the lock of the store.
+     * @param uniqueId the unique identifier of the resource
+     * @param content the serialized resource or null for a tombstone
+     * @return the location of the appended entry
+     * @throws IOException if the entry could not be written
+     */
+    private Location append(String uniqueId, byte[] content) throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerWriter = new DataOutputStream(header);
+        headerWriter.writeUTF(uniqueId);
+        headerWriter.writeInt(content == null ? TOMBSTONE : content.length);
+
+        int contentLength = content == null ? 0 : content.length;
+
+        if(activeSize > 0 && activeSize + header.size() + contentLength > segmentSize)
+            startSegment(activeSegment + 1);
+
+        ByteBuffer entry = ByteBuffer.allocate(header.size() + contentLength);
+        entry.put(header.toByteArray());
+        if(content != null)
+            entry.put(content);
+        entry.flip();
+
+        FileChannel channel = segments.get(activeSegment);
+        long position = activeSize;
+
+        while(entry.hasRemaining())
+            position += channel.write(entry, position);
+
+        Location location = new Location(activeSegment, activeSize, header.size(), content == null ? TOMBSTONE : contentLength);
+        activeSize = position;
+
+        return location;
+    }
+
+    /**
+     * This is a private method that marks the entry at a location as dead. It must be called while holding the lock
+     * of the store.
+     * @param location the location of the dead entry or null
+     */
+    private void release(Location location) {
+        if(location != null)
+            liveBytes.merge(location.segment(), (long) -location.entryLength(), Long::sum);
+    }
+
+    /**
+     * This is a private method that returns the part of a segment which is taken by dead entries. It must be called
+     * while holding the lock of the store.
+     * @param segment the number of the segment
+     * @return the dead part of the segment between 0 and 1
+     * @throws IOException if the size of the segment could not be read
+     */
+    private double deadRatio(int segment) throws IOException {
+        long size = segments.get(segment).size();
+
+        if(size == 0)
+            return 1;
+
+        return 1 - (double) liveBytes.getOrDefault(segment, 0L) / size;
+    }
+
+    /**
+     * This is a private method that schedules a compaction in the background if a sealed segment is mostly dead.
+     * It must be called while holding the lock of the store.
+     * @throws IOException if the size of a segment could not be read
+     */
+    private void scheduleCompactionIfNeeded() throws IOException {
+        if(compactionPending)
+            return;
+
+        for(int segment : segments.keySet()) {
+            if(segment != activeSegment && deadRatio(segment) >= COMPACTION_DEAD_RATIO) {
+                compactionPending = true;
+                FileDatabase.background().execute(() -> {
+                    try {
+                        compact();
+                    }
+                    catch (IOException | RuntimeException exception) {
+                        synchronized(this) {
+                            if(compactionFailure == null)
+                                compactionFailure = exception instanceof IOException ioException ? ioException :
+                                        new IOException(exception);
+                        }
+                    }
+                });
+                return;
+            }
+        }
+    }
+
+    /**
+     * This is a private method that throws the kept failure of a compaction once. The next write or delete schedules
+     * the compaction again. It must be called while holding the lock of the store.
+     * @throws IOException if a compaction failed since the last time this method was called
+     */
+    private void throwCompactionFailure() throws IOException {
+        if(compactionFailure == null)
+            return;
+
+        IOException failure = compactionFailure;
+        compactionFailure = null;
+
+        throw new IOException("Problem in compacting segments at \"" + dataPath + "\"", failure);
+    }
+
+    /**
+     * This is a private method that opens a segment and makes it the active segment.
+     * @param segment the number of the segment
+     * @throws IOException if the segment could not be opened
+     */
+    private void startSegment(int segment) throws IOException {
+        FileChannel channel = FileChannel.open(segmentFile(segment).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        segments.put(segment, channel);
+        activeSegment = segment;
+        activeSize = channel.size();
+    }
+
+    /**
+     * This is a private method that reads the entries of a segment in order, without reading the resources.
+     * @param segment the number of the segment
+     * @param visitor the visitor called for every complete entry
+     * @return the length of the complete entries in the segment
+     * @throws IOException if the segment could not be read
+     */
+    private long scanSegment(int segment, EntryVisitor visitor) throws IOException {
+        File file = segmentFile(segment);
+        long position = 0;
+
+        try(DataInputStream reader = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            long fileLength = file.length();
+
+            while(position < fileLength) {
+                String uniqueId = reader.readUTF();
+                int length = reader.readInt();
+                int headerLength = 2 + utfLength(uniqueId) + 4;
+
+                if(length < TOMBSTONE || position + headerLength + Math.max(length, 0) > fileLength)
+                    break;
+
+                if(length > 0)
+                    reader.skipNBytes(length);
+
+                visitor.visit(uniqueId, new Location(segment, position, headerLength, length));
+                position += headerLength + Math.max(length, 0);
+            }
+        }
+        catch (EOFException ignored) {
+            // An incomplete entry at the end of the segment has been reached
+        }
+
+        return position;
+    }
+
+    /**
+     * This method returns the number of bytes DataOutput.writeUTF() writes for a string, without the two bytes of
+     * its length.
+     * @param value the string
+     * @return the number of bytes of the encoded string
+     */
+    static int utfLength(String value) {
+        int length = 0;
+
+        for(int i = 0; i < value.length(); i++) {
+            char character = value.charAt(i);
+
+            if(character >= 0x0001 && character <= 0x007F)
+                length += 1;
+            else if(character <= 0x07FF)
+                length += 2;
+            else
+                length += 3;
+        }
+
+        return length;
+    }
+
+    /**
+     * This method reads from a channel until the buffer is full.
+     * @param channel the channel to be read
+     * @param buffer the buffer to be filled
+     * @param position the position in the channel to read from
+     * @throws IOException if the channel could not be read or ends too early
+     */
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+
+            if(read < 0)
+                throw new EOFException("File ended before the end of the requested content");
+
+            position += read;
+        }
+    }
+
+    /**
+     * This method checks if a file in a data directory belongs to this store, so that no other store takes it for the
+     * file of a resource.
+     * @param fileName the name of the file
+     * @return true if the file is a segment, false otherwise
+     */
+    static boolean isStoreFile(String fileName) {
+        return fileName.startsWith(SEGMENT_PREFIX) && fileName.endsWith(SEGMENT_SUFFIX);
+    }
+
+    /**
+     * This is a private method that returns the file of a segment.
+     * @param segment the number of the segment
+     * @return the file of the segment
+     */
+    private File segmentFile(int segment) {
+        return new File(dataPath + "/" + SEGMENT_PREFIX + String.format("%06d", segment) + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * This is a private method that moves the resources stored as individual files in the data directory, in
+     * either layout of the FileResourceStore, into
+     * the segments, so that a partition can switch from FileResourceStore to this store.
+     * @throws IOException if a file could not be read or moved
+     */
+    private void importIndividualFiles() throws IOException {
+        for(File file : FileResourceStore.resourceFiles(dataPath)) {
+            String fileName = file.getName();
+
+            if(!file.isFile() || isStoreFile(fileName) || LsmResourceStore.isStoreFile(fileName))
+                continue;
+
+            if(!fileName.endsWith(".tmp"))
+                write(fileName, Files.readAllBytes(file.toPath()), false);
+
+            Files.delete(file.toPath());
+        }
+
+        FileResourceStore.deleteEmptyShards(dataPath);
+        sync();
+    }
+
+    /**
+     * The constructor opens the segments in a data directory and builds the map of the locations of the resources.
+     * An incomplete entry at the end of the last segment is cut off. A data directory that holds the files of the lsm
+     * storage is not opened, since its files are not resources.
+     * @param dataPath the full path of the data directory
+     * @param segmentSize the size in bytes after which a new segment is started
+     * @param mapped whether the segments are read through memory mapping
+     * @throws IOException if the segments could not be opened or read, or the data directory holds the files of the lsm
+     * storage
+     */
+    SegmentResourceStore(String dataPath, long segmentSize, boolean mapped) throws IOException {
+        this.dataPath = dataPath;
+        this.segmentSize = segmentSize;
+        this.mapped = mapped;
+
+        TreeSet<Integer> segmentNumbers = new TreeSet<>();
+        String[] fileNames = new File(dataPath).list();
+
+        if(fileNames != null) {
+            for(String fileName : fileNames) {
+                if(LsmResourceStore.isStoreFile(fileName))
+                    throw new IOException("Data directory at \"" + dataPath + "\" holds the files of the lsm storage, " +
+                            "so it cannot be opened with the segments storage");
+
+                if(isStoreFile(fileName))
+                    segmentNumbers.add(Integer.parseInt(
+                            fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+
+        for(int segment : segmentNumbers) {
+            long validLength = scanSegment(segment, (uniqueId, location) -> {
+                if(location.length() == TOMBSTONE)
+                    release(locations.remove(uniqueId));
+                else {
+                    release(locations.put(uniqueId, location));
+                    liveBytes.merge(segment, (long) location.entryLength(), Long::sum);
+                }
+            });
+
+            startSegment(segment);
+
+            if(validLength < activeSize) {
+                segments.get(segment).truncate(validLength);
+                activeSize = validLength;
+            }
+        }
+
+        if(segments.isEmpty())
+            startSegment(1);
+
+        importIndividualFiles();
+    }
+}
@@ -0,0 +1,30 @@
+package example.app.filedatabase;
+
+import java.util.List;
+
+/**
+ * <h1>Record VerifyReport</h1>
+ * This record is the result of verifying the checksums of the stored resources of a partition over all its
+ * sub-partitions. It's returned by FileDatabase.verifyPartition().
+ * @param partitionName the name of the partition
+ * @param verifiedResources the number of stored resources that were read
+ * @param resourcesWithoutChecksum the number of resources stored before the checksums existed, which can not be
+ *                                 verified
+ * @param corrupt the unique ids of the stored resources which do not match their checksum or could not be read
+ */
+public record VerifyReport(String partitionName, int verifiedResources, int resourcesWithoutChecksum,
+                           List<String> corrupt) {
+    /**
+     * This method checks if every verified resource matched its checksum.
+     * @return true if no resource is corrupt, false otherwise
+     */
+    public boolean isIntact() {
+        return corrupt.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "Partition \"" + partitionName + "\": " + verifiedResources + " resources verified, " +
+                resourcesWithoutChecksum + " without checksum, " + corrupt.size() + " corrupt " + corrupt;
+    }
+}
@@ -8,7 +8,6 @@ import example.app.entities.exceptions.NullArgumentException;
 import example.app.entitylist.BatchList;
 import example.app.entitylist.FacultyList;
 import example.app.entitylist.exceptions.DuplicatePresentException;
-import example.app.filedatabase.Exceptions.PartitionOverflowException;
 
 import java.util.Scanner;
 import java.util.TreeSet;
@@ -105,10 +104,6 @@ public class BatchUI {
 
                 break;
             }
-            catch (PartitionOverflowException exception) {
-                System.out.println("Partition in the database is full. Cannot add any more batches.");
-                break;
-            }
             catch (DuplicatePresentException exception) {
                 System.out.println("\033[31mSame batch is already present in the database.\033[0m\n");
             }
@@ -132,53 +127,14 @@ public class BatchUI {
     public static void remove() throws Exception {
         System.out.println("\033[1m\033[4mRemove a batch:\033[24m\033[22m\n");
 
-        TreeSet<UUID> ids = new BatchList().getIds();
-
-        System.out.println(new BatchList().getTable(ids));
-
-        Scanner scanner = new Scanner(System.in);
-        int option = 0;
-
-        while(ids.size() != 0) {
-            System.out.print("Choose a batch: ");
-
-            option = Integer.parseInt(scanner.nextLine());
+        Batch batch = PageUI.choose(new BatchList(), new BatchList()::getTable, "Choose a batch");
 
-            if(option < 1 || option > ids.size())
-                System.out.println("\033[31mInvalid option\033[0m\n");
-            else
-                break;
-        }
-
-        if(ids.size() != 0)
-            new BatchList().remove(new BatchList().get(ids.toArray(new UUID[0])[option - 1]));
+        if(batch != null)
+            new BatchList().remove(batch);
     }
 
     public static Batch choose() throws Exception {
-        Batch batch = null;
-
-        TreeSet<UUID> ids = new BatchList().getIds();
-
-        System.out.println(new BatchList().getTable(ids));
-
-        Scanner scanner = new Scanner(System.in);
-        int option = 0;
-
-        while(ids.size() != 0) {
-            System.out.print("Choose a batch: ");
-
-            option = Integer.parseInt(scanner.nextLine());
-
-            if(option < 1 || option > ids.size())
-                System.out.println("\033[31mInvalid option\033[0m\n");
-            else
-                break;
-        }
-
-        if(ids.size() != 0)
-            batch = new BatchList().get(ids.toArray(new UUID[0])[option - 1]);
-
-        return batch;
+        return PageUI.choose(new BatchList(), new BatchList()::getTable, "Choose a batch");
     }
 
     public static void view() throws Exception {
@@ -1,7 +1,9 @@
 package example.app.ui;
 
+import example.app.entities.compartments.Faculty;
 import example.app.entities.users.FacultyUser;
 import example.app.entitylist.FacultyList;
+import example.app.entitylist.Query;
 import example.app.entitylist.UserList;
 import example.app.filedatabase.Exceptions.CannotCreateFileException;
 import example.app.filedatabase.Exceptions.FileDatabaseConfigFileException;
@@ -11,6 +13,7 @@ import java.io.IOException;
 import java.util.Scanner;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * <h1>Class FacultyPageUI</h1>
@@ -20,15 +23,10 @@ public class FacultyPageUI {
     public static TreeSet<UUID> findFaculties(FacultyUser facultyUser)
             throws CannotCreateFileException, FileDatabaseConfigFileException,
             IOException, ClassNotFoundException, FileDatabaseInternalException {
-        TreeSet<UUID> faculties = new TreeSet<>();
-
-        for(UUID key : new FacultyList().getIds()) {
-           if(new FacultyList().get(key).getFacultyUser().equals(facultyUser)) {
-               faculties.add(key);
-           }
-        }
-
-        return faculties;
+        return new FacultyList().find(new Query<Faculty>().equal(FacultyList.FACULTY_USER_ID, facultyUser.getId()))
+                .entities().stream()
+                .map(Faculty::getId)
+                .collect(Collectors.toCollection(TreeSet::new));
     }
 
     public static void login(FacultyUser facultyUser)
@@ -7,7 +7,6 @@ import example.app.entities.users.FacultyUser;
 import example.app.entitylist.BatchList;
 import example.app.entitylist.FacultyList;
 import example.app.entitylist.exceptions.DuplicatePresentException;
-import example.app.filedatabase.Exceptions.PartitionOverflowException;
 
 import java.util.Scanner;
 import java.util.TreeSet;
@@ -87,10 +86,6 @@ public class FacultyUI {
 
                 break;
             }
-            catch (PartitionOverflowException exception) {
-                System.out.println("Partition in the database is full. Cannot add any more faculties.");
-                break;
-            }
             catch (DuplicatePresentException exception) {
                 System.out.println("\033[31mSame faculty is already present in the database.\033[0m\n");
             }
@@ -105,54 +100,16 @@ public class FacultyUI {
     public static void remove() throws Exception {
         System.out.println("\033[1m\033[4mRemove a faculty:\033[24m\033[22m\n");
 
-        TreeSet<UUID> ids = new FacultyList().getIds();
-
-        System.out.println(new FacultyList().getTable(ids));
-
-        Scanner scanner = new Scanner(System.in);
-        int option = 0;
-
-        while(ids.size() != 0) {
-            System.out.print("Choose a faculty: ");
-
-            option = Integer.parseInt(scanner.nextLine());
-
-            if(option < 1 || option > ids.size())
-                System.out.println("\033[31mInvalid option\033[0m\n");
-            else
-                break;
-        }
+        Faculty faculty = PageUI.choose(new FacultyList(), new FacultyList()::getTable, "Choose a faculty");
 
-        if(ids.size() != 0)
-            new FacultyList().remove(new FacultyList().get(ids.toArray(new UUID[0])[option - 1]));
+        if(faculty != null)
+            new FacultyList().remove(faculty);
     }
 
     public static Faculty choose() throws Exception {
         System.out.println("\033[1m\033[4mView a faculty:\033[24m\033[22m\n");
-        Faculty faculty = null;
 
-        TreeSet<UUID> ids = new FacultyList().getIds();
-
-        System.out.println(new FacultyList().getTable(ids));
-
-        Scanner scanner = new Scanner(System.in);
-        int option = 0;
-
-        while(ids.size() != 0) {
-            System.out.print("Choose a faculty: ");
-
-            option = Integer.parseInt(scanner.nextLine());
-
-            if(option < 1 || option > ids.size())
-                System.out.println("\033[31mInvalid option\033[0m\n");
-            else
-                break;
-        }
-
-        if(ids.size() != 0)
-            faculty = new FacultyList().get(ids.toArray(new UUID[0])[option - 1]);
-
-        return faculty;
+        return PageUI.choose(new FacultyList(), new FacultyList()::getTable, "Choose a faculty");
     }
 
     public static void view() throws Exception {
@@ -1,13 +1,11 @@
 package example.app.ui;
 
 import example.app.entities.users.FacultyUser;
+import example.app.entities.users.User;
 import example.app.entitylist.UserList;
 import example.app.entitylist.exceptions.DuplicatePresentException;
-import example.app.filedatabase.Exceptions.PartitionOverflowException;
 
 import java.util.Scanner;
-import java.util.TreeSet;
-import java.util.UUID;
 
 /**
  * <h1>Class FacultyUserUI</h1>
@@ -108,12 +106,8 @@ public class FacultyUserUI {
 
                 break;
             }
-            catch (PartitionOverflowException exception) {
-                System.out.println("Partition in the database is full. Cannot add any more Users.");
-                break;
-            }
             catch (DuplicatePresentException exception) {
-                System.out.println("\033[31mSame user account is already present in the database.\033[0m\n");
+                System.out.println("\033[31mA user with the same username is already present in the database.\033[0m\n");
             }
         }
 
@@ -123,53 +117,16 @@ public class FacultyUserUI {
     public static void remove() throws Exception {
         System.out.println("\033[1m\033[4mRemove a FacultyUser:\033[24m\033[22m\n");
 
-        TreeSet<UUID> ids = new UserList().getIds();
-
-        System.out.println(new UserList().getTable(ids));
-
-        Scanner scanner = new Scanner(System.in);
-        int option = 0;
-
-        while(ids.size() != 0) {
-            System.out.print("Choose a Faculty User: ");
-
-            option = Integer.parseInt(scanner.nextLine());
-
-            if(option < 1 || option > ids.size())
-                System.out.println("\033[31mInvalid option\033[0m\n");
-            else
-                break;
-        }
+        User user = PageUI.choose(new UserList(), new UserList()::getTable, "Choose a Faculty User");
 
-        if(ids.size() != 0)
-            new UserList().remove(new UserList().get(ids.toArray(new UUID[0])[option - 1]));
+        if(user != null)
+            new UserList().remove(user);
     }
 
     public static FacultyUser choose() throws Exception {
         System.out.println("\033[1m\033[4mView a FacultyUser:\033[24m\033[22m\n");
 
-        TreeSet<UUID> ids = new UserList().getIds();
-
-        System.out.println(new UserList().getTable(ids));
-
-        Scanner scanner = new Scanner(System.in);
-        int option = 0;
-
-        while(ids.size() != 0) {
-            System.out.print("Choose a Faculty User: ");
-
-            option = Integer.parseInt(scanner.nextLine());
-
-            if(option < 1 || option > ids.size())
-                System.out.println("\033[31mInvalid option\033[0m\n");
-            else
-                break;
-        }
-
-        if(ids.size() != 0)
-            return (FacultyUser) new UserList().get(ids.toArray(new UUID[0])[option - 1]);
-
-        return null;
+        return (FacultyUser) PageUI.choose(new UserList(), new UserList()::getTable, "Choose a Faculty User");
     }
 
     public static void view() throws Exception {
@@ -0,0 +1,71 @@
+package example.app.ui;
+
+import example.app.entities.FileDatabaseCompatible;
+import example.app.entitylist.EntityList;
+import example.app.entitylist.Page;
+import example.app.entitylist.PageOrder;
+
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * <h1>Class PageUI</h1>
+ * This class contains methods related to the console UI for choosing an entity from a list one page at a time, so
+ * only the entities of the shown page are read
+ */
+public class PageUI {
+    private static final int PAGE_SIZE = 20;
+
+    /**
+     * <h1>Interface TableFormatter</h1>
+     * This interface creates the table of the entities of a page, like the getTable() methods of the lists.
+     * @param <T> type of the entities
+     */
+    public interface TableFormatter<T> {
+        String getTable(List<T> entities);
+    }
+
+    /**
+     * This method shows the entities of a list in pages, the oldest first, and lets the user choose an entity of
+     * the shown page by its number or go to the next page with "n".
+     * @param list the list of the entities
+     * @param formatter the creator of the table of a page
+     * @param prompt the prompt for choosing an entity
+     * @return the chosen entity or null if the list is empty
+     * @param <T> type of the entities
+     * @throws Exception if the entities could not be read
+     */
+    public static <T extends FileDatabaseCompatible> T choose(EntityList<T> list, TableFormatter<T> formatter,
+                                                              String prompt) throws Exception {
+        Scanner scanner = new Scanner(System.in);
+        String cursor = null;
+
+        while(true) {
+            Page<T> page = list.page(PageOrder.OLDEST_FIRST, cursor, PAGE_SIZE);
+            List<T> entities = page.entities();
+
+            System.out.println(formatter.getTable(entities));
+
+            if(entities.isEmpty())
+                return null;
+
+            while(true) {
+                System.out.print(prompt + (page.hasNext() ? " (n for the next page): " : ": "));
+
+                String input = scanner.nextLine();
+
+                if(page.hasNext() && input.equalsIgnoreCase("n")) {
+                    cursor = page.nextCursor();
+                    break;
+                }
+
+                int option = Integer.parseInt(input);
+
+                if(option < 1 || option > entities.size())
+                    System.out.println("\033[31mInvalid option\033[0m\n");
+                else
+                    return entities.get(option - 1);
+            }
+        }
+    }
+}
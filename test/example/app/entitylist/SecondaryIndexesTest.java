@@ -0,0 +1,162 @@
+package example.app.entitylist;
+
+import example.app.entities.users.FacultyUser;
+import example.app.entities.users.User;
+import example.app.entitylist.exceptions.DuplicatePresentException;
+import example.app.filedatabase.FileDatabase;
+import example.app.filedatabase.RecordEntry;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * <h1>Class SecondaryIndexesTest</h1>
+ * This class tests the unique username index of a user list: it's built from the users the first time it's needed,
+ * an edit moves the entry of a user, a taken username is rejected and an entry left over from an interrupted write
+ * is ignored. The index and its catalog are records only, so nothing is written to their data directories.
+ * <br>
+ * The database.config file of the test is written to a temporary directory and given with the "database.config"
+ * system property, before the file database is used.
+ */
+final class SecondaryIndexesTest {
+    private static final String LIST_NAME = "users";
+    private static final String INDEX_NAME = LIST_NAME + "_by_username";
+    private static final String CATALOG_NAME = LIST_NAME + "_indexes";
+
+    private SecondaryIndexesTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        File root = Files.createTempDirectory("indexes").toFile();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> delete(root)));
+
+        File configFile = new File(root, "database.config");
+        FileWriter writer = new FileWriter(configFile);
+        try {
+            writer.write("root = " + new File(root, "db").getPath() + "\n");
+        }
+        finally {
+            writer.close();
+        }
+        System.setProperty("database.config", configFile.getPath());
+
+        FacultyUser alice = new FacultyUser("alice", "pw", "Alice", "A", "alice@example.com");
+        FacultyUser bob = new FacultyUser("bob", "pw", "Bob", "B", "bob@example.com");
+
+        // The users are written without their list, like users from before the index was declared
+        for(User user : List.of(alice, bob))
+            FileDatabase.addResource(LIST_NAME, user.getCreationDate(), user.getId().toString(), user);
+
+        UserList users = new UserList(LIST_NAME);
+
+        buildsOnFirstOpen(users, alice, bob);
+        movesEntryOnEdit(users, alice);
+        rejectsTakenUsername(users);
+        ignoresLeftoverEntry(users);
+
+        File[] dataFiles = new File(root, "db/" + INDEX_NAME + "/data").listFiles();
+        check(dataFiles == null || dataFiles.length == 0, "the index wrote to its data directory");
+        dataFiles = new File(root, "db/" + CATALOG_NAME + "/data").listFiles();
+        check(dataFiles == null || dataFiles.length == 0, "the catalog wrote to its data directory");
+
+        System.out.println("SecondaryIndexesTest ok");
+    }
+
+    /**
+     * This is a private method that checks the index is built from the users which are already in the list, and
+     * that it's named in the catalog once it's built.
+     * @param users the list
+     * @param alice a user of the list
+     * @param bob another user of the list
+     * @throws Exception if the test fails to run
+     */
+    private static void buildsOnFirstOpen(UserList users, User alice, User bob) throws Exception {
+        check(Objects.equals(alice.getId(), idOf(users.findByUsername("alice"))), "alice is not found by the built index");
+        check(Objects.equals(bob.getId(), idOf(users.findByUsername("bob"))), "bob is not found by the built index");
+        checkEquals(List.of(alice.getId().toString()),
+                FileDatabase.getIdsOfResourcesBetween(INDEX_NAME, "alice", "alice"), "entries of alice");
+        check(FileDatabase.getIdsOfResources(CATALOG_NAME).contains(INDEX_NAME + "_unique"),
+                "the built index is not in the catalog");
+    }
+
+    /**
+     * This is a private method that checks an edit of the username moves the entry of the user.
+     * @param users the list
+     * @param alice a user of the list
+     * @throws Exception if the test fails to run
+     */
+    private static void movesEntryOnEdit(UserList users, User alice) throws Exception {
+        alice.setUsername("alicia");
+        users.edit(alice);
+
+        check(users.findByUsername("alice") == null, "the old username still finds the user");
+        check(Objects.equals(alice.getId(), idOf(users.findByUsername("alicia"))), "the new username does not find the user");
+        checkEquals(List.of(), FileDatabase.getIdsOfResourcesBetween(INDEX_NAME, "alice", "alice"), "entries of the old username");
+        checkEquals(List.of(alice.getId().toString()),
+                FileDatabase.getIdsOfResourcesBetween(INDEX_NAME, "alicia", "alicia"), "entries of the new username");
+    }
+
+    /**
+     * This is a private method that checks a user with the username of another one is not added.
+     * @param users the list
+     * @throws Exception if the test fails to run
+     */
+    private static void rejectsTakenUsername(UserList users) throws Exception {
+        try {
+            users.add(new FacultyUser("bob", "pw", "Other", "B", "other@example.com"));
+            throw new AssertionError("a taken username was accepted");
+        }
+        catch (DuplicatePresentException expected) {
+            check(expected.getMessage().contains("username"), "the conflict does not name the username");
+        }
+
+        checkEquals(2, users.getIds().size(), "users after the taken username was rejected");
+    }
+
+    /**
+     * This is a private method that checks an entry whose user is missing, like one left over from an interrupted
+     * add, neither makes its username taken nor shows up in a query.
+     * @param users the list
+     * @throws Exception if the test fails to run
+     */
+    private static void ignoresLeftoverEntry(UserList users) throws Exception {
+        FileDatabase.addRecords(INDEX_NAME, List.of(new RecordEntry("carol", UUID.randomUUID().toString())));
+        check(users.findByUsername("carol") == null, "the leftover entry was found");
+
+        FacultyUser carol = new FacultyUser("carol", "pw", "Carol", "C", "carol@example.com");
+        users.add(carol);
+
+        check(Objects.equals(carol.getId(), idOf(users.findByUsername("carol"))), "carol is not found after the leftover entry");
+        checkEquals(3, users.getIds().size(), "users after carol was added");
+    }
+
+    private static UUID idOf(User user) {
+        return user == null ? null : user.getId();
+    }
+
+    private static void check(boolean condition, String message) {
+        if(!condition)
+            throw new AssertionError(message);
+    }
+
+    private static void checkEquals(Object expected, Object actual, String description) {
+        if(!Objects.equals(expected, actual))
+            throw new AssertionError(description + ": expected " + expected + " but was " + actual);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+
+        if(children != null) {
+            for(File child : children)
+                delete(child);
+        }
+
+        file.delete();
+    }
+}
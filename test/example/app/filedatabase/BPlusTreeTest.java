@@ -0,0 +1,163 @@
+package example.app.filedatabase;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static example.app.filedatabase.TestSupport.check;
+import static example.app.filedatabase.TestSupport.checkEquals;
+
+/**
+ * <h1>Class BPlusTreeTest</h1>
+ * This class tests the paged B+tree of the btree record index: enough entries to split the leaves and the inner
+ * nodes, range scans in both directions, the merging of the nodes while most entries are removed and the reading of
+ * the tree back from its file. It also checks the encoded string keys are in the order of String.compareTo().
+ */
+final class BPlusTreeTest {
+    private static final int ENTRIES_COUNT = 20000;
+    private static final int KEPT_EVERY = 500;
+    private static final int SLOT = 0;
+
+    private BPlusTreeTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        File file = new File(TestSupport.newDirectory("btree"), "record.tree");
+        PageFile pageFile = new PageFile(file);
+        BPlusTree tree = new BPlusTree(pageFile, SLOT);
+
+        ArrayList<Integer> numbers = new ArrayList<>();
+        for(int i = 0; i < ENTRIES_COUNT; i++)
+            numbers.add(i);
+        Collections.shuffle(numbers, new Random(11));
+
+        for(int number : numbers)
+            check(tree.put(key(number), value(number)), "key " + number + " was present before it was added");
+
+        check(!tree.put(key(7), value(8)), "a replaced value was counted as a new entry");
+        tree.put(key(7), value(7));
+        checkEquals((long) ENTRIES_COUNT, tree.size(), "entries after the splits");
+        check(!isLeaf(pageFile, pageFile.root(SLOT)), "the root was not split");
+        check(!isLeaf(pageFile, firstChild(pageFile, pageFile.root(SLOT))), "the inner nodes were not split");
+        checkEntries(tree, 0, ENTRIES_COUNT, 1, "after the splits");
+
+        checkEquals(range(1000, 1500, 1), scan(tree, key(1000), key(1500)), "range scan");
+        checkEquals(range(ENTRIES_COUNT - 1, ENTRIES_COUNT - 21, -1),
+                scanDescending(tree, null, 20), "descending scan from the end");
+        checkEquals(range(4999, 4899, -1), scanDescending(tree, key(5000), 100), "descending scan below a key");
+
+        for(int number : numbers) {
+            if(number % KEPT_EVERY != 0)
+                check(tree.remove(key(number)), "key " + number + " was not removed");
+        }
+
+        check(!tree.remove(key(1)), "a removed key was removed again");
+        checkEquals((long) (ENTRIES_COUNT / KEPT_EVERY), tree.size(), "entries after the removals");
+        check(isLeaf(pageFile, pageFile.root(SLOT)), "the nodes were not merged back into one leaf");
+        checkEntries(tree, 0, ENTRIES_COUNT, KEPT_EVERY, "after the merges");
+        checkEquals(range(1000, 5000, KEPT_EVERY), scan(tree, key(1000), key(5000)), "range scan after the merges");
+        checkEquals(range(4500, -1, -KEPT_EVERY), scanDescending(tree, key(4600), Integer.MAX_VALUE),
+                "descending scan after the merges");
+
+        pageFile.flush(pageFile.snapshot());
+        pageFile.close();
+
+        pageFile = new PageFile(file);
+        try {
+            tree = new BPlusTree(pageFile, SLOT);
+            checkEquals((long) (ENTRIES_COUNT / KEPT_EVERY), tree.size(), "entries after reopening");
+            checkEntries(tree, 0, ENTRIES_COUNT, KEPT_EVERY, "after reopening");
+        }
+        finally {
+            pageFile.close();
+        }
+
+        keysInStringOrder();
+
+        System.out.println("BPlusTreeTest ok");
+    }
+
+    /**
+     * This is a private method that checks the encoded string keys sort and decode like the strings, also for the
+     * characters whose UTF-8 bytes are in another order than their UTF-16 code units.
+     * @throws Exception if a key could not be encoded or decoded
+     */
+    private static void keysInStringOrder() throws Exception {
+        List<String> strings = List.of("", "a", "a\0", "a\0b", "ab", "b", "\u00e9", "\u0100", "\ud83d\ude00",
+                "\ue000", "\uffff", "\ud800", "z\uffffz");
+
+        for(String first : strings) {
+            checkEquals(first, RecordKeys.decode(ByteBuffer.wrap(RecordKeys.encode(first))), "decoded key");
+
+            for(String second : strings) {
+                int expected = Integer.signum(first.compareTo(second));
+                int actual = Integer.signum(Arrays.compareUnsigned(RecordKeys.encode(first), RecordKeys.encode(second)));
+
+                checkEquals(expected, actual, "order of \"" + first + "\" and \"" + second + "\"");
+            }
+        }
+    }
+
+    /**
+     * This is a private method that checks the tree holds exactly the entries of some numbers, in their order.
+     * @param tree the tree
+     * @param from the first number
+     * @param to the end of the numbers, exclusive
+     * @param step the step between the numbers
+     * @param description when the entries are checked
+     * @throws Exception if the tree could not be read
+     */
+    private static void checkEntries(BPlusTree tree, int from, int to, int step, String description) throws Exception {
+        checkEquals(range(from, to, step), scan(tree, null, null), "entries " + description);
+
+        for(int number = from; number < to; number += step)
+            check(Arrays.equals(value(number), tree.get(key(number))), "value of key " + number + " " + description);
+
+        if(step > 1)
+            check(tree.get(key(from + 1)) == null, "a removed key is still found " + description);
+    }
+
+    private static List<Integer> scan(BPlusTree tree, byte[] fromKey, byte[] toKey) throws Exception {
+        ArrayList<Integer> numbers = new ArrayList<>();
+
+        tree.scan(fromKey, toKey, (key, value) -> numbers.add(ByteBuffer.wrap(key).getInt()));
+        return numbers;
+    }
+
+    private static List<Integer> scanDescending(BPlusTree tree, byte[] toKey, int limit) throws Exception {
+        ArrayList<Integer> numbers = new ArrayList<>();
+
+        tree.scanDescending(toKey, (key, value) -> numbers.add(ByteBuffer.wrap(key).getInt()) && numbers.size() < limit);
+        return numbers;
+    }
+
+    private static List<Integer> range(int from, int to, int step) {
+        ArrayList<Integer> numbers = new ArrayList<>();
+
+        for(int number = from; step > 0 ? number < to : number > to; number += step)
+            numbers.add(number);
+
+        return numbers;
+    }
+
+    private static boolean isLeaf(PageFile pageFile, int page) throws Exception {
+        return pageFile.read(page)[0] == 0;
+    }
+
+    private static int firstChild(PageFile pageFile, int page) throws Exception {
+        return ByteBuffer.wrap(pageFile.read(page), 3, 4).getInt();
+    }
+
+    // The keys are padded, so a leaf holds few of them and the tree gets three levels
+    private static byte[] key(int number) {
+        return ByteBuffer.allocate(40).putInt(number).array();
+    }
+
+    private static byte[] value(int number) {
+        return Integer.toString(number).getBytes();
+    }
+}
@@ -0,0 +1,59 @@
+package example.app.filedatabase;
+
+import java.io.IOException;
+
+import static example.app.filedatabase.TestSupport.check;
+import static example.app.filedatabase.TestSupport.checkEquals;
+
+/**
+ * <h1>Class BackgroundFailureTest</h1>
+ * This class tests that a failure of the background work of a partition is thrown by the next change or sync, only
+ * once, and that the partition keeps working afterwards.
+ */
+final class BackgroundFailureTest {
+    private BackgroundFailureTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Partition partition = TestSupport.openPartition(TestSupport.newDirectory("failure").getPath(), Long.MAX_VALUE);
+        try {
+            partition.add("a", "id-1", "resource-1");
+
+            IOException failure = new IOException("disk full");
+            partition.failInBackground(failure);
+            partition.failInBackground(new IOException("later failure"));
+
+            try {
+                partition.add("b", "id-2", "resource-2");
+                throw new AssertionError("the background failure was not thrown by the next change");
+            }
+            catch (IOException expected) {
+                check(expected.getCause() == failure, "the first background failure was not the one thrown");
+            }
+
+            check(!partition.contains("id-2"), "the change which threw the background failure was applied");
+
+            partition.add("b", "id-2", "resource-2");
+            partition.sync();
+            checkEquals(2, partition.size(), "resources after the background failure was thrown");
+
+            partition.failInBackground(new IllegalStateException("checkpoint failed"));
+
+            try {
+                partition.sync();
+                throw new AssertionError("the background failure was not thrown by the next sync");
+            }
+            catch (IOException expected) {
+                check(expected.getCause() instanceof IOException, "the background failure was not wrapped");
+            }
+
+            partition.remove("id-1");
+            checkEquals(1, partition.size(), "resources after the second background failure was thrown");
+        }
+        finally {
+            partition.close();
+        }
+
+        System.out.println("BackgroundFailureTest ok");
+    }
+}
@@ -0,0 +1,171 @@
+package example.app.filedatabase;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static example.app.filedatabase.TestSupport.check;
+import static example.app.filedatabase.TestSupport.checkEquals;
+
+/**
+ * <h1>Class LsmResourceStoreTest</h1>
+ * This class tests the flushing of the lsm storage under load. The writers hold a lock like the one of a partition
+ * while the memtable fills up, and a task of the background executor needs the same lock, so a flush which waited
+ * on that executor would never finish.
+ */
+final class LsmResourceStoreTest {
+    private static final int WRITERS_COUNT = 4;
+    private static final int WRITES_PER_WRITER = 5000;
+    private static final int MEMTABLE_SIZE = 4096;
+    private static final long TIMEOUT_SECONDS = 60;
+
+    private LsmResourceStoreTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String directory = TestSupport.newDirectory("lsm").getPath();
+
+        flushesUnderLoad(directory);
+        reopensWithAllResources(directory);
+        reopensAfterClosingDuringCompaction();
+
+        System.out.println("LsmResourceStoreTest ok");
+    }
+
+    /**
+     * This is a private method that writes many more resources than the memtable holds from several threads and
+     * checks every one of them is read back.
+     * @param directory the path of the data directory
+     * @throws Exception if the test fails to run
+     */
+    private static void flushesUnderLoad(String directory) throws Exception {
+        LsmResourceStore store = new LsmResourceStore(directory, MEMTABLE_SIZE, false);
+        ReentrantReadWriteLock partitionLock = new ReentrantReadWriteLock();
+
+        // Like the sync and checkpoint of a partition, this task needs the lock held by the writers
+        ScheduledFuture<?> partitionTask = FileDatabase.background().scheduleAtFixedRate(() -> {
+            partitionLock.readLock().lock();
+            partitionLock.readLock().unlock();
+        }, 0, 1, TimeUnit.MILLISECONDS);
+
+        ExecutorService writers = Executors.newFixedThreadPool(WRITERS_COUNT);
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+
+            for(int writer = 0; writer < WRITERS_COUNT; writer++) {
+                int writerNumber = writer;
+
+                writes.add(writers.submit(() -> {
+                    for(int i = 0; i < WRITES_PER_WRITER; i++) {
+                        partitionLock.writeLock().lock();
+                        try {
+                            store.write(uniqueId(writerNumber, i), content(writerNumber, i), false);
+                        }
+                        finally {
+                            partitionLock.writeLock().unlock();
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            for(Future<?> write : writes) {
+                try {
+                    write.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                }
+                catch (TimeoutException exception) {
+                    throw new AssertionError("the writers did not finish, the flush is stuck", exception);
+                }
+            }
+
+            store.sync();
+            checkResources(store, "after the load");
+        }
+        finally {
+            writers.shutdownNow();
+            partitionTask.cancel(false);
+            store.close();
+        }
+    }
+
+    /**
+     * This is a private method that checks the flushed runs and the log of the memtable give back every resource.
+     * @param directory the path of the data directory
+     * @throws Exception if the test fails to run
+     */
+    private static void reopensWithAllResources(String directory) throws Exception {
+        LsmResourceStore store = new LsmResourceStore(directory, MEMTABLE_SIZE, false);
+        try {
+            checkResources(store, "after reopening");
+        }
+        finally {
+            store.close();
+        }
+    }
+
+    /**
+     * This is a private method that closes a store while its flushes and compactions are still running and checks
+     * the store is reopened at once with all its resources, so nothing of the closed store touches its files anymore.
+     * @throws Exception if the test fails to run
+     */
+    private static void reopensAfterClosingDuringCompaction() throws Exception {
+        String directory = TestSupport.newDirectory("lsm").getPath();
+
+        for(int round = 0; round < 5; round++) {
+            LsmResourceStore store = new LsmResourceStore(directory, MEMTABLE_SIZE, false);
+            try {
+                for(int i = 0; i < WRITES_PER_WRITER; i++)
+                    store.write(uniqueId(round, i), content(round, i), false);
+            }
+            finally {
+                store.close();
+            }
+        }
+
+        LsmResourceStore store = new LsmResourceStore(directory, MEMTABLE_SIZE, false);
+        try {
+            checkEquals(5 * WRITES_PER_WRITER, store.ids().size(), "resources after closing during compaction");
+
+            for(int round = 0; round < 5; round++)
+                checkEquals(content(round, 0).length, store.read(uniqueId(round, 0)).remaining(),
+                        "resource of round " + round);
+        }
+        finally {
+            store.close();
+        }
+    }
+
+    /**
+     * This is a private method that checks the store holds the resources of every writer.
+     * @param store the store
+     * @param description what is checked
+     * @throws Exception if the resources could not be read
+     */
+    private static void checkResources(LsmResourceStore store, String description) throws Exception {
+        checkEquals(WRITERS_COUNT * WRITES_PER_WRITER, store.ids().size(), "resources " + description);
+
+        for(int writer = 0; writer < WRITERS_COUNT; writer++) {
+            for(int i = 0; i < WRITES_PER_WRITER; i++) {
+                ByteBuffer stored = store.read(uniqueId(writer, i));
+                check(stored != null, "resource " + uniqueId(writer, i) + " is missing " + description);
+                checkEquals(content(writer, i).length, stored.remaining(),
+                        "length of " + uniqueId(writer, i) + " " + description);
+            }
+        }
+    }
+
+    private static String uniqueId(int writer, int i) {
+        return writer + "-" + i;
+    }
+
+    private static byte[] content(int writer, int i) {
+        return new byte[64 + (writer * 31 + i) % 64];
+    }
+}
@@ -0,0 +1,154 @@
+package example.app.filedatabase;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static example.app.filedatabase.TestSupport.check;
+import static example.app.filedatabase.TestSupport.checkEquals;
+
+/**
+ * <h1>Class RecordLogReplayTest</h1>
+ * This class tests the replay of the record.log file: the entries on top of the records, the torn entry left by a
+ * crash, the order of record.log.old and record.log, and a partition reopened before any checkpoint.
+ */
+final class RecordLogReplayTest {
+    private RecordLogReplayTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        replaysPutsAndRemoves();
+        cutsOffTornEntry();
+        replaysOldLogFirst();
+        reopensPartitionWithoutCheckpoint();
+
+        System.out.println("RecordLogReplayTest ok");
+    }
+
+    /**
+     * This is a private method that checks the puts, the fingerprints and the removes of a log are replayed.
+     * @throws Exception if the test fails to run
+     */
+    private static void replaysPutsAndRemoves() throws Exception {
+        File logFile = new File(TestSupport.newDirectory("replay"), "record.log");
+
+        RecordLog log = new RecordLog(logFile);
+        log.appendPut("b", "id-1", null);
+        log.appendPut("a", "id-2", 42);
+        log.appendPut("c", "id-1", 7);
+        log.appendRemove("id-2");
+        log.appendPut("d", "id-3", null);
+        log.close(true);
+
+        RecordIndex records = new RecordIndex();
+        RecordLog.replay(logFile, records);
+
+        checkEquals(2, records.size(), "replayed records");
+        checkEquals("c", records.keyOf("id-1"), "key of a replaced record");
+        checkEquals(7, records.fingerprintOf("id-1"), "fingerprint of a replaced record");
+        check(!records.contains("id-2"), "a removed record was replayed");
+        checkEquals("d", records.keyOf("id-3"), "key of a record without fingerprint");
+        checkEquals(null, records.fingerprintOf("id-3"), "fingerprint of a record without fingerprint");
+    }
+
+    /**
+     * This is a private method that checks an incomplete entry at the end of the log is ignored and cut off, so
+     * the entries appended after the reopening are replayed as well.
+     * @throws Exception if the test fails to run
+     */
+    private static void cutsOffTornEntry() throws Exception {
+        File logFile = new File(TestSupport.newDirectory("replay"), "record.log");
+
+        RecordLog log = new RecordLog(logFile);
+        log.appendPut("a", "id-1", 1);
+        long completeLength = log.appendPut("b", "id-2", 2);
+        log.appendPut("c", "id-3", 3);
+        log.close(true);
+
+        // A crash in the middle of the last write leaves only a part of it in the file
+        try(RandomAccessFile file = new RandomAccessFile(logFile, "rw")) {
+            file.setLength(completeLength + 5);
+        }
+
+        RecordIndex records = new RecordIndex();
+        RecordLog.replay(logFile, records);
+
+        checkEquals(2, records.size(), "records before the torn entry");
+        check(!records.contains("id-3"), "the torn entry was replayed");
+        checkEquals(completeLength, logFile.length(), "length of the log after the torn entry was cut off");
+
+        log = new RecordLog(logFile);
+        log.appendRemove("id-1");
+        log.close(true);
+
+        records = new RecordIndex();
+        RecordLog.replay(logFile, records);
+
+        checkEquals(1, records.size(), "records after appending to the repaired log");
+        check(!records.contains("id-1"), "the entry appended after the torn entry was lost");
+    }
+
+    /**
+     * This is a private method that checks the changes of record.log win over the ones of record.log.old, which
+     * is left by a checkpoint that did not finish.
+     * @throws Exception if the test fails to run
+     */
+    private static void replaysOldLogFirst() throws Exception {
+        File directory = TestSupport.newDirectory("replay");
+
+        RecordLog oldLog = new RecordLog(new File(directory, "record.log.old"));
+        oldLog.appendPut("a", "id-1", 1);
+        oldLog.appendPut("b", "id-2", 2);
+        oldLog.close(true);
+
+        RecordLog log = new RecordLog(new File(directory, "record.log"));
+        log.appendRemove("id-1");
+        log.appendPut("z", "id-2", 3);
+        log.close(true);
+
+        new RecordIndex().write(new File(directory, "record.ser"));
+        String path = directory.getPath();
+
+        Partition partition = TestSupport.openPartition(path, Long.MAX_VALUE);
+        try {
+            checkEquals(1, partition.size(), "records after both logs");
+            checkEquals("z", partition.keyOf("id-2"), "key changed by the newer log");
+        }
+        finally {
+            partition.close();
+        }
+    }
+
+    /**
+     * This is a private method that checks a partition closed before any checkpoint gets its records back from the
+     * record.log file, with the resources they point at.
+     * @throws Exception if the test fails to run
+     */
+    private static void reopensPartitionWithoutCheckpoint() throws Exception {
+        String path = TestSupport.newDirectory("replay").getPath();
+
+        Partition partition = TestSupport.openPartition(path, Long.MAX_VALUE);
+        try {
+            for(int i = 0; i < 100; i++)
+                partition.add("key-" + i, "id-" + i, "resource-" + i);
+
+            for(int i = 0; i < 100; i += 3)
+                partition.remove("id-" + i);
+        }
+        finally {
+            partition.close();
+        }
+
+        check(new File(path, "record.log").length() > 0, "the changes were not appended to the log");
+
+        partition = TestSupport.openPartition(path, Long.MAX_VALUE);
+        try {
+            checkEquals(66, partition.size(), "records after reopening");
+            checkEquals(null, partition.get("id-0"), "a removed resource after reopening");
+            checkEquals("resource-1", partition.get("id-1"), "a resource after reopening");
+            checkEquals("key-98", partition.keyOf("id-98"), "a key after reopening");
+        }
+        finally {
+            partition.close();
+        }
+    }
+}
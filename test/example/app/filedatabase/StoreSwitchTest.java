@@ -0,0 +1,149 @@
+package example.app.filedatabase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static example.app.filedatabase.TestSupport.check;
+import static example.app.filedatabase.TestSupport.checkEquals;
+
+/**
+ * <h1>Class StoreSwitchTest</h1>
+ * This class tests the switching of the storage.format key on a data directory that already holds resources: the
+ * files storage is imported by every other storage, while the segments and lsm storages refuse to be opened with
+ * another storage and keep their resources.
+ */
+final class StoreSwitchTest {
+    private static final int RESOURCES_COUNT = 300;
+    private static final String[] FORMATS = {"files", "hashed", "segments", "lsm"};
+
+    private StoreSwitchTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        for(String from : FORMATS) {
+            for(String to : FORMATS) {
+                boolean imported = from.equals(to) || from.equals("files") || from.equals("hashed");
+
+                if(imported)
+                    importsResources(from, to);
+                else
+                    refusesAndKeepsResources(from, to);
+            }
+        }
+
+        System.out.println("StoreSwitchTest ok");
+    }
+
+    /**
+     * This is a private method that checks a data directory written by one storage is read whole by another one.
+     * @param from the storage which writes the resources
+     * @param to the storage which opens the data directory afterwards
+     * @throws Exception if the test fails to run
+     */
+    private static void importsResources(String from, String to) throws Exception {
+        String directory = writeResources(from);
+
+        ResourceStore store = open(to, directory);
+        try {
+            checkResources(store, from + " opened with " + to);
+        }
+        finally {
+            store.close();
+        }
+    }
+
+    /**
+     * This is a private method that checks a data directory written by one storage can't be opened by another one,
+     * and that the resources are still read by the first storage afterwards.
+     * @param from the storage which writes the resources
+     * @param to the storage which must refuse the data directory
+     * @throws Exception if the test fails to run
+     */
+    private static void refusesAndKeepsResources(String from, String to) throws Exception {
+        String directory = writeResources(from);
+
+        try {
+            open(to, directory).close();
+            throw new AssertionError(from + " was opened with " + to);
+        }
+        catch (IOException expected) {
+            check(expected.getMessage().contains(from), "the refusal does not name the " + from + " storage: " +
+                    expected.getMessage());
+        }
+
+        ResourceStore store = open(from, directory);
+        try {
+            checkResources(store, from + " after refusing " + to);
+        }
+        finally {
+            store.close();
+        }
+    }
+
+    /**
+     * This is a private method that writes the resources with a storage into a new data directory.
+     * @param format the storage
+     * @return the path of the data directory
+     * @throws IOException if the resources could not be written
+     */
+    private static String writeResources(String format) throws IOException {
+        String directory = TestSupport.newDirectory("switch").getPath();
+
+        ResourceStore store = open(format, directory);
+        try {
+            for(int i = 0; i < RESOURCES_COUNT; i++)
+                store.write(uniqueId(i), content(i), false);
+        }
+        finally {
+            store.close();
+        }
+
+        return directory;
+    }
+
+    /**
+     * This is a private method that checks a storage holds all the written resources.
+     * @param store the storage
+     * @param description what is checked
+     * @throws IOException if the resources could not be read
+     */
+    private static void checkResources(ResourceStore store, String description) throws IOException {
+        checkEquals(RESOURCES_COUNT, store.ids().size(), "resources of " + description);
+
+        for(int i = 0; i < RESOURCES_COUNT; i++) {
+            ByteBuffer stored = store.read(uniqueId(i));
+            check(stored != null, "resource " + i + " is missing in " + description);
+
+            byte[] bytes = new byte[stored.remaining()];
+            stored.get(bytes);
+            checkEquals(new String(content(i), StandardCharsets.UTF_8), new String(bytes, StandardCharsets.UTF_8),
+                    "resource " + i + " in " + description);
+        }
+    }
+
+    /**
+     * This is a private method that opens a data directory with a storage, like FileDatabase.openResourceStore()
+     * does for the storage.format key.
+     * @param format the storage
+     * @param directory the path of the data directory
+     * @return the opened storage
+     * @throws IOException if the storage could not be opened
+     */
+    private static ResourceStore open(String format, String directory) throws IOException {
+        return switch(format) {
+            case "files" -> new FileResourceStore(directory, false, false);
+            case "hashed" -> new FileResourceStore(directory, false, true);
+            case "segments" -> new SegmentResourceStore(directory, 1 << 20, false);
+            default -> new LsmResourceStore(directory, 4096, false);
+        };
+    }
+
+    private static String uniqueId(int i) {
+        return "resource-" + i;
+    }
+
+    private static byte[] content(int i) {
+        return ("content of resource " + i).getBytes(StandardCharsets.UTF_8);
+    }
+}
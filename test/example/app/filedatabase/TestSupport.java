@@ -0,0 +1,87 @@
+package example.app.filedatabase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * <h1>Class TestSupport</h1>
+ * This class provides what the tests of the file database share: temporary directories, the opening of a partition
+ * without a database.config file and the checks. The tests have no dependencies, every test class is run with its
+ * main method and fails with an AssertionError.
+ */
+final class TestSupport {
+    private TestSupport() {
+    }
+
+    /**
+     * This method creates an empty temporary directory, which is deleted when the JVM exits.
+     * @param prefix the prefix of the name of the directory
+     * @return the directory
+     * @throws IOException if the directory could not be created
+     */
+    static File newDirectory(String prefix) throws IOException {
+        File directory = Files.createTempDirectory(prefix).toFile();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> delete(directory)));
+
+        return directory;
+    }
+
+    /**
+     * This method opens a partition directory with the files storage, the OS fsync policy and no compression, like
+     * FileDatabase.openSubPartition() does with the default keys.
+     * @param path the full path of the partition directory
+     * @param checkpointSize the size of the record.log file after which a checkpoint is taken
+     * @return the opened partition
+     * @throws IOException if the partition could not be opened
+     * @throws ClassNotFoundException if the class of a record key is not found
+     */
+    static Partition openPartition(String path, long checkpointSize) throws IOException, ClassNotFoundException {
+        new File(path + "/data").mkdirs();
+
+        File recordFile = new File(path + "/record.ser");
+
+        if(!recordFile.exists())
+            new RecordIndex().write(recordFile);
+
+        return new Partition("test", path, Integer.MAX_VALUE, checkpointSize, FsyncPolicy.OS, 1000,
+                new FileResourceStore(path + "/data", false, false), false,
+                new ResourceCompressor(new File(path + "/compression.dict"), false, 6), 0, true, false, false);
+    }
+
+    /**
+     * This method fails the test if a condition does not hold.
+     * @param condition the condition
+     * @param message what went wrong
+     */
+    static void check(boolean condition, String message) {
+        if(!condition)
+            throw new AssertionError(message);
+    }
+
+    /**
+     * This method fails the test if two values are not equal.
+     * @param expected the expected value
+     * @param actual the actual value
+     * @param message what is compared
+     */
+    static void checkEquals(Object expected, Object actual, String message) {
+        if(expected == null ? actual != null : !expected.equals(actual))
+            throw new AssertionError(message + ": expected " + expected + " but was " + actual);
+    }
+
+    /**
+     * This is a private method that deletes a file or a directory with everything inside it.
+     * @param file the file or directory
+     */
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+
+        if(children != null) {
+            for(File child : children)
+                delete(child);
+        }
+
+        file.delete();
+    }
+}